@@ -0,0 +1,305 @@
+package com.github.stream4j;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A source whose elements are computed in the background, ahead of the consumer. The number of elements computed in
+ * advance is bounded, so that a slow consumer blocks the background tasks (backpressure). Exceptions thrown in the
+ * background are rethrown to the consumer. When the pipeline has been evaluated, the background tasks are cancelled,
+ * even if the terminal operation stopped early.
+ * @param <T> the type of the elements
+ */
+final class AsyncSource<T> extends Source.IteratorSource<T> {
+	private final AsyncIterator<T> iterator;
+
+	private AsyncSource(AsyncIterator<T> iterator, long size, Source<?> upstream) {
+		super(iterator, size, upstream);
+		this.iterator = iterator;
+	}
+
+	/**
+	 * Returns a source over the results of the mapper applied to the upstream elements by the executor, with at most
+	 * concurrency results being computed at the same time. The upstream source is closed with the returned source.
+	 * @param ordered true if the results are returned in the order of the upstream elements, false if they are
+	 *            returned as soon as they are computed
+	 */
+	static <T, R> AsyncSource<R> map(Source<? extends T> upstream, long size, Function<? super T, ? extends R> mapper,
+			int concurrency, ExecutorService executor, boolean ordered) {
+		final Iterator<? extends T> it = upstream.iterator();
+		final AsyncIterator<R> iterator = ordered ? new OrderedMapIterator<T, R>(it, mapper, concurrency, executor)
+				: new UnorderedMapIterator<T, R>(it, mapper, concurrency, executor);
+		return new AsyncSource<R>(iterator, size, upstream);
+	}
+
+	/**
+	 * Returns a source over the upstream elements, read by a producer thread into a buffer of bufferSize elements. The
+	 * upstream source is closed with the returned source.
+	 */
+	static <T> AsyncSource<T> prefetch(Source<? extends T> upstream, long size, int bufferSize) {
+		return new AsyncSource<T>(new PrefetchIterator<T>(upstream.iterator(), bufferSize), size, upstream);
+	}
+
+	/**
+	 * Cancels the background tasks, then closes the upstream source.
+	 */
+	@Override
+	void close() {
+		try {
+			iterator.close();
+		} finally {
+			super.close();
+		}
+	}
+
+	/**
+	 * An iterator whose elements are computed in the background.
+	 */
+	private static abstract class AsyncIterator<T> implements Iterator<T> {
+		/**
+		 * Cancels the background tasks.
+		 */
+		abstract void close();
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	private static <T, R> Callable<R> task(final Function<? super T, ? extends R> mapper, final T t) {
+		return new Callable<R>() {
+
+			@Override
+			public R call() {
+				return mapper.apply(t);
+			}
+		};
+	}
+
+	private static class OrderedMapIterator<T, R> extends AsyncIterator<R> {
+		private final Iterator<? extends T> upstream;
+		private final Function<? super T, ? extends R> mapper;
+		private final int concurrency;
+		private final ExecutorService executor;
+		/**
+		 * The tasks computing the next results, in encounter order.
+		 */
+		private final Queue<Future<R>> tasks = new ArrayDeque<Future<R>>();
+
+		public OrderedMapIterator(Iterator<? extends T> upstream, Function<? super T, ? extends R> mapper,
+				int concurrency, ExecutorService executor) {
+			assert upstream != null;
+			assert mapper != null;
+			assert concurrency > 0;
+			assert executor != null;
+
+			this.upstream = upstream;
+			this.mapper = mapper;
+			this.concurrency = concurrency;
+			this.executor = executor;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (tasks.size() < concurrency && upstream.hasNext()) {
+				tasks.add(executor.submit(AsyncSource.<T, R> task(mapper, upstream.next())));
+			}
+			return !tasks.isEmpty();
+		}
+
+		@Override
+		public R next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			final Future<R> task = tasks.remove();
+			boolean done = false;
+			try {
+				final R res = Pipeline.getResult(task);
+				done = true;
+				return res;
+			} finally {
+				if (!done) close();
+			}
+		}
+
+		@Override
+		void close() {
+			for (final Future<R> task : tasks) {
+				task.cancel(true);
+			}
+			tasks.clear();
+		}
+	}
+
+	private static class UnorderedMapIterator<T, R> extends AsyncIterator<R> {
+		private final Iterator<? extends T> upstream;
+		private final Function<? super T, ? extends R> mapper;
+		private final int concurrency;
+		private final CompletionService<R> completionService;
+		/**
+		 * The tasks submitted and not yet returned, in any order.
+		 */
+		private final Set<Future<R>> tasks = new HashSet<Future<R>>();
+
+		public UnorderedMapIterator(Iterator<? extends T> upstream, Function<? super T, ? extends R> mapper,
+				int concurrency, ExecutorService executor) {
+			assert upstream != null;
+			assert mapper != null;
+			assert concurrency > 0;
+			assert executor != null;
+
+			this.upstream = upstream;
+			this.mapper = mapper;
+			this.concurrency = concurrency;
+			this.completionService = new ExecutorCompletionService<R>(executor);
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (tasks.size() < concurrency && upstream.hasNext()) {
+				tasks.add(completionService.submit(AsyncSource.<T, R> task(mapper, upstream.next())));
+			}
+			return !tasks.isEmpty();
+		}
+
+		@Override
+		public R next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			boolean done = false;
+			try {
+				final Future<R> task = completionService.take();
+				tasks.remove(task);
+				final R res = Pipeline.getResult(task);
+				done = true;
+				return res;
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			} finally {
+				if (!done) close();
+			}
+		}
+
+		@Override
+		void close() {
+			for (final Future<R> task : tasks) {
+				task.cancel(true);
+			}
+			tasks.clear();
+		}
+	}
+
+	/**
+	 * Reads the upstream elements on a producer thread. The queue contains the elements, then either END or a
+	 * Failure.
+	 */
+	private static class PrefetchIterator<T> extends AsyncIterator<T> {
+		private static final Object NULL = new Object();
+		private static final Object END = new Object();
+		private static int threadCount = 0;
+
+		private final BlockingQueue<Object> queue;
+		private final Thread producer;
+		private volatile boolean closed = false;
+		private boolean started = false;
+		/**
+		 * The next element taken from the queue, or null if not taken yet.
+		 */
+		private Object next = null;
+
+		public PrefetchIterator(final Iterator<? extends T> upstream, int bufferSize) {
+			assert upstream != null;
+			assert bufferSize > 0;
+
+			this.queue = new ArrayBlockingQueue<Object>(bufferSize);
+			this.producer = new Thread(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						while (!closed && upstream.hasNext()) {
+							final T t = upstream.next();
+							queue.put(t == null ? NULL : t);
+						}
+						queue.put(END);
+					} catch (final InterruptedException e) {
+						// closed by the consumer
+					} catch (final Throwable e) {
+						try {
+							queue.put(new Failure(e));
+						} catch (final InterruptedException e2) {
+							// closed by the consumer
+						}
+					}
+				}
+			}, "stream4j-prefetch-" + nextThreadNumber());
+			producer.setDaemon(true);
+		}
+
+		private static synchronized int nextThreadNumber() {
+			return threadCount++;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null) {
+				if (!started) {
+					producer.start();
+					started = true;
+				}
+				try {
+					next = queue.take();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException(e);
+				}
+				if (next instanceof Failure) {
+					final Throwable cause = ((Failure) next).cause;
+					next = END;
+					close();
+					if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+					if (cause instanceof Error) throw (Error) cause;
+					throw new RuntimeException(cause);
+				}
+			}
+			return next != END;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			@SuppressWarnings("unchecked") final T res = next == NULL ? null : (T) next;
+			next = null;
+			return res;
+		}
+
+		@Override
+		void close() {
+			closed = true;
+			producer.interrupt();
+			queue.clear();
+		}
+
+		/**
+		 * An exception thrown by the upstream iterator.
+		 */
+		private static class Failure {
+			final Throwable cause;
+
+			public Failure(Throwable cause) {
+				this.cause = cause;
+			}
+		}
+	}
+}
@@ -0,0 +1,28 @@
+package com.github.stream4j;
+
+/**
+ * Represents a function that accepts two arguments and produces a result. This is the two-arity specialization of
+ * {@link Function}.
+ * @param <T> the type of the first argument to the function
+ * @param <U> the type of the second argument to the function
+ * @param <R> the type of the result of the function
+ */
+public abstract class BiFunction<T, U, R> {
+	public abstract R apply(T t, U u);
+
+	/**
+	 * Returns a composed function that first applies this function to its input, and then applies the after function
+	 * to the result.
+	 * @param after the function to apply after this function is applied.
+	 * @return a composed function that first applies this function and then applies the after function
+	 */
+	public <V> BiFunction<T, U, V> andThen(final Function<? super R, ? extends V> after) {
+		return new BiFunction<T, U, V>() {
+
+			@Override
+			public V apply(T t, U u) {
+				return after.apply(BiFunction.this.apply(t, u));
+			}
+		};
+	}
+}
@@ -0,0 +1,40 @@
+package com.github.stream4j;
+
+import java.util.Comparator;
+
+/**
+ * Represents an operation upon two operands of the same type, producing a result of the same type as the operands.
+ * This is a specialization of {@link BiFunction} for the case where the operands and the result are all of the same
+ * type.
+ * @param <T> the type of the operands and result of the operator
+ */
+public abstract class BinaryOperator<T> extends BiFunction<T, T, T> {
+
+	/**
+	 * Returns a BinaryOperator which returns the lesser of two elements according to the specified Comparator, or the
+	 * first element if they are equal.
+	 */
+	public static <T> BinaryOperator<T> minBy(final Comparator<? super T> comparator) {
+		return new BinaryOperator<T>() {
+
+			@Override
+			public T apply(T t, T u) {
+				return comparator.compare(t, u) <= 0 ? t : u;
+			}
+		};
+	}
+
+	/**
+	 * Returns a BinaryOperator which returns the greater of two elements according to the specified Comparator, or
+	 * the first element if they are equal.
+	 */
+	public static <T> BinaryOperator<T> maxBy(final Comparator<? super T> comparator) {
+		return new BinaryOperator<T>() {
+
+			@Override
+			public T apply(T t, T u) {
+				return comparator.compare(t, u) >= 0 ? t : u;
+			}
+		};
+	}
+}
@@ -0,0 +1,74 @@
+package com.github.stream4j;
+
+/**
+ * A set of objects using a fixed amount of memory, which may answer that an object has already been added although it
+ * has not (a false positive), but never the opposite. The objects are identified by a 64-bit hash, which is their
+ * hash code unless given by the caller.
+ */
+final class BloomFilter {
+	private static final double LN2 = Math.log(2);
+	/**
+	 * Maximum number of bits: the largest long array.
+	 */
+	private static final long MAX_BITS = (long) Integer.MAX_VALUE * Long.SIZE;
+
+	private final long[] bits;
+	private final long bitCount;
+	private final int hashCount;
+
+	/**
+	 * @param expectedSize the number of distinct objects which will be added
+	 * @param falsePositiveRate the expected false positive rate once all the objects have been added
+	 */
+	BloomFilter(long expectedSize, double falsePositiveRate) {
+		assert expectedSize > 0;
+		assert falsePositiveRate > 0 && falsePositiveRate < 1;
+
+		final double optimalBits = -expectedSize * Math.log(falsePositiveRate) / (LN2 * LN2);
+		this.bitCount = Math.min(MAX_BITS, Math.max(Long.SIZE, (long) Math.ceil(optimalBits / Long.SIZE) * Long.SIZE));
+		this.hashCount = (int) Math.max(1, Math.round((double) bitCount / expectedSize * LN2));
+		this.bits = new long[(int) (bitCount / Long.SIZE)];
+	}
+
+	/**
+	 * Adds the object, identified by its hash code. Objects with the same hash code are not distinguished.
+	 * @return true if the object had not been added yet, false if it may have been added.
+	 */
+	boolean add(Object o) {
+		return add(o == null ? 0 : o.hashCode());
+	}
+
+	/**
+	 * Adds the object with the given 64-bit hash.
+	 * @return true if the object had not been added yet, false if it may have been added.
+	 */
+	boolean add(long hash) {
+		// derive the hash functions from two halves of a 64-bit hash (Kirsch-Mitzenmacher)
+		final long mixed = mix(hash);
+		final int hash1 = (int) mixed;
+		final int hash2 = (int) (mixed >>> 32);
+		boolean added = false;
+		for (int i = 1; i <= hashCount; i++) {
+			final long index = ((hash1 + (long) i * hash2) & Long.MAX_VALUE) % bitCount;
+			final int word = (int) (index >>> 6);
+			final long mask = 1L << index;
+			if ((bits[word] & mask) == 0) {
+				bits[word] |= mask;
+				added = true;
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Spreads the bits of a hash over 64 bits (finalizer of MurmurHash3).
+	 */
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
@@ -0,0 +1,271 @@
+package com.github.stream4j;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A source replaying the elements of a pipeline, which is evaluated only once: the elements are cached as they are
+ * first read, in chunks of {@link #CHUNK_SIZE} elements, and each evaluation of this source reads the cached elements
+ * before reading new ones from the pipeline. Each evaluation reads its own source, returned by {@link #open()}, so that
+ * several evaluations may read the elements at the same time.<br>
+ * If a capacity is given and the pipeline has more elements, the cache is dropped: the evaluation which reached the
+ * capacity reads the remaining elements from the pipeline, and the other evaluations read the pipeline again from the
+ * start, skipping the elements already returned. This is only possible if the source of the pipeline is an array or a
+ * random-access list.
+ * @param <T> the type of the elements
+ */
+final class CachedSource<T> extends Source<T> {
+	private static final int CHUNK_SHIFT = 10;
+	static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final Object END = new Object();
+	private static final Object EVICTED = new Object();
+
+	private final Cache<T> cache;
+
+	/**
+	 * @param capacity the maximum total weight of the cached elements
+	 * @param weigher the weight of an element, or null if each element weighs 1
+	 */
+	CachedSource(Pipeline<?, T> upstream, long capacity, ToLongFunction<? super T> weigher) {
+		this.cache = new Cache<T>(upstream, capacity, weigher);
+	}
+
+	/**
+	 * Returns a source reading the elements from the first one, split in batches like an iterator.
+	 */
+	@Override
+	Source<T> open() {
+		return Source.of(iterator(), cache.size());
+	}
+
+	@Override
+	long size() {
+		return cache.size();
+	}
+
+	@Override
+	Iterator<? extends T> iterator() {
+		return new ReplayIterator<T>(cache);
+	}
+
+	@Override
+	void pushInto(Sink<? super T> sink, boolean shortCircuit) {
+		open().pushInto(sink, shortCircuit);
+	}
+
+	/**
+	 * Not split: each evaluation splits the source returned by {@link #open()}.
+	 */
+	@Override
+	Source<T> trySplit() {
+		return null;
+	}
+
+	/**
+	 * The cached elements, shared by the evaluations.
+	 */
+	private static class Cache<T> {
+		private final Pipeline<?, T> upstream;
+		private final long capacity;
+		private final ToLongFunction<? super T> weigher;
+		/**
+		 * The chunks of cached elements. Replaced by a larger copy when full, and set to null when evicted.
+		 */
+		private volatile Object[][] chunks = new Object[1][];
+		/**
+		 * The number of cached elements. Written after the element, so that reading the count first publishes the
+		 * element.
+		 */
+		private volatile long count = 0;
+		private long weight = 0;
+		/**
+		 * The iterator filling the cache, or null if not created yet or if the cache has been evicted.
+		 */
+		private Iterator<? extends T> filler = null;
+		/**
+		 * The source read by the filler, closed once all the elements have been cached.
+		 */
+		private Source<? extends T> fillerSource = null;
+		private volatile boolean complete = false;
+		private boolean evicted = false;
+		/**
+		 * When the cache has been evicted, the filler, positioned at index count, until taken by an evaluation.
+		 */
+		private Iterator<? extends T> orphan = null;
+
+		public Cache(Pipeline<?, T> upstream, long capacity, ToLongFunction<? super T> weigher) {
+			assert upstream != null;
+			assert capacity > 0;
+
+			this.upstream = upstream;
+			this.capacity = capacity;
+			this.weigher = weigher;
+		}
+
+		/**
+		 * Returns the number of elements if they have all been cached, or -1.
+		 */
+		long size() {
+			return complete ? count : SIZE_UNKNOWN;
+		}
+
+		/**
+		 * Returns the element at the given index, END if there are no more elements, or EVICTED if the cache has
+		 * been evicted.
+		 */
+		Object get(long index) {
+			if (index < count) {
+				final Object[][] c = chunks;
+				if (c != null) return c[(int) (index >>> CHUNK_SHIFT)][(int) index & CHUNK_MASK];
+			}
+			return fill(index);
+		}
+
+		private synchronized Object fill(long index) {
+			while (!evicted && index >= count && !complete) {
+				if (filler == null) {
+					fillerSource = upstream.asSource(SIZE_UNKNOWN).open();
+					filler = fillerSource.iterator();
+				}
+				if (!filler.hasNext()) {
+					complete = true;
+					filler = null;
+					fillerSource.close();
+					fillerSource = null;
+					break;
+				}
+				final T t = filler.next();
+				weight += weigher == null ? 1 : weigher.applyAsLong(t);
+				if (weight > capacity) {
+					evicted = true;
+					chunks = null;
+					orphan = new PrependIterator<T>(t, filler);
+					filler = null;
+				} else {
+					add(t);
+				}
+			}
+			if (evicted) return EVICTED;
+			if (index < count) return chunks[(int) (index >>> CHUNK_SHIFT)][(int) index & CHUNK_MASK];
+			return END;
+		}
+
+		private void add(T t) {
+			final int chunk = (int) (count >>> CHUNK_SHIFT);
+			Object[][] c = chunks;
+			if (chunk == c.length) {
+				final Object[][] newChunks = new Object[c.length * 2][];
+				System.arraycopy(c, 0, newChunks, 0, c.length);
+				c = newChunks;
+			}
+			if (c[chunk] == null) c[chunk] = new Object[CHUNK_SIZE];
+			c[chunk][(int) count & CHUNK_MASK] = t;
+			chunks = c;
+			count++;
+		}
+
+		/**
+		 * Returns an iterator over the elements from the given index, once the cache has been evicted.
+		 */
+		synchronized Iterator<? extends T> iteratorFrom(long index) {
+			assert evicted;
+			if (orphan != null && index == count) {
+				final Iterator<? extends T> res = orphan;
+				orphan = null;
+				return res;
+			}
+			if (!upstream.getSource().isRandomAccess()) {
+				throw new IllegalStateException("the cache capacity has been exceeded, and the stream source cannot"
+						+ " be read again");
+			}
+			final Iterator<? extends T> res = upstream.iterator();
+			for (long i = 0; i < index && res.hasNext(); i++) {
+				res.next();
+			}
+			return res;
+		}
+	}
+
+	/**
+	 * Reads the cached elements, then the elements of the pipeline if the cache has been evicted.
+	 */
+	private static class ReplayIterator<T> implements Iterator<T> {
+		private final Cache<T> cache;
+		private long index = 0;
+		/**
+		 * The next element, or null if not read yet.
+		 */
+		private Object next = null;
+		/**
+		 * The iterator over the pipeline elements, once the cache has been evicted.
+		 */
+		private Iterator<? extends T> direct = null;
+
+		public ReplayIterator(Cache<T> cache) {
+			this.cache = cache;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (direct != null) return direct.hasNext();
+			if (next == null) {
+				next = cache.get(index);
+				if (next == EVICTED) {
+					next = null;
+					direct = cache.iteratorFrom(index);
+					return direct.hasNext();
+				}
+			}
+			return next != END;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			index++;
+			if (direct != null) return direct.next();
+			@SuppressWarnings("unchecked") final T res = (T) next;
+			next = null;
+			return res;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Returns an element, then the elements of an iterator.
+	 */
+	private static class PrependIterator<T> implements Iterator<T> {
+		private T first;
+		private boolean firstRead = false;
+		private final Iterator<? extends T> rest;
+
+		public PrependIterator(T first, Iterator<? extends T> rest) {
+			this.first = first;
+			this.rest = rest;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !firstRead || rest.hasNext();
+		}
+
+		@Override
+		public T next() {
+			if (firstRead) return rest.next();
+			firstRead = true;
+			final T res = first;
+			first = null;
+			return res;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,32 @@
+package com.github.stream4j;
+
+/**
+ * A mutable reduction operation: the elements are folded into a mutable accumulator, which is transformed into the
+ * result once all the elements have been accumulated. When a stream is evaluated in parallel, each chunk is folded into
+ * its own accumulator, and the accumulators are combined in encounter order.<br>
+ * See {@link Collectors} for common collectors.
+ * @param <T> the type of the input elements
+ * @param <A> the type of the accumulator
+ * @param <R> the type of the result
+ */
+public abstract class Collector<T, A, R> {
+	/**
+	 * Returns a new, empty accumulator.
+	 */
+	public abstract A supply();
+
+	/**
+	 * Folds an element into the accumulator.
+	 */
+	public abstract void accumulate(A accumulator, T t);
+
+	/**
+	 * Combines two accumulators, left preceding right in encounter order. May fold right into left and return left.
+	 */
+	public abstract A combine(A left, A right);
+
+	/**
+	 * Transforms the accumulator into the result.
+	 */
+	public abstract R finish(A accumulator);
+}
@@ -0,0 +1,837 @@
+package com.github.stream4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Common {@link Collector}s, to be passed to {@link Stream#collect(Collector)}. Aggregating collectors keep a single
+ * accumulator (such as a primitive counter) instead of the elements, so they can be used as downstream collectors of
+ * {@link #groupingBy(Function, Collector)} to aggregate large streams in constant memory per group.<br>
+ * {@link #teeing(Collector, Collector, BiFunction)} and {@link #allOf(List)} compute several results in a single
+ * traversal of the stream.
+ */
+public final class Collectors {
+	private Collectors() {
+	}
+
+	/**
+	 * Returns a Collector that accumulates the elements into a new ArrayList.
+	 */
+	public static <T> Collector<T, ?, List<T>> toList() {
+		return new IdentityCollector<T, List<T>>() {
+
+			@Override
+			public List<T> supply() {
+				return new ArrayList<T>();
+			}
+
+			@Override
+			public void accumulate(List<T> accumulator, T t) {
+				accumulator.add(t);
+			}
+
+			@Override
+			public List<T> combine(List<T> left, List<T> right) {
+				left.addAll(right);
+				return left;
+			}
+		};
+	}
+
+	/**
+	 * Returns a Collector that accumulates the elements into a new HashSet.
+	 */
+	public static <T> Collector<T, ?, Set<T>> toSet() {
+		return new IdentityCollector<T, Set<T>>() {
+
+			@Override
+			public Set<T> supply() {
+				return new HashSet<T>();
+			}
+
+			@Override
+			public void accumulate(Set<T> accumulator, T t) {
+				accumulator.add(t);
+			}
+
+			@Override
+			public Set<T> combine(Set<T> left, Set<T> right) {
+				left.addAll(right);
+				return left;
+			}
+		};
+	}
+
+	/**
+	 * Returns a Collector that accumulates the elements into a new collection created by the factory.
+	 */
+	public static <T, C extends Collection<T>> Collector<T, ?, C> toCollection(final Supplier<C> collectionFactory) {
+		return new IdentityCollector<T, C>() {
+
+			@Override
+			public C supply() {
+				return collectionFactory.get();
+			}
+
+			@Override
+			public void accumulate(C accumulator, T t) {
+				accumulator.add(t);
+			}
+
+			@Override
+			public C combine(C left, C right) {
+				left.addAll(right);
+				return left;
+			}
+		};
+	}
+
+	/**
+	 * Returns a Collector that accumulates the elements into a new HashMap, whose keys and values are the result of
+	 * applying the mapping functions to the elements.
+	 * @throws IllegalStateException (when collecting) if two elements are mapped to the same key.
+	 */
+	public static <T, K, U> Collector<T, ?, Map<K, U>> toMap(Function<? super T, ? extends K> keyMapper,
+			Function<? super T, ? extends U> valueMapper) {
+		return toMap(keyMapper, valueMapper, new BinaryOperator<U>() {
+
+			@Override
+			public U apply(U t, U u) {
+				throw new IllegalStateException("Duplicate key (attempted merging values " + t + " and " + u + ")");
+			}
+		});
+	}
+
+	/**
+	 * Returns a Collector that accumulates the elements into a new HashMap, whose keys and values are the result of
+	 * applying the mapping functions to the elements. The values mapped to the same key are merged with the merge
+	 * function.
+	 */
+	public static <T, K, U> Collector<T, ?, Map<K, U>> toMap(Function<? super T, ? extends K> keyMapper,
+			Function<? super T, ? extends U> valueMapper, BinaryOperator<U> mergeFunction) {
+		return toMap(keyMapper, valueMapper, mergeFunction, Collectors.<K, U> hashMapFactory());
+	}
+
+	/**
+	 * Returns a Collector that accumulates the elements into a new map created by the factory, whose keys and values
+	 * are the result of applying the mapping functions to the elements. The values mapped to the same key are merged
+	 * with the merge function.
+	 */
+	public static <T, K, U, M extends Map<K, U>> Collector<T, ?, M> toMap(
+			final Function<? super T, ? extends K> keyMapper, final Function<? super T, ? extends U> valueMapper,
+			final BinaryOperator<U> mergeFunction, final Supplier<M> mapFactory) {
+		return new IdentityCollector<T, M>() {
+
+			@Override
+			public M supply() {
+				return mapFactory.get();
+			}
+
+			@Override
+			public void accumulate(M accumulator, T t) {
+				put(accumulator, keyMapper.apply(t), valueMapper.apply(t));
+			}
+
+			@Override
+			public M combine(M left, M right) {
+				for (final Map.Entry<K, U> entry : right.entrySet()) {
+					put(left, entry.getKey(), entry.getValue());
+				}
+				return left;
+			}
+
+			private void put(M map, K key, U value) {
+				final U previous = map.get(key);
+				map.put(key, previous == null && !map.containsKey(key) ? value : mergeFunction.apply(previous, value));
+			}
+		};
+	}
+
+	/**
+	 * Returns a Collector that concatenates the elements into a String.
+	 */
+	public static Collector<CharSequence, ?, String> joining() {
+		return joining("", "", "");
+	}
+
+	/**
+	 * Returns a Collector that concatenates the elements into a String, separated by the delimiter.
+	 */
+	public static Collector<CharSequence, ?, String> joining(CharSequence delimiter) {
+		return joining(delimiter, "", "");
+	}
+
+	/**
+	 * Returns a Collector that concatenates the elements into a String, separated by the delimiter, with the prefix
+	 * and the suffix.
+	 */
+	public static Collector<CharSequence, ?, String> joining(final CharSequence delimiter, final CharSequence prefix,
+			final CharSequence suffix) {
+		return new Collector<CharSequence, StringBuilder[], String>() {
+
+			@Override
+			public StringBuilder[] supply() {
+				// the builder is created with the first element
+				return new StringBuilder[1];
+			}
+
+			@Override
+			public void accumulate(StringBuilder[] accumulator, CharSequence t) {
+				if (accumulator[0] == null) {
+					accumulator[0] = new StringBuilder();
+				} else {
+					accumulator[0].append(delimiter);
+				}
+				accumulator[0].append(t);
+			}
+
+			@Override
+			public StringBuilder[] combine(StringBuilder[] left, StringBuilder[] right) {
+				if (right[0] != null) accumulate(left, right[0]);
+				return left;
+			}
+
+			@Override
+			public String finish(StringBuilder[] accumulator) {
+				final StringBuilder res = new StringBuilder(prefix);
+				if (accumulator[0] != null) res.append(accumulator[0]);
+				return res.append(suffix).toString();
+			}
+		};
+	}
+
+	/**
+	 * Returns a Collector counting the elements.
+	 */
+	public static <T> Collector<T, ?, Long> counting() {
+		return new Collector<T, long[], Long>() {
+
+			@Override
+			public long[] supply() {
+				return new long[1];
+			}
+
+			@Override
+			public void accumulate(long[] accumulator, T t) {
+				accumulator[0]++;
+			}
+
+			@Override
+			public long[] combine(long[] left, long[] right) {
+				left[0] += right[0];
+				return left;
+			}
+
+			@Override
+			public Long finish(long[] accumulator) {
+				return accumulator[0];
+			}
+		};
+	}
+
+	/**
+	 * Returns a Collector that produces the sum of an integer-valued function applied to the elements. The values are
+	 * added without boxing.
+	 */
+	public static <T> Collector<T, ?, Integer> summingInt(final ToIntFunction<? super T> mapper) {
+		return new Collector<T, int[], Integer>() {
+
+			@Override
+			public int[] supply() {
+				return new int[1];
+			}
+
+			@Override
+			public void accumulate(int[] accumulator, T t) {
+				accumulator[0] += mapper.applyAsInt(t);
+			}
+
+			@Override
+			public int[] combine(int[] left, int[] right) {
+				left[0] += right[0];
+				return left;
+			}
+
+			@Override
+			public Integer finish(int[] accumulator) {
+				return accumulator[0];
+			}
+		};
+	}
+
+	/**
+	 * Returns a Collector that produces the sum of a long-valued function applied to the elements. The values are
+	 * added without boxing.
+	 */
+	public static <T> Collector<T, ?, Long> summingLong(final ToLongFunction<? super T> mapper) {
+		return new Collector<T, long[], Long>() {
+
+			@Override
+			public long[] supply() {
+				return new long[1];
+			}
+
+			@Override
+			public void accumulate(long[] accumulator, T t) {
+				accumulator[0] += mapper.applyAsLong(t);
+			}
+
+			@Override
+			public long[] combine(long[] left, long[] right) {
+				left[0] += right[0];
+				return left;
+			}
+
+			@Override
+			public Long finish(long[] accumulator) {
+				return accumulator[0];
+			}
+		};
+	}
+
+	/**
+	 * Returns a Collector that produces the sum of a double-valued function applied to the elements. The values are
+	 * added without boxing.
+	 */
+	public static <T> Collector<T, ?, Double> summingDouble(final ToDoubleFunction<? super T> mapper) {
+		return new Collector<T, double[], Double>() {
+
+			@Override
+			public double[] supply() {
+				return new double[1];
+			}
+
+			@Override
+			public void accumulate(double[] accumulator, T t) {
+				accumulator[0] += mapper.applyAsDouble(t);
+			}
+
+			@Override
+			public double[] combine(double[] left, double[] right) {
+				left[0] += right[0];
+				return left;
+			}
+
+			@Override
+			public Double finish(double[] accumulator) {
+				return accumulator[0];
+			}
+		};
+	}
+
+	/**
+	 * Returns a Collector that produces the arithmetic mean of an integer-valued function applied to the elements, or
+	 * zero if there are no elements.
+	 */
+	public static <T> Collector<T, ?, Double> averagingInt(ToIntFunction<? super T> mapper) {
+		return collectingAndThen(summarizingInt(mapper), new Function<IntSummaryStatistics, Double>() {
+
+			@Override
+			public Double apply(IntSummaryStatistics t) {
+				return t.getAverage();
+			}
+		});
+	}
+
+	/**
+	 * Returns a Collector that produces the arithmetic mean of a long-valued function applied to the elements, or
+	 * zero if there are no elements.
+	 */
+	public static <T> Collector<T, ?, Double> averagingLong(ToLongFunction<? super T> mapper) {
+		return collectingAndThen(summarizingLong(mapper), new Function<LongSummaryStatistics, Double>() {
+
+			@Override
+			public Double apply(LongSummaryStatistics t) {
+				return t.getAverage();
+			}
+		});
+	}
+
+	/**
+	 * Returns a Collector that produces the arithmetic mean of a double-valued function applied to the elements, or
+	 * zero if there are no elements.
+	 */
+	public static <T> Collector<T, ?, Double> averagingDouble(ToDoubleFunction<? super T> mapper) {
+		return collectingAndThen(summarizingDouble(mapper), new Function<DoubleSummaryStatistics, Double>() {
+
+			@Override
+			public Double apply(DoubleSummaryStatistics t) {
+				return t.getAverage();
+			}
+		});
+	}
+
+	/**
+	 * Returns a Collector that produces summary statistics of an integer-valued function applied to the elements.
+	 */
+	public static <T> Collector<T, ?, IntSummaryStatistics> summarizingInt(final ToIntFunction<? super T> mapper) {
+		return new IdentityCollector<T, IntSummaryStatistics>() {
+
+			@Override
+			public IntSummaryStatistics supply() {
+				return new IntSummaryStatistics();
+			}
+
+			@Override
+			public void accumulate(IntSummaryStatistics accumulator, T t) {
+				accumulator.accept(mapper.applyAsInt(t));
+			}
+
+			@Override
+			public IntSummaryStatistics combine(IntSummaryStatistics left, IntSummaryStatistics right) {
+				left.combine(right);
+				return left;
+			}
+		};
+	}
+
+	/**
+	 * Returns a Collector that produces summary statistics of a long-valued function applied to the elements.
+	 */
+	public static <T> Collector<T, ?, LongSummaryStatistics> summarizingLong(final ToLongFunction<? super T> mapper) {
+		return new IdentityCollector<T, LongSummaryStatistics>() {
+
+			@Override
+			public LongSummaryStatistics supply() {
+				return new LongSummaryStatistics();
+			}
+
+			@Override
+			public void accumulate(LongSummaryStatistics accumulator, T t) {
+				accumulator.accept(mapper.applyAsLong(t));
+			}
+
+			@Override
+			public LongSummaryStatistics combine(LongSummaryStatistics left, LongSummaryStatistics right) {
+				left.combine(right);
+				return left;
+			}
+		};
+	}
+
+	/**
+	 * Returns a Collector that produces summary statistics of a double-valued function applied to the elements.
+	 */
+	public static <T> Collector<T, ?, DoubleSummaryStatistics> summarizingDouble(
+			final ToDoubleFunction<? super T> mapper) {
+		return new IdentityCollector<T, DoubleSummaryStatistics>() {
+
+			@Override
+			public DoubleSummaryStatistics supply() {
+				return new DoubleSummaryStatistics();
+			}
+
+			@Override
+			public void accumulate(DoubleSummaryStatistics accumulator, T t) {
+				accumulator.accept(mapper.applyAsDouble(t));
+			}
+
+			@Override
+			public DoubleSummaryStatistics combine(DoubleSummaryStatistics left, DoubleSummaryStatistics right) {
+				left.combine(right);
+				return left;
+			}
+		};
+	}
+
+	/**
+	 * Returns a Collector that produces the minimal element according to the comparator, or null if there are no
+	 * elements. If several elements are minimal, the first one is produced.<br>
+	 * The method from the Java Stream API has a different signature:
+	 * {@code Collector<T, ?, Optional<T>> minBy(Comparator<? super T> comparator)}
+	 */
+	public static <T> Collector<T, ?, T> minBy(Comparator<? super T> comparator) {
+		return reducing(BinaryOperator.<T> minBy(comparator));
+	}
+
+	/**
+	 * Returns a Collector that produces the maximal element according to the comparator, or null if there are no
+	 * elements. If several elements are maximal, the first one is produced.<br>
+	 * The method from the Java Stream API has a different signature:
+	 * {@code Collector<T, ?, Optional<T>> maxBy(Comparator<? super T> comparator)}
+	 */
+	public static <T> Collector<T, ?, T> maxBy(Comparator<? super T> comparator) {
+		return reducing(BinaryOperator.<T> maxBy(comparator));
+	}
+
+	/**
+	 * Returns a Collector that reduces the elements with the operator, starting from the identity value.
+	 */
+	public static <T> Collector<T, ?, T> reducing(final T identity, final BinaryOperator<T> op) {
+		return new Collector<T, Box<T>, T>() {
+
+			@Override
+			public Box<T> supply() {
+				final Box<T> res = new Box<T>();
+				res.value = identity;
+				return res;
+			}
+
+			@Override
+			public void accumulate(Box<T> accumulator, T t) {
+				accumulator.value = op.apply(accumulator.value, t);
+			}
+
+			@Override
+			public Box<T> combine(Box<T> left, Box<T> right) {
+				left.value = op.apply(left.value, right.value);
+				return left;
+			}
+
+			@Override
+			public T finish(Box<T> accumulator) {
+				return accumulator.value;
+			}
+		};
+	}
+
+	/**
+	 * Returns a Collector that reduces the elements with the operator, or produces null if there are no elements.<br>
+	 * The method from the Java Stream API has a different signature:
+	 * {@code Collector<T, ?, Optional<T>> reducing(BinaryOperator<T> op)}
+	 */
+	public static <T> Collector<T, ?, T> reducing(final BinaryOperator<T> op) {
+		return new Collector<T, Box<T>, T>() {
+
+			@Override
+			public Box<T> supply() {
+				return new Box<T>();
+			}
+
+			@Override
+			public void accumulate(Box<T> accumulator, T t) {
+				if (accumulator.present) {
+					accumulator.value = op.apply(accumulator.value, t);
+				} else {
+					accumulator.value = t;
+					accumulator.present = true;
+				}
+			}
+
+			@Override
+			public Box<T> combine(Box<T> left, Box<T> right) {
+				if (right.present) accumulate(left, right.value);
+				return left;
+			}
+
+			@Override
+			public T finish(Box<T> accumulator) {
+				return accumulator.value;
+			}
+		};
+	}
+
+	/**
+	 * Adapts a Collector to elements of another type, by applying a mapping function to each element before
+	 * accumulation. For instance, {@code mapping(toName, Collectors.<String> toSet())} collects the distinct names.
+	 */
+	public static <T, U, A, R> Collector<T, ?, R> mapping(final Function<? super T, ? extends U> mapper,
+			final Collector<? super U, A, R> downstream) {
+		return new Collector<T, A, R>() {
+
+			@Override
+			public A supply() {
+				return downstream.supply();
+			}
+
+			@Override
+			public void accumulate(A accumulator, T t) {
+				downstream.accumulate(accumulator, mapper.apply(t));
+			}
+
+			@Override
+			public A combine(A left, A right) {
+				return downstream.combine(left, right);
+			}
+
+			@Override
+			public R finish(A accumulator) {
+				return downstream.finish(accumulator);
+			}
+		};
+	}
+
+	/**
+	 * Adapts a Collector to perform an additional finishing transformation.
+	 */
+	public static <T, A, R, RR> Collector<T, A, RR> collectingAndThen(final Collector<T, A, R> downstream,
+			final Function<? super R, ? extends RR> finisher) {
+		return new Collector<T, A, RR>() {
+
+			@Override
+			public A supply() {
+				return downstream.supply();
+			}
+
+			@Override
+			public void accumulate(A accumulator, T t) {
+				downstream.accumulate(accumulator, t);
+			}
+
+			@Override
+			public A combine(A left, A right) {
+				return downstream.combine(left, right);
+			}
+
+			@Override
+			public RR finish(A accumulator) {
+				return finisher.apply(downstream.finish(accumulator));
+			}
+		};
+	}
+
+	/**
+	 * Returns a Collector grouping the elements by key into a HashMap of lists.
+	 */
+	public static <T, K> Collector<T, ?, Map<K, List<T>>> groupingBy(Function<? super T, ? extends K> classifier) {
+		return groupingBy(classifier, Collectors.<T> toList());
+	}
+
+	/**
+	 * Returns a Collector grouping the elements by key into a HashMap, and reducing the elements of each group with the
+	 * downstream collector. Each group only keeps the accumulator of the downstream collector.
+	 */
+	public static <T, K, A, D> Collector<T, ?, Map<K, D>> groupingBy(Function<? super T, ? extends K> classifier,
+			Collector<? super T, A, D> downstream) {
+		return groupingBy(classifier, Collectors.<K, D> hashMapFactory(), downstream);
+	}
+
+	/**
+	 * Returns a Collector grouping the elements by key into a map created by the factory, and reducing the elements of
+	 * each group with the downstream collector. Each group only keeps the accumulator of the downstream collector.<br>
+	 * The factory chooses the type of the map (for instance a TreeMap, to sort the keys) and its initial capacity. The
+	 * values of the map must be replaceable through {@link java.util.Map.Entry#setValue(Object)}: the accumulators
+	 * are replaced with the results in place.
+	 */
+	public static <T, K, A, D, M extends Map<K, D>> Collector<T, ?, M> groupingBy(
+			final Function<? super T, ? extends K> classifier, final Supplier<M> mapFactory,
+			final Collector<? super T, A, D> downstream) {
+		return new Collector<T, Map<K, Object>, M>() {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public Map<K, Object> supply() {
+				return (Map<K, Object>) (Map<K, ?>) mapFactory.get();
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public void accumulate(Map<K, Object> accumulator, T t) {
+				final K key = classifier.apply(t);
+				A group = (A) accumulator.get(key);
+				if (group == null) {
+					group = downstream.supply();
+					accumulator.put(key, group);
+				}
+				downstream.accumulate(group, t);
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public Map<K, Object> combine(Map<K, Object> left, Map<K, Object> right) {
+				for (final Map.Entry<K, Object> entry : right.entrySet()) {
+					final A group = (A) left.get(entry.getKey());
+					if (group == null) {
+						left.put(entry.getKey(), entry.getValue());
+					} else {
+						left.put(entry.getKey(), downstream.combine(group, (A) entry.getValue()));
+					}
+				}
+				return left;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public M finish(Map<K, Object> accumulator) {
+				for (final Map.Entry<K, Object> entry : accumulator.entrySet()) {
+					entry.setValue(downstream.finish((A) entry.getValue()));
+				}
+				return (M) (Map<K, ?>) accumulator;
+			}
+		};
+	}
+
+	/**
+	 * Returns a Collector partitioning the elements into two lists, according to the predicate. The map always
+	 * contains the keys true and false.
+	 */
+	public static <T> Collector<T, ?, Map<Boolean, List<T>>> partitioningBy(Predicate<? super T> predicate) {
+		return partitioningBy(predicate, Collectors.<T> toList());
+	}
+
+	/**
+	 * Returns a Collector partitioning the elements according to the predicate, and reducing the elements of each
+	 * partition with the downstream collector. The map always contains the keys true and false.
+	 */
+	public static <T, A, D> Collector<T, ?, Map<Boolean, D>> partitioningBy(final Predicate<? super T> predicate,
+			final Collector<? super T, A, D> downstream) {
+		return new Collector<T, Pair<A, A>, Map<Boolean, D>>() {
+
+			@Override
+			public Pair<A, A> supply() {
+				return new Pair<A, A>(downstream.supply(), downstream.supply());
+			}
+
+			@Override
+			public void accumulate(Pair<A, A> accumulator, T t) {
+				downstream.accumulate(predicate.test(t) ? accumulator.first : accumulator.second, t);
+			}
+
+			@Override
+			public Pair<A, A> combine(Pair<A, A> left, Pair<A, A> right) {
+				left.first = downstream.combine(left.first, right.first);
+				left.second = downstream.combine(left.second, right.second);
+				return left;
+			}
+
+			@Override
+			public Map<Boolean, D> finish(Pair<A, A> accumulator) {
+				final Map<Boolean, D> res = new HashMap<Boolean, D>(4);
+				res.put(true, downstream.finish(accumulator.first));
+				res.put(false, downstream.finish(accumulator.second));
+				return res;
+			}
+		};
+	}
+
+	/**
+	 * Returns a Collector composed of two collectors: each element is passed to both collectors, and their results
+	 * are merged with the merger function. The stream is traversed once, which is useful for iterator sources since
+	 * they cannot be read twice.
+	 */
+	public static <T, A1, A2, R1, R2, R> Collector<T, ?, R> teeing(final Collector<? super T, A1, R1> downstream1,
+			final Collector<? super T, A2, R2> downstream2, final BiFunction<? super R1, ? super R2, R> merger) {
+		return new Collector<T, Pair<A1, A2>, R>() {
+
+			@Override
+			public Pair<A1, A2> supply() {
+				return new Pair<A1, A2>(downstream1.supply(), downstream2.supply());
+			}
+
+			@Override
+			public void accumulate(Pair<A1, A2> accumulator, T t) {
+				downstream1.accumulate(accumulator.first, t);
+				downstream2.accumulate(accumulator.second, t);
+			}
+
+			@Override
+			public Pair<A1, A2> combine(Pair<A1, A2> left, Pair<A1, A2> right) {
+				left.first = downstream1.combine(left.first, right.first);
+				left.second = downstream2.combine(left.second, right.second);
+				return left;
+			}
+
+			@Override
+			public R finish(Pair<A1, A2> accumulator) {
+				return merger.apply(downstream1.finish(accumulator.first), downstream2.finish(accumulator.second));
+			}
+		};
+	}
+
+	/**
+	 * Returns a Collector composed of several collectors: each element is passed to all the collectors, and the result
+	 * is the list of their results, in the same order as the collectors. The stream is traversed once.<br>
+	 * Not part of the Java Stream API.
+	 */
+	public static <T, R> Collector<T, ?, List<R>> allOf(
+			final List<? extends Collector<? super T, ?, ? extends R>> collectors) {
+		return new Collector<T, Object[], List<R>>() {
+
+			@Override
+			public Object[] supply() {
+				final Object[] res = new Object[collectors.size()];
+				for (int i = 0; i < res.length; i++) {
+					res[i] = collectors.get(i).supply();
+				}
+				return res;
+			}
+
+			@Override
+			public void accumulate(Object[] accumulator, T t) {
+				for (int i = 0; i < accumulator.length; i++) {
+					Collectors.accumulate(collectors.get(i), accumulator[i], t);
+				}
+			}
+
+			@Override
+			public Object[] combine(Object[] left, Object[] right) {
+				for (int i = 0; i < left.length; i++) {
+					left[i] = Collectors.combine(collectors.get(i), left[i], right[i]);
+				}
+				return left;
+			}
+
+			@Override
+			public List<R> finish(Object[] accumulator) {
+				final List<R> res = new ArrayList<R>(accumulator.length);
+				for (int i = 0; i < accumulator.length; i++) {
+					res.add(Collectors.<T, R> finish(collectors.get(i), accumulator[i]));
+				}
+				return res;
+			}
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T, A> void accumulate(Collector<? super T, A, ?> collector, Object accumulator, T t) {
+		collector.accumulate((A) accumulator, t);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <A> Object combine(Collector<?, A, ?> collector, Object left, Object right) {
+		return collector.combine((A) left, (A) right);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T, R> R finish(Collector<? super T, ?, ? extends R> collector, Object accumulator) {
+		return ((Collector<? super T, Object, ? extends R>) collector).finish(accumulator);
+	}
+
+	private static <K, V> Supplier<Map<K, V>> hashMapFactory() {
+		return new Supplier<Map<K, V>>() {
+
+			@Override
+			public Map<K, V> get() {
+				return new HashMap<K, V>();
+			}
+		};
+	}
+
+	/**
+	 * A collector whose accumulator is the result.
+	 */
+	private static abstract class IdentityCollector<T, A> extends Collector<T, A, A> {
+
+		@Override
+		public A finish(A accumulator) {
+			return accumulator;
+		}
+	}
+
+	/**
+	 * A mutable holder for the result of a reduction.
+	 */
+	private static class Box<T> {
+		T value = null;
+		boolean present = false;
+	}
+
+	/**
+	 * The accumulators of two collectors.
+	 */
+	private static class Pair<A1, A2> {
+		A1 first;
+		A2 second;
+
+		public Pair(A1 first, A2 second) {
+			this.first = first;
+			this.second = second;
+		}
+	}
+}
@@ -1,34 +1,68 @@
-package com.github.stream4j;
-
-/**
- * Represents an operation that accepts a single input argument and returns no result. Unlike most other functional
- * interfaces, Consumer is expected to operate via side-effects.
- * @param <T> the type of the input to the operation
- */
-public abstract class Consumer<T> {
-	/**
-	 * Performs this operation on the given argument.
-	 * @param t the input argument
-	 */
-	public abstract void accept(T t);
-
-	/**
-	 * Returns a composed Consumer that performs, in sequence, this operation followed by the after operation. If
-	 * performing either operation throws an exception, it is relayed to the caller of the composed operation. If
-	 * performing this operation throws an exception, the after operation will not be performed.
-	 * @param after the operation to perform after this operation
-	 * @return a composed Consumer that performs in sequence this operation followed by the after operation
-	 * @throws NullPointerException if after is null
-	 */
-	public Consumer<T> andThen(final Consumer<? super T> after) {
-		final Consumer<T> that = this;
-		return new Consumer<T>() {
-
-			@Override
-			public void accept(T t) {
-				that.accept(t);
-				after.accept(t);
-			}
-		};
-	}
-}
+package com.github.stream4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents an operation that accepts a single input argument and returns no result. Unlike most other functional
+ * interfaces, Consumer is expected to operate via side-effects.
+ * @param <T> the type of the input to the operation
+ */
+public abstract class Consumer<T> {
+	/**
+	 * Performs this operation on the given argument.
+	 * @param t the input argument
+	 */
+	public abstract void accept(T t);
+
+	/**
+	 * Returns a composed Consumer that performs, in sequence, this operation followed by the after operation. If
+	 * performing either operation throws an exception, it is relayed to the caller of the composed operation. If
+	 * performing this operation throws an exception, the after operation will not be performed.<br>
+	 * A chain of calls to andThen is flattened, so that a consumer composed of n consumers performs them in a single
+	 * loop instead of n nested calls.
+	 * @param after the operation to perform after this operation
+	 * @return a composed Consumer that performs in sequence this operation followed by the after operation
+	 * @throws NullPointerException if after is null
+	 */
+	public Consumer<T> andThen(final Consumer<? super T> after) {
+		if (after == null) throw new NullPointerException();
+		final List<Consumer<? super T>> consumers = new ArrayList<Consumer<? super T>>();
+		addTo(consumers, this);
+		addTo(consumers, after);
+		@SuppressWarnings("unchecked") final Consumer<? super T>[] array = (Consumer<? super T>[]) consumers
+				.toArray(new Consumer<?>[consumers.size()]);
+		return new Sequence<T>(array);
+	}
+
+	/**
+	 * Adds the consumer to the list, or its components if it is a Sequence.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> void addTo(List<Consumer<? super T>> consumers, Consumer<? super T> consumer) {
+		if (consumer instanceof Sequence) {
+			consumers.addAll(Arrays.asList(((Sequence<? super T>) consumer).consumers));
+		} else {
+			consumers.add(consumer);
+		}
+	}
+
+	/**
+	 * Performs several operations in sequence, in a single loop rather than a chain of nested consumers.
+	 */
+	private static class Sequence<T> extends Consumer<T> {
+		private final Consumer<? super T>[] consumers;
+
+		public Sequence(Consumer<? super T>[] consumers) {
+			this.consumers = consumers;
+		}
+
+		@Override
+		public void accept(T t) {
+			for (final Consumer<? super T> consumer : consumers) {
+				consumer.accept(t);
+			}
+		}
+	}
+}
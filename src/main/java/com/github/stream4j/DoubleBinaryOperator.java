@@ -0,0 +1,9 @@
+package com.github.stream4j;
+
+/**
+ * Represents an operation upon two double-valued operands and producing a double-valued result. This is the primitive
+ * type specialization of {@link BinaryOperator} for double.
+ */
+public abstract class DoubleBinaryOperator {
+	public abstract double applyAsDouble(double left, double right);
+}
@@ -0,0 +1,32 @@
+package com.github.stream4j;
+
+/**
+ * Represents an operation that accepts a single double-valued argument and returns no result. This is the primitive type
+ * specialization of {@link Consumer} for double.
+ */
+public abstract class DoubleConsumer {
+	/**
+	 * Performs this operation on the given argument.
+	 * @param value the input argument
+	 */
+	public abstract void accept(double value);
+
+	/**
+	 * Returns a composed DoubleConsumer that performs, in sequence, this operation followed by the after operation. If
+	 * performing this operation throws an exception, the after operation will not be performed.
+	 * @param after the operation to perform after this operation
+	 * @return a composed DoubleConsumer that performs in sequence this operation followed by the after operation
+	 * @throws NullPointerException if after is null
+	 */
+	public DoubleConsumer andThen(final DoubleConsumer after) {
+		final DoubleConsumer that = this;
+		return new DoubleConsumer() {
+
+			@Override
+			public void accept(double value) {
+				that.accept(value);
+				after.accept(value);
+			}
+		};
+	}
+}
@@ -0,0 +1,32 @@
+package com.github.stream4j;
+
+import java.util.NoSuchElementException;
+
+/**
+ * An iterator over double values, which does not box the values.
+ */
+abstract class DoubleIterator {
+	abstract boolean hasNext();
+
+	abstract double nextDouble();
+
+	/**
+	 * Returns an iterator over the elements of an array, from index start (inclusive) to index end (exclusive).
+	 */
+	static DoubleIterator of(final double[] array, final int start, final int end) {
+		return new DoubleIterator() {
+			private int index = start;
+
+			@Override
+			boolean hasNext() {
+				return index < end;
+			}
+
+			@Override
+			double nextDouble() {
+				if (index >= end) throw new NoSuchElementException();
+				return array[index++];
+			}
+		};
+	}
+}
@@ -0,0 +1,66 @@
+package com.github.stream4j;
+
+/**
+ * Represents a predicate (boolean-valued function) of one double-valued argument. This is the double-consuming primitive
+ * type specialization of {@link Predicate}.
+ */
+public abstract class DoublePredicate {
+	/**
+	 * Evaluates this predicate on the given argument.
+	 * @param value the input argument
+	 * @return true if the input argument matches the predicate, otherwise false
+	 */
+	public abstract boolean test(double value);
+
+	/**
+	 * Returns a predicate that represents the logical negation of this predicate.
+	 */
+	public DoublePredicate negate() {
+		final DoublePredicate that = this;
+		return new DoublePredicate() {
+
+			@Override
+			public boolean test(double value) {
+				return !that.test(value);
+			}
+		};
+	}
+
+	/**
+	 * Returns a composed predicate that represents a short-circuiting logical AND of this predicate and another. When
+	 * evaluating the composed predicate, if this predicate is false, then the other predicate is not evaluated.
+	 * @param other a predicate that will be logically-ANDed with this predicate
+	 * @return a composed predicate that represents the short-circuiting logical AND of this predicate and the other
+	 *         predicate
+	 * @throws NullPointerException if other is null
+	 */
+	public DoublePredicate and(final DoublePredicate other) {
+		final DoublePredicate that = this;
+		return new DoublePredicate() {
+
+			@Override
+			public boolean test(double value) {
+				return that.test(value) && other.test(value);
+			}
+		};
+	}
+
+	/**
+	 * Returns a composed predicate that represents a short-circuiting logical OR of this predicate and another. When
+	 * evaluating the composed predicate, if this predicate is true, then the other predicate is not evaluated.
+	 * @param other a predicate that will be logically-ORed with this predicate
+	 * @return a composed predicate that represents the short-circuiting logical OR of this predicate and the other
+	 *         predicate
+	 * @throws NullPointerException if other is null
+	 */
+	public DoublePredicate or(final DoublePredicate other) {
+		final DoublePredicate that = this;
+		return new DoublePredicate() {
+
+			@Override
+			public boolean test(double value) {
+				return that.test(value) || other.test(value);
+			}
+		};
+	}
+}
@@ -0,0 +1,410 @@
+package com.github.stream4j;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A sequence of primitive double-valued elements. This is the double primitive specialization of {@link Stream}: the
+ * elements are never boxed, unless {@link #boxed()} or {@link #mapToObj(DoubleFunction)} is called.
+ */
+public class DoubleStream {
+	private final DoubleIterator iterator;
+	private final long size;
+	private final static int SIZE_UNKNOWN = -1;
+	/**
+	 * The source of the elements, closed by the terminal operations even if they stop early, or null if there are no
+	 * resources to release.
+	 */
+	private final Source<?> source;
+
+	DoubleStream(DoubleIterator iterator, long size) {
+		this(iterator, size, null);
+	}
+
+	DoubleStream(DoubleIterator iterator, long size, Source<?> source) {
+		this.iterator = iterator;
+		this.size = size;
+		this.source = source;
+	}
+
+	/**
+	 * Returns a sequential ordered stream whose elements are the specified values.
+	 */
+	public static DoubleStream of(double... values) {
+		return new DoubleStream(DoubleIterator.of(values, 0, values.length), values.length);
+	}
+
+	/**
+	 * Returns a stream consisting of the elements of this stream that match the given predicate.<br>
+	 * This is an intermediate operation.
+	 */
+	public DoubleStream filter(final DoublePredicate predicate) {
+		return new DoubleStream(new DoubleIterator() {
+			private boolean hasNextItem = false;
+			private double nextItem;
+
+			@Override
+			boolean hasNext() {
+				while (!hasNextItem && iterator.hasNext()) {
+					final double value = iterator.nextDouble();
+					if (predicate.test(value)) {
+						nextItem = value;
+						hasNextItem = true;
+					}
+				}
+				return hasNextItem;
+			}
+
+			@Override
+			double nextDouble() {
+				if (!hasNext()) throw new NoSuchElementException();
+				hasNextItem = false;
+				return nextItem;
+			}
+		}, SIZE_UNKNOWN, source);
+	}
+
+	/**
+	 * Returns a stream consisting of the results of applying the given function to the elements of this stream.<br>
+	 * This is an intermediate operation.
+	 */
+	public DoubleStream map(final DoubleUnaryOperator mapper) {
+		return new DoubleStream(new DoubleIterator() {
+
+			@Override
+			boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			double nextDouble() {
+				return mapper.applyAsDouble(iterator.nextDouble());
+			}
+		}, size, source);
+	}
+
+	/**
+	 * Returns an object-valued Stream consisting of the results of applying the given function to the elements of
+	 * this stream.<br>
+	 * This is an intermediate operation.
+	 */
+	public <R> Stream<R> mapToObj(final DoubleFunction<? extends R> mapper) {
+		return Stream.of(Source.of(new Iterator<R>() {
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public R next() {
+				return mapper.apply(iterator.nextDouble());
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		}, SIZE_UNKNOWN, source));
+	}
+
+	/**
+	 * Returns a Stream consisting of the elements of this stream, each boxed to a Double.<br>
+	 * This is an intermediate operation.
+	 */
+	public Stream<Double> boxed() {
+		return mapToObj(new DoubleFunction<Double>() {
+
+			@Override
+			public Double apply(double value) {
+				return value;
+			}
+		});
+	}
+
+	/**
+	 * Returns a stream consisting of the elements of this stream, truncated to be no longer than maxSize in length.<br>
+	 * This is a short-circuiting stateful intermediate operation.
+	 */
+	public DoubleStream limit(final long maxSize) {
+		if (maxSize < 0) throw new IllegalArgumentException("maxSize must be positive");
+		return new DoubleStream(new DoubleIterator() {
+			private long count = 0;
+
+			@Override
+			boolean hasNext() {
+				return count < maxSize && iterator.hasNext();
+			}
+
+			@Override
+			double nextDouble() {
+				if (count >= maxSize) throw new NoSuchElementException();
+				count++;
+				return iterator.nextDouble();
+			}
+		}, size == SIZE_UNKNOWN ? SIZE_UNKNOWN : Math.min(size, maxSize), source);
+	}
+
+	/**
+	 * Returns a stream consisting of the remaining elements of this stream after discarding the first n elements of
+	 * the stream. The elements are discarded when the first element is requested.<br>
+	 * This is a stateful intermediate operation.
+	 * @throws IllegalArgumentException if n is negative
+	 */
+	public DoubleStream skip(final long n) {
+		if (n < 0) throw new IllegalArgumentException("n must be positive");
+		return new DoubleStream(new DoubleIterator() {
+			private boolean skipped = false;
+
+			@Override
+			boolean hasNext() {
+				if (!skipped) {
+					for (long i = 0; i < n && iterator.hasNext(); i++) {
+						iterator.nextDouble();
+					}
+					skipped = true;
+				}
+				return iterator.hasNext();
+			}
+
+			@Override
+			double nextDouble() {
+				if (!hasNext()) throw new NoSuchElementException();
+				return iterator.nextDouble();
+			}
+		}, size == SIZE_UNKNOWN ? SIZE_UNKNOWN : Math.max(0, size - n), source);
+	}
+
+	/**
+	 * Returns a stream consisting of the elements of this stream in sorted order.<br>
+	 * This is a stateful intermediate operation.
+	 */
+	public DoubleStream sorted() {
+		final double[] array = toArray();
+		Arrays.sort(array);
+		return of(array);
+	}
+
+	/**
+	 * Performs an action for each element of this stream.<br>
+	 * This is a terminal operation.
+	 */
+	public void forEach(DoubleConsumer action) {
+		try {
+			while (iterator.hasNext()) {
+				action.accept(iterator.nextDouble());
+			}
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns an array containing the elements of this stream.<br>
+	 * This is a terminal operation.
+	 */
+	public double[] toArray() {
+		try {
+			double[] res = new double[size != SIZE_UNKNOWN ? (int) size : 16];
+			int count = 0;
+			while (iterator.hasNext()) {
+				if (count == res.length) res = Arrays.copyOf(res, count * 2 + 1);
+				res[count++] = iterator.nextDouble();
+			}
+			return count == res.length ? res : Arrays.copyOf(res, count);
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Performs a reduction on the elements of this stream, using the provided identity value and an associative
+	 * accumulation function, and returns the reduced value.<br>
+	 * This is a terminal operation.
+	 */
+	public double reduce(double identity, DoubleBinaryOperator op) {
+		try {
+			double res = identity;
+			while (iterator.hasNext()) {
+				res = op.applyAsDouble(res, iterator.nextDouble());
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Performs a reduction on the elements of this stream, using an associative accumulation function, and returns the
+	 * reduced value, or null if this stream is empty.<br>
+	 * This is a terminal operation.<br>
+	 * The method from the Java Stream API has a different signature: {@code OptionalDouble reduce(DoubleBinaryOperator op)}
+	 */
+	public Double reduce(DoubleBinaryOperator op) {
+		try {
+			if (!iterator.hasNext()) return null;
+			double res = iterator.nextDouble();
+			while (iterator.hasNext()) {
+				res = op.applyAsDouble(res, iterator.nextDouble());
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns the sum of elements in this stream.<br>
+	 * This is a terminal operation.
+	 */
+	public double sum() {
+		try {
+			double res = 0;
+			while (iterator.hasNext()) {
+				res += iterator.nextDouble();
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns the minimum element of this stream, or null if this stream is empty.<br>
+	 * This is a terminal operation.<br>
+	 * The method from the Java Stream API has a different signature: {@code OptionalDouble min()}
+	 */
+	public Double min() {
+		try {
+			if (!iterator.hasNext()) return null;
+			double res = iterator.nextDouble();
+			while (iterator.hasNext()) {
+				res = Math.min(res, iterator.nextDouble());
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns the maximum element of this stream, or null if this stream is empty.<br>
+	 * This is a terminal operation.<br>
+	 * The method from the Java Stream API has a different signature: {@code OptionalDouble max()}
+	 */
+	public Double max() {
+		try {
+			if (!iterator.hasNext()) return null;
+			double res = iterator.nextDouble();
+			while (iterator.hasNext()) {
+				res = Math.max(res, iterator.nextDouble());
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns the count of elements in this stream.<br>
+	 * This is a terminal operation.
+	 */
+	public long count() {
+		try {
+			if (size != SIZE_UNKNOWN) return size;
+			long res = 0;
+			while (iterator.hasNext()) {
+				iterator.nextDouble();
+				res++;
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns the arithmetic mean of elements of this stream, or null if this stream is empty.<br>
+	 * This is a terminal operation.<br>
+	 * The method from the Java Stream API has a different signature: {@code OptionalDouble average()}
+	 */
+	public Double average() {
+		final DoubleSummaryStatistics stats = summaryStatistics();
+		return stats.getCount() == 0 ? null : stats.getAverage();
+	}
+
+	/**
+	 * Returns a DoubleSummaryStatistics describing various summary data about the elements of this stream.<br>
+	 * This is a terminal operation.
+	 */
+	public DoubleSummaryStatistics summaryStatistics() {
+		try {
+			final DoubleSummaryStatistics res = new DoubleSummaryStatistics();
+			while (iterator.hasNext()) {
+				res.accept(iterator.nextDouble());
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns whether any elements of this stream match the provided predicate.<br>
+	 * This is a short-circuiting terminal operation.
+	 */
+	public boolean anyMatch(DoublePredicate predicate) {
+		try {
+			while (iterator.hasNext()) {
+				if (predicate.test(iterator.nextDouble())) return true;
+			}
+			return false;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns whether all elements of this stream match the provided predicate.<br>
+	 * This is a short-circuiting terminal operation.
+	 */
+	public boolean allMatch(DoublePredicate predicate) {
+		try {
+			while (iterator.hasNext()) {
+				if (!predicate.test(iterator.nextDouble())) return false;
+			}
+			return true;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns whether no elements of this stream match the provided predicate.<br>
+	 * This is a short-circuiting terminal operation.
+	 */
+	public boolean noneMatch(DoublePredicate predicate) {
+		return !anyMatch(predicate);
+	}
+
+	/**
+	 * Return the first element of this stream, or null if the stream is empty.<br>
+	 * This is a short-circuiting terminal operation.<br>
+	 * The method from the Java Stream API has a different signature: {@code OptionalDouble findFirst()}
+	 */
+	public Double findFirst() {
+		try {
+			return iterator.hasNext() ? iterator.nextDouble() : null;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Releases the resources of the source, once a terminal operation has read the elements it needs.
+	 */
+	private void close() {
+		if (source != null) source.close();
+	}
+}
@@ -0,0 +1,67 @@
+package com.github.stream4j;
+
+/**
+ * A state object for collecting statistics such as count, min, max, sum, and average.
+ */
+public class DoubleSummaryStatistics extends DoubleConsumer {
+	private long count = 0;
+	private double sum = 0;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/**
+	 * Records a new value into the summary information.
+	 */
+	@Override
+	public void accept(double value) {
+		++count;
+		sum += value;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * Combines the state of another DoubleSummaryStatistics into this one.
+	 */
+	public void combine(DoubleSummaryStatistics other) {
+		count += other.count;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	public final long getCount() {
+		return count;
+	}
+
+	public final double getSum() {
+		return sum;
+	}
+
+	/**
+	 * Returns the minimum value recorded, or Double.POSITIVE_INFINITY if no values have been recorded.
+	 */
+	public final double getMin() {
+		return min;
+	}
+
+	/**
+	 * Returns the maximum value recorded, or Double.NEGATIVE_INFINITY if no values have been recorded.
+	 */
+	public final double getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the arithmetic mean of values recorded, or zero if no values have been recorded.
+	 */
+	public final double getAverage() {
+		return count > 0 ? sum / count : 0.0d;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s{count=%d, sum=%f, min=%f, average=%f, max=%f}", getClass().getSimpleName(),
+				getCount(), getSum(), getMin(), getAverage(), getMax());
+	}
+}
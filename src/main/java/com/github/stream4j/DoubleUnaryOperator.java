@@ -0,0 +1,60 @@
+package com.github.stream4j;
+
+/**
+ * Represents an operation on a single double-valued operand that produces an double-valued result. This is the primitive
+ * type specialization of {@link Function} for double.
+ */
+public abstract class DoubleUnaryOperator {
+	public abstract double applyAsDouble(double operand);
+
+	/**
+	 * Returns a composed operator that first applies this operator to its input, and then applies the after operator
+	 * to the result.
+	 * @param after the operator to apply after this operator is applied
+	 * @return a composed operator that first applies this operator and then applies the after operator
+	 * @throws NullPointerException if after is null
+	 * @see #compose(DoubleUnaryOperator)
+	 */
+	public DoubleUnaryOperator andThen(final DoubleUnaryOperator after) {
+		final DoubleUnaryOperator that = this;
+		return new DoubleUnaryOperator() {
+
+			@Override
+			public double applyAsDouble(double operand) {
+				return after.applyAsDouble(that.applyAsDouble(operand));
+			}
+		};
+	}
+
+	/**
+	 * Returns a composed operator that first applies the before operator to its input, and then applies this operator
+	 * to the result.
+	 * @param before the operator to apply before this operator is applied
+	 * @return a composed operator that first applies the before operator and then applies this operator
+	 * @throws NullPointerException if before is null
+	 * @see #andThen(DoubleUnaryOperator)
+	 */
+	public DoubleUnaryOperator compose(final DoubleUnaryOperator before) {
+		final DoubleUnaryOperator that = this;
+		return new DoubleUnaryOperator() {
+
+			@Override
+			public double applyAsDouble(double operand) {
+				return that.applyAsDouble(before.applyAsDouble(operand));
+			}
+		};
+	}
+
+	/**
+	 * Returns a unary operator that always returns its input argument.
+	 */
+	public static DoubleUnaryOperator identity() {
+		return new DoubleUnaryOperator() {
+
+			@Override
+			public double applyAsDouble(double operand) {
+				return operand;
+			}
+		};
+	}
+}
@@ -0,0 +1,285 @@
+package com.github.stream4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * A source over the elements of another source, sorted with an external merge sort. When the source is first read, the
+ * elements are read into runs which fit in the memory budget; each full run is sorted and written to a temporary file,
+ * the last run being kept in memory. The runs are then merged lazily, as the elements are read. If all the elements fit
+ * in a single run, no file is written.<br>
+ * The sort is stable: the runs hold consecutive elements, and equal elements are taken from the earliest run first.
+ * The temporary files are deleted when all the elements have been read, or when the source is closed.
+ * @param <T> the type of the elements
+ */
+final class ExternalSortSource<T> extends Source<T> {
+	/**
+	 * Number of elements written between two resets of the object stream, so that the references kept by the
+	 * object streams to the elements already written or read remain bounded.
+	 */
+	private static final int RESET_INTERVAL = 1024;
+
+	private final Source<? extends T> upstream;
+	private final Comparator<? super T> comparator;
+	private final SortOptions<T> options;
+	/**
+	 * The run files not deleted yet.
+	 */
+	private final List<RunIterator<T>> runs = new ArrayList<RunIterator<T>>();
+	private Source<T> sorted = null;
+	private boolean closed = false;
+
+	/**
+	 * @param upstream the source of the elements to sort, closed with this source
+	 */
+	ExternalSortSource(Source<? extends T> upstream, Comparator<? super T> comparator, SortOptions<T> options) {
+		assert upstream != null;
+		assert comparator != null;
+		assert options != null;
+
+		this.upstream = upstream;
+		this.comparator = comparator;
+		this.options = options;
+	}
+
+	private Source<T> sorted() {
+		if (sorted == null) {
+			boolean done = false;
+			try {
+				sorted = sort();
+				done = true;
+			} catch (final IOException e) {
+				throw new RuntimeException(e);
+			} finally {
+				if (!done) close();
+			}
+		}
+		return sorted;
+	}
+
+	private Source<T> sort() throws IOException {
+		final Iterator<? extends T> upstream = this.upstream.iterator();
+		final List<T> run = new ArrayList<T>();
+		long count = 0;
+		long weight = 0;
+		while (upstream.hasNext()) {
+			final T t = upstream.next();
+			run.add(t);
+			count++;
+			weight += options.weight(t);
+			if (weight >= options.getBudget() && upstream.hasNext()) {
+				spill(run);
+				run.clear();
+				weight = 0;
+			}
+		}
+		Collections.sort(run, comparator);
+		if (runs.isEmpty()) return Source.of(run);
+
+		final List<Iterator<? extends T>> iterators = new ArrayList<Iterator<? extends T>>(runs);
+		iterators.add(run.iterator());
+		return Source.of(new MergeIterator<T>(iterators, comparator), count);
+	}
+
+	/**
+	 * Sorts the run and writes it to a new temporary file.
+	 */
+	private void spill(List<T> run) throws IOException {
+		Collections.sort(run, comparator);
+		final File file = File.createTempFile("stream4j-sort", ".run", options.getTempDirectory());
+		final RunIterator<T> res = new RunIterator<T>(file, options.getSerializer());
+		runs.add(res);
+		final ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeInt(run.size());
+			final Serializer<T> serializer = options.getSerializer();
+			for (int i = 0; i < run.size(); i++) {
+				serializer.write(run.get(i), out);
+				if (i % RESET_INTERVAL == RESET_INTERVAL - 1) out.reset();
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	@Override
+	long size() {
+		return sorted().size();
+	}
+
+	@Override
+	Iterator<? extends T> iterator() {
+		return sorted().iterator();
+	}
+
+	@Override
+	void pushInto(Sink<? super T> sink, boolean shortCircuit) {
+		sorted().pushInto(sink, shortCircuit);
+	}
+
+	@Override
+	Source<T> trySplit() {
+		return sorted().trySplit();
+	}
+
+	/**
+	 * Deletes the temporary files, and closes the upstream source.
+	 */
+	@Override
+	void close() {
+		if (closed) return;
+		closed = true;
+		try {
+			for (final RunIterator<T> run : runs) {
+				run.close();
+			}
+			runs.clear();
+		} finally {
+			upstream.close();
+		}
+	}
+
+	/**
+	 * Reads a run file. The file is opened on the first read, and deleted once read or closed.
+	 */
+	private static class RunIterator<T> implements Iterator<T> {
+		private final File file;
+		private final Serializer<T> serializer;
+		private ObjectInputStream in = null;
+		/**
+		 * The number of elements not read yet, or -1 if the file has not been opened yet.
+		 */
+		private int remaining = -1;
+
+		public RunIterator(File file, Serializer<T> serializer) {
+			assert file != null;
+			assert serializer != null;
+
+			this.file = file;
+			this.serializer = serializer;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (remaining == -1) {
+				try {
+					in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+					remaining = in.readInt();
+				} catch (final IOException e) {
+					close();
+					throw new RuntimeException(e);
+				}
+			}
+			if (remaining == 0) close();
+			return remaining > 0;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			boolean done = false;
+			try {
+				final T res = serializer.read(in);
+				remaining--;
+				done = true;
+				return res;
+			} catch (final IOException e) {
+				throw new RuntimeException(e);
+			} catch (final ClassNotFoundException e) {
+				throw new RuntimeException(e);
+			} finally {
+				if (!done) close();
+			}
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		void close() {
+			remaining = 0;
+			if (in != null) {
+				try {
+					in.close();
+				} catch (final IOException e) {
+					// the file is deleted anyway
+				}
+				in = null;
+			}
+			file.delete();
+		}
+	}
+
+	/**
+	 * Merges sorted iterators. Equal elements are returned in the order of the iterators.
+	 */
+	private static class MergeIterator<T> implements Iterator<T> {
+		private final PriorityQueue<Head<T>> heads;
+
+		public MergeIterator(List<Iterator<? extends T>> iterators, final Comparator<? super T> comparator) {
+			this.heads = new PriorityQueue<Head<T>>(iterators.size(), new Comparator<Head<T>>() {
+
+				@Override
+				public int compare(Head<T> o1, Head<T> o2) {
+					final int res = comparator.compare(o1.value, o2.value);
+					return res != 0 ? res : o1.index - o2.index;
+				}
+			});
+			for (int i = 0; i < iterators.size(); i++) {
+				final Iterator<? extends T> it = iterators.get(i);
+				if (it.hasNext()) heads.add(new Head<T>(i, it));
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !heads.isEmpty();
+		}
+
+		@Override
+		public T next() {
+			final Head<T> head = heads.poll();
+			if (head == null) throw new NoSuchElementException();
+			final T res = head.value;
+			if (head.iterator.hasNext()) {
+				head.value = head.iterator.next();
+				heads.add(head);
+			}
+			return res;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * The next element of one of the merged iterators.
+	 */
+	private static class Head<T> {
+		final int index;
+		final Iterator<? extends T> iterator;
+		T value;
+
+		public Head(int index, Iterator<? extends T> iterator) {
+			this.index = index;
+			this.iterator = iterator;
+			this.value = iterator.next();
+		}
+	}
+}
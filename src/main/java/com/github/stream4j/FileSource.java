@@ -0,0 +1,375 @@
+package com.github.stream4j;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A source reading a range of bytes of a file through memory-mapped windows, so that the elements are decoded from the
+ * page cache without being copied to an intermediate buffer. The range is split at element boundaries; the chunks share
+ * the channel of the source the file was opened for, which closes it when all the elements have been read or when the
+ * pipeline has been evaluated.
+ * @param <T> the type of the elements
+ */
+abstract class FileSource<T> extends Source<T> {
+	/**
+	 * Maximum number of bytes mapped at once, unless an element is longer.
+	 */
+	static final int WINDOW_SIZE = 1 << 25;
+	/**
+	 * Minimum number of bytes of a chunk of a line source.
+	 */
+	static final int SPLIT_SIZE = 1 << 20;
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+	final FileChannel channel;
+	/**
+	 * True if this source is the source the file was opened for, rather than a chunk split from it.
+	 */
+	private final boolean owner;
+	final int windowSize;
+	/**
+	 * The position of the next element.
+	 */
+	long from;
+	final long to;
+	private ByteBuffer window = EMPTY;
+	private long windowStart = 0;
+
+	FileSource(FileChannel channel, boolean owner, int windowSize, long from, long to) {
+		assert channel != null;
+		assert windowSize > 0;
+		assert from <= to;
+
+		this.channel = channel;
+		this.owner = owner;
+		this.windowSize = windowSize;
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * Returns a source over the lines of a file, as read by {@link BufferedReader#readLine()}, except that only "\n"
+	 * and "\r\n" are line terminators. The file is memory-mapped if the charset encodes these characters as single
+	 * ASCII bytes (for instance UTF-8 or ISO-8859-1), and read through a reader otherwise.
+	 */
+	static Source<String> lines(File file, Charset charset) throws IOException {
+		return lines(file, charset, WINDOW_SIZE, SPLIT_SIZE);
+	}
+
+	static Source<String> lines(File file, Charset charset, int windowSize, int splitSize) throws IOException {
+		if (!Arrays.equals("\r\n".getBytes(charset), new byte[] { '\r', '\n' })) {
+			return lines(new BufferedReader(new InputStreamReader(new FileInputStream(file), charset)), true);
+		}
+		final FileChannel channel = open(file);
+		return new LineSource(channel, true, windowSize, splitSize, charset, 0, size(channel));
+	}
+
+	/**
+	 * Returns a source over the consecutive records of recordSize bytes of a file, the last record being shorter if
+	 * the file size is not a multiple of recordSize. Each record is a read-only view of the mapped file.
+	 */
+	static Source<ByteBuffer> records(File file, int recordSize) throws IOException {
+		return records(file, recordSize, WINDOW_SIZE);
+	}
+
+	static Source<ByteBuffer> records(File file, int recordSize, int windowSize) throws IOException {
+		final FileChannel channel = open(file);
+		final int recordsPerWindow = Math.max(1, windowSize / recordSize);
+		return new RecordSource(channel, true, recordsPerWindow * recordSize, recordSize, 0, size(channel));
+	}
+
+	/**
+	 * Returns a source over the lines read from a reader.
+	 * @param close whether to close the reader when all the lines have been read or when the pipeline has been
+	 *            evaluated
+	 */
+	static Source<String> lines(BufferedReader reader, boolean close) {
+		return new ReaderSource(new LineIterator(reader, close));
+	}
+
+	private static FileChannel open(File file) throws IOException {
+		return new RandomAccessFile(file, "r").getChannel();
+	}
+
+	private static long size(FileChannel channel) throws IOException {
+		boolean done = false;
+		try {
+			final long res = channel.size();
+			done = true;
+			return res;
+		} finally {
+			if (!done) channel.close();
+		}
+	}
+
+	/**
+	 * Reads the element at {@link #from}, and moves {@link #from} to the next element.
+	 */
+	abstract T read();
+
+	@Override
+	Iterator<T> iterator() {
+		return new Iterator<T>() {
+
+			@Override
+			public boolean hasNext() {
+				if (from < to) return true;
+				if (owner) close();
+				return false;
+			}
+
+			@Override
+			public T next() {
+				if (!hasNext()) throw new NoSuchElementException();
+				return read();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	void pushInto(Sink<? super T> sink, boolean shortCircuit) {
+		if (shortCircuit) {
+			while (from < to && !sink.cancellationRequested()) {
+				sink.accept(read());
+			}
+		} else {
+			while (from < to) {
+				sink.accept(read());
+			}
+		}
+	}
+
+	@Override
+	void close() {
+		window = EMPTY;
+		if (owner) {
+			try {
+				channel.close();
+			} catch (final IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+
+	/**
+	 * Returns a buffer over the bytes from position (inclusive) to position + length (exclusive). The buffer is a
+	 * view of the mapped window.
+	 */
+	final ByteBuffer bytes(long position, int length) {
+		if (position < windowStart || position + length > windowStart + window.limit()) map(position, length);
+		final ByteBuffer res = window.duplicate();
+		final int offset = (int) (position - windowStart);
+		res.position(offset);
+		res.limit(offset + length);
+		return res.slice();
+	}
+
+	/**
+	 * Returns the position of the first occurrence of b from position (inclusive) to {@link #to} (exclusive), or -1 if
+	 * not found.
+	 */
+	final long indexOf(byte b, long position) {
+		long p = position;
+		while (p < to) {
+			if (p < windowStart || p >= windowStart + window.limit()) map(p, 1);
+			final ByteBuffer w = window;
+			final int end = w.limit();
+			for (int i = (int) (p - windowStart); i < end; i++) {
+				if (w.get(i) == b) return windowStart + i;
+			}
+			p = windowStart + end;
+		}
+		return -1;
+	}
+
+	private void map(long position, int length) {
+		final long size = Math.min(Math.max(windowSize, length), to - position);
+		try {
+			window = channel.map(MapMode.READ_ONLY, position, size);
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+		windowStart = position;
+	}
+
+	private static class LineSource extends FileSource<String> {
+		private final int splitSize;
+		private final Charset charset;
+		private final CharsetDecoder decoder;
+
+		public LineSource(FileChannel channel, boolean owner, int windowSize, int splitSize, Charset charset,
+				long from, long to) {
+			super(channel, owner, windowSize, from, to);
+			assert splitSize > 0;
+
+			this.splitSize = splitSize;
+			this.charset = charset;
+			// same as String(byte[], Charset)
+			this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+					.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		}
+
+		@Override
+		long size() {
+			return SIZE_UNKNOWN;
+		}
+
+		@Override
+		String read() {
+			final long newline = indexOf((byte) '\n', from);
+			long end = newline == -1 ? to : newline;
+			if (end > from && bytes(end - 1, 1).get(0) == '\r') end--;
+			if (end - from > Integer.MAX_VALUE) throw new IllegalStateException("line too long at position " + from);
+			final ByteBuffer line = bytes(from, (int) (end - from));
+			from = newline == -1 ? to : newline + 1;
+			return decode(line);
+		}
+
+		private String decode(ByteBuffer line) {
+			try {
+				final CharBuffer res = decoder.decode(line);
+				return res.toString();
+			} catch (final CharacterCodingException e) {
+				// not thrown, errors are replaced
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		Source<String> trySplit() {
+			if (to - from < 2L * splitSize) return null;
+			final long newline = indexOf((byte) '\n', from + (to - from) / 2);
+			if (newline == -1 || newline + 1 == to) return null;
+			final Source<String> res = new LineSource(channel, false, windowSize, splitSize, charset, from,
+					newline + 1);
+			from = newline + 1;
+			return res;
+		}
+	}
+
+	private static class RecordSource extends FileSource<ByteBuffer> {
+		private final int recordSize;
+
+		public RecordSource(FileChannel channel, boolean owner, int windowSize, int recordSize, long from, long to) {
+			super(channel, owner, windowSize, from, to);
+			assert recordSize > 0;
+
+			this.recordSize = recordSize;
+		}
+
+		@Override
+		long size() {
+			return (to - from + recordSize - 1) / recordSize;
+		}
+
+		@Override
+		ByteBuffer read() {
+			final int length = (int) Math.min(recordSize, to - from);
+			final ByteBuffer res = bytes(from, length).asReadOnlyBuffer();
+			from += length;
+			return res;
+		}
+
+		@Override
+		Source<ByteBuffer> trySplit() {
+			final long count = size();
+			if (count < 2) return null;
+			final long mid = from + count / 2 * recordSize;
+			final Source<ByteBuffer> res = new RecordSource(channel, false, windowSize, recordSize, from, mid);
+			from = mid;
+			return res;
+		}
+	}
+
+	/**
+	 * A source over the lines read from a reader, which closes the iterator.
+	 */
+	private static class ReaderSource extends Source.IteratorSource<String> {
+		private final LineIterator iterator;
+
+		public ReaderSource(LineIterator iterator) {
+			super(iterator, SIZE_UNKNOWN);
+			this.iterator = iterator;
+		}
+
+		@Override
+		void close() {
+			iterator.close();
+		}
+	}
+
+	private static class LineIterator implements Iterator<String> {
+		private final BufferedReader reader;
+		private final boolean close;
+		/**
+		 * The next line, or null if not read yet or if the end of the reader has been reached.
+		 */
+		private String next = null;
+		private boolean ended = false;
+
+		public LineIterator(BufferedReader reader, boolean close) {
+			assert reader != null;
+
+			this.reader = reader;
+			this.close = close;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null && !ended) {
+				try {
+					next = reader.readLine();
+				} catch (final IOException e) {
+					throw new RuntimeException(e);
+				}
+				if (next == null) {
+					ended = true;
+					close();
+				}
+			}
+			return next != null;
+		}
+
+		@Override
+		public String next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			final String res = next;
+			next = null;
+			return res;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		void close() {
+			if (!close) return;
+			try {
+				reader.close();
+			} catch (final IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+}
@@ -1,61 +1,90 @@
-package com.github.stream4j;
-
-/**
- * Represents a function that accepts one argument and produces a result.
- * @param <T> the type of the input to the function
- * @param <R> the type of the result of the function
- */
-public abstract class Function<T, R> {
-	public abstract R apply(T t);
-
-	/**
-	 * Returns a composed function that first applies this function to its input, and then applies the after function
-	 * to the result.
-	 * @param after the function to apply after this function is applied.
-	 * @return a composed function that first applies this function and then applies the after function
-	 * @throws NullPointerException if after is null
-	 * @see #compose(Function)
-	 */
-	public <V> Function<T, V> andThen(final Function<? super R, ? extends V> after) {
-		return new Function<T, V>() {
-
-			@Override
-			public V apply(T t) {
-				return after.apply(Function.this.apply(t));
-			}
-
-		};
-	}
-
-	/**
-	 * Returns a composed function that first applies the before function to its input, and then applies this function
-	 * to the result. If evaluation of either function throws an exception, it is relayed to the caller of the
-	 * composed function.
-	 * @param before the function to apply before this function is applied
-	 * @return a composed function that first applies the before function and then applies this function
-	 * @throws NullPointerException if before is null
-	 * @see #andThen(Function)
-	 */
-	public <V> Function<V, R> compose(final Function<? super V, ? extends T> before) {
-		return new Function<V, R>() {
-
-			@Override
-			public R apply(V t) {
-				return Function.this.apply(before.apply(t));
-			}
-		};
-	}
-
-	/**
-	 * Returns a function that always returns its input argument.
-	 * @return a function that always returns its input argument
-	 */
-	public static <T> Function<T, T> identity() {
-		return new Function<T, T>() {
-			@Override
-			public T apply(T t) {
-				return t;
-			}
-		};
-	}
-}
+package com.github.stream4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents a function that accepts one argument and produces a result.
+ * @param <T> the type of the input to the function
+ * @param <R> the type of the result of the function
+ */
+public abstract class Function<T, R> {
+	public abstract R apply(T t);
+
+	/**
+	 * Returns a composed function that first applies this function to its input, and then applies the after function
+	 * to the result. A chain of calls to andThen or compose is flattened, so that a function composed of n functions
+	 * applies them in a single loop rather than through n nested calls.
+	 * @param after the function to apply after this function is applied.
+	 * @return a composed function that first applies this function and then applies the after function
+	 * @throws NullPointerException if after is null
+	 * @see #compose(Function)
+	 */
+	public <V> Function<T, V> andThen(final Function<? super R, ? extends V> after) {
+		return chain(this, after);
+	}
+
+	/**
+	 * Returns a composed function that first applies the before function to its input, and then applies this function
+	 * to the result. If evaluation of either function throws an exception, it is relayed to the caller of the
+	 * composed function. A chain of calls to andThen or compose is flattened, so that a function composed of n
+	 * functions applies them in a single loop rather than through n nested calls.
+	 * @param before the function to apply before this function is applied
+	 * @return a composed function that first applies the before function and then applies this function
+	 * @throws NullPointerException if before is null
+	 * @see #andThen(Function)
+	 */
+	public <V> Function<V, R> compose(final Function<? super V, ? extends T> before) {
+		return chain(before, this);
+	}
+
+	/**
+	 * Returns a function applying first, then second to the result of first. The functions are kept in an array
+	 * applied by a single loop, rather than a chain of nested functions; chained functions are flattened into this
+	 * array. The caller must check that the result of first is accepted by second.
+	 */
+	private static <T, R> Function<T, R> chain(Function<?, ?> first, Function<?, ?> second) {
+		if (first == null || second == null) throw new NullPointerException();
+		final List<Function<?, ?>> flattened = new ArrayList<Function<?, ?>>();
+		for (final Function<?, ?> function : Arrays.asList(first, second)) {
+			if (function instanceof Chain) {
+				flattened.addAll(Arrays.asList(((Chain<?, ?>) function).functions));
+			} else {
+				flattened.add(function);
+			}
+		}
+		return new Chain<T, R>(flattened.toArray(new Function<?, ?>[flattened.size()]));
+	}
+
+	/**
+	 * Returns a function that always returns its input argument.
+	 * @return a function that always returns its input argument
+	 */
+	public static <T> Function<T, T> identity() {
+		return new Function<T, T>() {
+			@Override
+			public T apply(T t) {
+				return t;
+			}
+		};
+	}
+
+	private static class Chain<T, R> extends Function<T, R> {
+		private final Function<?, ?>[] functions;
+
+		public Chain(Function<?, ?>[] functions) {
+			this.functions = functions;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public R apply(T t) {
+			Object res = t;
+			for (final Function<?, ?> function : functions) {
+				res = ((Function<Object, ?>) function).apply(res);
+			}
+			return (R) res;
+		}
+	}
+}
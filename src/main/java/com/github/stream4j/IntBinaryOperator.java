@@ -0,0 +1,9 @@
+package com.github.stream4j;
+
+/**
+ * Represents an operation upon two int-valued operands and producing an int-valued result. This is the primitive type
+ * specialization of {@link BinaryOperator} for int.
+ */
+public abstract class IntBinaryOperator {
+	public abstract int applyAsInt(int left, int right);
+}
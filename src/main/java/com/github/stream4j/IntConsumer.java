@@ -0,0 +1,32 @@
+package com.github.stream4j;
+
+/**
+ * Represents an operation that accepts a single int-valued argument and returns no result. This is the primitive type
+ * specialization of {@link Consumer} for int.
+ */
+public abstract class IntConsumer {
+	/**
+	 * Performs this operation on the given argument.
+	 * @param value the input argument
+	 */
+	public abstract void accept(int value);
+
+	/**
+	 * Returns a composed IntConsumer that performs, in sequence, this operation followed by the after operation. If
+	 * performing this operation throws an exception, the after operation will not be performed.
+	 * @param after the operation to perform after this operation
+	 * @return a composed IntConsumer that performs in sequence this operation followed by the after operation
+	 * @throws NullPointerException if after is null
+	 */
+	public IntConsumer andThen(final IntConsumer after) {
+		final IntConsumer that = this;
+		return new IntConsumer() {
+
+			@Override
+			public void accept(int value) {
+				that.accept(value);
+				after.accept(value);
+			}
+		};
+	}
+}
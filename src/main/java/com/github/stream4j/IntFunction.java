@@ -0,0 +1,10 @@
+package com.github.stream4j;
+
+/**
+ * Represents a function that accepts an int-valued argument and produces a result. This is the int-consuming
+ * primitive specialization for {@link Function}.
+ * @param <R> the type of the result of the function
+ */
+public abstract class IntFunction<R> {
+	public abstract R apply(int value);
+}
@@ -0,0 +1,32 @@
+package com.github.stream4j;
+
+import java.util.NoSuchElementException;
+
+/**
+ * An iterator over int values, which does not box the values.
+ */
+abstract class IntIterator {
+	abstract boolean hasNext();
+
+	abstract int nextInt();
+
+	/**
+	 * Returns an iterator over the elements of an array, from index start (inclusive) to index end (exclusive).
+	 */
+	static IntIterator of(final int[] array, final int start, final int end) {
+		return new IntIterator() {
+			private int index = start;
+
+			@Override
+			boolean hasNext() {
+				return index < end;
+			}
+
+			@Override
+			int nextInt() {
+				if (index >= end) throw new NoSuchElementException();
+				return array[index++];
+			}
+		};
+	}
+}
@@ -0,0 +1,490 @@
+package com.github.stream4j;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A sequence of primitive int-valued elements. This is the int primitive specialization of {@link Stream}: the
+ * elements are never boxed, unless {@link #boxed()} or {@link #mapToObj(IntFunction)} is called.
+ */
+public class IntStream {
+	private final IntIterator iterator;
+	private final long size;
+	private final static int SIZE_UNKNOWN = -1;
+	/**
+	 * The source of the elements, closed by the terminal operations even if they stop early, or null if there are no
+	 * resources to release.
+	 */
+	private final Source<?> source;
+
+	IntStream(IntIterator iterator, long size) {
+		this(iterator, size, null);
+	}
+
+	IntStream(IntIterator iterator, long size, Source<?> source) {
+		this.iterator = iterator;
+		this.size = size;
+		this.source = source;
+	}
+
+	/**
+	 * Returns a sequential ordered stream whose elements are the specified values.
+	 */
+	public static IntStream of(int... values) {
+		return new IntStream(IntIterator.of(values, 0, values.length), values.length);
+	}
+
+	/**
+	 * Returns a sequential ordered IntStream from startInclusive (inclusive) to endExclusive (exclusive) by an
+	 * incremental step of 1.
+	 */
+	public static IntStream range(final int startInclusive, final int endExclusive) {
+		if (startInclusive >= endExclusive) return of();
+		return new IntStream(new RangeIterator(startInclusive, endExclusive - 1), (long) endExclusive - startInclusive);
+	}
+
+	/**
+	 * Returns a sequential ordered IntStream from startInclusive (inclusive) to endInclusive (inclusive) by an
+	 * incremental step of 1.
+	 */
+	public static IntStream rangeClosed(int startInclusive, int endInclusive) {
+		if (startInclusive > endInclusive) return of();
+		return new IntStream(new RangeIterator(startInclusive, endInclusive), (long) endInclusive - startInclusive + 1);
+	}
+
+	/**
+	 * Returns a stream consisting of the elements of this stream that match the given predicate.<br>
+	 * This is an intermediate operation.
+	 */
+	public IntStream filter(final IntPredicate predicate) {
+		return new IntStream(new IntIterator() {
+			private boolean hasNextItem = false;
+			private int nextItem;
+
+			@Override
+			boolean hasNext() {
+				while (!hasNextItem && iterator.hasNext()) {
+					final int value = iterator.nextInt();
+					if (predicate.test(value)) {
+						nextItem = value;
+						hasNextItem = true;
+					}
+				}
+				return hasNextItem;
+			}
+
+			@Override
+			int nextInt() {
+				if (!hasNext()) throw new NoSuchElementException();
+				hasNextItem = false;
+				return nextItem;
+			}
+		}, SIZE_UNKNOWN, source);
+	}
+
+	/**
+	 * Returns a stream consisting of the results of applying the given function to the elements of this stream.<br>
+	 * This is an intermediate operation.
+	 */
+	public IntStream map(final IntUnaryOperator mapper) {
+		return new IntStream(new IntIterator() {
+
+			@Override
+			boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			int nextInt() {
+				return mapper.applyAsInt(iterator.nextInt());
+			}
+		}, size, source);
+	}
+
+	/**
+	 * Returns an object-valued Stream consisting of the results of applying the given function to the elements of
+	 * this stream.<br>
+	 * This is an intermediate operation.
+	 */
+	public <R> Stream<R> mapToObj(final IntFunction<? extends R> mapper) {
+		return Stream.of(Source.of(new Iterator<R>() {
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public R next() {
+				return mapper.apply(iterator.nextInt());
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		}, SIZE_UNKNOWN, source));
+	}
+
+	/**
+	 * Returns a Stream consisting of the elements of this stream, each boxed to an Integer.<br>
+	 * This is an intermediate operation.
+	 */
+	public Stream<Integer> boxed() {
+		return mapToObj(new IntFunction<Integer>() {
+
+			@Override
+			public Integer apply(int value) {
+				return value;
+			}
+		});
+	}
+
+	/**
+	 * Returns a LongStream consisting of the elements of this stream, converted to long.<br>
+	 * This is an intermediate operation.
+	 */
+	public LongStream asLongStream() {
+		return new LongStream(new LongIterator() {
+
+			@Override
+			boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			long nextLong() {
+				return iterator.nextInt();
+			}
+		}, size, source);
+	}
+
+	/**
+	 * Returns a DoubleStream consisting of the elements of this stream, converted to double.<br>
+	 * This is an intermediate operation.
+	 */
+	public DoubleStream asDoubleStream() {
+		return new DoubleStream(new DoubleIterator() {
+
+			@Override
+			boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			double nextDouble() {
+				return iterator.nextInt();
+			}
+		}, size, source);
+	}
+
+	/**
+	 * Returns a stream consisting of the elements of this stream, truncated to be no longer than maxSize in length.<br>
+	 * This is a short-circuiting stateful intermediate operation.
+	 */
+	public IntStream limit(final long maxSize) {
+		if (maxSize < 0) throw new IllegalArgumentException("maxSize must be positive");
+		return new IntStream(new IntIterator() {
+			private long count = 0;
+
+			@Override
+			boolean hasNext() {
+				return count < maxSize && iterator.hasNext();
+			}
+
+			@Override
+			int nextInt() {
+				if (count >= maxSize) throw new NoSuchElementException();
+				count++;
+				return iterator.nextInt();
+			}
+		}, size == SIZE_UNKNOWN ? SIZE_UNKNOWN : Math.min(size, maxSize), source);
+	}
+
+	/**
+	 * Returns a stream consisting of the remaining elements of this stream after discarding the first n elements of
+	 * the stream. The elements are discarded when the first element is requested.<br>
+	 * This is a stateful intermediate operation.
+	 * @throws IllegalArgumentException if n is negative
+	 */
+	public IntStream skip(final long n) {
+		if (n < 0) throw new IllegalArgumentException("n must be positive");
+		return new IntStream(new IntIterator() {
+			private boolean skipped = false;
+
+			@Override
+			boolean hasNext() {
+				if (!skipped) {
+					for (long i = 0; i < n && iterator.hasNext(); i++) {
+						iterator.nextInt();
+					}
+					skipped = true;
+				}
+				return iterator.hasNext();
+			}
+
+			@Override
+			int nextInt() {
+				if (!hasNext()) throw new NoSuchElementException();
+				return iterator.nextInt();
+			}
+		}, size == SIZE_UNKNOWN ? SIZE_UNKNOWN : Math.max(0, size - n), source);
+	}
+
+	/**
+	 * Returns a stream consisting of the elements of this stream in sorted order.<br>
+	 * This is a stateful intermediate operation.
+	 */
+	public IntStream sorted() {
+		final int[] array = toArray();
+		Arrays.sort(array);
+		return of(array);
+	}
+
+	/**
+	 * Performs an action for each element of this stream.<br>
+	 * This is a terminal operation.
+	 */
+	public void forEach(IntConsumer action) {
+		try {
+			while (iterator.hasNext()) {
+				action.accept(iterator.nextInt());
+			}
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns an array containing the elements of this stream.<br>
+	 * This is a terminal operation.
+	 */
+	public int[] toArray() {
+		try {
+			int[] res = new int[size != SIZE_UNKNOWN ? (int) size : 16];
+			int count = 0;
+			while (iterator.hasNext()) {
+				if (count == res.length) res = Arrays.copyOf(res, count * 2 + 1);
+				res[count++] = iterator.nextInt();
+			}
+			return count == res.length ? res : Arrays.copyOf(res, count);
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Performs a reduction on the elements of this stream, using the provided identity value and an associative
+	 * accumulation function, and returns the reduced value.<br>
+	 * This is a terminal operation.
+	 */
+	public int reduce(int identity, IntBinaryOperator op) {
+		try {
+			int res = identity;
+			while (iterator.hasNext()) {
+				res = op.applyAsInt(res, iterator.nextInt());
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Performs a reduction on the elements of this stream, using an associative accumulation function, and returns the
+	 * reduced value, or null if this stream is empty.<br>
+	 * This is a terminal operation.<br>
+	 * The method from the Java Stream API has a different signature: {@code OptionalInt reduce(IntBinaryOperator op)}
+	 */
+	public Integer reduce(IntBinaryOperator op) {
+		try {
+			if (!iterator.hasNext()) return null;
+			int res = iterator.nextInt();
+			while (iterator.hasNext()) {
+				res = op.applyAsInt(res, iterator.nextInt());
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns the sum of elements in this stream.<br>
+	 * This is a terminal operation.
+	 */
+	public int sum() {
+		try {
+			int res = 0;
+			while (iterator.hasNext()) {
+				res += iterator.nextInt();
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns the minimum element of this stream, or null if this stream is empty.<br>
+	 * This is a terminal operation.<br>
+	 * The method from the Java Stream API has a different signature: {@code OptionalInt min()}
+	 */
+	public Integer min() {
+		try {
+			if (!iterator.hasNext()) return null;
+			int res = iterator.nextInt();
+			while (iterator.hasNext()) {
+				res = Math.min(res, iterator.nextInt());
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns the maximum element of this stream, or null if this stream is empty.<br>
+	 * This is a terminal operation.<br>
+	 * The method from the Java Stream API has a different signature: {@code OptionalInt max()}
+	 */
+	public Integer max() {
+		try {
+			if (!iterator.hasNext()) return null;
+			int res = iterator.nextInt();
+			while (iterator.hasNext()) {
+				res = Math.max(res, iterator.nextInt());
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns the count of elements in this stream.<br>
+	 * This is a terminal operation.
+	 */
+	public long count() {
+		try {
+			if (size != SIZE_UNKNOWN) return size;
+			long res = 0;
+			while (iterator.hasNext()) {
+				iterator.nextInt();
+				res++;
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns the arithmetic mean of elements of this stream, or null if this stream is empty.<br>
+	 * This is a terminal operation.<br>
+	 * The method from the Java Stream API has a different signature: {@code OptionalDouble average()}
+	 */
+	public Double average() {
+		final IntSummaryStatistics stats = summaryStatistics();
+		return stats.getCount() == 0 ? null : stats.getAverage();
+	}
+
+	/**
+	 * Returns an IntSummaryStatistics describing various summary data about the elements of this stream.<br>
+	 * This is a terminal operation.
+	 */
+	public IntSummaryStatistics summaryStatistics() {
+		try {
+			final IntSummaryStatistics res = new IntSummaryStatistics();
+			while (iterator.hasNext()) {
+				res.accept(iterator.nextInt());
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns whether any elements of this stream match the provided predicate.<br>
+	 * This is a short-circuiting terminal operation.
+	 */
+	public boolean anyMatch(IntPredicate predicate) {
+		try {
+			while (iterator.hasNext()) {
+				if (predicate.test(iterator.nextInt())) return true;
+			}
+			return false;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns whether all elements of this stream match the provided predicate.<br>
+	 * This is a short-circuiting terminal operation.
+	 */
+	public boolean allMatch(IntPredicate predicate) {
+		try {
+			while (iterator.hasNext()) {
+				if (!predicate.test(iterator.nextInt())) return false;
+			}
+			return true;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns whether no elements of this stream match the provided predicate.<br>
+	 * This is a short-circuiting terminal operation.
+	 */
+	public boolean noneMatch(IntPredicate predicate) {
+		return !anyMatch(predicate);
+	}
+
+	/**
+	 * Return the first element of this stream, or null if the stream is empty.<br>
+	 * This is a short-circuiting terminal operation.<br>
+	 * The method from the Java Stream API has a different signature: {@code OptionalInt findFirst()}
+	 */
+	public Integer findFirst() {
+		try {
+			return iterator.hasNext() ? iterator.nextInt() : null;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Releases the resources of the source, once a terminal operation has read the elements it needs.
+	 */
+	private void close() {
+		if (source != null) source.close();
+	}
+
+	private static class RangeIterator extends IntIterator {
+		private int next;
+		private final int last;
+		private boolean hasNext = true;
+
+		public RangeIterator(int first, int last) {
+			assert first <= last;
+			this.next = first;
+			this.last = last;
+		}
+
+		@Override
+		boolean hasNext() {
+			return hasNext;
+		}
+
+		@Override
+		int nextInt() {
+			if (!hasNext) throw new NoSuchElementException();
+			if (next == last) hasNext = false;
+			return next++;
+		}
+	}
+}
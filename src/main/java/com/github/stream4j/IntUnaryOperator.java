@@ -0,0 +1,60 @@
+package com.github.stream4j;
+
+/**
+ * Represents an operation on a single int-valued operand that produces an int-valued result. This is the primitive
+ * type specialization of {@link Function} for int.
+ */
+public abstract class IntUnaryOperator {
+	public abstract int applyAsInt(int operand);
+
+	/**
+	 * Returns a composed operator that first applies this operator to its input, and then applies the after operator
+	 * to the result.
+	 * @param after the operator to apply after this operator is applied
+	 * @return a composed operator that first applies this operator and then applies the after operator
+	 * @throws NullPointerException if after is null
+	 * @see #compose(IntUnaryOperator)
+	 */
+	public IntUnaryOperator andThen(final IntUnaryOperator after) {
+		final IntUnaryOperator that = this;
+		return new IntUnaryOperator() {
+
+			@Override
+			public int applyAsInt(int operand) {
+				return after.applyAsInt(that.applyAsInt(operand));
+			}
+		};
+	}
+
+	/**
+	 * Returns a composed operator that first applies the before operator to its input, and then applies this operator
+	 * to the result.
+	 * @param before the operator to apply before this operator is applied
+	 * @return a composed operator that first applies the before operator and then applies this operator
+	 * @throws NullPointerException if before is null
+	 * @see #andThen(IntUnaryOperator)
+	 */
+	public IntUnaryOperator compose(final IntUnaryOperator before) {
+		final IntUnaryOperator that = this;
+		return new IntUnaryOperator() {
+
+			@Override
+			public int applyAsInt(int operand) {
+				return that.applyAsInt(before.applyAsInt(operand));
+			}
+		};
+	}
+
+	/**
+	 * Returns a unary operator that always returns its input argument.
+	 */
+	public static IntUnaryOperator identity() {
+		return new IntUnaryOperator() {
+
+			@Override
+			public int applyAsInt(int operand) {
+				return operand;
+			}
+		};
+	}
+}
@@ -0,0 +1,9 @@
+package com.github.stream4j;
+
+/**
+ * Represents an operation upon two long-valued operands and producing a long-valued result. This is the primitive type
+ * specialization of {@link BinaryOperator} for long.
+ */
+public abstract class LongBinaryOperator {
+	public abstract long applyAsLong(long left, long right);
+}
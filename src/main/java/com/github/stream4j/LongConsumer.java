@@ -0,0 +1,32 @@
+package com.github.stream4j;
+
+/**
+ * Represents an operation that accepts a single long-valued argument and returns no result. This is the primitive type
+ * specialization of {@link Consumer} for long.
+ */
+public abstract class LongConsumer {
+	/**
+	 * Performs this operation on the given argument.
+	 * @param value the input argument
+	 */
+	public abstract void accept(long value);
+
+	/**
+	 * Returns a composed LongConsumer that performs, in sequence, this operation followed by the after operation. If
+	 * performing this operation throws an exception, the after operation will not be performed.
+	 * @param after the operation to perform after this operation
+	 * @return a composed LongConsumer that performs in sequence this operation followed by the after operation
+	 * @throws NullPointerException if after is null
+	 */
+	public LongConsumer andThen(final LongConsumer after) {
+		final LongConsumer that = this;
+		return new LongConsumer() {
+
+			@Override
+			public void accept(long value) {
+				that.accept(value);
+				after.accept(value);
+			}
+		};
+	}
+}
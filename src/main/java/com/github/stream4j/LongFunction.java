@@ -0,0 +1,10 @@
+package com.github.stream4j;
+
+/**
+ * Represents a function that accepts an long-valued argument and produces a result. This is the long-consuming
+ * primitive specialization for {@link Function}.
+ * @param <R> the type of the result of the function
+ */
+public abstract class LongFunction<R> {
+	public abstract R apply(long value);
+}
@@ -0,0 +1,32 @@
+package com.github.stream4j;
+
+import java.util.NoSuchElementException;
+
+/**
+ * An iterator over long values, which does not box the values.
+ */
+abstract class LongIterator {
+	abstract boolean hasNext();
+
+	abstract long nextLong();
+
+	/**
+	 * Returns an iterator over the elements of an array, from index start (inclusive) to index end (exclusive).
+	 */
+	static LongIterator of(final long[] array, final int start, final int end) {
+		return new LongIterator() {
+			private int index = start;
+
+			@Override
+			boolean hasNext() {
+				return index < end;
+			}
+
+			@Override
+			long nextLong() {
+				if (index >= end) throw new NoSuchElementException();
+				return array[index++];
+			}
+		};
+	}
+}
@@ -0,0 +1,66 @@
+package com.github.stream4j;
+
+/**
+ * Represents a predicate (boolean-valued function) of one long-valued argument. This is the long-consuming primitive
+ * type specialization of {@link Predicate}.
+ */
+public abstract class LongPredicate {
+	/**
+	 * Evaluates this predicate on the given argument.
+	 * @param value the input argument
+	 * @return true if the input argument matches the predicate, otherwise false
+	 */
+	public abstract boolean test(long value);
+
+	/**
+	 * Returns a predicate that represents the logical negation of this predicate.
+	 */
+	public LongPredicate negate() {
+		final LongPredicate that = this;
+		return new LongPredicate() {
+
+			@Override
+			public boolean test(long value) {
+				return !that.test(value);
+			}
+		};
+	}
+
+	/**
+	 * Returns a composed predicate that represents a short-circuiting logical AND of this predicate and another. When
+	 * evaluating the composed predicate, if this predicate is false, then the other predicate is not evaluated.
+	 * @param other a predicate that will be logically-ANDed with this predicate
+	 * @return a composed predicate that represents the short-circuiting logical AND of this predicate and the other
+	 *         predicate
+	 * @throws NullPointerException if other is null
+	 */
+	public LongPredicate and(final LongPredicate other) {
+		final LongPredicate that = this;
+		return new LongPredicate() {
+
+			@Override
+			public boolean test(long value) {
+				return that.test(value) && other.test(value);
+			}
+		};
+	}
+
+	/**
+	 * Returns a composed predicate that represents a short-circuiting logical OR of this predicate and another. When
+	 * evaluating the composed predicate, if this predicate is true, then the other predicate is not evaluated.
+	 * @param other a predicate that will be logically-ORed with this predicate
+	 * @return a composed predicate that represents the short-circuiting logical OR of this predicate and the other
+	 *         predicate
+	 * @throws NullPointerException if other is null
+	 */
+	public LongPredicate or(final LongPredicate other) {
+		final LongPredicate that = this;
+		return new LongPredicate() {
+
+			@Override
+			public boolean test(long value) {
+				return that.test(value) || other.test(value);
+			}
+		};
+	}
+}
@@ -0,0 +1,471 @@
+package com.github.stream4j;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A sequence of primitive long-valued elements. This is the long primitive specialization of {@link Stream}: the
+ * elements are never boxed, unless {@link #boxed()} or {@link #mapToObj(LongFunction)} is called.
+ */
+public class LongStream {
+	private final LongIterator iterator;
+	private final long size;
+	private final static int SIZE_UNKNOWN = -1;
+	/**
+	 * The source of the elements, closed by the terminal operations even if they stop early, or null if there are no
+	 * resources to release.
+	 */
+	private final Source<?> source;
+
+	LongStream(LongIterator iterator, long size) {
+		this(iterator, size, null);
+	}
+
+	LongStream(LongIterator iterator, long size, Source<?> source) {
+		this.iterator = iterator;
+		this.size = size;
+		this.source = source;
+	}
+
+	/**
+	 * Returns a sequential ordered stream whose elements are the specified values.
+	 */
+	public static LongStream of(long... values) {
+		return new LongStream(LongIterator.of(values, 0, values.length), values.length);
+	}
+
+	/**
+	 * Returns a sequential ordered LongStream from startInclusive (inclusive) to endExclusive (exclusive) by an
+	 * incremental step of 1.
+	 */
+	public static LongStream range(final long startInclusive, final long endExclusive) {
+		if (startInclusive >= endExclusive) return of();
+		return new LongStream(new RangeIterator(startInclusive, endExclusive - 1), endExclusive - startInclusive);
+	}
+
+	/**
+	 * Returns a sequential ordered LongStream from startInclusive (inclusive) to endInclusive (inclusive) by an
+	 * incremental step of 1.
+	 */
+	public static LongStream rangeClosed(long startInclusive, long endInclusive) {
+		if (startInclusive > endInclusive) return of();
+		return new LongStream(new RangeIterator(startInclusive, endInclusive), endInclusive - startInclusive + 1);
+	}
+
+	/**
+	 * Returns a stream consisting of the elements of this stream that match the given predicate.<br>
+	 * This is an intermediate operation.
+	 */
+	public LongStream filter(final LongPredicate predicate) {
+		return new LongStream(new LongIterator() {
+			private boolean hasNextItem = false;
+			private long nextItem;
+
+			@Override
+			boolean hasNext() {
+				while (!hasNextItem && iterator.hasNext()) {
+					final long value = iterator.nextLong();
+					if (predicate.test(value)) {
+						nextItem = value;
+						hasNextItem = true;
+					}
+				}
+				return hasNextItem;
+			}
+
+			@Override
+			long nextLong() {
+				if (!hasNext()) throw new NoSuchElementException();
+				hasNextItem = false;
+				return nextItem;
+			}
+		}, SIZE_UNKNOWN, source);
+	}
+
+	/**
+	 * Returns a stream consisting of the results of applying the given function to the elements of this stream.<br>
+	 * This is an intermediate operation.
+	 */
+	public LongStream map(final LongUnaryOperator mapper) {
+		return new LongStream(new LongIterator() {
+
+			@Override
+			boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			long nextLong() {
+				return mapper.applyAsLong(iterator.nextLong());
+			}
+		}, size, source);
+	}
+
+	/**
+	 * Returns an object-valued Stream consisting of the results of applying the given function to the elements of
+	 * this stream.<br>
+	 * This is an intermediate operation.
+	 */
+	public <R> Stream<R> mapToObj(final LongFunction<? extends R> mapper) {
+		return Stream.of(Source.of(new Iterator<R>() {
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public R next() {
+				return mapper.apply(iterator.nextLong());
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		}, SIZE_UNKNOWN, source));
+	}
+
+	/**
+	 * Returns a Stream consisting of the elements of this stream, each boxed to a Long.<br>
+	 * This is an intermediate operation.
+	 */
+	public Stream<Long> boxed() {
+		return mapToObj(new LongFunction<Long>() {
+
+			@Override
+			public Long apply(long value) {
+				return value;
+			}
+		});
+	}
+
+	/**
+	 * Returns a DoubleStream consisting of the elements of this stream, converted to double.<br>
+	 * This is an intermediate operation.
+	 */
+	public DoubleStream asDoubleStream() {
+		return new DoubleStream(new DoubleIterator() {
+
+			@Override
+			boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			double nextDouble() {
+				return iterator.nextLong();
+			}
+		}, size, source);
+	}
+
+	/**
+	 * Returns a stream consisting of the elements of this stream, truncated to be no longer than maxSize in length.<br>
+	 * This is a short-circuiting stateful intermediate operation.
+	 */
+	public LongStream limit(final long maxSize) {
+		if (maxSize < 0) throw new IllegalArgumentException("maxSize must be positive");
+		return new LongStream(new LongIterator() {
+			private long count = 0;
+
+			@Override
+			boolean hasNext() {
+				return count < maxSize && iterator.hasNext();
+			}
+
+			@Override
+			long nextLong() {
+				if (count >= maxSize) throw new NoSuchElementException();
+				count++;
+				return iterator.nextLong();
+			}
+		}, size == SIZE_UNKNOWN ? SIZE_UNKNOWN : Math.min(size, maxSize), source);
+	}
+
+	/**
+	 * Returns a stream consisting of the remaining elements of this stream after discarding the first n elements of
+	 * the stream. The elements are discarded when the first element is requested.<br>
+	 * This is a stateful intermediate operation.
+	 * @throws IllegalArgumentException if n is negative
+	 */
+	public LongStream skip(final long n) {
+		if (n < 0) throw new IllegalArgumentException("n must be positive");
+		return new LongStream(new LongIterator() {
+			private boolean skipped = false;
+
+			@Override
+			boolean hasNext() {
+				if (!skipped) {
+					for (long i = 0; i < n && iterator.hasNext(); i++) {
+						iterator.nextLong();
+					}
+					skipped = true;
+				}
+				return iterator.hasNext();
+			}
+
+			@Override
+			long nextLong() {
+				if (!hasNext()) throw new NoSuchElementException();
+				return iterator.nextLong();
+			}
+		}, size == SIZE_UNKNOWN ? SIZE_UNKNOWN : Math.max(0, size - n), source);
+	}
+
+	/**
+	 * Returns a stream consisting of the elements of this stream in sorted order.<br>
+	 * This is a stateful intermediate operation.
+	 */
+	public LongStream sorted() {
+		final long[] array = toArray();
+		Arrays.sort(array);
+		return of(array);
+	}
+
+	/**
+	 * Performs an action for each element of this stream.<br>
+	 * This is a terminal operation.
+	 */
+	public void forEach(LongConsumer action) {
+		try {
+			while (iterator.hasNext()) {
+				action.accept(iterator.nextLong());
+			}
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns an array containing the elements of this stream.<br>
+	 * This is a terminal operation.
+	 */
+	public long[] toArray() {
+		try {
+			long[] res = new long[size != SIZE_UNKNOWN ? (int) size : 16];
+			int count = 0;
+			while (iterator.hasNext()) {
+				if (count == res.length) res = Arrays.copyOf(res, count * 2 + 1);
+				res[count++] = iterator.nextLong();
+			}
+			return count == res.length ? res : Arrays.copyOf(res, count);
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Performs a reduction on the elements of this stream, using the provided identity value and an associative
+	 * accumulation function, and returns the reduced value.<br>
+	 * This is a terminal operation.
+	 */
+	public long reduce(long identity, LongBinaryOperator op) {
+		try {
+			long res = identity;
+			while (iterator.hasNext()) {
+				res = op.applyAsLong(res, iterator.nextLong());
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Performs a reduction on the elements of this stream, using an associative accumulation function, and returns the
+	 * reduced value, or null if this stream is empty.<br>
+	 * This is a terminal operation.<br>
+	 * The method from the Java Stream API has a different signature: {@code OptionalLong reduce(LongBinaryOperator op)}
+	 */
+	public Long reduce(LongBinaryOperator op) {
+		try {
+			if (!iterator.hasNext()) return null;
+			long res = iterator.nextLong();
+			while (iterator.hasNext()) {
+				res = op.applyAsLong(res, iterator.nextLong());
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns the sum of elements in this stream.<br>
+	 * This is a terminal operation.
+	 */
+	public long sum() {
+		try {
+			long res = 0;
+			while (iterator.hasNext()) {
+				res += iterator.nextLong();
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns the minimum element of this stream, or null if this stream is empty.<br>
+	 * This is a terminal operation.<br>
+	 * The method from the Java Stream API has a different signature: {@code OptionalLong min()}
+	 */
+	public Long min() {
+		try {
+			if (!iterator.hasNext()) return null;
+			long res = iterator.nextLong();
+			while (iterator.hasNext()) {
+				res = Math.min(res, iterator.nextLong());
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns the maximum element of this stream, or null if this stream is empty.<br>
+	 * This is a terminal operation.<br>
+	 * The method from the Java Stream API has a different signature: {@code OptionalLong max()}
+	 */
+	public Long max() {
+		try {
+			if (!iterator.hasNext()) return null;
+			long res = iterator.nextLong();
+			while (iterator.hasNext()) {
+				res = Math.max(res, iterator.nextLong());
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns the count of elements in this stream.<br>
+	 * This is a terminal operation.
+	 */
+	public long count() {
+		try {
+			if (size != SIZE_UNKNOWN) return size;
+			long res = 0;
+			while (iterator.hasNext()) {
+				iterator.nextLong();
+				res++;
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns the arithmetic mean of elements of this stream, or null if this stream is empty.<br>
+	 * This is a terminal operation.<br>
+	 * The method from the Java Stream API has a different signature: {@code OptionalDouble average()}
+	 */
+	public Double average() {
+		final LongSummaryStatistics stats = summaryStatistics();
+		return stats.getCount() == 0 ? null : stats.getAverage();
+	}
+
+	/**
+	 * Returns a LongSummaryStatistics describing various summary data about the elements of this stream.<br>
+	 * This is a terminal operation.
+	 */
+	public LongSummaryStatistics summaryStatistics() {
+		try {
+			final LongSummaryStatistics res = new LongSummaryStatistics();
+			while (iterator.hasNext()) {
+				res.accept(iterator.nextLong());
+			}
+			return res;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns whether any elements of this stream match the provided predicate.<br>
+	 * This is a short-circuiting terminal operation.
+	 */
+	public boolean anyMatch(LongPredicate predicate) {
+		try {
+			while (iterator.hasNext()) {
+				if (predicate.test(iterator.nextLong())) return true;
+			}
+			return false;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns whether all elements of this stream match the provided predicate.<br>
+	 * This is a short-circuiting terminal operation.
+	 */
+	public boolean allMatch(LongPredicate predicate) {
+		try {
+			while (iterator.hasNext()) {
+				if (!predicate.test(iterator.nextLong())) return false;
+			}
+			return true;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Returns whether no elements of this stream match the provided predicate.<br>
+	 * This is a short-circuiting terminal operation.
+	 */
+	public boolean noneMatch(LongPredicate predicate) {
+		return !anyMatch(predicate);
+	}
+
+	/**
+	 * Return the first element of this stream, or null if the stream is empty.<br>
+	 * This is a short-circuiting terminal operation.<br>
+	 * The method from the Java Stream API has a different signature: {@code OptionalLong findFirst()}
+	 */
+	public Long findFirst() {
+		try {
+			return iterator.hasNext() ? iterator.nextLong() : null;
+		} finally {
+			close();
+		}
+	}
+
+	/**
+	 * Releases the resources of the source, once a terminal operation has read the elements it needs.
+	 */
+	private void close() {
+		if (source != null) source.close();
+	}
+
+	private static class RangeIterator extends LongIterator {
+		private long next;
+		private final long last;
+		private boolean hasNext = true;
+
+		public RangeIterator(long first, long last) {
+			assert first <= last;
+			this.next = first;
+			this.last = last;
+		}
+
+		@Override
+		boolean hasNext() {
+			return hasNext;
+		}
+
+		@Override
+		long nextLong() {
+			if (!hasNext) throw new NoSuchElementException();
+			if (next == last) hasNext = false;
+			return next++;
+		}
+	}
+}
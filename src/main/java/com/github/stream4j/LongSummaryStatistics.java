@@ -0,0 +1,67 @@
+package com.github.stream4j;
+
+/**
+ * A state object for collecting statistics such as count, min, max, sum, and average.
+ */
+public class LongSummaryStatistics extends LongConsumer {
+	private long count = 0;
+	private long sum = 0;
+	private long min = Long.MAX_VALUE;
+	private long max = Long.MIN_VALUE;
+
+	/**
+	 * Records a new value into the summary information.
+	 */
+	@Override
+	public void accept(long value) {
+		++count;
+		sum += value;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	/**
+	 * Combines the state of another LongSummaryStatistics into this one.
+	 */
+	public void combine(LongSummaryStatistics other) {
+		count += other.count;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	public final long getCount() {
+		return count;
+	}
+
+	public final long getSum() {
+		return sum;
+	}
+
+	/**
+	 * Returns the minimum value recorded, or Long.MAX_VALUE if no values have been recorded.
+	 */
+	public final long getMin() {
+		return min;
+	}
+
+	/**
+	 * Returns the maximum value recorded, or Long.MIN_VALUE if no values have been recorded.
+	 */
+	public final long getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the arithmetic mean of values recorded, or zero if no values have been recorded.
+	 */
+	public final double getAverage() {
+		return count > 0 ? (double) sum / count : 0.0d;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s{count=%d, sum=%d, min=%d, average=%f, max=%d}", getClass().getSimpleName(),
+				getCount(), getSum(), getMin(), getAverage(), getMax());
+	}
+}
@@ -0,0 +1,60 @@
+package com.github.stream4j;
+
+/**
+ * Represents an operation on a single long-valued operand that produces an long-valued result. This is the primitive
+ * type specialization of {@link Function} for long.
+ */
+public abstract class LongUnaryOperator {
+	public abstract long applyAsLong(long operand);
+
+	/**
+	 * Returns a composed operator that first applies this operator to its input, and then applies the after operator
+	 * to the result.
+	 * @param after the operator to apply after this operator is applied
+	 * @return a composed operator that first applies this operator and then applies the after operator
+	 * @throws NullPointerException if after is null
+	 * @see #compose(LongUnaryOperator)
+	 */
+	public LongUnaryOperator andThen(final LongUnaryOperator after) {
+		final LongUnaryOperator that = this;
+		return new LongUnaryOperator() {
+
+			@Override
+			public long applyAsLong(long operand) {
+				return after.applyAsLong(that.applyAsLong(operand));
+			}
+		};
+	}
+
+	/**
+	 * Returns a composed operator that first applies the before operator to its input, and then applies this operator
+	 * to the result.
+	 * @param before the operator to apply before this operator is applied
+	 * @return a composed operator that first applies the before operator and then applies this operator
+	 * @throws NullPointerException if before is null
+	 * @see #andThen(LongUnaryOperator)
+	 */
+	public LongUnaryOperator compose(final LongUnaryOperator before) {
+		final LongUnaryOperator that = this;
+		return new LongUnaryOperator() {
+
+			@Override
+			public long applyAsLong(long operand) {
+				return that.applyAsLong(before.applyAsLong(operand));
+			}
+		};
+	}
+
+	/**
+	 * Returns a unary operator that always returns its input argument.
+	 */
+	public static LongUnaryOperator identity() {
+		return new LongUnaryOperator() {
+
+			@Override
+			public long applyAsLong(long operand) {
+				return operand;
+			}
+		};
+	}
+}
@@ -0,0 +1,14 @@
+package com.github.stream4j;
+
+/**
+ * Receives the metrics of the instrumented streams (see {@link Stream#instrumented(String)}).<br>
+ * Not part of the Java API.
+ * @see StreamMetrics#addListener(MetricsListener)
+ */
+public abstract class MetricsListener {
+	/**
+	 * Called by the thread executing the terminal operation, once it has been evaluated. Must be thread-safe, as
+	 * several streams may be evaluated at the same time.
+	 */
+	public abstract void evaluated(PipelineMetrics metrics);
+}
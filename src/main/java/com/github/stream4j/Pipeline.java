@@ -0,0 +1,402 @@
+package com.github.stream4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A source of elements followed by a chain of stages.<br>
+ * A sequential pipeline is evaluated by a single loop pushing each source element through the stages, down to the
+ * sink of the terminal operation. It may also be consumed through an {@link Iterator}, in which case the output
+ * elements are buffered one source element at a time.<br>
+ * A parallel pipeline is evaluated on an {@link ExecutorService}. The source is split into chunks (see
+ * {@link Source#trySplit()}): random-access sources are split in halves without reading the elements; other sources are
+ * read in batches by the calling thread, each batch being processed as soon as it is read.
+ * @param <S> the type of the source elements
+ * @param <T> the type of the output elements
+ */
+final class Pipeline<S, T> {
+	/**
+	 * Minimum number of source elements processed by a single task.
+	 */
+	static final int MIN_CHUNK_SIZE = 1024;
+	/**
+	 * Number of chunks per available processor, so that uneven chunks are balanced between threads.
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+	private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+	private static ExecutorService defaultExecutor;
+
+	private final Source<? extends S> source;
+	private final Stage<S, T> stage;
+	/**
+	 * The executor evaluating the pipeline, or null if the pipeline is sequential.
+	 */
+	private final ExecutorService executor;
+	/**
+	 * The name under which the evaluations are measured, or null if the pipeline is not instrumented.
+	 */
+	private final String metricsName;
+
+	private Pipeline(Source<? extends S> source, Stage<S, T> stage, ExecutorService executor, String metricsName) {
+		assert source != null;
+		assert stage != null;
+
+		this.source = source;
+		this.stage = stage;
+		this.executor = executor;
+		this.metricsName = metricsName;
+	}
+
+	/**
+	 * Returns a sequential pipeline over a collection. Random-access lists are read by index.
+	 */
+	static <T> Pipeline<T, T> of(Collection<? extends T> source) {
+		return of(Source.<T> of(source));
+	}
+
+	/**
+	 * Returns a sequential pipeline over an iterator.
+	 * @param size the number of elements of the iterator, or -1 if unknown.
+	 */
+	static <T> Pipeline<T, T> of(Iterator<? extends T> source, long size) {
+		return of(Source.<T> of(source, size));
+	}
+
+	/**
+	 * Returns a sequential pipeline over a source.
+	 */
+	static <T> Pipeline<T, T> of(Source<? extends T> source) {
+		return new Pipeline<T, T>(source, Stage.<T> identity(), null, null);
+	}
+
+	/**
+	 * Returns the executor shared by parallel streams when no executor is specified. It uses one daemon thread per
+	 * available processor.
+	 */
+	static synchronized ExecutorService defaultExecutor() {
+		if (defaultExecutor == null) {
+			defaultExecutor = Executors.newFixedThreadPool(PARALLELISM, new ThreadFactory() {
+				private int count = 0;
+
+				@Override
+				public synchronized Thread newThread(Runnable r) {
+					final Thread res = new Thread(r, "stream4j-worker-" + count++);
+					res.setDaemon(true);
+					return res;
+				}
+			});
+		}
+		return defaultExecutor;
+	}
+
+	ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Returns a pipeline which applies the next stage to the output elements of this pipeline.
+	 */
+	<R> Pipeline<S, R> then(Stage<? super T, ? extends R> next) {
+		return new Pipeline<S, R>(source, stage.andThen(next), executor, metricsName);
+	}
+
+	/**
+	 * Returns the same pipeline, evaluated on another executor, or sequentially if the executor is null. A pipeline
+	 * with stateful stages cannot be parallel, since each chunk would be evaluated by its own copy of the stages.
+	 */
+	Pipeline<S, T> withExecutor(ExecutorService newExecutor) {
+		if (newExecutor != null && stage.isStateful()) {
+			throw new IllegalStateException("a pipeline with stateful stages cannot be evaluated in parallel");
+		}
+		return new Pipeline<S, T>(source, stage, newExecutor, metricsName);
+	}
+
+	String getMetricsName() {
+		return metricsName;
+	}
+
+	/**
+	 * Returns the same pipeline, its evaluations being measured under the given name (see {@link Probe}), or not
+	 * measured if the name is null.
+	 */
+	Pipeline<S, T> instrumented(String name) {
+		return new Pipeline<S, T>(source, stage, executor, name);
+	}
+
+	Source<? extends S> getSource() {
+		return source;
+	}
+
+	/**
+	 * Returns an upper bound of the number of output elements, or -1 if unknown. For instance, the output of a
+	 * {@code filter} stage is at most as large as its input.
+	 */
+	long sizeBound() {
+		return stage.sizeBound(source.size());
+	}
+
+	/**
+	 * Returns true if the pipeline has stages whose output depends on the previous elements (see
+	 * {@link Stage#isStateful()}).
+	 */
+	boolean isStateful() {
+		return stage.isStateful();
+	}
+
+	/**
+	 * Returns true if the pipeline applies at least one stage to the source elements.
+	 */
+	boolean hasStages() {
+		return !stage.isIdentity();
+	}
+
+	/**
+	 * Returns true if the pipeline has no stages and its source is a random-access source, so that it can be sliced
+	 * and copied without evaluating the pipeline (see {@link #slice(long, long)}, {@link #toArray()} and
+	 * {@link #toList()}).
+	 */
+	boolean isSliceable() {
+		return source.isRandomAccess() && stage.isIdentity();
+	}
+
+	/**
+	 * Returns a pipeline over the source elements from index from (inclusive) to index to (exclusive), without reading
+	 * the other elements. The indexes are clamped to the size of the source.
+	 */
+	Pipeline<S, T> slice(long from, long to) {
+		assert isSliceable();
+		return new Pipeline<S, T>(source.slice(from, to), stage, executor, metricsName);
+	}
+
+	/**
+	 * Returns a new array containing the source elements.
+	 */
+	Object[] toArray() {
+		assert isSliceable();
+		return source.toArray();
+	}
+
+	/**
+	 * Returns a new list containing the source elements, pushed by index into a list of the exact size: the elements
+	 * are copied once, without an intermediate array.
+	 */
+	@SuppressWarnings("unchecked")
+	List<T> toList() {
+		assert isSliceable();
+		final List<T> res = new ArrayList<T>((int) source.size());
+		((Source<? extends T>) source).pushInto(new Sink<T>() {
+
+			@Override
+			void accept(T t) {
+				res.add(t);
+			}
+		}, false);
+		return res;
+	}
+
+	/**
+	 * Returns an iterator over the output elements, evaluated sequentially by the calling thread. If the pipeline has
+	 * no stages, the source iterator is returned.
+	 */
+	Iterator<? extends T> iterator() {
+		return asSource(Source.SIZE_UNKNOWN).open().iterator();
+	}
+
+	/**
+	 * Returns a source over the output elements, for the operations which read them through an iterator (see
+	 * {@link Source.Derived}). Each evaluation of the returned source opens the source of this pipeline again, and
+	 * evaluates the stages sequentially, as the elements are read; closing the opened source closes the source of this
+	 * pipeline. If the pipeline has no stages, the opened source of this pipeline is read directly.
+	 * @param size the number of output elements, or -1 if unknown
+	 */
+	Source<T> asSource(final long size) {
+		return new Source.Derived<S, T>(source, size) {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			Source<T> derive(Source<? extends S> opened) {
+				if (stage.isIdentity()) return (Source<T>) opened;
+				return Source.of(new SinkIterator<S, T>(opened, stage), size, opened);
+			}
+		};
+	}
+
+	/**
+	 * Evaluates the terminal operation, and returns its result.
+	 */
+	<R> R evaluate(TerminalOp<? super T, R> op) {
+		final Source<? extends S> s = source.open();
+		final Probe probe = metricsName != null && StreamMetrics.isEnabled() ? new Probe(metricsName, executor != null,
+				s, stage, op) : null;
+		try {
+			final R res = executor == null ? evaluateChunk(op, s, probe) : evaluateParallel(op, s, probe);
+			if (probe != null) probe.publish();
+			return res;
+		} finally {
+			s.close();
+		}
+	}
+
+	private <R> R evaluateParallel(TerminalOp<? super T, R> op, Source<? extends S> source, Probe probe) {
+		final List<FutureTask<R>> tasks = new ArrayList<FutureTask<R>>();
+		try {
+			final long size = source.size();
+			final long chunkSize = size == Source.SIZE_UNKNOWN ? MIN_CHUNK_SIZE : Math.max(MIN_CHUNK_SIZE, size
+					/ (PARALLELISM * CHUNKS_PER_THREAD) + 1);
+			split(op, source, chunkSize, probe, tasks);
+			// help with the tasks not yet started, so that nested parallel streams cannot starve the executor
+			for (final FutureTask<R> task : tasks) {
+				task.run();
+			}
+			R res = getResult(tasks.get(0));
+			for (int i = 1; i < tasks.size(); i++) {
+				res = op.combine(res, getResult(tasks.get(i)));
+			}
+			return res;
+		} finally {
+			for (final FutureTask<R> task : tasks) {
+				task.cancel(false);
+			}
+		}
+	}
+
+	/**
+	 * Splits the source into chunks of at most chunkSize elements, and submits one task per chunk, in encounter order.
+	 * At least one task is submitted.
+	 */
+	private <R> void split(TerminalOp<? super T, R> op, Source<? extends S> chunk, long chunkSize, Probe probe,
+			List<FutureTask<R>> tasks) {
+		while (true) {
+			final long size = chunk.size();
+			if (size != Source.SIZE_UNKNOWN && size <= chunkSize) break;
+			final Source<? extends S> prefix = chunk.trySplit();
+			if (prefix == null) break;
+			split(op, prefix, chunkSize, probe, tasks);
+			if (op.cancellationRequested()) return;
+		}
+		submit(op, chunk, probe, tasks);
+	}
+
+	private <R> void submit(final TerminalOp<? super T, R> op, final Source<? extends S> chunk, final Probe probe,
+			List<FutureTask<R>> tasks) {
+		final FutureTask<R> task = new FutureTask<R>(new Callable<R>() {
+
+			@Override
+			public R call() {
+				return evaluateChunk(op, chunk, probe);
+			}
+		});
+		tasks.add(task);
+		try {
+			executor.execute(task);
+		} catch (final RejectedExecutionException e) {
+			task.run();
+		}
+	}
+
+	/**
+	 * Evaluates a chunk.
+	 * @param probe the probe measuring the evaluation, or null if not instrumented
+	 */
+	private <R> R evaluateChunk(TerminalOp<? super T, R> op, Source<? extends S> chunk, Probe probe) {
+		final TerminalOp.ResultSink<? super T, R> result = op.makeSink();
+		final Sink<S> sink = probe == null ? stage.wrap(result) : probe.<S> wrap(result);
+		final long start = probe == null ? 0 : System.nanoTime();
+		sink.begin(chunk.size());
+		chunk.pushInto(sink, op.isShortCircuit() || stage.isShortCircuit());
+		sink.end();
+		if (probe != null) probe.chunkEvaluated(System.nanoTime() - start);
+		return result.get();
+	}
+
+	/**
+	 * Waits for the result of a task. The exception thrown by the task is rethrown as is if unchecked.
+	 */
+	static <R> R getResult(Future<R> task) {
+		try {
+			return task.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			if (cause instanceof Error) throw (Error) cause;
+			throw new RuntimeException(cause);
+		}
+	}
+
+	/**
+	 * Pulls elements from the source and pushes them through the stages, buffering the output elements.
+	 */
+	private static class SinkIterator<S, T> implements Iterator<T> {
+		private final Source<? extends S> source;
+		private final Iterator<? extends S> iterator;
+		private final List<T> buffer = new ArrayList<T>();
+		/**
+		 * Index of the next element to return in the {@code buffer} list.
+		 */
+		private int index = 0;
+		private final Sink<S> sink;
+		private boolean started = false;
+		private boolean ended = false;
+
+		public SinkIterator(Source<? extends S> source, Stage<S, T> stage) {
+			assert source != null;
+			assert stage != null;
+
+			this.source = source;
+			this.iterator = source.iterator();
+			this.sink = stage.wrap(new Sink<T>() {
+
+				@Override
+				void accept(T t) {
+					buffer.add(t);
+				}
+			});
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (!started) {
+				sink.begin(source.size());
+				started = true;
+			}
+			while (index == buffer.size()) {
+				if (ended) return false;
+				buffer.clear();
+				index = 0;
+				// check the cancellation first: hasNext() may read the next element from the source
+				if (!sink.cancellationRequested() && iterator.hasNext()) {
+					sink.accept(iterator.next());
+				} else {
+					sink.end();
+					ended = true;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			return buffer.get(index++);
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package com.github.stream4j;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The metrics of one evaluation of an instrumented stream (see {@link Stream#instrumented(String)}).<br>
+ * Not part of the Java API.
+ */
+public final class PipelineMetrics {
+	private final String name;
+	private final boolean parallel;
+	private final long elapsedNanos;
+	private final List<StageMetrics> stages;
+
+	PipelineMetrics(String name, boolean parallel, long elapsedNanos, List<StageMetrics> stages) {
+		this.name = name;
+		this.parallel = parallel;
+		this.elapsedNanos = elapsedNanos;
+		this.stages = Collections.unmodifiableList(stages);
+	}
+
+	/**
+	 * Returns the name given to {@link Stream#instrumented(String)}.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * Returns the wall-clock duration of the evaluation, in nanoseconds.
+	 */
+	public long getElapsedNanos() {
+		return elapsedNanos;
+	}
+
+	/**
+	 * Returns the metrics of the source, of each intermediate operation and of the terminal operation, in pipeline
+	 * order. Operations which do not push elements through the pipeline (such as {@code sorted}) appear as the source
+	 * of the pipeline evaluated after them, their upstream pipeline being reported as a separate evaluation.
+	 */
+	public List<StageMetrics> getStages() {
+		return stages;
+	}
+
+	/**
+	 * Returns the name of the terminal operation, for instance "count" or "toList".
+	 */
+	public String getTerminalOperation() {
+		return stages.get(stages.size() - 1).getName();
+	}
+
+	@Override
+	public String toString() {
+		return name + " (" + elapsedNanos / 1000 + " us" + (parallel ? ", parallel" : "") + ") " + stages;
+	}
+}
@@ -0,0 +1,30 @@
+package com.github.stream4j;
+
+/**
+ * The statistics of the evaluations of the instrumented streams of a given name, as exposed through JMX.<br>
+ * Not part of the Java API.
+ * @see StreamMetrics#registerMBeans()
+ */
+public interface PipelineStatsMBean {
+	String getName();
+
+	/**
+	 * Returns the number of evaluations.
+	 */
+	long getEvaluationCount();
+
+	/**
+	 * Returns the total wall-clock duration of the evaluations, in nanoseconds.
+	 */
+	long getElapsedNanos();
+
+	/**
+	 * Returns the totals of each step (see {@link PipelineMetrics#getStages()}), one line per position and name.
+	 */
+	String[] getStages();
+
+	/**
+	 * Resets the statistics.
+	 */
+	void reset();
+}
@@ -1,90 +1,175 @@
-package com.github.stream4j;
-
-/**
- * Represents a predicate (boolean-valued function) of one argument.
- * @param <T> the type of the input to the predicate
- */
-public abstract class Predicate<T> {
-	/**
-	 * Evaluates this predicate on the given argument.
-	 * @param t the input argument
-	 * @return true if the input argument matches the predicate, otherwise false
-	 */
-	public abstract boolean test(T t);
-
-	/**
-	 * Returns a predicate that tests if two arguments are equal.
-	 * @param targetRef the object reference with which to compare for equality, which may be null
-	 */
-	public static <T> Predicate<T> isEqual(final Object targetRef) {
-		return new Predicate<T>() {
-			@Override
-			public boolean test(T t) {
-				if (t != null) {
-					 return t.equals(targetRef);
-				} else {
-					return targetRef == null;
-				}
-			}
-		};
-	}
-
-	/**
-	 * Returns a predicate that represents the logical negation of this predicate.
-	 */
-	public Predicate<T> negate() {
-		final Predicate<T> that = this;
-		return new Predicate<T>() {
-
-			@Override
-			public boolean test(T t) {
-				return !that.test(t);
-			}
-		};
-	}
-
-	/**
-	 * Returns a composed predicate that represents a short-circuiting logical AND of this predicate and another. When
-	 * evaluating the composed predicate, if this predicate is false, then the other predicate is not evaluated.
-	 * <p>
-	 * Any exceptions thrown during evaluation of either predicate are relayed to the caller; if evaluation of this
-	 * predicate throws an exception, the other predicate will not be evaluated.
-	 * @param other a predicate that will be logically-ANDed with this predicate
-	 * @return a composed predicate that represents the short-circuiting logical AND of this predicate and the other
-	 *         predicate
-	 * @throws NullPointerException if other is null
-	 */
-	public Predicate<T> and(final Predicate<? super T> other) {
-		final Predicate<T> that = this;
-		return new Predicate<T>() {
-
-			@Override
-			public boolean test(T t) {
-				return that.test(t) && other.test(t);
-			}
-		};
-
-	}
-
-	/**
-	 * Returns a composed predicate that represents a short-circuiting logical OR of this predicate and another. When
-	 * evaluating the composed predicate, if this predicate is true, then the other predicate is not evaluated.
-	 * <p>
-	 * Any exceptions thrown during evaluation of either predicate are relayed to the caller; if evaluation of this
-	 * predicate throws an exception, the other predicate will not be evaluated.
-	 * @param other a predicate that will be logically-ORed with this predicate
-	 * @return a composed predicate that represents the short-circuiting logical OR of this predicate and the other
-	 *         predicate
-	 * @throws NullPointerException if other is null
-	 */
-	public Predicate<T> or(final Predicate<? super T> other) {
-		final Predicate<T> that = this;
-		return new Predicate<T>() {
-
-			@Override
-			public boolean test(T t) {
-				return that.test(t) || other.test(t);
-			}
-		};
-	}
-}
+package com.github.stream4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents a predicate (boolean-valued function) of one argument.
+ * @param <T> the type of the input to the predicate
+ */
+public abstract class Predicate<T> {
+	/**
+	 * Evaluates this predicate on the given argument.
+	 * @param t the input argument
+	 * @return true if the input argument matches the predicate, otherwise false
+	 */
+	public abstract boolean test(T t);
+
+	/**
+	 * Returns a predicate that tests if two arguments are equal.
+	 * @param targetRef the object reference with which to compare for equality, which may be null
+	 */
+	public static <T> Predicate<T> isEqual(final Object targetRef) {
+		return new Predicate<T>() {
+			@Override
+			public boolean test(T t) {
+				if (t != null) {
+					 return t.equals(targetRef);
+				} else {
+					return targetRef == null;
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns a predicate that is true if all the given predicates are true, evaluated in order until one is false.
+	 * If there are no predicates, the returned predicate is always true.<br>
+	 * The predicates are kept in an array evaluated by a single loop, rather than a chain of nested predicates;
+	 * predicates composed with {@link #allOf(List)} or {@link #and(Predicate)} are flattened into this array.<br>
+	 * Not part of the Java API.
+	 */
+	public static <T> Predicate<T> allOf(List<? extends Predicate<? super T>> predicates) {
+		return new AllOf<T>(Predicate.<T> flatten(predicates, true));
+	}
+
+	/**
+	 * Returns a predicate that is true if any of the given predicates is true, evaluated in order until one is true.
+	 * If there are no predicates, the returned predicate is always false.<br>
+	 * The predicates are kept in an array evaluated by a single loop, rather than a chain of nested predicates;
+	 * predicates composed with {@link #anyOf(List)} or {@link #or(Predicate)} are flattened into this array.<br>
+	 * Not part of the Java API.
+	 */
+	public static <T> Predicate<T> anyOf(List<? extends Predicate<? super T>> predicates) {
+		return new AnyOf<T>(Predicate.<T> flatten(predicates, false));
+	}
+
+	/**
+	 * Returns the predicates, the predicates composed with AllOf (if all is true) or AnyOf (otherwise) being replaced
+	 * with their components.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> Predicate<? super T>[] flatten(List<? extends Predicate<? super T>> predicates, boolean all) {
+		final List<Predicate<? super T>> res = new ArrayList<Predicate<? super T>>(predicates.size());
+		for (final Predicate<? super T> predicate : predicates) {
+			if (predicate == null) throw new NullPointerException();
+			if (all && predicate instanceof AllOf) {
+				res.addAll(Arrays.asList(((AllOf<? super T>) predicate).predicates));
+			} else if (!all && predicate instanceof AnyOf) {
+				res.addAll(Arrays.asList(((AnyOf<? super T>) predicate).predicates));
+			} else {
+				res.add(predicate);
+			}
+		}
+		return (Predicate<? super T>[]) res.toArray(new Predicate<?>[res.size()]);
+	}
+
+	/**
+	 * Returns a predicate that represents the logical negation of this predicate. The negation of a negated predicate
+	 * is the original predicate.
+	 */
+	public Predicate<T> negate() {
+		return new Not<T>(this);
+	}
+
+	/**
+	 * Returns a composed predicate that represents a short-circuiting logical AND of this predicate and another. When
+	 * evaluating the composed predicate, if this predicate is false, then the other predicate is not evaluated.<br>
+	 * A chain of calls to and is flattened, as by {@link #allOf(List)}, so that a predicate composed of n predicates
+	 * is evaluated by a single loop instead of n nested calls.
+	 * <p>
+	 * Any exceptions thrown during evaluation of either predicate are relayed to the caller; if evaluation of this
+	 * predicate throws an exception, the other predicate will not be evaluated.
+	 * @param other a predicate that will be logically-ANDed with this predicate
+	 * @return a composed predicate that represents the short-circuiting logical AND of this predicate and the other
+	 *         predicate
+	 * @throws NullPointerException if other is null
+	 */
+	public Predicate<T> and(final Predicate<? super T> other) {
+		final List<Predicate<? super T>> predicates = new ArrayList<Predicate<? super T>>(2);
+		predicates.add(this);
+		predicates.add(other);
+		return allOf(predicates);
+	}
+
+	/**
+	 * Returns a composed predicate that represents a short-circuiting logical OR of this predicate and another. When
+	 * evaluating the composed predicate, if this predicate is true, then the other predicate is not evaluated.<br>
+	 * A chain of calls to or is flattened, as by {@link #anyOf(List)}, so that a predicate composed of n predicates
+	 * is evaluated by a single loop instead of n nested calls.
+	 * <p>
+	 * Any exceptions thrown during evaluation of either predicate are relayed to the caller; if evaluation of this
+	 * predicate throws an exception, the other predicate will not be evaluated.
+	 * @param other a predicate that will be logically-ORed with this predicate
+	 * @return a composed predicate that represents the short-circuiting logical OR of this predicate and the other
+	 *         predicate
+	 * @throws NullPointerException if other is null
+	 */
+	public Predicate<T> or(final Predicate<? super T> other) {
+		final List<Predicate<? super T>> predicates = new ArrayList<Predicate<? super T>>(2);
+		predicates.add(this);
+		predicates.add(other);
+		return anyOf(predicates);
+	}
+
+	private static class AllOf<T> extends Predicate<T> {
+		private final Predicate<? super T>[] predicates;
+
+		public AllOf(Predicate<? super T>[] predicates) {
+			this.predicates = predicates;
+		}
+
+		@Override
+		public boolean test(T t) {
+			for (final Predicate<? super T> predicate : predicates) {
+				if (!predicate.test(t)) return false;
+			}
+			return true;
+		}
+	}
+
+	private static class AnyOf<T> extends Predicate<T> {
+		private final Predicate<? super T>[] predicates;
+
+		public AnyOf(Predicate<? super T>[] predicates) {
+			this.predicates = predicates;
+		}
+
+		@Override
+		public boolean test(T t) {
+			for (final Predicate<? super T> predicate : predicates) {
+				if (predicate.test(t)) return true;
+			}
+			return false;
+		}
+	}
+
+	private static class Not<T> extends Predicate<T> {
+		private final Predicate<T> negated;
+
+		public Not(Predicate<T> negated) {
+			this.negated = negated;
+		}
+
+		@Override
+		public boolean test(T t) {
+			return !negated.test(t);
+		}
+
+		@Override
+		public Predicate<T> negate() {
+			return negated;
+		}
+	}
+}
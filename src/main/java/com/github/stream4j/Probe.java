@@ -0,0 +1,128 @@
+package com.github.stream4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Measures one evaluation of an instrumented pipeline. Each intermediate stage and the terminal operation are wrapped
+ * in a sink counting the elements they receive and the time spent in them, including the time spent downstream; the
+ * time spent in each step alone is computed by subtracting the time spent downstream. The counters are local to each
+ * sink, and added to the totals when the sink ends, so that parallel chunks do not contend.
+ */
+final class Probe {
+	private final String name;
+	private final boolean parallel;
+	private final String sourceName;
+	private final List<Stage<?, ?>> stages = new ArrayList<Stage<?, ?>>();
+	private final String terminalName;
+	/**
+	 * Index i is the number of elements received by step i, step 0 being the source, the last step being the terminal
+	 * operation. Index 0 is not used.
+	 */
+	private final AtomicLongArray counts;
+	/**
+	 * Index i is the time spent in step i and the next steps. Index 0 is the time spent evaluating the chunks.
+	 */
+	private final AtomicLongArray nanos;
+	private final long start = System.nanoTime();
+
+	Probe(String name, boolean parallel, Source<?> source, Stage<?, ?> stage, TerminalOp<?, ?> op) {
+		this.name = name;
+		this.parallel = parallel;
+		this.sourceName = nameOf(source, "Source");
+		stage.flatten(stages);
+		this.terminalName = nameOf(op, "Op");
+		this.counts = new AtomicLongArray(stages.size() + 2);
+		this.nanos = new AtomicLongArray(stages.size() + 2);
+	}
+
+	/**
+	 * Returns the chain of measuring sinks and stage sinks, ending with the sink of the terminal operation.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	<S> Sink<S> wrap(Sink<?> result) {
+		Sink sink = new MeteredSink(stages.size() + 1, result);
+		for (int i = stages.size(); i >= 1; i--) {
+			sink = new MeteredSink(i, stages.get(i - 1).wrap(sink));
+		}
+		return sink;
+	}
+
+	/**
+	 * Adds the time spent evaluating a chunk.
+	 */
+	void chunkEvaluated(long chunkNanos) {
+		nanos.addAndGet(0, chunkNanos);
+	}
+
+	/**
+	 * Publishes the metrics to the listeners.
+	 */
+	void publish() {
+		final long elapsed = System.nanoTime() - start;
+		final int last = stages.size() + 1;
+		final List<StageMetrics> res = new ArrayList<StageMetrics>();
+		res.add(new StageMetrics(sourceName, counts.get(1), counts.get(1), nanos.get(0) - nanos.get(1)));
+		for (int i = 1; i < last; i++) {
+			final String stageName = nameOf(stages.get(i - 1), "Stage");
+			res.add(new StageMetrics(stageName, counts.get(i), counts.get(i + 1), nanos.get(i) - nanos.get(i + 1)));
+		}
+		res.add(new StageMetrics(terminalName, counts.get(last), counts.get(last), nanos.get(last)));
+		StreamMetrics.publish(new PipelineMetrics(name, parallel, elapsed, res));
+	}
+
+	/**
+	 * Returns the simple name of the class of the object, without the suffix and starting with a lower-case letter,
+	 * for instance "filter" for a FilterStage.
+	 */
+	private static String nameOf(Object o, String suffix) {
+		String res = o.getClass().getSimpleName();
+		if (res.length() == 0) return suffix.toLowerCase();
+		if (res.endsWith(suffix) && res.length() > suffix.length()) {
+			res = res.substring(0, res.length() - suffix.length());
+		}
+		return Character.toLowerCase(res.charAt(0)) + res.substring(1);
+	}
+
+	private class MeteredSink<T> extends Sink<T> {
+		private final int index;
+		private final Sink<T> wrapped;
+		private long count = 0;
+		private long time = 0;
+
+		public MeteredSink(int index, Sink<T> wrapped) {
+			this.index = index;
+			this.wrapped = wrapped;
+		}
+
+		@Override
+		void begin(long size) {
+			wrapped.begin(size);
+		}
+
+		@Override
+		void accept(T t) {
+			count++;
+			final long before = System.nanoTime();
+			wrapped.accept(t);
+			time += System.nanoTime() - before;
+		}
+
+		@Override
+		void end() {
+			final long before = System.nanoTime();
+			wrapped.end();
+			time += System.nanoTime() - before;
+			counts.addAndGet(index, count);
+			nanos.addAndGet(index, time);
+			count = 0;
+			time = 0;
+		}
+
+		@Override
+		boolean cancellationRequested() {
+			return wrapped.cancellationRequested();
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package com.github.stream4j;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A source over the rows of a result set, read lazily. The result set, and the statement if any, are closed when all
+ * the rows have been read or when the pipeline has been evaluated. An {@link SQLException} is rethrown wrapped in a
+ * {@link RuntimeException}.
+ * @param <T> the type of the mapped rows
+ */
+final class ResultSetSource<T> extends Source.IteratorSource<T> {
+	private final RowIterator<T> iterator;
+
+	private ResultSetSource(RowIterator<T> iterator) {
+		super(iterator, SIZE_UNKNOWN);
+		this.iterator = iterator;
+	}
+
+	/**
+	 * Returns a source over the rows of a result set.
+	 * @param statement the statement to close with the result set, or null
+	 */
+	static <T> ResultSetSource<T> of(ResultSet rs, Statement statement, RowMapper<? extends T> mapper) {
+		return new ResultSetSource<T>(new RowIterator<T>(rs, statement, mapper));
+	}
+
+	@Override
+	void close() {
+		iterator.close();
+	}
+
+	private static class RowIterator<T> implements Iterator<T> {
+		private final ResultSet rs;
+		private final Statement statement;
+		private final RowMapper<? extends T> mapper;
+		/**
+		 * Whether the result set is positioned on a row not read yet.
+		 */
+		private boolean onRow = false;
+		private boolean closed = false;
+
+		public RowIterator(ResultSet rs, Statement statement, RowMapper<? extends T> mapper) {
+			assert rs != null;
+			assert mapper != null;
+
+			this.rs = rs;
+			this.statement = statement;
+			this.mapper = mapper;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (!onRow && !closed) {
+				boolean done = false;
+				try {
+					onRow = rs.next();
+					done = true;
+				} catch (final SQLException e) {
+					throw new RuntimeException(e);
+				} finally {
+					if (!done || !onRow) close();
+				}
+			}
+			return onRow;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			onRow = false;
+			boolean done = false;
+			try {
+				final T res = mapper.map(rs);
+				done = true;
+				return res;
+			} catch (final SQLException e) {
+				throw new RuntimeException(e);
+			} finally {
+				if (!done) close();
+			}
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		void close() {
+			if (closed) return;
+			closed = true;
+			onRow = false;
+			try {
+				try {
+					rs.close();
+				} finally {
+					if (statement != null) statement.close();
+				}
+			} catch (final SQLException e) {
+				throw new RuntimeException(e);
+			}
+		}
+	}
+}
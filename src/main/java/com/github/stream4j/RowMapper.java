@@ -0,0 +1,47 @@
+package com.github.stream4j;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a {@link ResultSet} to an object. Unlike a {@link Function}, it may throw an
+ * {@link SQLException}.<br>
+ * Not part of the Java API.
+ * @param <T> the type of the mapped rows
+ * @see Stream#rows(ResultSet, RowMapper)
+ */
+public abstract class RowMapper<T> {
+	/**
+	 * Maps the current row. The result set must not be moved, and must not be kept after the method returns.
+	 */
+	public abstract T map(ResultSet rs) throws SQLException;
+
+	/**
+	 * Returns a row mapper applying the given function to the result set.
+	 */
+	public static <T> RowMapper<T> of(final Function<? super ResultSet, ? extends T> function) {
+		if (function == null) throw new NullPointerException();
+		return new RowMapper<T>() {
+
+			@Override
+			public T map(ResultSet rs) {
+				return function.apply(rs);
+			}
+		};
+	}
+
+	/**
+	 * Returns a row mapper returning the value of the given column, as returned by {@link ResultSet#getObject(int)}.
+	 * @param column the column index, starting at 1
+	 */
+	public static <T> RowMapper<T> column(final int column, final Class<T> type) {
+		if (type == null) throw new NullPointerException();
+		return new RowMapper<T>() {
+
+			@Override
+			public T map(ResultSet rs) throws SQLException {
+				return type.cast(rs.getObject(column));
+			}
+		};
+	}
+}
@@ -0,0 +1,41 @@
+package com.github.stream4j;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Writes elements to a stream and reads them back, for instance to spill them to a temporary file. The primitive
+ * methods of {@link ObjectOutput} (such as {@code writeInt} or {@code writeUTF}) are much more compact than
+ * {@code writeObject}.<br>
+ * Not part of the Java API.
+ * @param <T> the type of the elements
+ * @see SortOptions#withSerializer(Serializer)
+ */
+public abstract class Serializer<T> {
+	public abstract void write(T t, ObjectOutput out) throws IOException;
+
+	/**
+	 * Reads an element written by {@link #write(Object, ObjectOutput)}.
+	 */
+	public abstract T read(ObjectInput in) throws IOException, ClassNotFoundException;
+
+	/**
+	 * Returns a serializer using the Java serialization: the elements must be {@link java.io.Serializable}.
+	 */
+	public static <T> Serializer<T> javaSerialization() {
+		return new Serializer<T>() {
+
+			@Override
+			public void write(T t, ObjectOutput out) throws IOException {
+				out.writeObject(t);
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public T read(ObjectInput in) throws IOException, ClassNotFoundException {
+				return (T) in.readObject();
+			}
+		};
+	}
+}
@@ -0,0 +1,63 @@
+package com.github.stream4j;
+
+/**
+ * Receives the elements pushed by a pipeline stage. Sinks are chained: each intermediate stage is a sink which
+ * forwards (possibly transformed) elements to the downstream sink, the last sink of the chain being the terminal
+ * operation.
+ * @param <T> the type of the elements received by this sink
+ */
+abstract class Sink<T> {
+	/**
+	 * Indicates that elements are about to be pushed.
+	 * @param size the exact number of elements that will be pushed, or -1 if unknown.
+	 */
+	void begin(long size) {
+	}
+
+	/**
+	 * Receives an element.
+	 */
+	abstract void accept(T t);
+
+	/**
+	 * Indicates that all elements have been pushed.
+	 */
+	void end() {
+	}
+
+	/**
+	 * Returns true if this sink does not need any more elements.
+	 */
+	boolean cancellationRequested() {
+		return false;
+	}
+
+	/**
+	 * A sink which forwards the elements to a downstream sink.
+	 * @param <T> the type of the elements received by this sink
+	 * @param <R> the type of the elements received by the downstream sink
+	 */
+	static abstract class Chained<T, R> extends Sink<T> {
+		protected final Sink<? super R> downstream;
+
+		Chained(Sink<? super R> downstream) {
+			assert downstream != null;
+			this.downstream = downstream;
+		}
+
+		@Override
+		void begin(long size) {
+			downstream.begin(size);
+		}
+
+		@Override
+		void end() {
+			downstream.end();
+		}
+
+		@Override
+		boolean cancellationRequested() {
+			return downstream.cancellationRequested();
+		}
+	}
+}
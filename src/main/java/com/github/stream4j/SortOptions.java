@@ -0,0 +1,85 @@
+package com.github.stream4j;
+
+import java.io.File;
+
+/**
+ * The options of an external sort (see {@link Stream#sorted(java.util.Comparator, SortOptions)}): the elements are
+ * sorted in runs which fit in the memory budget, the runs are written to temporary files, then merged.<br>
+ * Not part of the Java API.
+ * @param <T> the type of the sorted elements
+ */
+public final class SortOptions<T> {
+	private final long budget;
+	/**
+	 * The estimated size of an element, or null if the budget is a number of elements.
+	 */
+	private final ToLongFunction<? super T> sizeOf;
+	private final Serializer<T> serializer;
+	private final File tempDirectory;
+
+	private SortOptions(long budget, ToLongFunction<? super T> sizeOf, Serializer<T> serializer, File tempDirectory) {
+		this.budget = budget;
+		this.sizeOf = sizeOf;
+		this.serializer = serializer;
+		this.tempDirectory = tempDirectory;
+	}
+
+	/**
+	 * Returns options keeping at most maxElements elements in memory, using the Java serialization and the default
+	 * temporary directory.
+	 * @throws IllegalArgumentException if maxElements is not positive
+	 */
+	public static <T> SortOptions<T> maxElementsInMemory(long maxElements) {
+		if (maxElements <= 0) throw new IllegalArgumentException("maxElements must be strictly positive");
+		return new SortOptions<T>(maxElements, null, Serializer.<T> javaSerialization(), null);
+	}
+
+	/**
+	 * Returns options keeping at most maxBytes bytes in memory, the size of each element being estimated by the given
+	 * function, using the Java serialization and the default temporary directory.
+	 * @throws IllegalArgumentException if maxBytes is not positive
+	 */
+	public static <T> SortOptions<T> maxBytesInMemory(long maxBytes, ToLongFunction<? super T> sizeOf) {
+		if (maxBytes <= 0) throw new IllegalArgumentException("maxBytes must be strictly positive");
+		if (sizeOf == null) throw new NullPointerException();
+		return new SortOptions<T>(maxBytes, sizeOf, Serializer.<T> javaSerialization(), null);
+	}
+
+	/**
+	 * Returns the same options, the elements being written to the temporary files by the given serializer.
+	 */
+	public SortOptions<T> withSerializer(Serializer<T> newSerializer) {
+		if (newSerializer == null) throw new NullPointerException();
+		return new SortOptions<T>(budget, sizeOf, newSerializer, tempDirectory);
+	}
+
+	/**
+	 * Returns the same options, the temporary files being created in the given directory.
+	 */
+	public SortOptions<T> withTempDirectory(File directory) {
+		if (directory == null) throw new NullPointerException();
+		return new SortOptions<T>(budget, sizeOf, serializer, directory);
+	}
+
+	/**
+	 * Returns the share of the memory budget used by an element.
+	 */
+	long weight(T t) {
+		return sizeOf == null ? 1 : sizeOf.applyAsLong(t);
+	}
+
+	long getBudget() {
+		return budget;
+	}
+
+	Serializer<T> getSerializer() {
+		return serializer;
+	}
+
+	/**
+	 * Returns the directory of the temporary files, or null for the default temporary directory.
+	 */
+	File getTempDirectory() {
+		return tempDirectory;
+	}
+}
@@ -0,0 +1,395 @@
+package com.github.stream4j;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The source of the elements of a pipeline. Arrays and random-access lists are random-access sources: their size is
+ * known, their elements can be read by index, and they can be sliced and split without reading the elements.
+ * @param <T> the type of the elements
+ */
+abstract class Source<T> {
+	static final int SIZE_UNKNOWN = -1;
+
+	/**
+	 * Returns the exact number of remaining elements, or -1 if unknown.
+	 */
+	abstract long size();
+
+	/**
+	 * Returns an iterator over the remaining elements.
+	 */
+	abstract Iterator<? extends T> iterator();
+
+	/**
+	 * Pushes the remaining elements into the sink. Does not call {@link Sink#begin(long)} nor {@link Sink#end()}.
+	 * @param shortCircuit whether to stop as soon as the sink requests cancellation.
+	 */
+	abstract void pushInto(Sink<? super T> sink, boolean shortCircuit);
+
+	/**
+	 * If possible, splits this source in two: returns a source covering a prefix of the remaining elements, this
+	 * source covering the elements after the prefix. Random-access sources are split in halves; other sources return a
+	 * batch of elements read from the iterator.
+	 * @return the prefix, or null if this source cannot be split.
+	 */
+	abstract Source<T> trySplit();
+
+	/**
+	 * Returns the source read by an evaluation of a pipeline. The sources which can be read several times, possibly
+	 * concurrently, return a new source for each evaluation; the other sources return themselves.
+	 */
+	Source<T> open() {
+		return this;
+	}
+
+	/**
+	 * Returns true if the methods {@link #get(int)}, {@link #slice(long, long)} and {@link #toArray()} are supported.
+	 */
+	boolean isRandomAccess() {
+		return false;
+	}
+
+	/**
+	 * Returns the element at the given index. Only supported by random-access sources.
+	 */
+	T get(int index) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Returns a source over the elements from index from (inclusive) to index to (exclusive), the indexes being
+	 * clamped to the size of this source. Only supported by random-access sources.
+	 */
+	Source<T> slice(long from, long to) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Returns a new array containing the elements. Only supported by random-access sources.
+	 */
+	Object[] toArray() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Releases the resources held by this source, such as background tasks. Called once the pipeline has been
+	 * evaluated, even if not all the elements have been read.
+	 */
+	void close() {
+	}
+
+	/**
+	 * Returns a source over an array. The array is not copied.
+	 */
+	static <T> Source<T> of(T[] array) {
+		return new ArraySource<T>(array, 0, array.length);
+	}
+
+	/**
+	 * Returns a source over a collection, which is a random-access source if the collection is a random-access list.
+	 */
+	static <T> Source<T> of(Collection<? extends T> collection) {
+		if (collection instanceof List && collection instanceof RandomAccess) {
+			return new ListSource<T>((List<? extends T>) collection, 0, collection.size());
+		} else {
+			return of(collection.iterator(), collection.size());
+		}
+	}
+
+	/**
+	 * Returns a source over an iterator.
+	 * @param size the number of elements of the iterator, or -1 if unknown.
+	 */
+	static <T> Source<T> of(Iterator<? extends T> iterator, long size) {
+		return new IteratorSource<T>(iterator, size, null);
+	}
+
+	/**
+	 * Returns a source over an iterator reading the elements of another source, which is closed with the returned
+	 * source.
+	 * @param size the number of elements of the iterator, or -1 if unknown.
+	 * @param upstream the source read by the iterator, or null
+	 */
+	static <T> Source<T> of(Iterator<? extends T> iterator, long size, Source<?> upstream) {
+		return new IteratorSource<T>(iterator, size, upstream);
+	}
+
+	private static int clamp(long index, int from, int to) {
+		return index <= 0 ? from : (int) Math.min(to, from + Math.min(index, Integer.MAX_VALUE));
+	}
+
+	private static class ArraySource<T> extends Source<T> {
+		private final T[] array;
+		private int from;
+		private final int to;
+
+		public ArraySource(T[] array, int from, int to) {
+			assert array != null;
+			assert from <= to;
+
+			this.array = array;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		long size() {
+			return to - from;
+		}
+
+		@Override
+		Iterator<? extends T> iterator() {
+			return Arrays.asList(array).subList(from, to).iterator();
+		}
+
+		@Override
+		void pushInto(Sink<? super T> sink, boolean shortCircuit) {
+			final T[] a = array;
+			if (shortCircuit) {
+				for (int i = from; i < to && !sink.cancellationRequested(); i++) {
+					sink.accept(a[i]);
+				}
+			} else {
+				for (int i = from; i < to; i++) {
+					sink.accept(a[i]);
+				}
+			}
+		}
+
+		@Override
+		Source<T> trySplit() {
+			final int mid = (from + to) >>> 1;
+			if (mid == from) return null;
+			final Source<T> res = new ArraySource<T>(array, from, mid);
+			from = mid;
+			return res;
+		}
+
+		@Override
+		boolean isRandomAccess() {
+			return true;
+		}
+
+		@Override
+		T get(int index) {
+			if (index < 0 || index >= to - from) throw new IndexOutOfBoundsException();
+			return array[from + index];
+		}
+
+		@Override
+		Source<T> slice(long sliceFrom, long sliceTo) {
+			return new ArraySource<T>(array, clamp(sliceFrom, from, to), clamp(Math.max(sliceFrom, sliceTo), from, to));
+		}
+
+		@Override
+		Object[] toArray() {
+			final Object[] res = new Object[to - from];
+			System.arraycopy(array, from, res, 0, res.length);
+			return res;
+		}
+	}
+
+	private static class ListSource<T> extends Source<T> {
+		private final List<? extends T> list;
+		private int from;
+		private final int to;
+
+		public ListSource(List<? extends T> list, int from, int to) {
+			assert list != null;
+			assert from <= to;
+
+			this.list = list;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		long size() {
+			return to - from;
+		}
+
+		@Override
+		Iterator<? extends T> iterator() {
+			return from == 0 && to == list.size() ? list.iterator() : list.subList(from, to).iterator();
+		}
+
+		@Override
+		void pushInto(Sink<? super T> sink, boolean shortCircuit) {
+			final List<? extends T> l = list;
+			if (shortCircuit) {
+				for (int i = from; i < to && !sink.cancellationRequested(); i++) {
+					sink.accept(l.get(i));
+				}
+			} else {
+				for (int i = from; i < to; i++) {
+					sink.accept(l.get(i));
+				}
+			}
+		}
+
+		@Override
+		Source<T> trySplit() {
+			final int mid = (from + to) >>> 1;
+			if (mid == from) return null;
+			final Source<T> res = new ListSource<T>(list, from, mid);
+			from = mid;
+			return res;
+		}
+
+		@Override
+		boolean isRandomAccess() {
+			return true;
+		}
+
+		@Override
+		T get(int index) {
+			if (index < 0 || index >= to - from) throw new IndexOutOfBoundsException();
+			return list.get(from + index);
+		}
+
+		@Override
+		Source<T> slice(long sliceFrom, long sliceTo) {
+			return new ListSource<T>(list, clamp(sliceFrom, from, to), clamp(Math.max(sliceFrom, sliceTo), from, to));
+		}
+
+		@Override
+		Object[] toArray() {
+			// ArrayList.toArray uses System.arraycopy; sub-lists would be read element by element
+			return from == 0 && to == list.size() ? list.toArray() : list.subList(from, to).toArray();
+		}
+	}
+
+	/**
+	 * A source computed from the elements of an upstream source by an operation which reads them through an iterator
+	 * (for instance {@code flatMap} or {@code prefetch}). It is computed again by each evaluation (see {@link #open()}),
+	 * from a newly opened upstream source, so that an upstream source which can be read several times is read again by
+	 * each evaluation. Only the opened sources are read, and they close the opened upstream source when closed, so that
+	 * the resources of the upstream source are released even if the evaluation stops early.
+	 * @param <U> the type of the upstream elements
+	 */
+	abstract static class Derived<U, T> extends Source<T> {
+		private final Source<? extends U> upstream;
+		private final long size;
+
+		Derived(Source<? extends U> upstream, long size) {
+			assert upstream != null;
+
+			this.upstream = upstream;
+			this.size = size;
+		}
+
+		/**
+		 * Returns the source read by an evaluation, computed from the opened upstream source, which it must close when
+		 * closed.
+		 */
+		abstract Source<T> derive(Source<? extends U> opened);
+
+		@Override
+		Source<T> open() {
+			final Source<? extends U> opened = upstream.open();
+			boolean done = false;
+			try {
+				final Source<T> res = derive(opened);
+				done = true;
+				return res;
+			} finally {
+				if (!done) opened.close();
+			}
+		}
+
+		@Override
+		long size() {
+			return size;
+		}
+
+		@Override
+		Iterator<? extends T> iterator() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		void pushInto(Sink<? super T> sink, boolean shortCircuit) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		Source<T> trySplit() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * A source reading an iterator. It is split in batches read from the iterator.
+	 */
+	static class IteratorSource<T> extends Source<T> {
+		/**
+		 * Number of elements read by {@link #trySplit()}.
+		 */
+		private static final int BATCH_SIZE = 1024;
+
+		private final Iterator<? extends T> iterator;
+		private long size;
+		/**
+		 * The source read by the iterator, closed with this source, or null.
+		 */
+		private final Source<?> upstream;
+
+		public IteratorSource(Iterator<? extends T> iterator, long size) {
+			this(iterator, size, null);
+		}
+
+		public IteratorSource(Iterator<? extends T> iterator, long size, Source<?> upstream) {
+			assert iterator != null;
+
+			this.iterator = iterator;
+			this.size = size;
+			this.upstream = upstream;
+		}
+
+		@Override
+		long size() {
+			return size;
+		}
+
+		@Override
+		Iterator<? extends T> iterator() {
+			return iterator;
+		}
+
+		@Override
+		void pushInto(Sink<? super T> sink, boolean shortCircuit) {
+			final Iterator<? extends T> it = iterator;
+			if (shortCircuit) {
+				while (!sink.cancellationRequested() && it.hasNext()) {
+					sink.accept(it.next());
+				}
+			} else {
+				while (it.hasNext()) {
+					sink.accept(it.next());
+				}
+			}
+		}
+
+		@Override
+		Source<T> trySplit() {
+			if (!iterator.hasNext()) return null;
+			final Object[] batch = new Object[size > 0 ? (int) Math.min(BATCH_SIZE, size) : BATCH_SIZE];
+			int count = 0;
+			while (count < batch.length && iterator.hasNext()) {
+				batch[count++] = iterator.next();
+			}
+			if (size != SIZE_UNKNOWN) size -= count;
+			@SuppressWarnings("unchecked") final T[] array = (T[]) batch;
+			return new ArraySource<T>(array, 0, count);
+		}
+
+		@Override
+		void close() {
+			if (upstream != null) upstream.close();
+		}
+	}
+}
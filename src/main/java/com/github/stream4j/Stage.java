@@ -0,0 +1,122 @@
+package com.github.stream4j;
+
+import java.util.List;
+
+/**
+ * An intermediate stage of a pipeline, transforming elements of type T into elements of type R.
+ * @param <T> the type of the input elements
+ * @param <R> the type of the output elements
+ */
+abstract class Stage<T, R> {
+	/**
+	 * Returns a sink which accepts the input elements of this stage and pushes the resulting elements to the
+	 * downstream sink.
+	 */
+	abstract Sink<T> wrap(Sink<? super R> downstream);
+
+	/**
+	 * Returns true if this stage may request cancellation before all the input elements have been pushed (see
+	 * {@link Sink#cancellationRequested()}).
+	 */
+	boolean isShortCircuit() {
+		return false;
+	}
+
+	/**
+	 * Returns true if the output of this stage depends on the previous input elements (for instance a limit), so that
+	 * a single sink must receive all the input elements, in encounter order. Such a stage cannot be evaluated by one
+	 * sink per chunk of a parallel pipeline.
+	 */
+	boolean isStateful() {
+		return false;
+	}
+
+	/**
+	 * Returns an upper bound of the number of output elements, given an upper bound of the number of input elements.
+	 * By default, a stage outputs at most one element per input element.
+	 * @param inputBound the upper bound of the number of input elements, or -1 if unknown
+	 * @return the upper bound of the number of output elements, or -1 if unknown
+	 */
+	long sizeBound(long inputBound) {
+		return inputBound;
+	}
+
+	/**
+	 * Returns true if this stage forwards its input elements unchanged.
+	 */
+	boolean isIdentity() {
+		return false;
+	}
+
+	/**
+	 * Adds the stages this stage is composed of to the list, in order. Used by the instrumentation to measure each
+	 * stage separately.
+	 */
+	void flatten(List<Stage<?, ?>> stages) {
+		stages.add(this);
+	}
+
+	/**
+	 * Returns a stage which applies this stage, then the next stage.
+	 */
+	<V> Stage<T, V> andThen(final Stage<? super R, ? extends V> next) {
+		final Stage<T, R> that = this;
+		return new Stage<T, V>() {
+
+			@Override
+			Sink<T> wrap(Sink<? super V> downstream) {
+				return that.wrap(next.wrap(downstream));
+			}
+
+			@Override
+			boolean isShortCircuit() {
+				return that.isShortCircuit() || next.isShortCircuit();
+			}
+
+			@Override
+			boolean isStateful() {
+				return that.isStateful() || next.isStateful();
+			}
+
+			@Override
+			long sizeBound(long inputBound) {
+				return next.sizeBound(that.sizeBound(inputBound));
+			}
+
+			@Override
+			void flatten(List<Stage<?, ?>> stages) {
+				that.flatten(stages);
+				next.flatten(stages);
+			}
+		};
+	}
+
+	/**
+	 * Returns a stage which forwards its input elements unchanged.
+	 */
+	static <T> Stage<T, T> identity() {
+		return new Stage<T, T>() {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			Sink<T> wrap(Sink<? super T> downstream) {
+				return (Sink<T>) downstream;
+			}
+
+			@Override
+			boolean isIdentity() {
+				return true;
+			}
+
+			@Override
+			void flatten(List<Stage<?, ?>> stages) {
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			<V> Stage<T, V> andThen(Stage<? super T, ? extends V> next) {
+				return (Stage<T, V>) next;
+			}
+		};
+	}
+}
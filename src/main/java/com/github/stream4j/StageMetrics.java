@@ -0,0 +1,63 @@
+package com.github.stream4j;
+
+/**
+ * The metrics of one step of an instrumented pipeline evaluation: its source, one of its intermediate operations, or
+ * its terminal operation.<br>
+ * Not part of the Java API.
+ * @see PipelineMetrics#getStages()
+ */
+public final class StageMetrics {
+	private final String name;
+	private final long inputCount;
+	private final long outputCount;
+	private final long nanos;
+
+	StageMetrics(String name, long inputCount, long outputCount, long nanos) {
+		this.name = name;
+		this.inputCount = inputCount;
+		this.outputCount = outputCount;
+		this.nanos = nanos;
+	}
+
+	/**
+	 * Returns the name of the step, for instance "array", "filter", "map" or "count".
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the number of elements received by the step. For the source, the number of elements read.
+	 */
+	public long getInputCount() {
+		return inputCount;
+	}
+
+	/**
+	 * Returns the number of elements pushed to the next step. For the terminal operation, the number of elements
+	 * received.
+	 */
+	public long getOutputCount() {
+		return outputCount;
+	}
+
+	/**
+	 * Returns the ratio of output elements to input elements, or NaN if the step received no elements.
+	 */
+	public double getSelectivity() {
+		return inputCount == 0 ? Double.NaN : (double) outputCount / inputCount;
+	}
+
+	/**
+	 * Returns the time spent in the step, excluding the time spent in the next steps, in nanoseconds. For a parallel
+	 * evaluation, the time spent by all the threads.
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+
+	@Override
+	public String toString() {
+		return name + ": " + inputCount + " -> " + outputCount + ", " + nanos / 1000 + " us";
+	}
+}
@@ -1,588 +1,2957 @@
-package com.github.stream4j;
-
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-import java.util.NoSuchElementException;
-import java.util.Set;
-import java.util.SortedMap;
-import java.util.SortedSet;
-import java.util.TreeMap;
-import java.util.TreeSet;
-
-/**
- * @param <T> the type of the stream elements
- */
-public class Stream<T> {
-	private final Iterator<? extends T> iterator;
-	private final long size;
-	private final static int SIZE_UNKNOWN = -1;
-
-	public Stream(Collection<? extends T> wrapped) {
-		this(wrapped.iterator(), wrapped.size());
-	}
-
-	public Stream(Iterator<? extends T> iterator) {
-		this(iterator, SIZE_UNKNOWN);
-	}
-
-	private Stream(Iterator<? extends T> iterator, long size) {
-		this.iterator = iterator;
-		this.size = size;
-	}
-
-	/**
-	 * Returns a sequential ordered stream whose elements are the specified values.
-	 */
-	public static <T> Stream<T> of(T... items) {
-		return new Stream<T>(Arrays.asList(items));
-	}
-
-	/**
-	 * Returns a sequential ordered stream whose elements are the specified values.<br>
-	 * Not part of the Java Stream API.
-	 */
-	public static <T> Stream<T> of(Collection<? extends T> wrapped) {
-		return new Stream<T>(wrapped);
-	}
-
-	/**
-	 * Returns a sequential ordered stream whose elements are the specified values.
-	 * Not part of the Java Stream API.
-	 */
-	public static <T> Stream<T> of(Iterator<? extends T> wrapped) {
-		return new Stream<T>(wrapped);
-	}
-
-	/**
-	 * Returns whether all elements of this stream match the provided predicate.
-	 * May not evaluate the predicate on all elements if not necessary for
-	 * determining the result. If the stream is empty then true is returned and
-	 * the predicate is not evaluated. <br>
-	 * This is a short-circuiting terminal operation.
-	 * @param predicate
-	 *        a non-interfering, stateless predicate to apply to elements of
-	 *        this stream.
-	 * @return true if either all elements of the stream match the provided
-	 *         predicate or the stream is empty, otherwise false.
-	 */
-	public boolean allMatch(Predicate<? super T> predicate) {
-		while (iterator.hasNext()) {
-			final T t = iterator.next();
-			if (!predicate.test(t)) {
-				return false;
-			}
-		}
-		return true;
-	}
-
-	/**
-	 * Returns whether any elements of this stream match the provided predicate. May not evaluate the predicate on all
-	 * elements if not necessary for determining the result. If the stream is empty then false is returned and the
-	 * predicate is not evaluated.<br>
-	 * This is a short-circuiting terminal operation.
-	 * @param predicate a non-interfering, stateless predicate to apply to elements of this stream
-	 * @return true if any elements of the stream match the provided predicate, otherwise false
-	 */
-	public boolean anyMatch(Predicate<? super T> predicate) {
-		while (iterator.hasNext()) {
-			final T t = iterator.next();
-			if (predicate.test(t)) {
-				return true;
-			}
-		}
-		return false;
-	}
-
-	/**
-	 * Returns the count of elements in this stream.
-	 */
-	public long count() {
-		if (size != SIZE_UNKNOWN) return size;
-		long res = 0;
-		while (iterator.hasNext()) {
-			iterator.next();
-			res++;
-		}
-		return res;
-	}
-
-	/**
-	 * Returns whether no elements of this stream match the provided predicate. May not evaluate the predicate on all
-	 * elements if not necessary for determining the result. If the stream is empty then true is returned and the
-	 * predicate is not evaluated.<br>
-	 * This is a short-circuiting terminal operation.
-	 * @param predicate a non-interfering, stateless predicate to apply to elements of this stream
-	 * @return true if either no elements of the stream match the provided predicate or the stream is empty, otherwise
-	 *         false
-	 */
-	public boolean noneMatch(Predicate<? super T> predicate) {
-		while (iterator.hasNext()) {
-			final T t = iterator.next();
-			if (predicate.test(t)) {
-				return false;
-			}
-		}
-		return true;
-	}
-
-	/**
-	 * Return the first element of this stream, or null if the stream is empty.<br>
-	 * This is a short-circuiting terminal operation.<br>
-	 * Not part of the Java Stream API.
-	 */
-	public T findFirst() {
-		return iterator.hasNext() ? iterator.next() : null;
-	}
-
-	/**
-	 * Return the first element of this stream, or null if the stream is empty.<br>
-	 * This is a short-circuiting terminal operation.<br>
-	 * Not part of the Java Stream API.
-	 */
-	public T findAny() {
-		return findFirst();
-	}
-
-	/**
-	 * Returns a stream consisting of the results of applying the given function to the elements of this stream.
-	 * This is an intermediate operation.
-	 * @param mapper a non-interfering, stateless function to apply to each element
-	 * @return the new stream
-	 */
-	public <R> Stream<R> map(final Function<? super T, ? extends R> mapper) {
-		final TransformIterator<T, R> it = new TransformIterator<T, R>(iterator, mapper);
-		final Stream<R> res = new Stream<R>(it);
-		return res;
-	}
-
-	/**
-	 * Not part of the Java Stream API.
-	 */
-	public List<T> toList() {
-		final List<T> res = new ArrayList<T>(getCapacityHint());
-		while (iterator.hasNext()) {
-			res.add(iterator.next());
-		}
-		return res;
-	}
-
-	/**
-	 * Not part of the Java Stream API.
-	 */
-	public Set<T> toSet() {
-		final Set<T> res = new HashSet<T>(getCapacityHint());
-		while (iterator.hasNext()) {
-			res.add(iterator.next());
-		}
-		return res;
-	}
-
-	/**
-	 * Returns a sorted set, sorted according to the natural ordering of its elements.
-	 * Not part of the Java Stream API.
-	 * @throws ClassCastException if the type T does not implement {@link Comparable}.
-	 */
-	public SortedSet<T> toSortedSet() {
-		final SortedSet<T> res = new TreeSet<T>();
-		while (iterator.hasNext()) {
-			res.add(iterator.next());
-		}
-		return res;
-	}
-
-	private int getCapacityHint() {
-		return size != SIZE_UNKNOWN ? (int) size : 10;
-	}
-
-	/**
-	 * Returns a stream consisting of the elements of this stream that match the given predicate.<br>
-	 * This is an intermediate operation.
-	 * @param predicate a non-interfering, stateless predicate to apply to each element to determine if it should be
-	 *        included
-	 * @return the new stream
-	 */
-	public Stream<T> filter(Predicate<? super T> predicate) {
-		final FilterableIterator<T> it = new FilterableIterator<T>(iterator, predicate);
-		return new Stream<T>(it);
-	}
-
-	/**
-	 * Not part of the Java Stream API.
-	 */
-	public <K> Map<K, T> toMap(Function<? super T, ? extends K> toKey) {
-		final Map<K, T> res = new HashMap<K, T>();
-		toMap(toKey, res);
-		return res;
-	}
-
-	/**
-	 * Not part of the Java Stream API.
-	 */
-	public <K> SortedMap<K, T> toSortedMap(Function<? super T, ? extends K> toKey) {
-		final SortedMap<K, T> res = new TreeMap<K, T>();
-		toMap(toKey, res);
-		return res;
-	}
-
-	/**
-	 * Not part of the Java Stream API.
-	 */
-	public <K> void toMap(Function<? super T, ? extends K> toKey, Map<K, T> map) {
-		while (iterator.hasNext()) {
-			final T t = iterator.next();
-			map.put(toKey.apply(t), t);
-		}
-	}
-
-	/**
-	 * Performs an action for each element of this stream.<br>
-	 * This is a terminal operation.
-	 * @param action a non-interfering action to perform on the elements
-	 */
-	public void forEach(Consumer<? super T> action) {
-		while (iterator.hasNext()) {
-			final T t = iterator.next();
-			action.accept(t);
-		}
-	}
-
-	/**
-	 * Not part of the Java Stream API.
-	 */
-	public void partitionBy(Predicate<? super T> predicate, Collection<? super T> matched,
-			Collection<? super T> notMatched) {
-		while (iterator.hasNext()) {
-			final T t = iterator.next();
-			if (predicate.test(t)) {
-				matched.add(t);
-			} else {
-				notMatched.add(t);
-			}
-		}
-	}
-
-	/**
-	 * Not part of the Java Stream API.
-	 */
-	public <K> Map<K, List<T>> groupBy(Function<? super T, ? extends K> classifier) {
-		final Map<K, List<T>> res = new HashMap<K, List<T>>();
-		while (iterator.hasNext()) {
-			final T t = iterator.next();
-			final K key = classifier.apply(t);
-			List<T> l = res.get(key);
-			if (l == null) {
-				l = new ArrayList<T>();
-				res.put(key, l);
-			}
-			l.add(t);
-		}
-		return res;
-	}
-
-	/**
-	 * Returns the maximum element of this stream according to the provided Comparator. This is a special case of a
-	 * reduction.<br>
-	 * This is a terminal operation.<br>
-	 * The method from the Java Stream API has a different signature:
-	 * {@code Optional<T> max(Comparator<? super T> comparator)}
-	 */
-	public T max(Comparator<? super T> comparator) {
-		T res = null;
-		while (iterator.hasNext()) {
-			final T t = iterator.next();
-			if (res == null || comparator.compare(t, res) > 0) {
-				res = t;
-			}
-		}
-		return res;
-	}
-
-	/**
-	 * Returns the maximum element of this stream according to the natural ordering of its elements. This is a special
-	 * case of a reduction.<br>
-	 * This is a terminal operation.<br>
-	 * The method from the Java Stream API has a different signature:
-	 * {@code Optional<T> max(Comparator<? super T> comparator)}
-	 * @throws ClassCastException if the type T does not implement {@link Comparable}.
-	 */
-	public T max() {
-		return max(createComparator());
-	}
-
-	/**
-	 * Returns the minimum element of this stream according to the provided Comparator. This is a special case of a
-	 * reduction.<br>
-	 * This is a terminal operation.<br>
-	 * The method from the Java Stream API has a different signature:
-	 * {@code Optional<T> max(Comparator<? super T> comparator)}
-	 */
-	public T min(Comparator<? super T> comparator) {
-		T res = null;
-		while (iterator.hasNext()) {
-			final T t = iterator.next();
-			if (res == null || comparator.compare(t, res) < 0) {
-				res = t;
-			}
-		}
-		return res;
-	}
-
-	/**
-	 * Returns the minimum element of this stream according to the natural ordering of its elements. This is a special
-	 * case of a reduction.<br>
-	 * This is a terminal operation.<br>
-	 * The method from the Java Stream API has a different signature:
-	 * {@code Optional<T> max(Comparator<? super T> comparator)}
-	 * @throws ClassCastException if the type T does not implement {@link Comparable}.
-	 */
-	public T min() {
-		return min(createComparator());
-	}
-
-	/**
-	 * Returns a stream consisting of the results of replacing each element of this stream with the contents of a
-	 * mapped stream produced by applying the provided mapping function to each element. Each mapped stream is closed
-	 * after its contents have been placed into this stream. (If a mapped stream is null an empty stream is used,
-	 * instead.)<br>
-	 * This is an intermediate operation.
-	 * @param mapper a non-interfering, stateless function to apply to each element which produces a stream of new
-	 *        values
-	 * @return the new stream
-	 */
-	public <R> Stream<R> flatMap(Function<? super T, ? extends Stream<? extends R>> mapper) {
-		final List<Iterator<? extends R>> iterators = new ArrayList<Iterator<? extends R>>(getCapacityHint());
-		long totalSize = 0;
-		while (iterator.hasNext()) {
-			final T t = iterator.next();
-			Stream<? extends R> mapped = mapper.apply(t);
-			if (mapped == null) mapped = Stream.of(Collections.<R> emptyList());
-			totalSize = mapped.size == SIZE_UNKNOWN || totalSize == SIZE_UNKNOWN ? SIZE_UNKNOWN : totalSize
-					+ mapped.size;
-			iterators.add(mapped.iterator);
-		}
-		final Iterator<? extends R> compositeIterator = new CompositeIterator<R>(iterators);
-		return new Stream<R>(compositeIterator, totalSize);
-	}
-
-	/**
-	 * Returns a stream consisting of the elements of this stream, truncated to be no longer than maxSize in length.<br>
-	 * This is a short-circuiting stateful intermediate operation.
-	 * @param maxSize the number of elements the stream should be limited to
-	 * @return the new stream
-	 */
-	public Stream<T> limit(long maxSize) {
-		if (maxSize < 0) throw new IllegalArgumentException("maxSize must be positive");
-		if (size != SIZE_UNKNOWN && size <= maxSize) {
-			return this;
-		} else {
-			final long newSize = size == SIZE_UNKNOWN ? SIZE_UNKNOWN : maxSize;
-			return new Stream<T>(new LimitIterator<T>(iterator, maxSize), newSize);
-		}
-	}
-
-	/**
-	 * Returns a stream consisting of the remaining elements of this stream after discarding the first n elements of
-	 * the stream. If this stream contains fewer than n elements then an empty stream will be returned.<br>
-	 * This is a stateful intermediate operation.
-	 * @param n the number of leading elements to skip
-	 * @return the new stream
-	 * @throws IllegalArgumentException if n is negative
-	 */
-	public Stream<T> skip(long n) {
-		if (n < 0) throw new IllegalArgumentException("maxSize must be positive");
-		int i = 0;
-		while (i++ < n && iterator.hasNext()) {
-			iterator.next();
-		}
-		return this;
-	}
-
-	/**
-	 * Returns a stream consisting of the elements of this stream, sorted according to the provided Comparator.<br>
-	 * For ordered streams, the sort is stable. For unordered streams, no stability guarantees are made.<br>
-	 * This is a stateful intermediate operation.<br>
-	 * @param comparator a non-interfering, stateless Comparator to be used to compare stream elements
-	 * @return the new stream
-	 */
-	public Stream<T> sorted(Comparator<? super T> comparator) {
-		final List<T> list = toList();
-		Collections.sort(list, comparator);
-		final Stream<T> res = new Stream<T>(list);
-		return res;
-	}
-
-	/**
-	 * Returns a stream consisting of the elements of this stream, sorted according to natural order. If the elements
-	 * of this stream are not Comparable, a java.lang.ClassCastException may be thrown when the terminal operation is
-	 * executed.<br>
-	 * For ordered streams, the sort is stable. For unordered streams, no stability guarantees are made.
-	 * This is a stateful intermediate operation.<br>
-	 * @return the new stream
-	 */
-	public Stream<T> sorted() {
-		return sorted(createComparator());
-	}
-
-	/**
-	 * Returns a comparator for elements of type T.
-	 * @throws ClassCastException if T does not implement {@link Comparable}.
-	 */
-	private Comparator<T> createComparator() {
-		return new Comparator<T>() {
-
-			@Override
-			public int compare(T o1, T o2) {
-				@SuppressWarnings("unchecked") final Comparable<T> c1 = (Comparable<T>) o1;
-				return c1.compareTo(o2);
-			}
-		};
-	}
-
-	private static class CompositeIterator<T> implements Iterator<T> {
-		private final List<Iterator<? extends T>> iterators;
-		/**
-		 * Index of the current iterator in the {@code iterators} list.
-		 */
-		private int index = 0;
-
-		public CompositeIterator(List<Iterator<? extends T>> iterators) {
-			assert iterators != null;
-			this.iterators = iterators;
-		}
-
-		@Override
-		public boolean hasNext() {
-			while (true) {
-				if (index > iterators.size() - 1) {
-					return false;
-				} else if (iterators.get(index).hasNext()) {
-					return true;
-				} else {
-					++index;
-				}
-			}
-		}
-
-		@Override
-		public T next() {
-			if (!hasNext()) throw new NoSuchElementException();
-			return iterators.get(index).next();
-		}
-
-		@Override
-		public void remove() {
-			throw new UnsupportedOperationException();
-		}
-
-	}
-
-	private static class TransformIterator<T, R> implements Iterator<R> {
-		private final Function<? super T, ? extends R> transformer;
-		private final Iterator<? extends T> wrapped;
-
-		private TransformIterator(Iterator<? extends T> wrapped, Function<? super T, ? extends R> transformer) {
-			assert wrapped != null;
-			assert transformer != null;
-
-			this.wrapped = wrapped;
-			this.transformer = transformer;
-		}
-
-		@Override
-		public boolean hasNext() {
-			return wrapped.hasNext();
-		}
-
-		@Override
-		public R next() {
-			return transformer.apply(wrapped.next());
-		}
-
-		@Override
-		public void remove() {
-			throw new UnsupportedOperationException();
-		}
-	}
-
-	private static class FilterableIterator<T> implements Iterator<T> {
-		private final Iterator<? extends T> wrapped;
-		private final Predicate<? super T> predicate;
-		private T nextItem;
-
-		public FilterableIterator(Iterator<? extends T> wrapped, Predicate<? super T> predicate) {
-			assert wrapped != null;
-			assert predicate != null;
-
-			this.wrapped = wrapped;
-			this.predicate = predicate;
-		}
-
-		@Override
-		public boolean hasNext() {
-			nextItem = findNext();
-			return nextItem != null;
-		}
-
-		@Override
-		public T next() {
-			final T res = nextItem != null ? nextItem : findNext();
-			nextItem = null;
-			return res;
-		}
-
-		private T findNext() {
-			while (wrapped.hasNext()) {
-				final T curr = wrapped.next();
-				if (predicate.test(curr)) {
-					return curr;
-				}
-			}
-			return null;
-		}
-
-		@Override
-		public void remove() {
-			throw new UnsupportedOperationException();
-		}
-	}
-
-	private static class LimitIterator<T> implements Iterator<T> {
-
-		private final long maxSize;
-		private int count = 0;
-		private final Iterator<? extends T> wrapped;
-
-		public LimitIterator(Iterator<? extends T> wrapped, long maxSize) {
-			assert wrapped != null;
-
-			this.wrapped = wrapped;
-			this.maxSize = maxSize;
-		}
-
-		@Override
-		public boolean hasNext() {
-			return count >= maxSize ? false : wrapped.hasNext();
-		}
-
-		@Override
-		public T next() {
-			if (count >= maxSize) throw new NoSuchElementException();
-			count++;
-			return wrapped.next();
-		}
-
-		@Override
-		public void remove() {
-			throw new UnsupportedOperationException();
-		}
-
-	}
-}
+package com.github.stream4j;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The {@code filter}, {@code map} and {@code limit} operations are fused: the terminal operation pushes each source
+ * element through all of them in a single loop. Operations which need to pull the elements one by one (such as
+ * {@code findFirst}) consume the stream through an iterator instead.<br>
+ * A stream is sequential by default. A parallel stream (see {@link #parallel()}) evaluates the {@code filter},
+ * {@code map} and {@code flatMap} operations and most terminal operations on an {@link ExecutorService}, the results
+ * being the same as the results of the sequential stream, except for {@link #forEach(Consumer)}.
+ * @param <T> the type of the stream elements
+ */
+public class Stream<T> implements Closeable {
+	private final Pipeline<?, T> pipeline;
+	private final long size;
+	private final static int SIZE_UNKNOWN = -1;
+	/**
+	 * The close handlers, shared by all the streams derived from the same source.
+	 */
+	private final Closer closer;
+
+	public Stream(Collection<? extends T> wrapped) {
+		this(Pipeline.<T> of(wrapped), wrapped.size(), new Closer());
+	}
+
+	public Stream(Iterator<? extends T> iterator) {
+		this(iterator, SIZE_UNKNOWN, new Closer());
+	}
+
+	private Stream(Iterator<? extends T> iterator, long size, Closer closer) {
+		this(Pipeline.<T> of(iterator, size), size, closer);
+	}
+
+	private Stream(Pipeline<?, T> pipeline, long size, Closer closer) {
+		this.pipeline = pipeline;
+		this.size = size;
+		this.closer = closer;
+	}
+
+	/**
+	 * Returns a sequential ordered stream whose elements are the specified values. The array is read by index, and is
+	 * not copied.
+	 */
+	public static <T> Stream<T> of(T... items) {
+		return new Stream<T>(Pipeline.<T> of(Source.of(items)), items.length, new Closer());
+	}
+
+	/**
+	 * Returns a sequential ordered stream whose elements are the specified values.<br>
+	 * Not part of the Java Stream API.
+	 */
+	public static <T> Stream<T> of(Collection<? extends T> wrapped) {
+		return new Stream<T>(wrapped);
+	}
+
+	/**
+	 * Returns a sequential ordered stream whose elements are the specified values.
+	 * Not part of the Java Stream API.
+	 */
+	public static <T> Stream<T> of(Iterator<? extends T> wrapped) {
+		return new Stream<T>(wrapped);
+	}
+
+	/**
+	 * Returns a sequential stream over the lines of a file. The lines are read lazily, and "\n" and "\r\n" are the
+	 * line terminators. If the charset encodes these characters as single ASCII bytes (for instance UTF-8, US-ASCII or
+	 * ISO-8859-1), the file is memory-mapped and each line is decoded directly from the mapped bytes; a parallel stream
+	 * then splits the file in byte ranges at line boundaries. Otherwise, the file is read through a
+	 * {@link BufferedReader}.<br>
+	 * The file is closed when all the lines have been read or when the terminal operation returns, even if it stopped
+	 * early, whatever the intermediate operations (see {@link #close()}).<br>
+	 * Not part of the Java Stream API.
+	 * @throws IOException if the file cannot be opened
+	 */
+	public static Stream<String> lines(File file, Charset charset) throws IOException {
+		return of(FileSource.lines(file, charset));
+	}
+
+	/**
+	 * Returns a sequential stream over the lines read from a reader, as returned by {@link BufferedReader#readLine()}.
+	 * The lines are read lazily, and the reader is not closed. An {@link IOException} thrown while reading is rethrown
+	 * wrapped in a {@link RuntimeException}.<br>
+	 * Not part of the Java Stream API.
+	 */
+	public static Stream<String> lines(BufferedReader reader) {
+		return new Stream<String>(Pipeline.<String> of(FileSource.lines(reader, false)), SIZE_UNKNOWN, new Closer());
+	}
+
+	/**
+	 * Returns a sequential stream over the consecutive fixed-length records of a file, the last record being shorter if
+	 * the file size is not a multiple of recordSize. The file is memory-mapped, and each record is a read-only buffer
+	 * sharing the mapped bytes, so no byte is copied. A parallel stream splits the file at record boundaries.<br>
+	 * The file is closed when all the records have been read or when the terminal operation returns. The records are
+	 * still readable after the file has been closed.<br>
+	 * Not part of the Java Stream API.
+	 * @throws IllegalArgumentException if recordSize is not positive
+	 * @throws IOException if the file cannot be opened
+	 */
+	public static Stream<ByteBuffer> records(File file, int recordSize) throws IOException {
+		if (recordSize <= 0) throw new IllegalArgumentException("recordSize must be strictly positive");
+		return of(FileSource.records(file, recordSize));
+	}
+
+	/**
+	 * Returns a sequential stream over the rows of a result set, each row being mapped by the row mapper. The rows are
+	 * read lazily, as the elements are consumed. The result set is closed when all the rows have been read, when the
+	 * terminal operation returns (even if it stopped early) or when the stream is closed. An {@link SQLException} is
+	 * rethrown wrapped in a {@link RuntimeException}.<br>
+	 * A parallel stream reads the rows on the thread executing the terminal operation, and evaluates the next
+	 * operations on the executor.<br>
+	 * Not part of the Java Stream API.
+	 * @see RowMapper#of(Function)
+	 */
+	public static <T> Stream<T> rows(ResultSet rs, RowMapper<? extends T> mapper) {
+		if (rs == null || mapper == null) throw new NullPointerException();
+		return of(ResultSetSource.<T> of(rs, null, mapper));
+	}
+
+	/**
+	 * Executes a query, and returns a sequential stream over its rows, as {@link #rows(ResultSet, RowMapper)}. The
+	 * statement is closed with the result set, or if the query fails.<br>
+	 * Not part of the Java Stream API.
+	 * @param fetchSize the number of rows fetched from the database at once (see
+	 *        {@link java.sql.Statement#setFetchSize(int)}), or 0 for the driver default
+	 * @throws SQLException if the query fails
+	 */
+	public static <T> Stream<T> rows(PreparedStatement statement, int fetchSize, RowMapper<? extends T> mapper)
+			throws SQLException {
+		if (statement == null || mapper == null) throw new NullPointerException();
+		final ResultSet rs;
+		boolean done = false;
+		try {
+			statement.setFetchSize(fetchSize);
+			rs = statement.executeQuery();
+			done = true;
+		} finally {
+			if (!done) statement.close();
+		}
+		return of(ResultSetSource.<T> of(rs, statement, mapper));
+	}
+
+	/**
+	 * Returns a stream over a source holding resources, released when the stream is closed.
+	 */
+	static <T> Stream<T> of(Source<T> source) {
+		final Closer closer = new Closer();
+		closer.add(source);
+		return new Stream<T>(Pipeline.<T> of(source), source.size(), closer);
+	}
+
+	/**
+	 * Returns an equivalent stream that is parallel, evaluated on a shared executor with one daemon thread per
+	 * available processor.<br>
+	 * This is an intermediate operation.
+	 * @see #parallel(ExecutorService)
+	 */
+	public Stream<T> parallel() {
+		return parallel(Pipeline.defaultExecutor());
+	}
+
+	/**
+	 * Returns an equivalent stream that is parallel, evaluated on the given executor. Arrays and random-access lists
+	 * (including the values passed to {@link #of(Object...)}) are split into chunks without being copied; other sources are read in batches by the
+	 * thread executing the terminal operation.<br>
+	 * The calling thread also evaluates chunks, so the executor may be shared with other (possibly nested) parallel
+	 * streams.<br>
+	 * The stateful operations already applied to this stream (for instance {@link #limit(long)}) see all the elements
+	 * in encounter order: they are evaluated sequentially, by the thread reading the batches.<br>
+	 * This is an intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @param executor the executor evaluating the chunks, for instance a fork-join pool
+	 */
+	public Stream<T> parallel(ExecutorService executor) {
+		if (executor == null) throw new NullPointerException();
+		if (pipeline.isStateful()) {
+			// the stateful stages (for instance limit) need all the elements in order: they are evaluated sequentially,
+			// the next stages being parallel
+			final Pipeline<T, T> sequential = Pipeline.<T> of(asSource()).withExecutor(executor);
+			final String metricsName = pipeline.getMetricsName();
+			return new Stream<T>(metricsName == null ? sequential : sequential.instrumented(metricsName), size, closer);
+		}
+		return new Stream<T>(pipeline.withExecutor(executor), size, closer);
+	}
+
+	/**
+	 * Returns an equivalent stream that is sequential.<br>
+	 * This is an intermediate operation.
+	 */
+	public Stream<T> sequential() {
+		return isParallel() ? new Stream<T>(pipeline.withExecutor(null), size, closer) : this;
+	}
+
+	/**
+	 * Returns whether this stream, if a terminal operation were to be executed, would execute in parallel.
+	 */
+	public boolean isParallel() {
+		return pipeline.getExecutor() != null;
+	}
+
+	/**
+	 * Returns an equivalent stream with an additional close handler. The close handlers are run when {@link #close()}
+	 * is called on this stream or on any stream derived from the same source, in the order they were added. Even if a
+	 * close handler throws an exception, the other handlers are run; the first exception is then rethrown.<br>
+	 * This is an intermediate operation.
+	 * @throws IllegalStateException if the stream has already been closed
+	 */
+	public Stream<T> onClose(Runnable closeHandler) {
+		if (closeHandler == null) throw new NullPointerException();
+		closer.add(closeHandler);
+		return this;
+	}
+
+	/**
+	 * Closes this stream: runs the close handlers of all the streams derived from the same source, and releases the
+	 * resources held by the source (for instance the file of {@link #lines(File, Charset)}). Closing a stream twice has
+	 * no effect.<br>
+	 * Terminal operations release the resources of the source and of the intermediate operations (for instance the
+	 * tasks of {@link #mapAsync(Function, int, ExecutorService)} or the current mapped stream of
+	 * {@link #flatMap(Function)}) themselves, even if they stop early, including the terminal operations of the
+	 * primitive streams returned by {@link #mapToInt(ToIntFunction)} and the like. They do not run the close handlers:
+	 * a stream whose source is an iterator over an external resource should be closed in a {@code finally} block.
+	 */
+	@Override
+	public void close() {
+		closer.close();
+	}
+
+	/**
+	 * Returns an equivalent stream whose evaluations are measured and reported to the listeners registered in
+	 * {@link StreamMetrics}, under the given name. For the source, each intermediate operation and the terminal
+	 * operation, the number of input and output elements and the time spent are reported (see
+	 * {@link PipelineMetrics}). The streams derived from the returned stream are instrumented under the same name.<br>
+	 * Measuring costs two calls to {@link System#nanoTime()} per element and per operation. Streams which are not
+	 * instrumented, and instrumented streams evaluated while no listener is registered, are not measured at all.
+	 * Elements consumed through an iterator are not measured.<br>
+	 * This is an intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @param name the name of the stream in the metrics, or null to stop instrumenting
+	 */
+	public Stream<T> instrumented(String name) {
+		return new Stream<T>(pipeline.instrumented(name), size, closer);
+	}
+
+	/**
+	 * Returns the given stream, made parallel on the same executor if this stream is parallel, and instrumented under
+	 * the same name if this stream is instrumented.
+	 */
+	private <R> Stream<R> inheritMode(Stream<R> stream) {
+		final Stream<R> res = isParallel() ? stream.parallel(pipeline.getExecutor()) : stream;
+		final String metricsName = pipeline.getMetricsName();
+		return metricsName == null ? res : res.instrumented(metricsName);
+	}
+
+	/**
+	 * Returns a stream applying a stage whose state depends on all the previous elements. If this stream is parallel,
+	 * the stage is applied sequentially to the elements computed in parallel, the next stages being parallel again.
+	 */
+	private <R> Stream<R> thenStateful(Stage<? super T, ? extends R> stage, long newSize) {
+		if (isParallel()) {
+			return inheritMode(new Stream<R>(Pipeline.<T> of(asSource()).then(stage), newSize, closer));
+		} else {
+			return new Stream<R>(pipeline.then(stage), newSize, closer);
+		}
+	}
+
+	/**
+	 * Returns a source over the elements of this stream, for the operations which read them through an iterator. Each
+	 * evaluation of the returned source evaluates this stream again, sequentially, so that a cached stream (see
+	 * {@link #cache()}) is replayed.
+	 */
+	private Source<T> asSource() {
+		return pipeline.asSource(size);
+	}
+
+	/**
+	 * Returns whether all elements of this stream match the provided predicate.
+	 * May not evaluate the predicate on all elements if not necessary for
+	 * determining the result. If the stream is empty then true is returned and
+	 * the predicate is not evaluated. <br>
+	 * This is a short-circuiting terminal operation.
+	 * @param predicate
+	 *        a non-interfering, stateless predicate to apply to elements of
+	 *        this stream.
+	 * @return true if either all elements of the stream match the provided
+	 *         predicate or the stream is empty, otherwise false.
+	 */
+	public boolean allMatch(Predicate<? super T> predicate) {
+		return !pipeline.evaluate(new FindMatchOp<T>(predicate, false));
+	}
+
+	/**
+	 * Returns whether any elements of this stream match the provided predicate. May not evaluate the predicate on all
+	 * elements if not necessary for determining the result. If the stream is empty then false is returned and the
+	 * predicate is not evaluated.<br>
+	 * This is a short-circuiting terminal operation.
+	 * @param predicate a non-interfering, stateless predicate to apply to elements of this stream
+	 * @return true if any elements of the stream match the provided predicate, otherwise false
+	 */
+	public boolean anyMatch(Predicate<? super T> predicate) {
+		return pipeline.evaluate(new FindMatchOp<T>(predicate, true));
+	}
+
+	/**
+	 * Returns the count of elements in this stream.
+	 */
+	public long count() {
+		if (size != SIZE_UNKNOWN) return size;
+		return pipeline.evaluate(new CountOp<T>());
+	}
+
+	/**
+	 * Returns whether no elements of this stream match the provided predicate. May not evaluate the predicate on all
+	 * elements if not necessary for determining the result. If the stream is empty then true is returned and the
+	 * predicate is not evaluated.<br>
+	 * This is a short-circuiting terminal operation.
+	 * @param predicate a non-interfering, stateless predicate to apply to elements of this stream
+	 * @return true if either no elements of the stream match the provided predicate or the stream is empty, otherwise
+	 *         false
+	 */
+	public boolean noneMatch(Predicate<? super T> predicate) {
+		return !pipeline.evaluate(new FindMatchOp<T>(predicate, true));
+	}
+
+	/**
+	 * Return the first element of this stream, or null if the stream is empty.<br>
+	 * This is a short-circuiting terminal operation.<br>
+	 * Not part of the Java Stream API.
+	 */
+	public T findFirst() {
+		final List<T> res = pipeline.evaluate(new FindFirstOp<T>());
+		return res.isEmpty() ? null : res.get(0);
+	}
+
+	/**
+	 * Return the first element of this stream, or null if the stream is empty.<br>
+	 * This is a short-circuiting terminal operation.<br>
+	 * Not part of the Java Stream API.
+	 */
+	public T findAny() {
+		return findFirst();
+	}
+
+	/**
+	 * Returns a stream consisting of the results of applying the given function to the elements of this stream.
+	 * This is an intermediate operation.
+	 * @param mapper a non-interfering, stateless function to apply to each element
+	 * @return the new stream
+	 */
+	public <R> Stream<R> map(final Function<? super T, ? extends R> mapper) {
+		return new Stream<R>(pipeline.then(new MapStage<T, R>(mapper)), size, closer);
+	}
+
+	/**
+	 * Returns an IntStream consisting of the results of applying the given function to the elements of this stream.
+	 * <br>
+	 * This is an intermediate operation.
+	 * @param mapper a non-interfering, stateless function to apply to each element
+	 * @return the new stream
+	 */
+	public IntStream mapToInt(final ToIntFunction<? super T> mapper) {
+		final Source<T> source = asSource().open();
+		final Iterator<? extends T> iterator = source.iterator();
+		return new IntStream(new IntIterator() {
+
+			@Override
+			boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			int nextInt() {
+				return mapper.applyAsInt(iterator.next());
+			}
+		}, size, source);
+	}
+
+	/**
+	 * Returns a LongStream consisting of the results of applying the given function to the elements of this stream.
+	 * <br>
+	 * This is an intermediate operation.
+	 * @param mapper a non-interfering, stateless function to apply to each element
+	 * @return the new stream
+	 */
+	public LongStream mapToLong(final ToLongFunction<? super T> mapper) {
+		final Source<T> source = asSource().open();
+		final Iterator<? extends T> iterator = source.iterator();
+		return new LongStream(new LongIterator() {
+
+			@Override
+			boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			long nextLong() {
+				return mapper.applyAsLong(iterator.next());
+			}
+		}, size, source);
+	}
+
+	/**
+	 * Returns a DoubleStream consisting of the results of applying the given function to the elements of this
+	 * stream.<br>
+	 * This is an intermediate operation.
+	 * @param mapper a non-interfering, stateless function to apply to each element
+	 * @return the new stream
+	 */
+	public DoubleStream mapToDouble(final ToDoubleFunction<? super T> mapper) {
+		final Source<T> source = asSource().open();
+		final Iterator<? extends T> iterator = source.iterator();
+		return new DoubleStream(new DoubleIterator() {
+
+			@Override
+			boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			double nextDouble() {
+				return mapper.applyAsDouble(iterator.next());
+			}
+		}, size, source);
+	}
+
+	/**
+	 * Not part of the Java Stream API.
+	 */
+	public List<T> toList() {
+		if (pipeline.isSliceable()) return pipeline.toList();
+		return pipeline.evaluate(new ToListOp<T>());
+	}
+
+	/**
+	 * Returns an array containing the elements of this stream.<br>
+	 * If the number of elements is known in advance (for instance after {@code map}, {@code sorted} or {@code limit}
+	 * on a collection), the array is allocated once with the exact size. Otherwise, the array grows as the elements are
+	 * added, but never beyond an upper bound of the number of elements if known (for instance after {@code filter} on a
+	 * collection), and is copied once at the end to the exact size.<br>
+	 * This is a terminal operation.
+	 */
+	public Object[] toArray() {
+		if (pipeline.isSliceable()) return pipeline.toArray();
+		return toArray(new IntFunction<Object[]>() {
+
+			@Override
+			public Object[] apply(int value) {
+				return new Object[value];
+			}
+		});
+	}
+
+	/**
+	 * Returns an array containing the elements of this stream, using the provided generator function to allocate the
+	 * returned array, as well as any additional arrays that might be required for a parallel execution or for
+	 * resizing. See {@link #toArray()} for the allocations.<br>
+	 * This is a terminal operation.
+	 * @param generator a function which produces a new array of the desired type and the provided length
+	 * @throws ArrayStoreException if the runtime type of the array returned by the generator is not a supertype of the
+	 *         runtime type of every element in this stream
+	 */
+	public <A> A[] toArray(IntFunction<A[]> generator) {
+		if (generator == null) throw new NullPointerException();
+		final List<ArrayChunk> chunks = pipeline.evaluate(new ToArrayOp<T>(generator, pipeline.sizeBound()));
+		if (chunks.size() == 1 && chunks.get(0).isFull()) {
+			@SuppressWarnings("unchecked") final A[] res = (A[]) chunks.get(0).array;
+			return res;
+		}
+		long length = 0;
+		for (final ArrayChunk chunk : chunks) {
+			length += chunk.length;
+		}
+		if (length > Integer.MAX_VALUE) throw new IllegalStateException("too many elements for an array: " + length);
+		final A[] res = generator.apply((int) length);
+		int offset = 0;
+		for (final ArrayChunk chunk : chunks) {
+			System.arraycopy(chunk.array, 0, res, offset, chunk.length);
+			offset += chunk.length;
+		}
+		return res;
+	}
+
+	/**
+	 * Returns an array containing the elements of this stream, as {@link Collection#toArray(Object[])}: if the
+	 * elements fit in the given array, they are stored in it, followed by null if there is room; otherwise a new array
+	 * of the same runtime type is allocated.<br>
+	 * This is a terminal operation.<br>
+	 * Not part of the Java Stream API.
+	 * @throws ArrayStoreException if the runtime type of the array is not a supertype of the runtime type of every
+	 *         element in this stream
+	 */
+	public <A> A[] toArray(final A[] a) {
+		final A[] res = toArray(new IntFunction<A[]>() {
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public A[] apply(int value) {
+				return (A[]) Array.newInstance(a.getClass().getComponentType(), value);
+			}
+		});
+		if (res.length > a.length) return res;
+		System.arraycopy(res, 0, a, 0, res.length);
+		if (res.length < a.length) a[res.length] = null;
+		return a;
+	}
+
+	/**
+	 * Not part of the Java Stream API.
+	 */
+	public Set<T> toSet() {
+		return pipeline.evaluate(new ToSetOp<T>());
+	}
+
+	/**
+	 * Returns a sorted set, sorted according to the natural ordering of its elements.
+	 * Not part of the Java Stream API.
+	 * @throws ClassCastException if the type T does not implement {@link Comparable}.
+	 */
+	public SortedSet<T> toSortedSet() {
+		final SortedSet<T> res = new TreeSet<T>();
+		forEachOrdered(new Consumer<T>() {
+
+			@Override
+			public void accept(T t) {
+				res.add(t);
+			}
+		});
+		return res;
+	}
+
+	/**
+	 * Returns a stream consisting of the elements of this stream that match the given predicate.<br>
+	 * This is an intermediate operation.
+	 * @param predicate a non-interfering, stateless predicate to apply to each element to determine if it should be
+	 *        included
+	 * @return the new stream
+	 */
+	public Stream<T> filter(Predicate<? super T> predicate) {
+		return new Stream<T>(pipeline.then(new FilterStage<T>(predicate)), SIZE_UNKNOWN, closer);
+	}
+
+	/**
+	 * Returns a stream consisting of the distinct elements (according to {@link Object#equals(Object)}) of this
+	 * stream, in encounter order: the first occurrence of each element is kept. The elements seen so far are kept in a
+	 * HashSet.<br>
+	 * This is a stateful intermediate operation.
+	 * @see #distinctApprox(long, double)
+	 */
+	public Stream<T> distinct() {
+		return thenStateful(new DistinctStage<T>(null, 0, 0, null), SIZE_UNKNOWN);
+	}
+
+	/**
+	 * Returns a stream consisting of the elements of this stream with distinct keys, in encounter order: the first
+	 * element of each key is kept. The keys seen so far are kept in a HashSet.<br>
+	 * This is a stateful intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 */
+	public Stream<T> distinctBy(Function<? super T, ?> keyExtractor) {
+		if (keyExtractor == null) throw new NullPointerException();
+		return thenStateful(new DistinctStage<T>(keyExtractor, 0, 0, null), SIZE_UNKNOWN);
+	}
+
+	/**
+	 * Returns a stream consisting of the distinct elements of this stream, in encounter order, using a fixed amount of
+	 * memory: the elements seen so far are recorded in a Bloom filter instead of a HashSet, so that streams too large
+	 * for a HashSet can be deduplicated. In exchange, a few elements may be considered as duplicates although they are
+	 * not (false positives), and are wrongly dropped. Duplicates are always dropped.<br>
+	 * The filter uses about {@code -expectedSize * ln(falsePositiveRate) / ln(2)^2} bits, for instance 1.2 MB for one
+	 * million elements with a 1% false positive rate.<br>
+	 * The elements are identified by their 32-bit hash code: two elements with the same hash code are always
+	 * considered as duplicates, so that the false positive rate cannot drop below about {@code expectedSize / 2^32}
+	 * (2.3e-4 for one million elements), whatever falsePositiveRate. For larger streams, or elements with weak hash
+	 * codes, use {@link #distinctApprox(long, double, ToLongFunction)} with a 64-bit hash.<br>
+	 * This is a stateful intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @param expectedSize the expected number of distinct elements. If more elements are seen, the false positive rate
+	 *            increases.
+	 * @param falsePositiveRate the probability that an element is wrongly dropped, once expectedSize distinct elements
+	 *            have been seen
+	 * @throws IllegalArgumentException if expectedSize is not positive, or falsePositiveRate is not between 0 and 1
+	 *             (exclusive)
+	 */
+	public Stream<T> distinctApprox(long expectedSize, double falsePositiveRate) {
+		checkApprox(expectedSize, falsePositiveRate);
+		return thenStateful(new DistinctStage<T>(null, expectedSize, falsePositiveRate, null), SIZE_UNKNOWN);
+	}
+
+	/**
+	 * Returns a stream consisting of the distinct elements of this stream, in encounter order, using a fixed amount of
+	 * memory, as {@link #distinctApprox(long, double)}, the elements being identified by the 64-bit hash returned by
+	 * the given function instead of their hash code.<br>
+	 * This is a stateful intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @param hash the hash of an element. Equal elements must have the same hash.
+	 * @throws IllegalArgumentException if expectedSize is not positive, or falsePositiveRate is not between 0 and 1
+	 *             (exclusive)
+	 */
+	public Stream<T> distinctApprox(long expectedSize, double falsePositiveRate, ToLongFunction<? super T> hash) {
+		if (hash == null) throw new NullPointerException();
+		checkApprox(expectedSize, falsePositiveRate);
+		return thenStateful(new DistinctStage<T>(null, expectedSize, falsePositiveRate, hash), SIZE_UNKNOWN);
+	}
+
+	private static void checkApprox(long expectedSize, double falsePositiveRate) {
+		if (expectedSize <= 0) throw new IllegalArgumentException("expectedSize must be strictly positive");
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+			throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+		}
+	}
+
+	/**
+	 * Returns a stream of lists of consecutive elements of this stream: the elements are grouped in lists of the given
+	 * size, except for the last list which may be smaller. Each list is a new ArrayList allocated with the batch size.
+	 * The elements are read lazily, one batch at a time.<br>
+	 * This is a stateful intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @param size the number of elements per batch
+	 * @throws IllegalArgumentException if size is not positive
+	 * @see #forEachBatch(int, Consumer)
+	 */
+	public Stream<List<T>> batch(int size) {
+		if (size <= 0) throw new IllegalArgumentException("size must be strictly positive");
+		final long newSize = this.size == SIZE_UNKNOWN ? SIZE_UNKNOWN : (this.size + size - 1) / size;
+		return thenStateful(new BatchStage<T>(size, false), newSize);
+	}
+
+	/**
+	 * Returns a stream of the windows of size consecutive elements of this stream, the first window starting at the
+	 * first element and each window starting step elements after the previous one: the windows overlap if step is less
+	 * than size (sliding windows), are adjacent if step equals size (tumbling windows), and skip elements if step is
+	 * greater than size. Only full windows are returned: if the stream ends in the middle of a window, or has less
+	 * than size elements, the incomplete window is dropped.<br>
+	 * Each window is an unmodifiable random-access list. The windows are views of a shared buffer, which is only
+	 * reallocated when full, so that a window is pushed in constant amortized time instead of being copied. The
+	 * elements are read lazily, so that the windows of an unbounded stream (for instance over an iterator reading a
+	 * queue) are pushed as soon as they are full.<br>
+	 * This is a stateful intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @param size the number of elements per window
+	 * @param step the distance between the first elements of two consecutive windows
+	 * @throws IllegalArgumentException if size or step is not positive
+	 * @see #batch(int)
+	 */
+	public Stream<List<T>> window(int size, int step) {
+		if (size <= 0) throw new IllegalArgumentException("size must be strictly positive");
+		if (step <= 0) throw new IllegalArgumentException("step must be strictly positive");
+		final WindowStage<T> stage = new WindowStage<T>(size, step);
+		return thenStateful(stage, stage.sizeBound(this.size));
+	}
+
+	/**
+	 * Returns a stream consisting of the maximum element of each sliding window of size consecutive elements of this
+	 * stream, according to the provided Comparator: the element at index i of the returned stream is the maximum of
+	 * the elements from index i to i + size - 1 (inclusive) of this stream. If there are several maximum elements in a
+	 * window, the last one is returned. If this stream has less than size elements, the returned stream is empty.<br>
+	 * The candidate maximums are kept in a monotonic deque, so that each element costs O(1) amortized comparisons,
+	 * whatever the window size.<br>
+	 * This is a stateful intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @throws IllegalArgumentException if size is not positive
+	 */
+	public Stream<T> slidingMax(int size, Comparator<? super T> comparator) {
+		if (comparator == null) throw new NullPointerException();
+		if (size <= 0) throw new IllegalArgumentException("size must be strictly positive");
+		final SlidingMaxStage<T> stage = new SlidingMaxStage<T>(size, comparator);
+		return thenStateful(stage, stage.sizeBound(this.size));
+	}
+
+	/**
+	 * Returns a stream consisting of the minimum element of each sliding window of size consecutive elements of this
+	 * stream, according to the provided Comparator, as {@link #slidingMax(int, Comparator)}.<br>
+	 * This is a stateful intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @throws IllegalArgumentException if size is not positive
+	 */
+	public Stream<T> slidingMin(int size, Comparator<? super T> comparator) {
+		if (comparator == null) throw new NullPointerException();
+		return slidingMax(size, Collections.reverseOrder(comparator));
+	}
+
+	/**
+	 * Returns a LongStream consisting of the sum of each sliding window of size consecutive elements of this stream,
+	 * mapped with the given function: the element at index i of the returned stream is the sum of the mapped elements
+	 * from index i to i + size - 1 (inclusive) of this stream. If this stream has less than size elements, the
+	 * returned stream is empty.<br>
+	 * The sum is updated incrementally: the mapped values of the current window are kept in a ring buffer, and each
+	 * element costs one addition and one subtraction, whatever the window size.<br>
+	 * This is a stateful intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @throws IllegalArgumentException if size is not positive
+	 */
+	public LongStream slidingSum(final int size, final ToLongFunction<? super T> mapper) {
+		if (mapper == null) throw new NullPointerException();
+		if (size <= 0) throw new IllegalArgumentException("size must be strictly positive");
+		final Source<T> source = asSource().open();
+		final Iterator<? extends T> iterator = source.iterator();
+		return new LongStream(new LongIterator() {
+			private final long[] window = new long[size];
+			private long count = 0;
+			private long sum = 0;
+
+			@Override
+			boolean hasNext() {
+				while (count < size - 1 && iterator.hasNext()) {
+					add();
+				}
+				return iterator.hasNext();
+			}
+
+			@Override
+			long nextLong() {
+				if (!hasNext()) throw new NoSuchElementException();
+				add();
+				return sum;
+			}
+
+			private void add() {
+				final long value = mapper.applyAsLong(iterator.next());
+				final int i = (int) (count % size);
+				sum += value - window[i];
+				window[i] = value;
+				count++;
+			}
+		}, this.size == SIZE_UNKNOWN ? SIZE_UNKNOWN : Math.max(0, this.size - size + 1), source);
+	}
+
+	/**
+	 * Not part of the Java Stream API.
+	 */
+	public <K> Map<K, T> toMap(Function<? super T, ? extends K> toKey) {
+		final Map<K, T> res = new HashMap<K, T>();
+		toMap(toKey, res);
+		return res;
+	}
+
+	/**
+	 * Not part of the Java Stream API.
+	 */
+	public <K> SortedMap<K, T> toSortedMap(Function<? super T, ? extends K> toKey) {
+		final SortedMap<K, T> res = new TreeMap<K, T>();
+		toMap(toKey, res);
+		return res;
+	}
+
+	/**
+	 * Not part of the Java Stream API.
+	 */
+	public <K> void toMap(final Function<? super T, ? extends K> toKey, final Map<K, T> map) {
+		if (isParallel()) {
+			// compute the keys in parallel, but put the entries in encounter order
+			final List<Map.Entry<K, T>> entries = map(new Function<T, Map.Entry<K, T>>() {
+
+				@Override
+				public Map.Entry<K, T> apply(T t) {
+					return new AbstractMap.SimpleImmutableEntry<K, T>(toKey.apply(t), t);
+				}
+			}).toList();
+			for (final Map.Entry<K, T> entry : entries) {
+				map.put(entry.getKey(), entry.getValue());
+			}
+		} else {
+			forEach(new Consumer<T>() {
+
+				@Override
+				public void accept(T t) {
+					map.put(toKey.apply(t), t);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Performs an action for each element of this stream.<br>
+	 * If the stream is parallel, the action may be performed concurrently by several threads, in any order.<br>
+	 * This is a terminal operation.
+	 * @param action a non-interfering action to perform on the elements
+	 */
+	public void forEach(Consumer<? super T> action) {
+		pipeline.evaluate(new ForEachOp<T>(action));
+	}
+
+	/**
+	 * Performs an action for each element of this stream, in the encounter order of the stream.<br>
+	 * If the stream is parallel, the elements are computed in parallel, then the action is performed by the calling
+	 * thread.<br>
+	 * This is a terminal operation.
+	 * @param action a non-interfering action to perform on the elements
+	 */
+	public void forEachOrdered(Consumer<? super T> action) {
+		if (isParallel()) {
+			for (final T t : toList()) {
+				action.accept(t);
+			}
+		} else {
+			forEach(action);
+		}
+	}
+
+	/**
+	 * Performs an action for each batch of consecutive elements of this stream: the elements are grouped in lists of
+	 * the given size, except for the last list which may be smaller.<br>
+	 * If the stream is sequential, the same list is reused for all the batches: it must not be kept or modified by the
+	 * action. If the stream is parallel, the elements are batched in encounter order, then the action may be performed
+	 * concurrently on several batches, each batch being a new list.<br>
+	 * This is a terminal operation.<br>
+	 * Not part of the Java Stream API.
+	 * @param size the number of elements per batch
+	 * @param action an action performed for each batch, for instance a JDBC batch insert
+	 * @throws IllegalArgumentException if size is not positive
+	 */
+	public void forEachBatch(int size, Consumer<? super List<T>> action) {
+		if (size <= 0) throw new IllegalArgumentException("size must be strictly positive");
+		if (isParallel()) {
+			batch(size).forEach(action);
+		} else {
+			pipeline.then(new BatchStage<T>(size, true)).evaluate(new ForEachOp<List<T>>(action));
+		}
+	}
+
+	/**
+	 * Not part of the Java Stream API.
+	 */
+	public void partitionBy(final Predicate<? super T> predicate, final Collection<? super T> matched,
+			final Collection<? super T> notMatched) {
+		if (isParallel()) {
+			final Map<Boolean, List<T>> partitions = groupBy(new Function<T, Boolean>() {
+
+				@Override
+				public Boolean apply(T t) {
+					return predicate.test(t);
+				}
+			});
+			if (partitions.containsKey(true)) matched.addAll(partitions.get(true));
+			if (partitions.containsKey(false)) notMatched.addAll(partitions.get(false));
+		} else {
+			forEach(new Consumer<T>() {
+
+				@Override
+				public void accept(T t) {
+					if (predicate.test(t)) {
+						matched.add(t);
+					} else {
+						notMatched.add(t);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Not part of the Java Stream API.
+	 */
+	public <K> Map<K, List<T>> groupBy(Function<? super T, ? extends K> classifier) {
+		return groupBy(classifier, Collectors.<T> toList());
+	}
+
+	/**
+	 * Groups the elements by key into a HashMap, and reduces the elements of each group with the downstream
+	 * collector. Each group only keeps the accumulator of the downstream collector: for instance,
+	 * {@code groupBy(toCustomer, Collectors.counting())} keeps one counter per customer.<br>
+	 * This is a terminal operation.<br>
+	 * Not part of the Java Stream API.
+	 * @see #groupBy(Function, Supplier, Collector)
+	 */
+	public <K, A, D> Map<K, D> groupBy(Function<? super T, ? extends K> classifier,
+			Collector<? super T, A, D> downstream) {
+		return groupBy(classifier, new Supplier<Map<K, D>>() {
+
+			@Override
+			public Map<K, D> get() {
+				return new HashMap<K, D>();
+			}
+		}, downstream);
+	}
+
+	/**
+	 * Groups the elements by key into a map created by mapFactory, and reduces the elements of each group with the
+	 * downstream collector. The factory chooses the type of the map (for instance a TreeMap, to sort the keys) and its
+	 * initial capacity. If the stream is parallel, the factory is called once per chunk.<br>
+	 * This is a terminal operation.<br>
+	 * Not part of the Java Stream API.
+	 * @param mapFactory returns a new empty map. The values of the map must be replaceable through
+	 *            {@link java.util.Map.Entry#setValue(Object)}.
+	 */
+	public <K, A, D, M extends Map<K, D>> M groupBy(Function<? super T, ? extends K> classifier,
+			Supplier<M> mapFactory, Collector<? super T, A, D> downstream) {
+		return collect(Collectors.groupingBy(classifier, mapFactory, downstream));
+	}
+
+	/**
+	 * Groups the elements by key into a new ConcurrentHashMap, as by
+	 * {@link #groupByConcurrent(Function, ConcurrentMap)}.<br>
+	 * This is a terminal operation.<br>
+	 * Not part of the Java Stream API.
+	 */
+	public <K> ConcurrentMap<K, List<T>> groupByConcurrent(Function<? super T, ? extends K> classifier) {
+		final ConcurrentMap<K, List<T>> res = new ConcurrentHashMap<K, List<T>>();
+		groupByConcurrent(classifier, res);
+		return res;
+	}
+
+	/**
+	 * Groups the elements by key into a concurrent map, which may be shared with other streams evaluated at the same
+	 * time by other threads. Each chunk of the stream is grouped into a HashMap local to the thread evaluating it,
+	 * which is then merged into the map, so that the threads only contend once per chunk and key, rather than once per
+	 * element. The lists added to the map are synchronized; the lists already in the map must be thread-safe.<br>
+	 * The elements of each group are in encounter order within a chunk, but the chunks are merged in any order.<br>
+	 * This is a terminal operation.<br>
+	 * Not part of the Java Stream API.
+	 * @param classifier returns the key of an element, which must not be null
+	 */
+	public <K> void groupByConcurrent(Function<? super T, ? extends K> classifier, ConcurrentMap<K, List<T>> map) {
+		if (classifier == null || map == null) throw new NullPointerException();
+		pipeline.evaluate(new GroupByConcurrentOp<T, K>(classifier, map));
+	}
+
+	/**
+	 * Puts the elements into a new ConcurrentHashMap, as by
+	 * {@link #toConcurrentMap(Function, BinaryOperator, ConcurrentMap)}.<br>
+	 * This is a terminal operation.<br>
+	 * Not part of the Java Stream API.
+	 */
+	public <K> ConcurrentMap<K, T> toConcurrentMap(Function<? super T, ? extends K> toKey, BinaryOperator<T> merge) {
+		final ConcurrentMap<K, T> res = new ConcurrentHashMap<K, T>();
+		toConcurrentMap(toKey, merge, res);
+		return res;
+	}
+
+	/**
+	 * Puts the elements by key into a concurrent map, which may be shared with other streams evaluated at the same
+	 * time by other threads. The elements with the same key are merged with the merge function. Each chunk of the
+	 * stream is merged into a HashMap local to the thread evaluating it, which is then merged into the map with
+	 * atomic compare-and-set operations, without locking.<br>
+	 * The merge function may be called in any order, and more than once for the same elements if several threads
+	 * update the same key at the same time: it must be associative and commutative, and have no side effects.<br>
+	 * This is a terminal operation.<br>
+	 * Not part of the Java Stream API.
+	 * @param toKey returns the key of an element, which must not be null
+	 * @param merge merges the element already in the map (first argument) with a new element of the same key
+	 */
+	public <K> void toConcurrentMap(Function<? super T, ? extends K> toKey, BinaryOperator<T> merge,
+			ConcurrentMap<K, T> map) {
+		if (toKey == null || merge == null || map == null) throw new NullPointerException();
+		pipeline.evaluate(new ToConcurrentMapOp<T, K>(toKey, merge, map));
+	}
+
+	/**
+	 * Adds the elements matching the predicate to matched, and the other elements to notMatched. The collections may
+	 * be shared with other streams evaluated at the same time by other threads, and must therefore be thread-safe (for
+	 * instance a ConcurrentLinkedQueue or a synchronized list). Each chunk of the stream is partitioned into lists
+	 * local to the thread evaluating it, which are then added to the collections, once per chunk.<br>
+	 * The elements are in encounter order within a chunk, but the chunks are added in any order.<br>
+	 * This is a terminal operation.<br>
+	 * Not part of the Java Stream API.
+	 */
+	public void partitionByConcurrent(Predicate<? super T> predicate, Collection<? super T> matched,
+			Collection<? super T> notMatched) {
+		if (predicate == null || matched == null || notMatched == null) throw new NullPointerException();
+		pipeline.evaluate(new PartitionByConcurrentOp<T>(predicate, matched, notMatched));
+	}
+
+	/**
+	 * Performs a mutable reduction operation on the elements of this stream using a Collector: the elements are
+	 * folded into an accumulator, then the accumulator is transformed into the result. If the stream is parallel,
+	 * each chunk is folded into its own accumulator, and the accumulators are combined in encounter order.<br>
+	 * See {@link Collectors} for common collectors.<br>
+	 * This is a terminal operation.
+	 */
+	public <A, R> R collect(Collector<? super T, A, R> collector) {
+		return collector.finish(pipeline.evaluate(new CollectOp<T, A>(collector)));
+	}
+
+	/**
+	 * Performs a reduction on the elements of this stream, using the provided identity value and an associative
+	 * accumulation function, and returns the reduced value.<br>
+	 * This is a terminal operation.
+	 * @param identity the identity value for the accumulating function
+	 * @param accumulator an associative, non-interfering, stateless function for combining two values
+	 */
+	public T reduce(T identity, BinaryOperator<T> accumulator) {
+		return reduce(identity, accumulator, accumulator);
+	}
+
+	/**
+	 * Performs a reduction on the elements of this stream, using an associative accumulation function, and returns the
+	 * reduced value, or null if the stream is empty.<br>
+	 * This is a terminal operation.<br>
+	 * The method from the Java Stream API has a different signature:
+	 * {@code Optional<T> reduce(BinaryOperator<T> accumulator)}
+	 * @param accumulator an associative, non-interfering, stateless function for combining two values
+	 */
+	public T reduce(BinaryOperator<T> accumulator) {
+		return collect(Collectors.reducing(accumulator));
+	}
+
+	/**
+	 * Performs a reduction on the elements of this stream, using the provided identity, accumulation and combining
+	 * functions. If the stream is parallel, each chunk is reduced from the identity value, and the results of the
+	 * chunks are combined with the combiner, in encounter order.<br>
+	 * This is a terminal operation.
+	 * @param identity the identity value for the combiner function
+	 * @param accumulator an associative, non-interfering, stateless function for incorporating an additional element
+	 *            into a result
+	 * @param combiner an associative, non-interfering, stateless function for combining two values
+	 */
+	public <U> U reduce(U identity, BiFunction<U, ? super T, U> accumulator, BinaryOperator<U> combiner) {
+		if (combiner == null) throw new NullPointerException();
+		return pipeline.evaluate(new FoldOp<T, U>(identity, accumulator, combiner));
+	}
+
+	/**
+	 * Folds the elements of this stream from left to right, in encounter order: the accumulator is applied to the
+	 * identity value and the first element, then to the result and the second element, and so on. The accumulator does
+	 * not need to be associative.<br>
+	 * If the stream is parallel, the elements are computed in parallel, then folded by the calling thread.<br>
+	 * This is a terminal operation.<br>
+	 * Not part of the Java Stream API.
+	 */
+	public <U> U fold(U identity, BiFunction<U, ? super T, U> accumulator) {
+		if (isParallel()) return Stream.of(toList()).fold(identity, accumulator);
+		return pipeline.evaluate(new FoldOp<T, U>(identity, accumulator, null));
+	}
+
+	/**
+	 * Reduces the long values obtained by applying the mapper to the elements, using the provided identity value and
+	 * an associative accumulation function. The values are never boxed, so that for instance summing a field of
+	 * the elements does not allocate.<br>
+	 * This is a terminal operation.<br>
+	 * Not part of the Java Stream API: equivalent to {@code mapToLong(mapper).reduce(identity, op)}.
+	 */
+	public long reduceToLong(long identity, ToLongFunction<? super T> mapper, LongBinaryOperator op) {
+		return pipeline.evaluate(new ReduceToLongOp<T>(identity, mapper, op));
+	}
+
+	/**
+	 * Reduces the double values obtained by applying the mapper to the elements, using the provided identity value and
+	 * an associative accumulation function. The values are never boxed.<br>
+	 * This is a terminal operation.<br>
+	 * Not part of the Java Stream API: equivalent to {@code mapToDouble(mapper).reduce(identity, op)}.
+	 */
+	public double reduceToDouble(double identity, ToDoubleFunction<? super T> mapper, DoubleBinaryOperator op) {
+		return pipeline.evaluate(new ReduceToDoubleOp<T>(identity, mapper, op));
+	}
+
+	/**
+	 * Returns the maximum element of this stream according to the provided Comparator. This is a special case of a
+	 * reduction.<br>
+	 * This is a terminal operation.<br>
+	 * The method from the Java Stream API has a different signature:
+	 * {@code Optional<T> max(Comparator<? super T> comparator)}
+	 */
+	public T max(Comparator<? super T> comparator) {
+		return pipeline.evaluate(new BestOp<T>(comparator, 1));
+	}
+
+	/**
+	 * Returns the maximum element of this stream according to the natural ordering of its elements. This is a special
+	 * case of a reduction.<br>
+	 * This is a terminal operation.<br>
+	 * The method from the Java Stream API has a different signature:
+	 * {@code Optional<T> max(Comparator<? super T> comparator)}
+	 * @throws ClassCastException if the type T does not implement {@link Comparable}.
+	 */
+	public T max() {
+		return max(createComparator());
+	}
+
+	/**
+	 * Returns the minimum element of this stream according to the provided Comparator. This is a special case of a
+	 * reduction.<br>
+	 * This is a terminal operation.<br>
+	 * The method from the Java Stream API has a different signature:
+	 * {@code Optional<T> max(Comparator<? super T> comparator)}
+	 */
+	public T min(Comparator<? super T> comparator) {
+		return pipeline.evaluate(new BestOp<T>(comparator, -1));
+	}
+
+	/**
+	 * Returns the minimum element of this stream according to the natural ordering of its elements. This is a special
+	 * case of a reduction.<br>
+	 * This is a terminal operation.<br>
+	 * The method from the Java Stream API has a different signature:
+	 * {@code Optional<T> max(Comparator<? super T> comparator)}
+	 * @throws ClassCastException if the type T does not implement {@link Comparable}.
+	 */
+	public T min() {
+		return min(createComparator());
+	}
+
+	/**
+	 * Returns a stream consisting of the results of replacing each element of this stream with the contents of a
+	 * mapped stream produced by applying the provided mapping function to each element. Each mapped stream is closed
+	 * after its contents have been placed into this stream. (If a mapped stream is null an empty stream is used,
+	 * instead.)<br>
+	 * The mapping function is applied lazily: an element is mapped only when the elements of the previous mapped
+	 * stream have been consumed, so short-circuiting operations do not map the remaining elements.<br>
+	 * This is an intermediate operation.
+	 * @param mapper a non-interfering, stateless function to apply to each element which produces a stream of new
+	 *        values
+	 * @return the new stream
+	 */
+	public <R> Stream<R> flatMap(final Function<? super T, ? extends Stream<? extends R>> mapper) {
+		if (isParallel()) {
+			return new Stream<R>(pipeline.then(new FlatMapStage<T, R>(mapper)), SIZE_UNKNOWN, closer);
+		}
+		final Source<R> source = new Source.Derived<T, R>(asSource(), SIZE_UNKNOWN) {
+
+			@Override
+			Source<R> derive(Source<? extends T> opened) {
+				return new FlatMapSource<R>(new FlatMapIterator<T, R>(opened.iterator(), mapper), opened);
+			}
+		};
+		return inheritMode(new Stream<R>(Pipeline.<R> of(source), SIZE_UNKNOWN, closer));
+	}
+
+	/**
+	 * Returns a stream consisting of the results of applying the given function to the elements of this stream, the
+	 * function being applied asynchronously by the executor, in encounter order. At most concurrency elements are
+	 * mapped at the same time: the next elements are read from this stream as the results are consumed. The results
+	 * are returned in encounter order.<br>
+	 * This is meant for I/O-bound functions, whose latency is then overlapped. If the function throws an exception,
+	 * it is rethrown by the terminal operation. Once the terminal operation returns, even if it stopped early (for
+	 * instance {@code findFirst}), the remaining tasks are cancelled.<br>
+	 * This is an intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @param concurrency the maximum number of elements being mapped at the same time
+	 * @param executor the executor applying the function
+	 * @throws IllegalArgumentException if concurrency is not positive
+	 * @see #mapAsyncUnordered(Function, int, ExecutorService)
+	 */
+	public <R> Stream<R> mapAsync(Function<? super T, ? extends R> mapper, int concurrency, ExecutorService executor) {
+		return mapAsync(mapper, concurrency, executor, true);
+	}
+
+	/**
+	 * Same as {@link #mapAsync(Function, int, ExecutorService)}, except that the results are returned as soon as they
+	 * are computed, in any order, so that a slow element does not delay the next ones.<br>
+	 * This is an intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @throws IllegalArgumentException if concurrency is not positive
+	 */
+	public <R> Stream<R> mapAsyncUnordered(Function<? super T, ? extends R> mapper, int concurrency,
+			ExecutorService executor) {
+		return mapAsync(mapper, concurrency, executor, false);
+	}
+
+	private <R> Stream<R> mapAsync(final Function<? super T, ? extends R> mapper, final int concurrency,
+			final ExecutorService executor, final boolean ordered) {
+		if (mapper == null || executor == null) throw new NullPointerException();
+		if (concurrency <= 0) throw new IllegalArgumentException("concurrency must be strictly positive");
+		final Source<R> source = new Source.Derived<T, R>(asSource(), size) {
+
+			@Override
+			Source<R> derive(Source<? extends T> opened) {
+				return AsyncSource.map(opened, size, mapper, concurrency, executor, ordered);
+			}
+		};
+		return inheritMode(new Stream<R>(Pipeline.<R> of(source), size, closer));
+	}
+
+	/**
+	 * Returns a stream consisting of the elements of this stream, read in advance by a background thread: up to
+	 * bufferSize elements are computed while the consumer processes the previous ones. The background thread blocks
+	 * when the buffer is full. Exceptions thrown while reading the elements are rethrown by the terminal operation.
+	 * Once the terminal operation returns, even if it stopped early, the background thread stops.<br>
+	 * This is an intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @param bufferSize the maximum number of elements read in advance
+	 * @throws IllegalArgumentException if bufferSize is not positive
+	 */
+	public Stream<T> prefetch(final int bufferSize) {
+		if (bufferSize <= 0) throw new IllegalArgumentException("bufferSize must be strictly positive");
+		final Source<T> source = new Source.Derived<T, T>(asSource(), size) {
+
+			@Override
+			Source<T> derive(Source<? extends T> opened) {
+				return AsyncSource.prefetch(opened, size, bufferSize);
+			}
+		};
+		return inheritMode(new Stream<T>(Pipeline.<T> of(source), size, closer));
+	}
+
+	/**
+	 * Returns a stream consisting of the elements of this stream, computed only once: the elements are cached as they
+	 * are first read, and each terminal operation executed on the returned stream (or on the streams derived from it)
+	 * reads the cached elements before computing new ones. Unlike the other streams, the returned stream can therefore
+	 * be consumed several times, including concurrently. A terminal operation which stops early only computes the
+	 * elements it reads.<br>
+	 * This is an intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @see #cache(long)
+	 */
+	public Stream<T> cache() {
+		return cached(Long.MAX_VALUE, null);
+	}
+
+	/**
+	 * Returns a stream consisting of the elements of this stream, cached as by {@link #cache()}, as long as there are
+	 * at most maxElements elements. If there are more elements, the cache is dropped: the terminal operation which
+	 * reads the element exceeding the capacity computes the remaining elements, and the other terminal operations
+	 * compute the elements again from the source of this stream, which is only possible if it is an array or a
+	 * random-access list; otherwise they throw an IllegalStateException.<br>
+	 * This is an intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @throws IllegalArgumentException if maxElements is not positive
+	 */
+	public Stream<T> cache(long maxElements) {
+		if (maxElements <= 0) throw new IllegalArgumentException("maxElements must be strictly positive");
+		return cached(maxElements, null);
+	}
+
+	/**
+	 * Same as {@link #cache(long)}, except that the capacity is the total weight of the cached elements, for instance
+	 * their estimated size in bytes, rather than their number.<br>
+	 * This is an intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @param maxWeight the maximum total weight of the cached elements
+	 * @param weigher the weight of an element, which should be positive
+	 * @throws IllegalArgumentException if maxWeight is not positive
+	 */
+	public Stream<T> cache(long maxWeight, ToLongFunction<? super T> weigher) {
+		if (weigher == null) throw new NullPointerException();
+		if (maxWeight <= 0) throw new IllegalArgumentException("maxWeight must be strictly positive");
+		return cached(maxWeight, weigher);
+	}
+
+	private Stream<T> cached(long capacity, ToLongFunction<? super T> weigher) {
+		final Source<T> source = new CachedSource<T>(pipeline.withExecutor(null), capacity, weigher);
+		return inheritMode(new Stream<T>(Pipeline.<T> of(source), size, closer));
+	}
+
+	/**
+	 * Returns a stream consisting of the elements of this stream, truncated to be no longer than maxSize in length.<br>
+	 * This is a short-circuiting stateful intermediate operation.
+	 * @param maxSize the number of elements the stream should be limited to
+	 * @return the new stream
+	 */
+	public Stream<T> limit(long maxSize) {
+		if (maxSize < 0) throw new IllegalArgumentException("maxSize must be positive");
+		if (size != SIZE_UNKNOWN && size <= maxSize) {
+			return this;
+		}
+		final long newSize = size == SIZE_UNKNOWN ? SIZE_UNKNOWN : maxSize;
+		if (!pipeline.hasStages() && pipeline.getSource() instanceof SortedSource) {
+			// sorted(comparator).limit(maxSize): only keep maxSize elements while sorting
+			@SuppressWarnings("unchecked") final SortedSource<T> sorted = (SortedSource<T>) pipeline.getSource();
+			return inheritMode(new Stream<T>(Pipeline.<T> of(sorted.limit(maxSize)), newSize, closer));
+		} else if (pipeline.isSliceable()) {
+			return new Stream<T>(pipeline.slice(0, maxSize), newSize, closer);
+		} else {
+			return thenStateful(new LimitStage<T>(maxSize), newSize);
+		}
+	}
+
+	/**
+	 * Returns a stream consisting of the remaining elements of this stream after discarding the first n elements of
+	 * the stream. If this stream contains fewer than n elements then an empty stream will be returned.<br>
+	 * The elements are discarded lazily, when the terminal operation is executed. If the stream directly wraps an
+	 * array or a random-access list, it is sliced instead.<br>
+	 * This is a stateful intermediate operation.
+	 * @param n the number of leading elements to skip
+	 * @return the new stream
+	 * @throws IllegalArgumentException if n is negative
+	 */
+	public Stream<T> skip(long n) {
+		if (n < 0) throw new IllegalArgumentException("n must be positive");
+		if (n == 0) return this;
+		final long newSize = size == SIZE_UNKNOWN ? SIZE_UNKNOWN : Math.max(0, size - n);
+		if (pipeline.isSliceable()) {
+			return new Stream<T>(pipeline.slice(n, Long.MAX_VALUE), newSize, closer);
+		} else {
+			return thenStateful(new SkipStage<T>(n), newSize);
+		}
+	}
+
+	/**
+	 * Returns a stream consisting of the longest prefix of elements of this stream that match the given predicate.
+	 * The source stops being read as soon as an element does not match: the elements after it are neither read nor
+	 * computed, even through the intermediate operations preceding or following takeWhile (for instance
+	 * {@code map(parse).takeWhile(beforeDeadline).filter(isError)}), so that only the beginning of a large sorted
+	 * input is read.<br>
+	 * This is a short-circuiting stateful intermediate operation.
+	 * @param predicate a non-interfering, stateless predicate to apply to the elements to determine the longest prefix
+	 */
+	public Stream<T> takeWhile(Predicate<? super T> predicate) {
+		if (predicate == null) throw new NullPointerException();
+		return thenStateful(new TakeWhileStage<T>(predicate), SIZE_UNKNOWN);
+	}
+
+	/**
+	 * Returns a stream consisting of the remaining elements of this stream after dropping the longest prefix of
+	 * elements that match the given predicate. Once an element does not match, the predicate is not evaluated on the
+	 * next elements.<br>
+	 * This is a stateful intermediate operation.
+	 * @param predicate a non-interfering, stateless predicate to apply to the elements to determine the longest prefix
+	 */
+	public Stream<T> dropWhile(Predicate<? super T> predicate) {
+		if (predicate == null) throw new NullPointerException();
+		return thenStateful(new DropWhileStage<T>(predicate), SIZE_UNKNOWN);
+	}
+
+	/**
+	 * Returns a stream consisting of the elements of this stream, sorted according to the provided Comparator.<br>
+	 * For ordered streams, the sort is stable. For unordered streams, no stability guarantees are made.<br>
+	 * The elements are sorted when the terminal operation is executed. If the sorted stream is directly followed by
+	 * {@code limit(k)}, only the k first elements are kept while sorting, in O(n log k) time and O(k) memory.<br>
+	 * This is a stateful intermediate operation.<br>
+	 * @param comparator a non-interfering, stateless Comparator to be used to compare stream elements
+	 * @return the new stream
+	 */
+	public Stream<T> sorted(Comparator<? super T> comparator) {
+		if (comparator == null) return sorted();
+		final Source<T> source = new SortedSource<T>(this, comparator, Long.MAX_VALUE);
+		return inheritMode(new Stream<T>(Pipeline.<T> of(source), size, closer));
+	}
+
+	/**
+	 * Returns a stream consisting of the elements of this stream, sorted according to the provided Comparator with an
+	 * external merge sort, so that the elements do not need to fit in memory: the elements are read into runs which fit
+	 * in the memory budget of the options, each run is sorted and written to a temporary file, and the runs are merged
+	 * lazily as the sorted elements are consumed. If all the elements fit in the memory budget, no file is written.<br>
+	 * The sort is stable. The temporary files are deleted when all the elements have been consumed, when the terminal
+	 * operation returns, or when the stream is closed.<br>
+	 * This is a stateful intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @param comparator a non-interfering, stateless Comparator to be used to compare stream elements, or null to use
+	 *        the natural order
+	 * @param options the memory budget, the serializer and the directory of the temporary files
+	 */
+	public Stream<T> sorted(final Comparator<? super T> comparator, final SortOptions<T> options) {
+		if (options == null) throw new NullPointerException();
+		if (comparator == null) return sorted(createComparator(), options);
+		final Source<T> source = new Source.Derived<T, T>(asSource(), size) {
+
+			@Override
+			Source<T> derive(Source<? extends T> opened) {
+				return new ExternalSortSource<T>(opened, comparator, options);
+			}
+		};
+		return inheritMode(new Stream<T>(Pipeline.<T> of(source), size, closer));
+	}
+
+	/**
+	 * Returns a stream consisting of the elements of this stream, sorted according to natural order. If the elements
+	 * of this stream are not Comparable, a java.lang.ClassCastException may be thrown when the terminal operation is
+	 * executed.<br>
+	 * For ordered streams, the sort is stable. For unordered streams, no stability guarantees are made.
+	 * This is a stateful intermediate operation.<br>
+	 * @return the new stream
+	 */
+	public Stream<T> sorted() {
+		return sorted(createComparator());
+	}
+
+	/**
+	 * Returns a stream consisting of the k greatest elements of this stream according to the provided Comparator, in
+	 * descending order. Equal elements are kept in encounter order.<br>
+	 * Equivalent to {@code sorted(Collections.reverseOrder(comparator)).limit(k)}.<br>
+	 * This is a stateful intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @throws IllegalArgumentException if k is negative
+	 */
+	public Stream<T> topK(int k, Comparator<? super T> comparator) {
+		return bottomK(k, Collections.reverseOrder(comparator));
+	}
+
+	/**
+	 * Returns a stream consisting of the k greatest elements of this stream according to their natural ordering, in
+	 * descending order.<br>
+	 * This is a stateful intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @throws IllegalArgumentException if k is negative
+	 * @see #topK(int, Comparator)
+	 */
+	public Stream<T> topK(int k) {
+		return topK(k, createComparator());
+	}
+
+	/**
+	 * Returns a stream consisting of the k least elements of this stream according to the provided Comparator, in
+	 * ascending order. Equal elements are kept in encounter order.<br>
+	 * Equivalent to {@code sorted(comparator).limit(k)}.<br>
+	 * This is a stateful intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @throws IllegalArgumentException if k is negative
+	 */
+	public Stream<T> bottomK(int k, Comparator<? super T> comparator) {
+		if (k < 0) throw new IllegalArgumentException("k must be positive");
+		return sorted(comparator).limit(k);
+	}
+
+	/**
+	 * Returns a stream consisting of the k least elements of this stream according to their natural ordering, in
+	 * ascending order.<br>
+	 * This is a stateful intermediate operation.<br>
+	 * Not part of the Java Stream API.
+	 * @throws IllegalArgumentException if k is negative
+	 * @see #bottomK(int, Comparator)
+	 */
+	public Stream<T> bottomK(int k) {
+		return bottomK(k, createComparator());
+	}
+
+	/**
+	 * Returns the elements of this stream sorted according to the comparator, truncated to at most limit elements.
+	 */
+	private T[] sortedArray(Comparator<? super T> comparator, long limit) {
+		if (limit < Integer.MAX_VALUE && (size == SIZE_UNKNOWN || size > limit)) {
+			@SuppressWarnings("unchecked") final T[] res = (T[]) pipeline.evaluate(new TopOp<T>(comparator, (int) limit))
+					.toArray();
+			return res;
+		}
+		// sort a copy of the source array if possible, without going through a list
+		@SuppressWarnings("unchecked") final T[] res = (T[]) (pipeline.isSliceable() ? pipeline.toArray() : toList()
+				.toArray());
+		Arrays.sort(res, comparator);
+		return limit < res.length ? Arrays.copyOf(res, (int) limit) : res;
+	}
+
+	/**
+	 * Returns a comparator for elements of type T.
+	 * @throws ClassCastException if T does not implement {@link Comparable}.
+	 */
+	private Comparator<T> createComparator() {
+		return new Comparator<T>() {
+
+			@Override
+			public int compare(T o1, T o2) {
+				@SuppressWarnings("unchecked") final Comparable<T> c1 = (Comparable<T>) o1;
+				return c1.compareTo(o2);
+			}
+		};
+	}
+
+	/**
+	 * The close handlers of a stream and of the streams derived from it.
+	 */
+	private static class Closer {
+		private final List<Runnable> handlers = new ArrayList<Runnable>();
+		private boolean closed = false;
+
+		synchronized void add(Runnable handler) {
+			if (closed) throw new IllegalStateException("stream closed");
+			handlers.add(handler);
+		}
+
+		/**
+		 * Adds a handler closing the source.
+		 */
+		void add(final Source<?> source) {
+			add(new Runnable() {
+
+				@Override
+				public void run() {
+					source.close();
+				}
+			});
+		}
+
+		void close() {
+			final List<Runnable> toRun;
+			synchronized (this) {
+				if (closed) return;
+				closed = true;
+				toRun = new ArrayList<Runnable>(handlers);
+				handlers.clear();
+			}
+			RuntimeException failure = null;
+			for (final Runnable handler : toRun) {
+				try {
+					handler.run();
+				} catch (final RuntimeException e) {
+					if (failure == null) failure = e;
+				}
+			}
+			if (failure != null) throw failure;
+		}
+	}
+
+	/**
+	 * A source over the elements of the mapped streams, which closes the current mapped stream, then the source of the
+	 * mapped elements.
+	 */
+	private static class FlatMapSource<R> extends Source.IteratorSource<R> {
+		private final FlatMapIterator<?, R> iterator;
+
+		public FlatMapSource(FlatMapIterator<?, R> iterator, Source<?> upstream) {
+			super(iterator, SIZE_UNKNOWN, upstream);
+			this.iterator = iterator;
+		}
+
+		@Override
+		void close() {
+			try {
+				iterator.run();
+			} finally {
+				super.close();
+			}
+		}
+	}
+
+	/**
+	 * Iterates over the elements of the mapped streams, each mapped stream being closed once read. Running it closes
+	 * the current mapped stream.
+	 */
+	private static class FlatMapIterator<T, R> implements Iterator<R>, Runnable {
+		private final Iterator<? extends T> wrapped;
+		private final Function<? super T, ? extends Stream<? extends R>> mapper;
+		/**
+		 * The current mapped stream, or null.
+		 */
+		private Stream<? extends R> mapped = null;
+		/**
+		 * The opened source of the current mapped stream, or null.
+		 */
+		private Source<? extends R> mappedSource = null;
+		/**
+		 * Iterator of the current mapped stream.
+		 */
+		private Iterator<? extends R> current = Collections.<R> emptyList().iterator();
+
+		public FlatMapIterator(Iterator<? extends T> wrapped, Function<? super T, ? extends Stream<? extends R>> mapper) {
+			assert wrapped != null;
+			assert mapper != null;
+
+			this.wrapped = wrapped;
+			this.mapper = mapper;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!current.hasNext()) {
+				run();
+				if (!wrapped.hasNext()) return false;
+				mapped = mapper.apply(wrapped.next());
+				if (mapped != null) {
+					mappedSource = mapped.asSource().open();
+					current = mappedSource.iterator();
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public void run() {
+			final Stream<? extends R> toClose = mapped;
+			final Source<? extends R> sourceToClose = mappedSource;
+			mapped = null;
+			mappedSource = null;
+			current = Collections.<R> emptyList().iterator();
+			try {
+				if (sourceToClose != null) sourceToClose.close();
+			} finally {
+				if (toClose != null) toClose.close();
+			}
+		}
+
+		@Override
+		public R next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			return current.next();
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * The elements of a stream, sorted when they are first needed.
+	 */
+	private static class SortedSource<T> extends Source<T> {
+		private final Stream<T> upstream;
+		private final Comparator<? super T> comparator;
+		/**
+		 * Maximum number of sorted elements.
+		 */
+		private final long limit;
+		private Source<T> sorted = null;
+
+		public SortedSource(Stream<T> upstream, Comparator<? super T> comparator, long limit) {
+			assert upstream != null;
+			assert comparator != null;
+
+			this.upstream = upstream;
+			this.comparator = comparator;
+			this.limit = limit;
+		}
+
+		/**
+		 * Returns the same source, truncated to at most maxSize elements.
+		 */
+		SortedSource<T> limit(long maxSize) {
+			return new SortedSource<T>(upstream, comparator, Math.min(limit, maxSize));
+		}
+
+		private Source<T> sorted() {
+			if (sorted == null) sorted = Source.of(upstream.sortedArray(comparator, limit));
+			return sorted;
+		}
+
+		@Override
+		long size() {
+			return sorted().size();
+		}
+
+		@Override
+		Iterator<? extends T> iterator() {
+			return sorted().iterator();
+		}
+
+		@Override
+		void pushInto(Sink<? super T> sink, boolean shortCircuit) {
+			sorted().pushInto(sink, shortCircuit);
+		}
+
+		@Override
+		Source<T> trySplit() {
+			return sorted().trySplit();
+		}
+	}
+
+	private static class FilterStage<T> extends Stage<T, T> {
+		private final Predicate<? super T> predicate;
+
+		public FilterStage(Predicate<? super T> predicate) {
+			assert predicate != null;
+			this.predicate = predicate;
+		}
+
+		@Override
+		Sink<T> wrap(Sink<? super T> downstream) {
+			return new Sink.Chained<T, T>(downstream) {
+
+				@Override
+				void begin(long size) {
+					downstream.begin(SIZE_UNKNOWN);
+				}
+
+				@Override
+				void accept(T t) {
+					if (predicate.test(t)) downstream.accept(t);
+				}
+			};
+		}
+	}
+
+	/**
+	 * Drops the elements whose key has already been seen. The keys are kept in a HashSet, or in a Bloom filter if the
+	 * expected size is positive.
+	 */
+	private static class DistinctStage<T> extends Stage<T, T> {
+		/**
+		 * Function returning the key of an element, or null if the key is the element itself.
+		 */
+		private final Function<? super T, ?> keyExtractor;
+		private final long expectedSize;
+		private final double falsePositiveRate;
+		/**
+		 * Function returning the 64-bit hash of an element in the Bloom filter, or null to use its hash code.
+		 */
+		private final ToLongFunction<? super T> hash;
+
+		public DistinctStage(Function<? super T, ?> keyExtractor, long expectedSize, double falsePositiveRate,
+				ToLongFunction<? super T> hash) {
+			this.keyExtractor = keyExtractor;
+			this.expectedSize = expectedSize;
+			this.falsePositiveRate = falsePositiveRate;
+			this.hash = hash;
+		}
+
+		@Override
+		boolean isStateful() {
+			return true;
+		}
+
+		@Override
+		Sink<T> wrap(Sink<? super T> downstream) {
+			return new Sink.Chained<T, T>(downstream) {
+				private Set<Object> seen;
+				private BloomFilter filter;
+
+				@Override
+				void begin(long size) {
+					if (expectedSize > 0) {
+						filter = new BloomFilter(expectedSize, falsePositiveRate);
+					} else {
+						seen = new HashSet<Object>(size != SIZE_UNKNOWN ? (int) Math.min(size, 1 << 16) : 16);
+					}
+					downstream.begin(SIZE_UNKNOWN);
+				}
+
+				@Override
+				void accept(T t) {
+					if (hash != null) {
+						if (filter.add(hash.applyAsLong(t))) downstream.accept(t);
+						return;
+					}
+					final Object key = keyExtractor == null ? t : keyExtractor.apply(t);
+					if (filter != null ? filter.add(key) : seen.add(key)) downstream.accept(t);
+				}
+
+				@Override
+				void end() {
+					seen = null;
+					filter = null;
+					downstream.end();
+				}
+			};
+		}
+	}
+
+	/**
+	 * Groups consecutive elements into lists. The last list is pushed when the upstream stage ends.
+	 */
+	private static class BatchStage<T> extends Stage<T, List<T>> {
+		private final int size;
+		/**
+		 * Whether the same list is pushed for all the batches, being cleared once the downstream sink has received it.
+		 */
+		private final boolean reuse;
+
+		public BatchStage(int size, boolean reuse) {
+			assert size > 0;
+			this.size = size;
+			this.reuse = reuse;
+		}
+
+		@Override
+		long sizeBound(long inputBound) {
+			return inputBound == SIZE_UNKNOWN ? SIZE_UNKNOWN : (inputBound + size - 1) / size;
+		}
+
+		@Override
+		boolean isStateful() {
+			return true;
+		}
+
+		@Override
+		Sink<T> wrap(Sink<? super List<T>> downstream) {
+			return new Sink.Chained<T, List<T>>(downstream) {
+				private List<T> batch;
+
+				@Override
+				void begin(long sourceSize) {
+					batch = new ArrayList<T>(sourceSize != SIZE_UNKNOWN ? (int) Math.min(size, sourceSize) : size);
+					downstream.begin(sourceSize == SIZE_UNKNOWN ? SIZE_UNKNOWN : (sourceSize + size - 1) / size);
+				}
+
+				@Override
+				void accept(T t) {
+					batch.add(t);
+					if (batch.size() == size) push();
+				}
+
+				@Override
+				void end() {
+					if (!batch.isEmpty() && !downstream.cancellationRequested()) push();
+					batch = null;
+					downstream.end();
+				}
+
+				private void push() {
+					downstream.accept(batch);
+					if (reuse) {
+						batch.clear();
+					} else {
+						batch = new ArrayList<T>(size);
+					}
+				}
+			};
+		}
+	}
+
+	private static class WindowStage<T> extends Stage<T, List<T>> {
+		private final int size;
+		private final int step;
+
+		public WindowStage(int size, int step) {
+			assert size > 0;
+			assert step > 0;
+			this.size = size;
+			this.step = step;
+		}
+
+		@Override
+		long sizeBound(long inputBound) {
+			if (inputBound == SIZE_UNKNOWN) return SIZE_UNKNOWN;
+			return inputBound < size ? 0 : (inputBound - size) / step + 1;
+		}
+
+		@Override
+		boolean isStateful() {
+			return true;
+		}
+
+		@Override
+		Sink<T> wrap(Sink<? super List<T>> downstream) {
+			return new Sink.Chained<T, List<T>>(downstream) {
+				/**
+				 * The elements of the current window, from start (inclusive) to end (exclusive). The elements before
+				 * end are never overwritten, since they may be referenced by the windows already pushed: when the
+				 * buffer is full, the current window is copied to a new buffer.
+				 */
+				private Object[] buffer;
+				private int start;
+				private int end;
+				/**
+				 * The number of elements to drop before the next window, if step is greater than size.
+				 */
+				private int gap;
+
+				@Override
+				void begin(long sourceSize) {
+					final long capacity = sourceSize == SIZE_UNKNOWN ? 2L * size : Math.min(2L * size, sourceSize);
+					buffer = new Object[(int) Math.min(Math.max(capacity, 16), Integer.MAX_VALUE - 8)];
+					start = 0;
+					end = 0;
+					gap = 0;
+					downstream.begin(sizeBound(sourceSize));
+				}
+
+				@Override
+				void accept(T t) {
+					if (gap > 0) {
+						gap--;
+						return;
+					}
+					if (end == buffer.length) reallocate();
+					buffer[end++] = t;
+					if (end - start == size) {
+						downstream.accept(new WindowList<T>(buffer, start, size));
+						if (step <= size) {
+							start += step;
+						} else {
+							start = end;
+							gap = step - size;
+						}
+					}
+				}
+
+				private void reallocate() {
+					final int length = end - start;
+					final Object[] newBuffer = new Object[(int) Math.min(Math.max(2L * length, buffer.length),
+							Integer.MAX_VALUE - 8)];
+					System.arraycopy(buffer, start, newBuffer, 0, length);
+					buffer = newBuffer;
+					start = 0;
+					end = length;
+				}
+
+				@Override
+				void end() {
+					buffer = null;
+					downstream.end();
+				}
+			};
+		}
+	}
+
+	/**
+	 * An unmodifiable view of a range of an array.
+	 */
+	private static class WindowList<T> extends AbstractList<T> implements RandomAccess {
+		private final Object[] array;
+		private final int from;
+		private final int size;
+
+		public WindowList(Object[] array, int from, int size) {
+			this.array = array;
+			this.from = from;
+			this.size = size;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T get(int index) {
+			if (index < 0 || index >= size) throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+			return (T) array[from + index];
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public Object[] toArray() {
+			return Arrays.copyOfRange(array, from, from + size);
+		}
+	}
+
+	/**
+	 * Pushes the maximum of each sliding window. The deque holds the indexes of the candidate maximums, in increasing
+	 * order, their elements being in decreasing order: an element is dropped from the back of the deque when a greater
+	 * or equal element arrives, and from the front when it leaves the window.
+	 */
+	private static class SlidingMaxStage<T> extends Stage<T, T> {
+		private final int size;
+		private final Comparator<? super T> comparator;
+
+		public SlidingMaxStage(int size, Comparator<? super T> comparator) {
+			assert size > 0;
+			assert comparator != null;
+			this.size = size;
+			this.comparator = comparator;
+		}
+
+		@Override
+		long sizeBound(long inputBound) {
+			return inputBound == SIZE_UNKNOWN ? SIZE_UNKNOWN : Math.max(0, inputBound - size + 1);
+		}
+
+		@Override
+		boolean isStateful() {
+			return true;
+		}
+
+		@Override
+		Sink<T> wrap(Sink<? super T> downstream) {
+			return new Sink.Chained<T, T>(downstream) {
+				/**
+				 * The deque, as a ring buffer of at most size elements and their indexes.
+				 */
+				private Object[] elements;
+				private long[] indexes;
+				private int head;
+				private int length;
+				private long index;
+
+				@Override
+				void begin(long sourceSize) {
+					final int capacity = sourceSize == SIZE_UNKNOWN ? size : (int) Math.max(1, Math.min(size,
+							sourceSize));
+					elements = new Object[capacity];
+					indexes = new long[capacity];
+					head = 0;
+					length = 0;
+					index = 0;
+					downstream.begin(sizeBound(sourceSize));
+				}
+
+				@Override
+				@SuppressWarnings("unchecked")
+				void accept(T t) {
+					while (length > 0 && comparator.compare((T) elements[slot(length - 1)], t) <= 0) {
+						elements[slot(length - 1)] = null;
+						length--;
+					}
+					if (length > 0 && indexes[head] <= index - size) {
+						elements[head] = null;
+						head = slot(1);
+						length--;
+					}
+					final int tail = slot(length);
+					elements[tail] = t;
+					indexes[tail] = index;
+					length++;
+					if (index >= size - 1) downstream.accept((T) elements[head]);
+					index++;
+				}
+
+				private int slot(int offset) {
+					final int res = head + offset;
+					return res < elements.length ? res : res - elements.length;
+				}
+
+				@Override
+				void end() {
+					elements = null;
+					indexes = null;
+					downstream.end();
+				}
+			};
+		}
+	}
+
+	private static class MapStage<T, R> extends Stage<T, R> {
+		private final Function<? super T, ? extends R> mapper;
+
+		public MapStage(Function<? super T, ? extends R> mapper) {
+			assert mapper != null;
+			this.mapper = mapper;
+		}
+
+		@Override
+		Sink<T> wrap(Sink<? super R> downstream) {
+			return new Sink.Chained<T, R>(downstream) {
+
+				@Override
+				void accept(T t) {
+					downstream.accept(mapper.apply(t));
+				}
+			};
+		}
+	}
+
+	private static class LimitStage<T> extends Stage<T, T> {
+		private final long maxSize;
+
+		public LimitStage(long maxSize) {
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		long sizeBound(long inputBound) {
+			return inputBound == SIZE_UNKNOWN ? maxSize : Math.min(inputBound, maxSize);
+		}
+
+		@Override
+		boolean isStateful() {
+			return true;
+		}
+
+		@Override
+		Sink<T> wrap(Sink<? super T> downstream) {
+			return new Sink.Chained<T, T>(downstream) {
+				private long count = 0;
+
+				@Override
+				void begin(long size) {
+					downstream.begin(size == SIZE_UNKNOWN ? SIZE_UNKNOWN : Math.min(size, maxSize));
+				}
+
+				@Override
+				void accept(T t) {
+					if (count < maxSize) {
+						count++;
+						downstream.accept(t);
+					}
+				}
+
+				@Override
+				boolean cancellationRequested() {
+					return count >= maxSize || downstream.cancellationRequested();
+				}
+			};
+		}
+
+		@Override
+		boolean isShortCircuit() {
+			return true;
+		}
+	}
+
+	private static class SkipStage<T> extends Stage<T, T> {
+		private final long n;
+
+		public SkipStage(long n) {
+			this.n = n;
+		}
+
+		@Override
+		long sizeBound(long inputBound) {
+			return inputBound == SIZE_UNKNOWN ? SIZE_UNKNOWN : Math.max(0, inputBound - n);
+		}
+
+		@Override
+		boolean isStateful() {
+			return true;
+		}
+
+		@Override
+		Sink<T> wrap(Sink<? super T> downstream) {
+			return new Sink.Chained<T, T>(downstream) {
+				private long skipped = 0;
+
+				@Override
+				void begin(long size) {
+					downstream.begin(size == SIZE_UNKNOWN ? SIZE_UNKNOWN : Math.max(0, size - n));
+				}
+
+				@Override
+				void accept(T t) {
+					if (skipped < n) {
+						skipped++;
+					} else {
+						downstream.accept(t);
+					}
+				}
+			};
+		}
+	}
+
+	private static class TakeWhileStage<T> extends Stage<T, T> {
+		private final Predicate<? super T> predicate;
+
+		public TakeWhileStage(Predicate<? super T> predicate) {
+			assert predicate != null;
+			this.predicate = predicate;
+		}
+
+		@Override
+		boolean isStateful() {
+			return true;
+		}
+
+		@Override
+		Sink<T> wrap(Sink<? super T> downstream) {
+			return new Sink.Chained<T, T>(downstream) {
+				private boolean taking = true;
+
+				@Override
+				void begin(long size) {
+					downstream.begin(SIZE_UNKNOWN);
+				}
+
+				@Override
+				void accept(T t) {
+					if (taking && predicate.test(t)) {
+						downstream.accept(t);
+					} else {
+						taking = false;
+					}
+				}
+
+				@Override
+				boolean cancellationRequested() {
+					return !taking || downstream.cancellationRequested();
+				}
+			};
+		}
+
+		@Override
+		boolean isShortCircuit() {
+			return true;
+		}
+	}
+
+	private static class DropWhileStage<T> extends Stage<T, T> {
+		private final Predicate<? super T> predicate;
+
+		public DropWhileStage(Predicate<? super T> predicate) {
+			assert predicate != null;
+			this.predicate = predicate;
+		}
+
+		@Override
+		boolean isStateful() {
+			return true;
+		}
+
+		@Override
+		Sink<T> wrap(Sink<? super T> downstream) {
+			return new Sink.Chained<T, T>(downstream) {
+				private boolean dropping = true;
+
+				@Override
+				void begin(long size) {
+					downstream.begin(SIZE_UNKNOWN);
+				}
+
+				@Override
+				void accept(T t) {
+					if (dropping && predicate.test(t)) return;
+					dropping = false;
+					downstream.accept(t);
+				}
+			};
+		}
+	}
+
+	private static class FlatMapStage<T, R> extends Stage<T, R> {
+		private final Function<? super T, ? extends Stream<? extends R>> mapper;
+
+		public FlatMapStage(Function<? super T, ? extends Stream<? extends R>> mapper) {
+			assert mapper != null;
+			this.mapper = mapper;
+		}
+
+		@Override
+		long sizeBound(long inputBound) {
+			return SIZE_UNKNOWN;
+		}
+
+		@Override
+		Sink<T> wrap(Sink<? super R> downstream) {
+			return new Sink.Chained<T, R>(downstream) {
+
+				@Override
+				void begin(long size) {
+					downstream.begin(SIZE_UNKNOWN);
+				}
+
+				@Override
+				void accept(T t) {
+					final Stream<? extends R> mapped = mapper.apply(t);
+					if (mapped == null) return;
+					try {
+						final Source<? extends R> source = mapped.asSource().open();
+						try {
+							source.pushInto(downstream, true);
+						} finally {
+							source.close();
+						}
+					} finally {
+						mapped.close();
+					}
+				}
+			};
+		}
+	}
+
+	/**
+	 * Finds whether any element tests to the expected value.
+	 */
+	private static class FindMatchOp<T> extends TerminalOp<T, Boolean> {
+		private final Predicate<? super T> predicate;
+		private final boolean expected;
+		private volatile boolean found = false;
+
+		public FindMatchOp(Predicate<? super T> predicate, boolean expected) {
+			assert predicate != null;
+			this.predicate = predicate;
+			this.expected = expected;
+		}
+
+		@Override
+		ResultSink<T, Boolean> makeSink() {
+			return new ResultSink<T, Boolean>() {
+
+				@Override
+				void accept(T t) {
+					if (predicate.test(t) == expected) found = true;
+				}
+
+				@Override
+				boolean cancellationRequested() {
+					return found;
+				}
+
+				@Override
+				Boolean get() {
+					return found;
+				}
+			};
+		}
+
+		@Override
+		Boolean combine(Boolean left, Boolean right) {
+			return left || right;
+		}
+
+		@Override
+		boolean isShortCircuit() {
+			return true;
+		}
+
+		@Override
+		boolean cancellationRequested() {
+			return found;
+		}
+	}
+
+	/**
+	 * Finds the first element. The result is a list of at most one element, as the element may be null.
+	 */
+	private static class FindFirstOp<T> extends TerminalOp<T, List<T>> {
+		private volatile boolean found = false;
+
+		@Override
+		ResultSink<T, List<T>> makeSink() {
+			return new ResultSink<T, List<T>>() {
+				private List<T> res = Collections.emptyList();
+
+				@Override
+				void accept(T t) {
+					if (res.isEmpty()) {
+						res = Collections.singletonList(t);
+						found = true;
+					}
+				}
+
+				@Override
+				boolean cancellationRequested() {
+					return !res.isEmpty();
+				}
+
+				@Override
+				List<T> get() {
+					return res;
+				}
+			};
+		}
+
+		@Override
+		List<T> combine(List<T> left, List<T> right) {
+			return left.isEmpty() ? right : left;
+		}
+
+		@Override
+		boolean isShortCircuit() {
+			return true;
+		}
+
+		@Override
+		boolean cancellationRequested() {
+			// the chunks are submitted in encounter order, so the chunks not submitted yet follow the found element
+			return found;
+		}
+	}
+
+	private static class CountOp<T> extends TerminalOp<T, Long> {
+		@Override
+		ResultSink<T, Long> makeSink() {
+			return new ResultSink<T, Long>() {
+				private long count = 0;
+
+				@Override
+				void accept(T t) {
+					count++;
+				}
+
+				@Override
+				Long get() {
+					return count;
+				}
+			};
+		}
+
+		@Override
+		Long combine(Long left, Long right) {
+			return left + right;
+		}
+	}
+
+	private static class ToListOp<T> extends TerminalOp<T, List<T>> {
+		@Override
+		ResultSink<T, List<T>> makeSink() {
+			return new ResultSink<T, List<T>>() {
+				private final ArrayList<T> list = new ArrayList<T>();
+
+				@Override
+				void begin(long size) {
+					if (size != SIZE_UNKNOWN) list.ensureCapacity((int) size);
+				}
+
+				@Override
+				void accept(T t) {
+					list.add(t);
+				}
+
+				@Override
+				List<T> get() {
+					return list;
+				}
+			};
+		}
+
+		@Override
+		List<T> combine(List<T> left, List<T> right) {
+			left.addAll(right);
+			return left;
+		}
+	}
+
+	/**
+	 * A part of the result of {@link ToArrayOp}: the elements are the length first elements of the array.
+	 */
+	private static class ArrayChunk {
+		final Object[] array;
+		final int length;
+
+		public ArrayChunk(Object[] array, int length) {
+			this.array = array;
+			this.length = length;
+		}
+
+		boolean isFull() {
+			return length == array.length;
+		}
+	}
+
+	/**
+	 * Stores the elements in arrays allocated by the generator. The result is the list of the arrays of each chunk, in
+	 * encounter order, concatenated by the caller.
+	 */
+	private static class ToArrayOp<T> extends TerminalOp<T, List<ArrayChunk>> {
+		private static final int INITIAL_CAPACITY = 16;
+		private final IntFunction<? extends Object[]> generator;
+		/**
+		 * Upper bound of the number of elements, or -1 if unknown.
+		 */
+		private final long bound;
+
+		public ToArrayOp(IntFunction<? extends Object[]> generator, long bound) {
+			assert generator != null;
+			this.generator = generator;
+			this.bound = bound;
+		}
+
+		@Override
+		ResultSink<T, List<ArrayChunk>> makeSink() {
+			return new ResultSink<T, List<ArrayChunk>>() {
+				private Object[] array;
+				private int length = 0;
+
+				@Override
+				void begin(long size) {
+					if (size != SIZE_UNKNOWN) {
+						array = generator.apply((int) size);
+					} else {
+						array = generator.apply(bound == SIZE_UNKNOWN ? INITIAL_CAPACITY : (int) Math.min(
+								INITIAL_CAPACITY, bound));
+					}
+				}
+
+				@Override
+				void accept(T t) {
+					if (length == array.length) grow();
+					array[length++] = t;
+				}
+
+				private void grow() {
+					long newLength = Math.max(array.length * 2L, INITIAL_CAPACITY);
+					if (bound != SIZE_UNKNOWN) newLength = Math.max(array.length + 1, Math.min(newLength, bound));
+					final Object[] newArray = generator.apply((int) Math.min(newLength, Integer.MAX_VALUE - 8));
+					System.arraycopy(array, 0, newArray, 0, length);
+					array = newArray;
+				}
+
+				@Override
+				List<ArrayChunk> get() {
+					final List<ArrayChunk> res = new ArrayList<ArrayChunk>(1);
+					res.add(new ArrayChunk(array, length));
+					return res;
+				}
+			};
+		}
+
+		@Override
+		List<ArrayChunk> combine(List<ArrayChunk> left, List<ArrayChunk> right) {
+			left.addAll(right);
+			return left;
+		}
+	}
+
+	private static class ToSetOp<T> extends TerminalOp<T, Set<T>> {
+		@Override
+		ResultSink<T, Set<T>> makeSink() {
+			return new ResultSink<T, Set<T>>() {
+				private Set<T> set;
+
+				@Override
+				void begin(long size) {
+					set = new HashSet<T>(size != SIZE_UNKNOWN ? (int) size : 16);
+				}
+
+				@Override
+				void accept(T t) {
+					set.add(t);
+				}
+
+				@Override
+				Set<T> get() {
+					return set;
+				}
+			};
+		}
+
+		@Override
+		Set<T> combine(Set<T> left, Set<T> right) {
+			left.addAll(right);
+			return left;
+		}
+	}
+
+	private static class ForEachOp<T> extends TerminalOp<T, Void> {
+		private final Consumer<? super T> action;
+
+		public ForEachOp(Consumer<? super T> action) {
+			assert action != null;
+			this.action = action;
+		}
+
+		@Override
+		ResultSink<T, Void> makeSink() {
+			return new ResultSink<T, Void>() {
+
+				@Override
+				void accept(T t) {
+					action.accept(t);
+				}
+
+				@Override
+				Void get() {
+					return null;
+				}
+			};
+		}
+
+		@Override
+		Void combine(Void left, Void right) {
+			return null;
+		}
+	}
+
+	/**
+	 * Accumulates each chunk into a buffer local to the thread evaluating it, and flushes the buffer into a shared
+	 * thread-safe target once all the elements of the chunk have been pushed.
+	 */
+	private static abstract class ConcurrentOp<T> extends TerminalOp<T, Void> {
+		@Override
+		Void combine(Void left, Void right) {
+			return null;
+		}
+
+		/**
+		 * A sink flushing its buffer on {@link #end()}.
+		 */
+		static abstract class BufferSink<T> extends ResultSink<T, Void> {
+			@Override
+			abstract void end();
+
+			@Override
+			Void get() {
+				return null;
+			}
+		}
+	}
+
+	private static class GroupByConcurrentOp<T, K> extends ConcurrentOp<T> {
+		private final Function<? super T, ? extends K> classifier;
+		private final ConcurrentMap<K, List<T>> map;
+
+		public GroupByConcurrentOp(Function<? super T, ? extends K> classifier, ConcurrentMap<K, List<T>> map) {
+			this.classifier = classifier;
+			this.map = map;
+		}
+
+		@Override
+		ResultSink<T, Void> makeSink() {
+			return new BufferSink<T>() {
+				private final Map<K, List<T>> groups = new HashMap<K, List<T>>();
+
+				@Override
+				void accept(T t) {
+					final K key = classifier.apply(t);
+					List<T> group = groups.get(key);
+					if (group == null) {
+						group = new ArrayList<T>();
+						groups.put(key, group);
+					}
+					group.add(t);
+				}
+
+				@Override
+				void end() {
+					for (final Map.Entry<K, List<T>> entry : groups.entrySet()) {
+						List<T> group = map.get(entry.getKey());
+						if (group == null) {
+							group = map.putIfAbsent(entry.getKey(), Collections.synchronizedList(entry.getValue()));
+							if (group == null) continue;
+						}
+						group.addAll(entry.getValue());
+					}
+					groups.clear();
+				}
+			};
+		}
+	}
+
+	private static class ToConcurrentMapOp<T, K> extends ConcurrentOp<T> {
+		private final Function<? super T, ? extends K> toKey;
+		private final BinaryOperator<T> merge;
+		private final ConcurrentMap<K, T> map;
+
+		public ToConcurrentMapOp(Function<? super T, ? extends K> toKey, BinaryOperator<T> merge,
+				ConcurrentMap<K, T> map) {
+			this.toKey = toKey;
+			this.merge = merge;
+			this.map = map;
+		}
+
+		@Override
+		ResultSink<T, Void> makeSink() {
+			return new BufferSink<T>() {
+				private final Map<K, T> values = new HashMap<K, T>();
+
+				@Override
+				void accept(T t) {
+					final K key = toKey.apply(t);
+					final T old = values.get(key);
+					values.put(key, old == null ? t : merge.apply(old, t));
+				}
+
+				@Override
+				void end() {
+					for (final Map.Entry<K, T> entry : values.entrySet()) {
+						final K key = entry.getKey();
+						while (true) {
+							final T old = map.putIfAbsent(key, entry.getValue());
+							if (old == null || map.replace(key, old, merge.apply(old, entry.getValue()))) break;
+						}
+					}
+					values.clear();
+				}
+			};
+		}
+	}
+
+	private static class PartitionByConcurrentOp<T> extends ConcurrentOp<T> {
+		private final Predicate<? super T> predicate;
+		private final Collection<? super T> matched;
+		private final Collection<? super T> notMatched;
+
+		public PartitionByConcurrentOp(Predicate<? super T> predicate, Collection<? super T> matched,
+				Collection<? super T> notMatched) {
+			this.predicate = predicate;
+			this.matched = matched;
+			this.notMatched = notMatched;
+		}
+
+		@Override
+		ResultSink<T, Void> makeSink() {
+			return new BufferSink<T>() {
+				private final List<T> matchedBuffer = new ArrayList<T>();
+				private final List<T> notMatchedBuffer = new ArrayList<T>();
+
+				@Override
+				void accept(T t) {
+					if (predicate.test(t)) {
+						matchedBuffer.add(t);
+					} else {
+						notMatchedBuffer.add(t);
+					}
+				}
+
+				@Override
+				void end() {
+					if (!matchedBuffer.isEmpty()) matched.addAll(matchedBuffer);
+					if (!notMatchedBuffer.isEmpty()) notMatched.addAll(notMatchedBuffer);
+					matchedBuffer.clear();
+					notMatchedBuffer.clear();
+				}
+			};
+		}
+	}
+
+	/**
+	 * Folds the elements into the accumulator of a collector.
+	 */
+	private static class CollectOp<T, A> extends TerminalOp<T, A> {
+		private final Collector<? super T, A, ?> collector;
+
+		public CollectOp(Collector<? super T, A, ?> collector) {
+			assert collector != null;
+			this.collector = collector;
+		}
+
+		@Override
+		ResultSink<T, A> makeSink() {
+			return new ResultSink<T, A>() {
+				private final A accumulator = collector.supply();
+
+				@Override
+				void accept(T t) {
+					collector.accumulate(accumulator, t);
+				}
+
+				@Override
+				A get() {
+					return accumulator;
+				}
+			};
+		}
+
+		@Override
+		A combine(A left, A right) {
+			return collector.combine(left, right);
+		}
+	}
+
+	/**
+	 * Folds the elements from the identity value. The combiner is null if the pipeline is sequential.
+	 */
+	private static class FoldOp<T, U> extends TerminalOp<T, U> {
+		private final U identity;
+		private final BiFunction<U, ? super T, U> accumulator;
+		private final BinaryOperator<U> combiner;
+
+		public FoldOp(U identity, BiFunction<U, ? super T, U> accumulator, BinaryOperator<U> combiner) {
+			assert accumulator != null;
+			this.identity = identity;
+			this.accumulator = accumulator;
+			this.combiner = combiner;
+		}
+
+		@Override
+		ResultSink<T, U> makeSink() {
+			return new ResultSink<T, U>() {
+				private U res = identity;
+
+				@Override
+				void accept(T t) {
+					res = accumulator.apply(res, t);
+				}
+
+				@Override
+				U get() {
+					return res;
+				}
+			};
+		}
+
+		@Override
+		U combine(U left, U right) {
+			assert combiner != null;
+			return combiner.apply(left, right);
+		}
+	}
+
+	private static class ReduceToLongOp<T> extends TerminalOp<T, Long> {
+		private final long identity;
+		private final ToLongFunction<? super T> mapper;
+		private final LongBinaryOperator op;
+
+		public ReduceToLongOp(long identity, ToLongFunction<? super T> mapper, LongBinaryOperator op) {
+			assert mapper != null;
+			assert op != null;
+			this.identity = identity;
+			this.mapper = mapper;
+			this.op = op;
+		}
+
+		@Override
+		ResultSink<T, Long> makeSink() {
+			return new ResultSink<T, Long>() {
+				private long res = identity;
+
+				@Override
+				void accept(T t) {
+					res = op.applyAsLong(res, mapper.applyAsLong(t));
+				}
+
+				@Override
+				Long get() {
+					return res;
+				}
+			};
+		}
+
+		@Override
+		Long combine(Long left, Long right) {
+			return op.applyAsLong(left, right);
+		}
+	}
+
+	private static class ReduceToDoubleOp<T> extends TerminalOp<T, Double> {
+		private final double identity;
+		private final ToDoubleFunction<? super T> mapper;
+		private final DoubleBinaryOperator op;
+
+		public ReduceToDoubleOp(double identity, ToDoubleFunction<? super T> mapper, DoubleBinaryOperator op) {
+			assert mapper != null;
+			assert op != null;
+			this.identity = identity;
+			this.mapper = mapper;
+			this.op = op;
+		}
+
+		@Override
+		ResultSink<T, Double> makeSink() {
+			return new ResultSink<T, Double>() {
+				private double res = identity;
+
+				@Override
+				void accept(T t) {
+					res = op.applyAsDouble(res, mapper.applyAsDouble(t));
+				}
+
+				@Override
+				Double get() {
+					return res;
+				}
+			};
+		}
+
+		@Override
+		Double combine(Double left, Double right) {
+			return op.applyAsDouble(left, right);
+		}
+	}
+
+	/**
+	 * Finds the maximum element (if sign is 1) or the minimum element (if sign is -1).
+	 */
+	private static class BestOp<T> extends TerminalOp<T, T> {
+		private final Comparator<? super T> comparator;
+		private final int sign;
+
+		public BestOp(Comparator<? super T> comparator, int sign) {
+			assert comparator != null;
+			this.comparator = comparator;
+			this.sign = sign;
+		}
+
+		@Override
+		ResultSink<T, T> makeSink() {
+			return new ResultSink<T, T>() {
+				private T res = null;
+
+				@Override
+				void accept(T t) {
+					res = combine(res, t);
+				}
+
+				@Override
+				T get() {
+					return res;
+				}
+			};
+		}
+
+		@Override
+		T combine(T left, T right) {
+			if (left == null) return right;
+			if (right == null) return left;
+			final int cmp = comparator.compare(right, left);
+			return (sign > 0 ? cmp > 0 : cmp < 0) ? right : left;
+		}
+	}
+
+	/**
+	 * Keeps the k first elements in the order of the comparator, in a bounded heap whose head is the greatest kept
+	 * element. Equal elements are kept in encounter order.
+	 */
+	private static class TopOp<T> extends TerminalOp<T, List<T>> {
+		private final Comparator<? super T> comparator;
+		private final int k;
+
+		public TopOp(Comparator<? super T> comparator, int k) {
+			assert comparator != null;
+			assert k >= 0;
+			this.comparator = comparator;
+			this.k = k;
+		}
+
+		@Override
+		ResultSink<T, List<T>> makeSink() {
+			return new ResultSink<T, List<T>>() {
+				private PriorityQueue<Ranked<T>> heap;
+				private long index = 0;
+
+				@Override
+				void begin(long size) {
+					final long capacity = size == SIZE_UNKNOWN ? k : Math.min(k, size);
+					heap = new PriorityQueue<Ranked<T>>((int) Math.max(1, Math.min(capacity, 1024)),
+							Collections.reverseOrder(new RankedComparator<T>(comparator)));
+				}
+
+				@Override
+				void accept(T t) {
+					if (heap.size() < k) {
+						heap.add(new Ranked<T>(t, index));
+					} else if (k > 0 && comparator.compare(t, heap.peek().element) < 0) {
+						heap.poll();
+						heap.add(new Ranked<T>(t, index));
+					}
+					index++;
+				}
+
+				@Override
+				List<T> get() {
+					final List<Ranked<T>> ranked = new ArrayList<Ranked<T>>(heap);
+					Collections.sort(ranked, new RankedComparator<T>(comparator));
+					final List<T> res = new ArrayList<T>(ranked.size());
+					for (final Ranked<T> r : ranked) {
+						res.add(r.element);
+					}
+					return res;
+				}
+			};
+		}
+
+		@Override
+		List<T> combine(List<T> left, List<T> right) {
+			final List<T> res = new ArrayList<T>(Math.min(k, left.size() + right.size()));
+			int i = 0;
+			int j = 0;
+			while (res.size() < k && (i < left.size() || j < right.size())) {
+				if (j == right.size() || i < left.size() && comparator.compare(left.get(i), right.get(j)) <= 0) {
+					res.add(left.get(i++));
+				} else {
+					res.add(right.get(j++));
+				}
+			}
+			return res;
+		}
+	}
+
+	/**
+	 * An element and its index in encounter order.
+	 */
+	private static class Ranked<T> {
+		final T element;
+		final long index;
+
+		public Ranked(T element, long index) {
+			this.element = element;
+			this.index = index;
+		}
+	}
+
+	/**
+	 * Compares the elements, then their indexes.
+	 */
+	private static class RankedComparator<T> implements Comparator<Ranked<T>> {
+		private final Comparator<? super T> comparator;
+
+		public RankedComparator(Comparator<? super T> comparator) {
+			this.comparator = comparator;
+		}
+
+		@Override
+		public int compare(Ranked<T> o1, Ranked<T> o2) {
+			final int res = comparator.compare(o1.element, o2.element);
+			if (res != 0) return res;
+			return o1.index < o2.index ? -1 : o1.index == o2.index ? 0 : 1;
+		}
+	}
+}
@@ -0,0 +1,156 @@
+package com.github.stream4j;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * The listeners of the instrumented streams (see {@link Stream#instrumented(String)}). Instrumented streams are only
+ * measured while at least one listener is registered.<br>
+ * Not part of the Java API.
+ */
+public final class StreamMetrics {
+	private static final List<MetricsListener> listeners = new CopyOnWriteArrayList<MetricsListener>();
+	private static MetricsListener mbeans;
+
+	private StreamMetrics() {
+	}
+
+	public static void addListener(MetricsListener listener) {
+		if (listener == null) throw new NullPointerException();
+		listeners.add(listener);
+	}
+
+	public static void removeListener(MetricsListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Registers a listener exposing the statistics of the instrumented streams through JMX: one
+	 * {@link PipelineStatsMBean} per stream name is registered in the platform MBean server, with the object name
+	 * {@code com.github.stream4j:type=Pipeline,name=<name>}. Has no effect if already called.
+	 */
+	public static synchronized void registerMBeans() {
+		if (mbeans != null) return;
+		mbeans = new MBeanListener(ManagementFactory.getPlatformMBeanServer());
+		addListener(mbeans);
+	}
+
+	static boolean isEnabled() {
+		return !listeners.isEmpty();
+	}
+
+	static void publish(PipelineMetrics metrics) {
+		for (final MetricsListener listener : listeners) {
+			listener.evaluated(metrics);
+		}
+	}
+
+	/**
+	 * Aggregates the metrics by stream name, and registers an MBean for each name.
+	 */
+	private static class MBeanListener extends MetricsListener {
+		private final MBeanServer server;
+		private final Map<String, PipelineStats> stats = new LinkedHashMap<String, PipelineStats>();
+
+		public MBeanListener(MBeanServer server) {
+			assert server != null;
+			this.server = server;
+		}
+
+		@Override
+		public void evaluated(PipelineMetrics metrics) {
+			get(metrics.getName()).add(metrics);
+		}
+
+		private synchronized PipelineStats get(String name) {
+			PipelineStats res = stats.get(name);
+			if (res == null) {
+				res = new PipelineStats(name);
+				try {
+					final ObjectName objectName = new ObjectName("com.github.stream4j:type=Pipeline,name="
+							+ ObjectName.quote(name));
+					if (!server.isRegistered(objectName)) {
+						server.registerMBean(new StandardMBean(res, PipelineStatsMBean.class), objectName);
+					}
+				} catch (final JMException e) {
+					throw new RuntimeException(e);
+				}
+				stats.put(name, res);
+			}
+			return res;
+		}
+	}
+
+	private static class PipelineStats implements PipelineStatsMBean {
+		private final String name;
+		private long evaluationCount;
+		private long elapsedNanos;
+		/**
+		 * The totals of each step, by position and name.
+		 */
+		private final Map<String, long[]> stages = new LinkedHashMap<String, long[]>();
+
+		public PipelineStats(String name) {
+			this.name = name;
+		}
+
+		synchronized void add(PipelineMetrics metrics) {
+			evaluationCount++;
+			elapsedNanos += metrics.getElapsedNanos();
+			final List<StageMetrics> l = metrics.getStages();
+			for (int i = 0; i < l.size(); i++) {
+				final StageMetrics stage = l.get(i);
+				final String key = i + " " + stage.getName();
+				long[] totals = stages.get(key);
+				if (totals == null) {
+					totals = new long[3];
+					stages.put(key, totals);
+				}
+				totals[0] += stage.getInputCount();
+				totals[1] += stage.getOutputCount();
+				totals[2] += stage.getNanos();
+			}
+		}
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public synchronized long getEvaluationCount() {
+			return evaluationCount;
+		}
+
+		@Override
+		public synchronized long getElapsedNanos() {
+			return elapsedNanos;
+		}
+
+		@Override
+		public synchronized String[] getStages() {
+			final List<String> res = new ArrayList<String>();
+			for (final Map.Entry<String, long[]> e : stages.entrySet()) {
+				final long[] totals = e.getValue();
+				res.add(new StageMetrics(e.getKey(), totals[0], totals[1], totals[2]).toString());
+			}
+			return res.toArray(new String[res.size()]);
+		}
+
+		@Override
+		public synchronized void reset() {
+			evaluationCount = 0;
+			elapsedNanos = 0;
+			stages.clear();
+		}
+	}
+}
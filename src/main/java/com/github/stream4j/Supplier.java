@@ -0,0 +1,9 @@
+package com.github.stream4j;
+
+/**
+ * Represents a supplier of results. A new or distinct result may be returned each time the supplier is invoked.
+ * @param <T> the type of results supplied by this supplier
+ */
+public abstract class Supplier<T> {
+	public abstract T get();
+}
@@ -0,0 +1,41 @@
+package com.github.stream4j;
+
+/**
+ * A terminal operation evaluated by pushing elements into sinks. When evaluated sequentially, all the elements are
+ * pushed into a single sink. When evaluated in parallel, each chunk of the source
+ * is pushed into its own sink, and the partial results are combined in encounter order.
+ * @param <T> the type of the input elements
+ * @param <R> the type of the result
+ */
+abstract class TerminalOp<T, R> {
+	/**
+	 * Returns a new sink accumulating the result for one chunk of elements.
+	 */
+	abstract ResultSink<T, R> makeSink();
+
+	/**
+	 * Combines the results of two adjacent chunks, left preceding right in encounter order.
+	 */
+	abstract R combine(R left, R right);
+
+	/**
+	 * Returns true if the sinks of this operation may request cancellation before all the elements have been pushed.
+	 */
+	boolean isShortCircuit() {
+		return false;
+	}
+
+	/**
+	 * Returns true if the result is known, so that the remaining chunks do not need to be evaluated.
+	 */
+	boolean cancellationRequested() {
+		return false;
+	}
+
+	/**
+	 * A sink holding the result of a terminal operation.
+	 */
+	static abstract class ResultSink<T, R> extends Sink<T> {
+		abstract R get();
+	}
+}
@@ -0,0 +1,10 @@
+package com.github.stream4j;
+
+/**
+ * Represents a function that produces an double-valued result. This is the double-producing primitive specialization for
+ * {@link Function}.
+ * @param <T> the type of the input to the function
+ */
+public abstract class ToDoubleFunction<T> {
+	public abstract double applyAsDouble(T value);
+}
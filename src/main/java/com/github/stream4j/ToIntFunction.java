@@ -0,0 +1,10 @@
+package com.github.stream4j;
+
+/**
+ * Represents a function that produces an int-valued result. This is the int-producing primitive specialization for
+ * {@link Function}.
+ * @param <T> the type of the input to the function
+ */
+public abstract class ToIntFunction<T> {
+	public abstract int applyAsInt(T value);
+}
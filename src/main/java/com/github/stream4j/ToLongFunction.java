@@ -0,0 +1,10 @@
+package com.github.stream4j;
+
+/**
+ * Represents a function that produces an long-valued result. This is the long-producing primitive specialization for
+ * {@link Function}.
+ * @param <T> the type of the input to the function
+ */
+public abstract class ToLongFunction<T> {
+	public abstract long applyAsLong(T value);
+}
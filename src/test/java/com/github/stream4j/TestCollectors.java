@@ -0,0 +1,191 @@
+package com.github.stream4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+public class TestCollectors {
+	private static final List<String> emptyList = Collections.<String> emptyList();
+	private static final List<String> words = Arrays.asList("ab", "b", "acd", "bc", "a");
+
+	private static final Function<String, Character> firstChar = new Function<String, Character>() {
+
+		@Override
+		public Character apply(String t) {
+			return t.charAt(0);
+		}
+	};
+
+	private static final ToIntFunction<String> length = new ToIntFunction<String>() {
+
+		@Override
+		public int applyAsInt(String value) {
+			return value.length();
+		}
+	};
+
+	private static final Function<String, Integer> lengthFunction = new Function<String, Integer>() {
+
+		@Override
+		public Integer apply(String t) {
+			return t.length();
+		}
+	};
+
+	public void testAll() {
+		aggregate();
+		allOf();
+		groupingBy();
+		joining();
+		parallel();
+		partitioningBy();
+		teeing();
+		toCollection();
+		toMap();
+	}
+
+	private void aggregate() {
+		assert Stream.of(emptyList).collect(Collectors.<String> counting()) == 0;
+		assert Stream.of(words).collect(Collectors.<String> counting()) == 5;
+		assert Stream.of(words).collect(Collectors.summingInt(length)) == 9;
+		assert Stream.of(emptyList).collect(Collectors.averagingInt(length)) == 0;
+		assert Stream.of(words).collect(Collectors.averagingInt(length)) == 9 / 5d;
+		assert Stream.of(words).collect(Collectors.summarizingInt(length)).getMax() == 3;
+		assert Stream.of(emptyList).collect(Collectors.minBy(String.CASE_INSENSITIVE_ORDER)) == null;
+		assert Stream.of(words).collect(Collectors.minBy(String.CASE_INSENSITIVE_ORDER)).equals("a");
+		assert Stream.of(words).collect(Collectors.maxBy(String.CASE_INSENSITIVE_ORDER)).equals("bc");
+		assert Stream.of(words).collect(Collectors.collectingAndThen(Collectors.<String> toList(),
+				new Function<List<String>, Integer>() {
+
+					@Override
+					public Integer apply(List<String> t) {
+						return t.size();
+					}
+				})) == 5;
+	}
+
+	private void allOf() {
+		final List<Collector<? super String, ?, ?>> collectors;
+		collectors = new ArrayList<Collector<? super String, ?, ?>>();
+		collectors.add(Collectors.<String> counting());
+		collectors.add(Collectors.summingInt(length));
+		collectors.add(Collectors.joining());
+		final List<Object> actual = Stream.of(words.iterator()).collect(Collectors.<String, Object> allOf(collectors));
+		assert actual.equals(Arrays.<Object> asList(5L, 9, "abbacdbca"));
+	}
+
+	private void groupingBy() {
+		final Map<Character, List<String>> expected = new HashMap<Character, List<String>>();
+		expected.put('a', Arrays.asList("ab", "acd", "a"));
+		expected.put('b', Arrays.asList("b", "bc"));
+		assert Stream.of(words).collect(Collectors.groupingBy(firstChar)).equals(expected);
+		assert Stream.of(words).collect(Collectors.groupingBy(firstChar, Collectors.<String> counting())).get('a') == 3;
+
+		// the keys of a LinkedHashMap are in encounter order
+		final Map<Integer, List<String>> byLength = Stream.of(words).collect(
+				Collectors.groupingBy(lengthFunction, new Supplier<LinkedHashMap<Integer, List<String>>>() {
+
+					@Override
+					public LinkedHashMap<Integer, List<String>> get() {
+						return new LinkedHashMap<Integer, List<String>>();
+					}
+				}, Collectors.<String> toList()));
+		assert new ArrayList<Integer>(byLength.keySet()).equals(Arrays.asList(2, 1, 3));
+	}
+
+	private void joining() {
+		final Function<String, CharSequence> toCharSequence = new Function<String, CharSequence>() {
+
+			@Override
+			public CharSequence apply(String t) {
+				return t;
+			}
+		};
+		assert Stream.of(emptyList).map(toCharSequence).collect(Collectors.joining(", ", "[", "]")).equals("[]");
+		assert Stream.of(words).map(toCharSequence).collect(Collectors.joining()).equals("abbacdbca");
+		assert Stream.of(words).map(toCharSequence).collect(Collectors.joining(", ", "[", "]"))
+				.equals("[ab, b, acd, bc, a]");
+	}
+
+	private void parallel() {
+		final List<String> strings = new ArrayList<String>();
+		for (int i = 0; i < 100000; i++) {
+			strings.add(Integer.toString((i * 31) % 1000));
+		}
+		assert Stream.of(strings).parallel().collect(Collectors.<String> toList()).equals(strings);
+		assert Stream.of(strings).parallel().collect(Collectors.groupingBy(firstChar, Collectors.summingInt(length)))
+				.equals(Stream.of(strings).collect(Collectors.groupingBy(firstChar, Collectors.summingInt(length))));
+		assert Stream.of(strings.iterator()).parallel().collect(Collectors.<String> counting()) == strings.size();
+	}
+
+	private void partitioningBy() {
+		final Predicate<String> startsWithA = new Predicate<String>() {
+
+			@Override
+			public boolean test(String t) {
+				return t.startsWith("a");
+			}
+		};
+		final Map<Boolean, List<String>> actual = Stream.of(words).collect(Collectors.partitioningBy(startsWithA));
+		assert actual.get(true).equals(Arrays.asList("ab", "acd", "a"));
+		assert actual.get(false).equals(Arrays.asList("b", "bc"));
+		final Map<Boolean, Long> counts = Stream.of(emptyList).collect(
+				Collectors.partitioningBy(startsWithA, Collectors.<String> counting()));
+		assert counts.get(true) == 0 && counts.get(false) == 0;
+	}
+
+	private void teeing() {
+		// an iterator can only be read once
+		final String actual = Stream.of(words.iterator()).collect(
+				Collectors.teeing(Collectors.minBy(String.CASE_INSENSITIVE_ORDER),
+						Collectors.maxBy(String.CASE_INSENSITIVE_ORDER), new BiFunction<String, String, String>() {
+
+							@Override
+							public String apply(String t, String u) {
+								return t + "-" + u;
+							}
+						}));
+		assert actual.equals("a-bc");
+	}
+
+	private void toCollection() {
+		final TreeSet<String> actual = Stream.of(words).collect(Collectors.toCollection(new Supplier<TreeSet<String>>() {
+
+			@Override
+			public TreeSet<String> get() {
+				return new TreeSet<String>();
+			}
+		}));
+		assert actual.first().equals("a");
+		assert actual.size() == 5;
+	}
+
+	private void toMap() {
+		final Map<String, Integer> expected = new HashMap<String, Integer>();
+		expected.put("ab", 2);
+		expected.put("b", 1);
+		assert Stream.of("ab", "b").collect(Collectors.toMap(Function.<String> identity(), lengthFunction))
+				.equals(expected);
+		try {
+			Stream.of("ab", "ab").collect(Collectors.toMap(Function.<String> identity(), lengthFunction));
+			assert false;
+		} catch (final IllegalStateException e) {
+			// expected
+		}
+		final Map<Character, Integer> merged = Stream.of(words).collect(
+				Collectors.toMap(firstChar, lengthFunction, new BinaryOperator<Integer>() {
+
+					@Override
+					public Integer apply(Integer t, Integer u) {
+						return t + u;
+					}
+				}));
+		assert merged.get('a') == 6;
+		assert merged.get('b') == 3;
+	}
+}
@@ -1,6 +1,8 @@
 package com.github.stream4j;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 public class TestConsumer {
 	private static final Pointer<Integer> globalVal1 = new Pointer<Integer>();
@@ -29,5 +31,26 @@ public class TestConsumer {
 			setter1.andThen(setter1).accept(i);
 			assert globalVal1.get() == i;
 		}
+
+		// a long chain is flattened, and performed in order
+		final List<Integer> performed = new ArrayList<Integer>();
+		Consumer<Integer> chain = setter1;
+		for (int i = 0; i < 100000; i++) {
+			final int index = i;
+			chain = chain.andThen(new Consumer<Integer>() {
+
+				@Override
+				public void accept(Integer t) {
+					performed.add(index);
+				}
+			});
+		}
+		chain.andThen(setter2).accept(3);
+		assert globalVal1.get() == 3;
+		assert globalVal2.get() == 3;
+		assert performed.size() == 100000;
+		for (int i = 0; i < performed.size(); i++) {
+			assert performed.get(i) == i;
+		}
 	}
 }
@@ -0,0 +1,56 @@
+package com.github.stream4j;
+
+import java.util.Arrays;
+
+public class TestDoubleStream {
+	private static final DoublePredicate positive = new DoublePredicate() {
+
+		@Override
+		public boolean test(double value) {
+			return value > 0;
+		}
+	};
+
+	public void testAll() {
+		filter();
+		statistics();
+	}
+
+	private void filter() {
+		assert Arrays.equals(DoubleStream.of(-1, 0.5, 2).filter(positive).toArray(), new double[] { 0.5, 2 });
+		assert DoubleStream.of(1.5).boxed().toList().equals(Arrays.asList(1.5d));
+		assert Arrays.equals(DoubleStream.of(2, 1).sorted().toArray(), new double[] { 1, 2 });
+	}
+
+	private void statistics() {
+		assert DoubleStream.of().average() == null;
+		assert DoubleStream.of(0.5, 0.25).sum() == 0.75;
+		assert DoubleStream.of(-1, 2).min() == -1;
+		assert DoubleStream.of(-1, 2).max() == 2;
+		final DoubleBinaryOperator max = new DoubleBinaryOperator() {
+
+			@Override
+			public double applyAsDouble(double left, double right) {
+				return Math.max(left, right);
+			}
+		};
+		assert DoubleStream.of(-1, 2).reduce(Double.NEGATIVE_INFINITY, max) == 2;
+		assert DoubleStream.of().reduce(max) == null;
+		assert DoubleStream.of(-1, 2, 0.5).reduce(max) == 2;
+
+		final DoubleSummaryStatistics empty = DoubleStream.of().summaryStatistics();
+		assert empty.getMin() == Double.POSITIVE_INFINITY;
+		assert empty.getMax() == Double.NEGATIVE_INFINITY;
+
+		final DoubleSummaryStatistics stats = Stream.of(1, 2, 3).mapToDouble(new ToDoubleFunction<Integer>() {
+
+			@Override
+			public double applyAsDouble(Integer value) {
+				return value / 2d;
+			}
+		}).summaryStatistics();
+		assert stats.getCount() == 3;
+		assert stats.getSum() == 3;
+		assert stats.getAverage() == 1;
+	}
+}
@@ -0,0 +1,193 @@
+package com.github.stream4j;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+public class TestFileSource {
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	public void testAll() throws IOException {
+		lines();
+		linesClosed();
+		linesParallel();
+		linesReader();
+		records();
+	}
+
+	private void lines() throws IOException {
+		assert Stream.lines(file(""), UTF_8).toList().isEmpty();
+		assert Stream.lines(file("a"), UTF_8).toList().equals(Arrays.asList("a"));
+		assert Stream.lines(file("a\n"), UTF_8).toList().equals(Arrays.asList("a"));
+		assert Stream.lines(file("a\r\n\nb\r\n"), UTF_8).toList().equals(Arrays.asList("a", "", "b"));
+		assert Stream.lines(file("\u00e9t\u00e9\nhiver"), UTF_8).toList().equals(Arrays.asList("\u00e9t\u00e9", "hiver"));
+
+		// the charsets which do not encode "\n" as a single byte are read through a reader
+		final File utf16 = file("");
+		write(utf16, "\u00e9t\u00e9\r\nhiver".getBytes("UTF-16"));
+		assert Stream.lines(utf16, Charset.forName("UTF-16")).toList().equals(Arrays.asList("\u00e9t\u00e9", "hiver"));
+
+		// lines longer than a window, or crossing windows
+		final String text = "abcdefghij\n\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9\nxy\r\nz";
+		final List<String> expected = Arrays.asList("abcdefghij", "\u00e9\u00e9\u00e9\u00e9\u00e9\u00e9", "xy", "z");
+		final File f = file(text);
+		for (int windowSize = 1; windowSize < text.length() + 2; windowSize++) {
+			assert Stream.of(FileSource.lines(f, UTF_8, windowSize, 1).iterator()).toList().equals(expected);
+		}
+
+		// the lines are read lazily
+		final Iterator<? extends String> it = FileSource.lines(f, UTF_8, 4, 1).iterator();
+		assert it.next().equals("abcdefghij");
+		assert Stream.lines(f, UTF_8).findFirst().equals("abcdefghij");
+		assert Stream.lines(f, UTF_8).limit(2).count() == 2;
+	}
+
+	private void linesClosed() throws IOException {
+		final StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			text.append("line ").append(i).append('\n');
+		}
+		final File f = file(text.toString());
+		final Function<String, Stream<String>> words = new Function<String, Stream<String>>() {
+
+			@Override
+			public Stream<String> apply(String t) {
+				return Stream.of(t.split(" "));
+			}
+		};
+		final ToIntFunction<String> length = new ToIntFunction<String>() {
+
+			@Override
+			public int applyAsInt(String value) {
+				return value.length();
+			}
+		};
+
+		// the file is closed when the terminal operation returns, even if it stopped early
+		FileSource<String> source = (FileSource<String>) FileSource.lines(f, UTF_8);
+		assert Stream.of(source).findFirst().equals("line 0");
+		assert !source.channel.isOpen();
+		source = (FileSource<String>) FileSource.lines(f, UTF_8);
+		assert Stream.of(source).flatMap(words).findFirst().equals("line");
+		assert !source.channel.isOpen();
+		source = (FileSource<String>) FileSource.lines(f, UTF_8);
+		assert Stream.of(source).mapToInt(length).findFirst() == 6;
+		assert !source.channel.isOpen();
+		source = (FileSource<String>) FileSource.lines(f, UTF_8);
+		assert Stream.of(source).prefetch(4).findFirst().equals("line 0");
+		assert !source.channel.isOpen();
+		source = (FileSource<String>) FileSource.lines(f, UTF_8);
+		assert Stream.of(source).parallel().limit(3).toList().equals(Arrays.asList("line 0", "line 1", "line 2"));
+		assert !source.channel.isOpen();
+		source = (FileSource<String>) FileSource.lines(f, UTF_8);
+		assert Stream.of(source).distinct().parallel().findFirst().equals("line 0");
+		assert !source.channel.isOpen();
+	}
+
+	private void linesParallel() throws IOException {
+		final StringBuilder text = new StringBuilder();
+		final List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < 10000; i++) {
+			expected.add("line " + i);
+			text.append("line ").append(i).append(i % 2 == 0 ? "\n" : "\r\n");
+		}
+		final File f = file(text.toString());
+		assert Stream.lines(f, UTF_8).parallel().toList().equals(expected);
+
+		// split in byte ranges at line boundaries
+		final Source<String> source = FileSource.lines(f, UTF_8, 100, 10);
+		final Source<String> prefix = source.trySplit();
+		assert prefix != null;
+		final List<String> lines = new ArrayList<String>();
+		lines.addAll(Stream.of(prefix.iterator()).toList());
+		lines.addAll(Stream.of(source.iterator()).toList());
+		assert lines.equals(expected);
+		assert Stream.lines(f, UTF_8).parallel().count() == expected.size();
+
+		assert Stream.lines(f, UTF_8).parallel().anyMatch(new Predicate<String>() {
+
+			@Override
+			public boolean test(String t) {
+				return t.equals("line 5000");
+			}
+		});
+	}
+
+	private void linesReader() {
+		assert Stream.lines(new BufferedReader(new StringReader(""))).toList().isEmpty();
+		assert Stream.lines(new BufferedReader(new StringReader("a\r\nb\rc\n"))).toList()
+				.equals(Arrays.asList("a", "b", "c"));
+	}
+
+	private void records() throws IOException {
+		final byte[] bytes = new byte[1000];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) (i / 10);
+		}
+		final File f = file("");
+		write(f, bytes);
+
+		final Stream<ByteBuffer> records = Stream.records(f, 10);
+		assert records.count() == 100;
+		final Function<ByteBuffer, Integer> firstByte = new Function<ByteBuffer, Integer>() {
+
+			@Override
+			public Integer apply(ByteBuffer t) {
+				assert t.remaining() == 10;
+				for (int i = 0; i < 10; i++) {
+					assert t.get(i) == t.get(0);
+				}
+				return (int) t.get(0);
+			}
+		};
+		final List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < 100; i++) {
+			expected.add(i);
+		}
+		assert Stream.records(f, 10).map(firstByte).toList().equals(expected);
+		assert Stream.records(f, 10).parallel().map(firstByte).toList().equals(expected);
+		for (final int windowSize : new int[] { 1, 10, 15, 100, 2000 }) {
+			assert Stream.of(FileSource.records(f, 10, windowSize).iterator()).map(firstByte).toList().equals(expected);
+		}
+
+		// the last record is shorter
+		final List<ByteBuffer> l = Stream.records(f, 300).toList();
+		assert l.size() == 4;
+		assert l.get(3).remaining() == 100;
+		assert l.get(3).isReadOnly();
+		assert l.get(3).get(0) == 90;
+		assert Stream.records(file(""), 10).toList().equals(Collections.emptyList());
+
+		try {
+			Stream.records(f, 0);
+			assert false;
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private static File file(String content) throws IOException {
+		final File res = File.createTempFile("stream4j", ".txt");
+		res.deleteOnExit();
+		write(res, content.getBytes(UTF_8));
+		return res;
+	}
+
+	private static void write(File file, byte[] content) throws IOException {
+		final FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+	}
+}
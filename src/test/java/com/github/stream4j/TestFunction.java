@@ -21,6 +21,7 @@ public class TestFunction {
 	public void testAll() {
 		apply();
 		andThen();
+		chain();
 		compose();
 		identity();
 	}
@@ -33,6 +34,28 @@ public class TestFunction {
 		assert x2.andThen(plus1).apply(2) == 5;
 	}
 
+	private void chain() {
+		final Function<Integer, String> toString = new Function<Integer, String>() {
+
+			@Override
+			public String apply(Integer t) {
+				return "#" + t;
+			}
+		};
+		final Function<Integer, String> chained = x2.andThen(plus1).andThen(toString);
+		assert chained.apply(2).equals("#5");
+		assert chained.compose(x2).apply(1).equals("#5");
+		assert x2.andThen(plus1.andThen(toString)).apply(2).equals("#5");
+
+		// a long chain is flattened, instead of being applied recursively
+		Function<Integer, Integer> f = plus1;
+		for (int i = 0; i < 100000; i++) {
+			f = i % 2 == 0 ? f.andThen(plus1) : f.compose(plus1);
+		}
+		assert f.apply(0) == 100001;
+		assert x2.andThen(plus1).compose(plus1).andThen(x2).apply(1) == 10;
+	}
+
 	private void compose() {
 		assert x2.compose(plus1).apply(2) == 6;
 	}
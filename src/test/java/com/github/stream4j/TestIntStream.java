@@ -0,0 +1,167 @@
+package com.github.stream4j;
+
+import java.util.Arrays;
+
+public class TestIntStream {
+	private static final IntPredicate even = new IntPredicate() {
+
+		@Override
+		public boolean test(int value) {
+			return value % 2 == 0;
+		}
+	};
+
+	private static final IntUnaryOperator x2 = new IntUnaryOperator() {
+
+		@Override
+		public int applyAsInt(int operand) {
+			return operand * 2;
+		}
+	};
+
+	public void testAll() {
+		average();
+		boxed();
+		count();
+		filter();
+		limit();
+		map();
+		match();
+		minMax();
+		range();
+		reduce();
+		skip();
+		sorted();
+		sum();
+		summaryStatistics();
+		toArray();
+	}
+
+	private void average() {
+		assert IntStream.of().average() == null;
+		assert IntStream.of(1, 2).average() == 1.5d;
+	}
+
+	private void boxed() {
+		assert IntStream.of(1, 2).boxed().toList().equals(Arrays.asList(1, 2));
+		assert IntStream.of(1, 2).asLongStream().sum() == 3L;
+		assert IntStream.of(1, 2).asDoubleStream().sum() == 3d;
+	}
+
+	private void count() {
+		assert IntStream.of().count() == 0;
+		assert IntStream.of(1, 2, 3).count() == 3;
+		assert IntStream.of(1, 2, 3).filter(even).count() == 1;
+	}
+
+	private void filter() {
+		assert Arrays.equals(IntStream.of().filter(even).toArray(), new int[0]);
+		assert Arrays.equals(IntStream.of(1, 2, 3, 4).filter(even).toArray(), new int[] { 2, 4 });
+		assert Arrays.equals(IntStream.of(1, 2, 3, 4).filter(even.negate()).toArray(), new int[] { 1, 3 });
+	}
+
+	private void limit() {
+		assert Arrays.equals(IntStream.of(1, 2, 3).limit(0).toArray(), new int[0]);
+		assert Arrays.equals(IntStream.of(1, 2, 3).limit(2).toArray(), new int[] { 1, 2 });
+		assert Arrays.equals(IntStream.of(1, 2, 3).limit(4).toArray(), new int[] { 1, 2, 3 });
+		assert IntStream.of(1, 2, 3).limit(2).count() == 2;
+	}
+
+	private void map() {
+		assert Arrays.equals(IntStream.of(1, 2).map(x2).toArray(), new int[] { 2, 4 });
+		assert Arrays.equals(IntStream.of(1, 2).map(x2.andThen(x2)).toArray(), new int[] { 4, 8 });
+		assert IntStream.of(1, 2).mapToObj(new IntFunction<String>() {
+
+			@Override
+			public String apply(int value) {
+				return Integer.toString(value);
+			}
+		}).toList().equals(Arrays.asList("1", "2"));
+	}
+
+	private void match() {
+		assert IntStream.of(1, 2).anyMatch(even);
+		assert !IntStream.of(1, 3).anyMatch(even);
+		assert IntStream.of(2, 4).allMatch(even);
+		assert !IntStream.of(1, 2).allMatch(even);
+		assert IntStream.of(1, 3).noneMatch(even);
+		assert IntStream.of().findFirst() == null;
+		assert IntStream.of(1, 2).findFirst() == 1;
+	}
+
+	private void minMax() {
+		assert IntStream.of().min() == null;
+		assert IntStream.of().max() == null;
+		assert IntStream.of(3, 1, 2).min() == 1;
+		assert IntStream.of(3, 1, 2).max() == 3;
+	}
+
+	private void range() {
+		assert Arrays.equals(IntStream.range(0, 0).toArray(), new int[0]);
+		assert Arrays.equals(IntStream.range(0, 3).toArray(), new int[] { 0, 1, 2 });
+		assert Arrays.equals(IntStream.rangeClosed(0, 2).toArray(), new int[] { 0, 1, 2 });
+		assert IntStream.rangeClosed(Integer.MAX_VALUE - 1, Integer.MAX_VALUE).count() == 2;
+		assert IntStream.rangeClosed(Integer.MAX_VALUE - 1, Integer.MAX_VALUE).max() == Integer.MAX_VALUE;
+	}
+
+	private void reduce() {
+		final IntBinaryOperator product = new IntBinaryOperator() {
+
+			@Override
+			public int applyAsInt(int left, int right) {
+				return left * right;
+			}
+		};
+		assert IntStream.of().reduce(1, product) == 1;
+		assert IntStream.of(2, 3, 4).reduce(1, product) == 24;
+		assert IntStream.of().reduce(product) == null;
+		assert IntStream.of(5).reduce(product) == 5;
+		assert IntStream.rangeClosed(1, 5).reduce(product) == 120;
+	}
+
+	private void skip() {
+		assert Arrays.equals(IntStream.of(1, 2, 3).skip(0).toArray(), new int[] { 1, 2, 3 });
+		assert Arrays.equals(IntStream.of(1, 2, 3).skip(2).toArray(), new int[] { 3 });
+		assert Arrays.equals(IntStream.of(1, 2, 3).skip(4).toArray(), new int[0]);
+		assert IntStream.of(1, 2, 3).skip(1).count() == 2;
+		assert IntStream.of(1, 2, 3).skip(4).count() == 0;
+	}
+
+	private void sorted() {
+		assert Arrays.equals(IntStream.of(3, 1, 2).sorted().toArray(), new int[] { 1, 2, 3 });
+	}
+
+	private void sum() {
+		assert IntStream.of().sum() == 0;
+		assert IntStream.of(1, 2, 3).sum() == 6;
+		assert Stream.of("a", "bc").mapToInt(new ToIntFunction<String>() {
+
+			@Override
+			public int applyAsInt(String value) {
+				return value.length();
+			}
+		}).sum() == 3;
+	}
+
+	private void summaryStatistics() {
+		final IntSummaryStatistics empty = IntStream.of().summaryStatistics();
+		assert empty.getCount() == 0;
+		assert empty.getMin() == Integer.MAX_VALUE;
+		assert empty.getAverage() == 0d;
+
+		final IntSummaryStatistics stats = IntStream.of(1, 2, 6).summaryStatistics();
+		assert stats.getCount() == 3;
+		assert stats.getSum() == 9;
+		assert stats.getMin() == 1;
+		assert stats.getMax() == 6;
+		assert stats.getAverage() == 3d;
+
+		stats.combine(IntStream.of(-3).summaryStatistics());
+		assert stats.getCount() == 4;
+		assert stats.getMin() == -3;
+	}
+
+	private void toArray() {
+		assert Arrays.equals(IntStream.range(0, 100).filter(even).toArray(), IntStream.range(0, 50).map(x2).toArray());
+	}
+}
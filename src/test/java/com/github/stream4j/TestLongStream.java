@@ -0,0 +1,58 @@
+package com.github.stream4j;
+
+import java.util.Arrays;
+
+public class TestLongStream {
+	private static final LongPredicate even = new LongPredicate() {
+
+		@Override
+		public boolean test(long value) {
+			return value % 2 == 0;
+		}
+	};
+
+	public void testAll() {
+		filter();
+		range();
+		statistics();
+	}
+
+	private void filter() {
+		assert Arrays.equals(LongStream.of(1, 2, 3, 4).filter(even).toArray(), new long[] { 2, 4 });
+		assert LongStream.of(1, 2).boxed().toList().equals(Arrays.asList(1L, 2L));
+	}
+
+	private void range() {
+		assert LongStream.range(0, 0).count() == 0;
+		assert Arrays.equals(LongStream.range(0, 3).toArray(), new long[] { 0, 1, 2 });
+		assert LongStream.rangeClosed(Long.MAX_VALUE - 1, Long.MAX_VALUE).max() == Long.MAX_VALUE;
+	}
+
+	private void statistics() {
+		assert LongStream.of().max() == null;
+		assert LongStream.of(Integer.MAX_VALUE, Integer.MAX_VALUE).sum() == 2L * Integer.MAX_VALUE;
+		assert LongStream.of(3, 1, 2).min() == 1;
+		final LongBinaryOperator product = new LongBinaryOperator() {
+
+			@Override
+			public long applyAsLong(long left, long right) {
+				return left * right;
+			}
+		};
+		assert LongStream.of(3, 1, 2).reduce(1, product) == 6;
+		assert LongStream.of().reduce(product) == null;
+		assert LongStream.of(3, 1, 2).reduce(product) == 6;
+		assert LongStream.of(1, 2).average() == 1.5d;
+
+		final LongSummaryStatistics stats = Stream.of("a", "bcd").mapToLong(new ToLongFunction<String>() {
+
+			@Override
+			public long applyAsLong(String value) {
+				return value.length();
+			}
+		}).summaryStatistics();
+		assert stats.getCount() == 2;
+		assert stats.getSum() == 4;
+		assert stats.getMax() == 3;
+	}
+}
@@ -1,5 +1,10 @@
 package com.github.stream4j;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 public class TestPredicate {
 	private static final Predicate<Integer> gt4 = new Predicate<Integer>() {
 
@@ -18,22 +23,68 @@ public class TestPredicate {
 	};
 
 	public void testAll() {
+		allOf();
 		and();
+		anyOf();
 		negate();
 		or();
 		isEqual();
 	}
 
+	private void allOf() {
+		assert Predicate.allOf(Collections.<Predicate<Integer>> emptyList()).test(1);
+		assert Predicate.allOf(Arrays.asList(gt4, Predicate.<Integer> isEqual(5))).test(5);
+		assert !Predicate.allOf(Arrays.asList(gt4, Predicate.<Integer> isEqual(5))).test(6);
+
+		// the predicates are evaluated in order, until one is false
+		final List<Integer> evaluated = new ArrayList<Integer>();
+		final List<Predicate<Integer>> predicates = new ArrayList<Predicate<Integer>>();
+		for (int i = 0; i < 5; i++) {
+			predicates.add(recording(i, i != 2, evaluated));
+		}
+		assert !Predicate.allOf(predicates).test(0);
+		assert evaluated.equals(Arrays.asList(0, 1, 2));
+	}
+
 	private void and() {
 		assert !gt4.and(Predicate.isEqual(2)).test(2);
 		assert gt4.and(Predicate.isEqual(5)).test(5);
+
+		// a long chain is flattened, instead of being evaluated recursively
+		Predicate<Integer> chain = gt4;
+		for (int i = 0; i < 100000; i++) {
+			chain = chain.and(gt4.negate().negate());
+		}
+		assert chain.test(5);
+		assert !chain.test(4);
+		try {
+			gt4.and(null);
+			assert false;
+		} catch (final NullPointerException e) {
+			// expected
+		}
+	}
+
+	private void anyOf() {
+		assert !Predicate.anyOf(Collections.<Predicate<Integer>> emptyList()).test(1);
+		assert Predicate.anyOf(Arrays.asList(gt4, lt2)).test(1);
+		assert !Predicate.anyOf(Arrays.asList(gt4, lt2)).test(3);
+
+		// the predicates are evaluated in order, until one is true
+		final List<Integer> evaluated = new ArrayList<Integer>();
+		final List<Predicate<Integer>> predicates = new ArrayList<Predicate<Integer>>();
+		for (int i = 0; i < 5; i++) {
+			predicates.add(recording(i, i == 3, evaluated));
+		}
+		assert Predicate.anyOf(predicates).test(0);
+		assert evaluated.equals(Arrays.asList(0, 1, 2, 3));
 	}
 
 	private void negate() {
 		final Predicate<Integer> lt5 = gt4.negate();
 		assert lt5.test(1);
 		assert !lt5.test(6);
-
+		assert lt5.negate() == gt4;
 	}
 
 	private void isEqual() {
@@ -52,5 +103,27 @@ public class TestPredicate {
 		assert not234.test(1);
 		assert !not234.test(3);
 		assert not234.test(5);
+
+		Predicate<Integer> chain = gt4;
+		for (int i = 0; i < 100000; i++) {
+			chain = chain.or(Predicate.<Integer> isEqual(i + 10));
+		}
+		assert chain.test(5);
+		assert chain.test(-5 + 100000);
+		assert !chain.test(3);
+	}
+
+	/**
+	 * Returns a predicate which adds its index to the evaluated list, and returns result.
+	 */
+	private static Predicate<Integer> recording(final int index, final boolean result, final List<Integer> evaluated) {
+		return new Predicate<Integer>() {
+
+			@Override
+			public boolean test(Integer t) {
+				evaluated.add(index);
+				return result;
+			}
+		};
 	}
 }
@@ -0,0 +1,173 @@
+package com.github.stream4j;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestResultSetSource {
+	private static final RowMapper<String> name = new RowMapper<String>() {
+
+		@Override
+		public String map(ResultSet rs) throws SQLException {
+			return rs.getString(2);
+		}
+	};
+
+	public void testAll() throws SQLException {
+		rows();
+		rowsStatement();
+	}
+
+	private void rows() {
+		FakeResultSet fake = new FakeResultSet(0);
+		assert Stream.rows(fake.rs, name).toList().isEmpty();
+		assert fake.closed;
+
+		fake = new FakeResultSet(5);
+		assert Stream.rows(fake.rs, name).toList().equals(Arrays.asList("row1", "row2", "row3", "row4", "row5"));
+		assert fake.closed;
+
+		fake = new FakeResultSet(5);
+		assert Stream.rows(fake.rs, RowMapper.column(1, Integer.class)).parallel().toList()
+				.equals(Arrays.asList(1, 2, 3, 4, 5));
+		assert fake.closed;
+
+		fake = new FakeResultSet(5);
+		assert Stream.rows(fake.rs, RowMapper.of(new Function<ResultSet, Integer>() {
+
+			@Override
+			public Integer apply(ResultSet t) {
+				try {
+					return t.getInt(1) * 10;
+				} catch (final SQLException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		})).toList().equals(Arrays.asList(10, 20, 30, 40, 50));
+
+		// the rows are read lazily, and the result set is closed by short-circuiting operations
+		fake = new FakeResultSet(1000);
+		assert Stream.rows(fake.rs, name).findFirst().equals("row1");
+		assert fake.read == 1;
+		assert fake.closed;
+		fake = new FakeResultSet(1000);
+		assert Stream.rows(fake.rs, name).limit(3).count() == 3;
+		assert fake.read == 3;
+		assert fake.closed;
+
+		// including after the operations that read the rows through an iterator
+		fake = new FakeResultSet(1000);
+		assert Stream.rows(fake.rs, name).flatMap(new Function<String, Stream<String>>() {
+
+			@Override
+			public Stream<String> apply(String t) {
+				return Stream.of(t, t);
+			}
+		}).findFirst().equals("row1");
+		assert fake.closed;
+		fake = new FakeResultSet(1000);
+		assert Stream.rows(fake.rs, name).parallel().limit(3).toList().equals(Arrays.asList("row1", "row2", "row3"));
+		assert fake.closed;
+		fake = new FakeResultSet(1000);
+		assert Stream.rows(fake.rs, RowMapper.column(1, Integer.class)).mapToInt(new ToIntFunction<Integer>() {
+
+			@Override
+			public int applyAsInt(Integer value) {
+				return value;
+			}
+		}).findFirst() == 1;
+		assert fake.closed;
+		fake = new FakeResultSet(1000);
+		assert Stream.rows(fake.rs, name).prefetch(4).findFirst().equals("row1");
+		assert fake.closed;
+
+		// the result set is closed by close
+		fake = new FakeResultSet(1000);
+		final Stream<String> stream = Stream.rows(fake.rs, name);
+		assert !fake.closed;
+		stream.close();
+		assert fake.closed;
+
+		// the result set is closed when the mapper fails
+		fake = new FakeResultSet(5);
+		try {
+			Stream.rows(fake.rs, new RowMapper<String>() {
+
+				@Override
+				public String map(ResultSet rs) throws SQLException {
+					throw new SQLException("fail");
+				}
+			}).toList();
+			assert false;
+		} catch (final RuntimeException e) {
+			assert e.getCause().getMessage().equals("fail");
+		}
+		assert fake.closed;
+	}
+
+	private void rowsStatement() throws SQLException {
+		final FakeResultSet fake = new FakeResultSet(5);
+		final List<Object> calls = new ArrayList<Object>();
+		final PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { PreparedStatement.class }, new InvocationHandler() {
+
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) {
+						calls.add(method.getName());
+						if (args != null) calls.addAll(Arrays.asList(args));
+						return method.getName().equals("executeQuery") ? fake.rs : null;
+					}
+				});
+		assert Stream.rows(statement, 100, name).anyMatch(new Predicate<String>() {
+
+			@Override
+			public boolean test(String t) {
+				return t.equals("row2");
+			}
+		});
+		assert fake.read == 2;
+		assert fake.closed;
+		assert calls.equals(Arrays.<Object> asList("setFetchSize", 100, "executeQuery", "close"));
+	}
+
+	/**
+	 * A result set whose row i has the values (i, "row" + i).
+	 */
+	private static class FakeResultSet implements InvocationHandler {
+		final ResultSet rs;
+		private final int rowCount;
+		int read = 0;
+		volatile boolean closed = false;
+
+		public FakeResultSet(int rowCount) {
+			this.rowCount = rowCount;
+			this.rs = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+					new Class<?>[] { ResultSet.class }, this);
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+			final String name = method.getName();
+			if (name.equals("close")) {
+				closed = true;
+				return null;
+			}
+			if (closed) throw new SQLException("closed");
+			if (name.equals("next")) {
+				if (read == rowCount) return false;
+				read++;
+				return true;
+			}
+			if (read == 0) throw new SQLException("before first row");
+			if (name.equals("getString")) return (Integer) args[0] == 1 ? String.valueOf(read) : "row" + read;
+			if (name.equals("getInt") || name.equals("getObject")) return read;
+			throw new UnsupportedOperationException(name);
+		}
+	}
+}
@@ -1,5 +1,10 @@
 package com.github.stream4j;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -7,11 +12,26 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 public class TestStream {
 	private static final List<Integer> emptyList = Collections.<Integer> emptyList();
@@ -34,25 +54,44 @@ public class TestStream {
 	public void testAll() {
 		allMatch();
 		anyMatch();
+		batch();
+		cache();
+		close();
 		count();
+		distinct();
+		dropWhile();
 		filter();
 		findAny();
 		findFirst();
 		flatMap();
 		forEach();
 		groupBy();
+		groupByConcurrent();
+		instrumented();
 		limit();
 		map();
+		mapAsync();
 		max();
 		min();
 		noneMatch();
+		parallel();
 		partitionBy();
+		partitionByConcurrent();
+		prefetch();
+		reduce();
 		skip();
+		sliding();
 		sorted();
+		sortedExternal();
+		takeWhile();
+		toArray();
+		toConcurrentMap();
 		toMap();
 		toSet();
 		toSortedMap();
 		toSortedSet();
+		topK();
+		window();
 	}
 
 	private void allMatch() {
@@ -71,6 +110,369 @@ public class TestStream {
 		assert Stream.of(3, 4, 5).anyMatch(gt2);
 	}
 
+	private void batch() {
+		assert Stream.of(emptyList).batch(2).toList().isEmpty();
+		assert Stream.of(1, 2, 3, 4, 5).batch(2).toList()
+				.equals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4), Arrays.asList(5)));
+		assert Stream.of(1, 2, 3, 4).batch(2).count() == 2;
+		assert Stream.of(1, 2, 3, 4, 5).batch(2).count() == 3;
+		assert Stream.of(1, 2, 3, 4, 5).filter(gt2).batch(5).toList().equals(Arrays.asList(Arrays.asList(3, 4, 5)));
+		assert Stream.of(1, 2, 3).batch(5).findFirst().equals(Arrays.asList(1, 2, 3));
+
+		// the batches span the chunks of a parallel stream
+		final List<Integer> range = new ArrayList<Integer>();
+		for (int i = 0; i < 10000; i++) {
+			range.add(i);
+		}
+		final List<List<Integer>> parallelBatches = Stream.of(range.iterator()).batch(3).parallel().toList();
+		assert parallelBatches.size() == 3334;
+		for (int i = 0; i < parallelBatches.size(); i++) {
+			assert parallelBatches.get(i).equals(range.subList(3 * i, Math.min(3 * i + 3, range.size())));
+		}
+
+		// the elements are read one batch at a time
+		final Iterator<Integer> source = Arrays.asList(1, 2, 3, 4, 5).iterator();
+		assert Stream.of(source).batch(2).findFirst().equals(Arrays.asList(1, 2));
+		assert source.next() == 3;
+
+		final List<List<Integer>> batches = new ArrayList<List<Integer>>();
+		final Consumer<List<Integer>> addCopy = new Consumer<List<Integer>>() {
+
+			@Override
+			public void accept(List<Integer> t) {
+				synchronized (batches) {
+					batches.add(new ArrayList<Integer>(t));
+				}
+			}
+		};
+		Stream.of(Arrays.asList(1, 2, 3, 4, 5).iterator()).forEachBatch(2, addCopy);
+		assert batches.equals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4), Arrays.asList(5)));
+
+		final List<Integer> ints = new ArrayList<Integer>();
+		for (int i = 0; i < 10000; i++) {
+			ints.add(i);
+		}
+		batches.clear();
+		Stream.of(ints).parallel().forEachBatch(100, addCopy);
+		assert batches.size() == 100;
+		long total = 0;
+		for (final List<Integer> batch : batches) {
+			assert batch.size() == 100;
+			assert batch.get(99) - batch.get(0) == 99;
+			total += batch.size();
+		}
+		assert total == ints.size();
+		assert Stream.of(ints).parallel().batch(1000).map(new Function<List<Integer>, Integer>() {
+
+			@Override
+			public Integer apply(List<Integer> t) {
+				return t.get(0);
+			}
+		}).toList().equals(Arrays.asList(0, 1000, 2000, 3000, 4000, 5000, 6000, 7000, 8000, 9000));
+	}
+
+	private void cache() {
+		final List<Integer> ints = new ArrayList<Integer>();
+		for (int i = 0; i < 3000; i++) {
+			ints.add(i);
+		}
+		final AtomicInteger computed = new AtomicInteger();
+		final Function<Integer, Integer> counting = new Function<Integer, Integer>() {
+
+			@Override
+			public Integer apply(Integer t) {
+				computed.incrementAndGet();
+				return t;
+			}
+		};
+
+		// the elements are computed once, lazily
+		final Stream<Integer> cached = Stream.of(ints.iterator()).map(counting).cache();
+		assert cached.findFirst() == 0;
+		assert computed.get() == 1;
+		assert cached.count() == 3000;
+		assert cached.toList().equals(ints);
+		assert cached.filter(gt2).count() == 2997;
+		assert cached.parallel().toList().equals(ints);
+		assert computed.get() == 3000;
+		assert Stream.of(emptyList).cache().toList().isEmpty();
+		assert Stream.of(1, null, 3).cache().toList().equals(Arrays.asList(1, null, 3));
+
+		// the operations reading the elements through an iterator replay the cache too
+		final Stream<Integer> replayed = Stream.of(Arrays.asList(3, 1, 5, 2, 4).iterator()).cache();
+		final ToIntFunction<Integer> toInt = new ToIntFunction<Integer>() {
+
+			@Override
+			public int applyAsInt(Integer value) {
+				return value;
+			}
+		};
+		final ToLongFunction<Integer> toLong = new ToLongFunction<Integer>() {
+
+			@Override
+			public long applyAsLong(Integer value) {
+				return value;
+			}
+		};
+		final Function<Integer, Stream<Integer>> twice = new Function<Integer, Stream<Integer>>() {
+
+			@Override
+			public Stream<Integer> apply(Integer t) {
+				return Stream.of(t, t);
+			}
+		};
+		for (int i = 0; i < 2; i++) {
+			assert replayed.mapToInt(toInt).sum() == 15;
+			assert replayed.mapToLong(toLong).sum() == 15;
+			assert replayed.mapToDouble(new ToDoubleFunction<Integer>() {
+
+				@Override
+				public double applyAsDouble(Integer value) {
+					return value;
+				}
+			}).sum() == 15;
+			assert replayed.slidingSum(2, toLong).toArray().length == 4;
+			assert replayed.flatMap(twice).count() == 10;
+			assert replayed.sorted().toList().equals(Arrays.asList(1, 2, 3, 4, 5));
+			assert replayed.sorted(intComparator, SortOptions.<Integer> maxElementsInMemory(2)).toList()
+					.equals(Arrays.asList(1, 2, 3, 4, 5));
+			assert replayed.prefetch(2).toList().equals(Arrays.asList(3, 1, 5, 2, 4));
+			assert replayed.parallel().limit(2).toList().equals(Arrays.asList(3, 1));
+		}
+
+		// several consumers reading at the same time
+		final Stream<Integer> nested = Stream.of(ints.iterator()).cache();
+		final AtomicInteger nestedCount = new AtomicInteger();
+		assert nested.reduce(0, new BinaryOperator<Integer>() {
+
+			@Override
+			public Integer apply(Integer t, Integer u) {
+				if (u == 10) nestedCount.set((int) nested.count());
+				return t + u;
+			}
+		}) == 2999 * 3000 / 2;
+		assert nestedCount.get() == 3000;
+		final Stream<Integer> shared = Stream.of(ints.iterator()).cache();
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<List<Integer>>> results = new ArrayList<Future<List<Integer>>>();
+			for (int i = 0; i < 4; i++) {
+				results.add(executor.submit(new Callable<List<Integer>>() {
+
+					@Override
+					public List<Integer> call() {
+						return shared.toList();
+					}
+				}));
+			}
+			for (final Future<List<Integer>> result : results) {
+				assert result.get().equals(ints);
+			}
+		} catch (final InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (final ExecutionException e) {
+			throw new RuntimeException(e);
+		} finally {
+			executor.shutdown();
+		}
+
+		// beyond the capacity, the elements are computed again from the source
+		computed.set(0);
+		final Stream<Integer> capped = Stream.of(ints).map(counting).cache(100);
+		assert capped.limit(50).toList().equals(ints.subList(0, 50));
+		assert computed.get() == 50;
+		assert capped.toList().equals(ints);
+		assert computed.get() == 3000;
+		assert capped.toList().equals(ints);
+		assert computed.get() == 6000;
+		assert Stream.of(ints).cache(10, new ToLongFunction<Integer>() {
+
+			@Override
+			public long applyAsLong(Integer t) {
+				return 2;
+			}
+		}).skip(4).limit(2).toList().equals(Arrays.asList(4, 5));
+
+		final Stream<Integer> notReplayable = Stream.of(ints.iterator()).cache(100);
+		assert notReplayable.count() == 3000;
+		try {
+			notReplayable.count();
+			assert false;
+		} catch (final IllegalStateException e) {
+			// expected
+		}
+		try {
+			Stream.of(ints).cache(0);
+			assert false;
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private void close() {
+		final List<String> closed = new ArrayList<String>();
+		final Stream<Integer> stream = Stream.of(1, 2, 3).onClose(new Recorder(closed, "a"));
+		final Stream<String> derived = stream.filter(gt2).sorted().map(toStr()).onClose(new Recorder(closed, "b"));
+		assert derived.toList().equals(Arrays.asList("3"));
+		assert closed.isEmpty();
+		derived.close();
+		assert closed.equals(Arrays.asList("a", "b"));
+		stream.close();
+		assert closed.equals(Arrays.asList("a", "b"));
+		try {
+			stream.onClose(new Recorder(closed, "c"));
+			assert false;
+		} catch (final IllegalStateException e) {
+			// expected
+		}
+
+		// all the handlers are run, then the first exception is rethrown
+		closed.clear();
+		final Runnable fail = new Runnable() {
+
+			@Override
+			public void run() {
+				throw new IllegalStateException("fail");
+			}
+		};
+		final Stream<Integer> failing = Stream.of(1).onClose(fail).parallel().onClose(new Recorder(closed, "a"));
+		try {
+			failing.close();
+			assert false;
+		} catch (final IllegalStateException e) {
+			assert e.getMessage().equals("fail");
+		}
+		assert closed.equals(Arrays.asList("a"));
+
+		// the mapped streams of flatMap are closed, even when the terminal operation stops early
+		final Function<Integer, Stream<Integer>> repeat = new Function<Integer, Stream<Integer>>() {
+
+			@Override
+			public Stream<Integer> apply(Integer t) {
+				return Stream.of(Collections.nCopies(t, t)).onClose(new Recorder(closed, String.valueOf(t)));
+			}
+		};
+		for (final boolean parallel : new boolean[] { false, true }) {
+			closed.clear();
+			final Stream<Integer> s = Stream.of(1, 2, 3);
+			assert (parallel ? s.parallel() : s).flatMap(repeat).count() == 6;
+			assert new HashSet<String>(closed).equals(new HashSet<String>(Arrays.asList("1", "2", "3")));
+			assert closed.size() == 3;
+
+			closed.clear();
+			final Stream<Integer> s2 = Stream.of(2, 2, 2);
+			assert (parallel ? s2.parallel() : s2).flatMap(repeat).findFirst() == 2;
+			assert closed.contains("2");
+			assert parallel || closed.equals(Arrays.asList("2"));
+		}
+
+		// the source is closed by the terminal operations stopping early after operations reading an iterator
+		final List<Integer> ints = new ArrayList<Integer>();
+		for (int i = 0; i < 10000; i++) {
+			ints.add(i);
+		}
+		final ToIntFunction<Integer> toInt = new ToIntFunction<Integer>() {
+
+			@Override
+			public int applyAsInt(Integer value) {
+				return value;
+			}
+		};
+		final ToLongFunction<Integer> toLong = new ToLongFunction<Integer>() {
+
+			@Override
+			public long applyAsLong(Integer value) {
+				return value;
+			}
+		};
+		ClosingSource<Integer> source = new ClosingSource<Integer>(ints);
+		assert Stream.of(source).flatMap(repeat).findFirst() == 1;
+		assert source.closed;
+		source = new ClosingSource<Integer>(ints);
+		assert Stream.of(source).mapToInt(toInt).findFirst() == 0;
+		assert source.closed;
+		source = new ClosingSource<Integer>(ints);
+		assert Stream.of(source).mapToLong(toLong).filter(new LongPredicate() {
+
+			@Override
+			public boolean test(long value) {
+				return value > 10;
+			}
+		}).anyMatch(new LongPredicate() {
+
+			@Override
+			public boolean test(long value) {
+				return true;
+			}
+		});
+		assert source.closed;
+		source = new ClosingSource<Integer>(ints);
+		assert Stream.of(source).mapToInt(toInt).boxed().findFirst() == 0;
+		assert source.closed;
+		source = new ClosingSource<Integer>(ints);
+		assert Stream.of(source).slidingSum(2, toLong).limit(1).toArray()[0] == 1;
+		assert source.closed;
+		source = new ClosingSource<Integer>(ints);
+		assert Stream.of(source).prefetch(4).findFirst() == 0;
+		assert source.closed;
+		source = new ClosingSource<Integer>(ints);
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			assert Stream.of(source).mapAsync(x2, 4, executor).findFirst() == 0;
+		} finally {
+			executor.shutdown();
+		}
+		assert source.closed;
+		source = new ClosingSource<Integer>(ints);
+		assert Stream.of(source).parallel().limit(3).toList().equals(Arrays.asList(0, 1, 2));
+		assert source.closed;
+		source = new ClosingSource<Integer>(ints);
+		assert Stream.of(source).parallel().skip(3).findFirst() == 3;
+		assert source.closed;
+		source = new ClosingSource<Integer>(ints);
+		assert Stream.of(source).distinct().parallel().findFirst() == 0;
+		assert source.closed;
+		source = new ClosingSource<Integer>(ints);
+		assert Stream.of(source).sorted(intComparator, SortOptions.<Integer> maxElementsInMemory(100)).findFirst() == 0;
+		assert source.closed;
+	}
+
+	/**
+	 * A source over the elements of a list, recording whether it has been closed.
+	 */
+	private static class ClosingSource<T> extends Source.IteratorSource<T> {
+		volatile boolean closed = false;
+
+		public ClosingSource(List<T> list) {
+			super(list.iterator(), Source.SIZE_UNKNOWN);
+		}
+
+		@Override
+		void close() {
+			closed = true;
+		}
+	}
+
+	/**
+	 * Records its name when run.
+	 */
+	private static class Recorder implements Runnable {
+		private final List<String> closed;
+		private final String name;
+
+		public Recorder(List<String> closed, String name) {
+			this.closed = closed;
+			this.name = name;
+		}
+
+		@Override
+		public void run() {
+			synchronized (closed) {
+				closed.add(name);
+			}
+		}
+	}
+
 	private void count() {
 		assert Stream.of(emptyList).count() == 0;
 		assert Stream.of(emptyList.iterator()).count() == 0;
@@ -78,6 +480,80 @@ public class TestStream {
 		assert Stream.of(1, 2, 3).count() == 3;
 	}
 
+	private void distinct() {
+		assert Stream.of(emptyList).distinct().toList().equals(emptyList);
+		assert Stream.of(3, 1, 3, 2, 1).distinct().toList().equals(Arrays.asList(3, 1, 2));
+		assert Stream.of(3, 1, 3, 2, 1).distinct().count() == 3;
+		assert Stream.of(3, null, 3, null).distinct().toList().equals(Arrays.asList(3, null));
+		assert Stream.of(10, 3, 17, 4).distinctBy(mod7).toList().equals(Arrays.asList(10, 4));
+		assert Stream.of(3, 1, 3, 2, 1).distinctApprox(100, 0.01).toList().equals(Arrays.asList(3, 1, 2));
+
+		// the elements are read lazily
+		final Iterator<Integer> source = Arrays.asList(1, 1, 2, 3).iterator();
+		assert Stream.of(source).distinct().limit(2).toList().equals(Arrays.asList(1, 2));
+		assert source.next() == 3;
+
+		final List<Integer> ints = new ArrayList<Integer>();
+		for (int i = 0; i < 100000; i++) {
+			ints.add((i * 31) % 1000);
+		}
+		// the first 1000 elements are distinct, the next ones are repeated
+		final List<Integer> expected = ints.subList(0, 1000);
+		assert Stream.of(ints).distinct().toList().equals(expected);
+		assert Stream.of(ints).parallel().distinct().toList().equals(expected);
+		assert Stream.of(ints).parallel().map(x2).distinct().filter(gt2).count() == 998;
+		assert Stream.of(ints).distinct().parallel().toList().equals(expected);
+		assert Stream.of(ints.iterator()).distinct().parallel().map(x2).count() == 1000;
+		assert Stream.of(ints.iterator()).distinctBy(mod7).parallel().count() == 7;
+		assert Stream.of(ints.iterator()).distinctApprox(1000, 0.01).parallel().count() <= 1000;
+
+		// the Bloom filter never keeps a duplicate, and drops few distinct elements
+		final long approxCount = Stream.of(ints.iterator()).distinctApprox(1000, 0.01).count();
+		assert approxCount <= 1000 && approxCount > 950;
+		final Set<Integer> unique = new HashSet<Integer>();
+		for (int i = 0; i < 100000; i++) {
+			unique.add(i);
+		}
+		assert Stream.of(unique).distinctApprox(100000, 0.01).count() > 98000;
+
+		// the hash codes of these longs are all 0, but their 64-bit hashes are distinct
+		final List<Long> longs = new ArrayList<Long>();
+		for (long i = 0; i < 10000; i++) {
+			longs.add(i << 32 | i);
+		}
+		final ToLongFunction<Long> identity = new ToLongFunction<Long>() {
+
+			@Override
+			public long applyAsLong(Long value) {
+				return value;
+			}
+		};
+		assert Stream.of(longs).distinctApprox(10000, 0.01).count() == 1;
+		assert Stream.of(longs).distinctApprox(10000, 0.01, identity).count() > 9800;
+		assert Stream.of(longs).map(new Function<Long, Long>() {
+
+			@Override
+			public Long apply(Long t) {
+				return t & 3;
+			}
+		}).distinctApprox(100, 0.01, identity).count() == 4;
+	}
+
+	private void dropWhile() {
+		final Predicate<Integer> lt3 = new Predicate<Integer>() {
+
+			@Override
+			public boolean test(Integer t) {
+				return t < 3;
+			}
+		};
+		assert Stream.of(1, 2, 3, 1, 4).dropWhile(lt3).toList().equals(Arrays.asList(3, 1, 4));
+		assert Stream.of(Arrays.asList(1, 2).iterator()).dropWhile(lt3).toList().isEmpty();
+		assert Stream.of(emptyList).dropWhile(lt3).count() == 0;
+		assert Stream.of(5, 1).dropWhile(lt3).toList().equals(Arrays.asList(5, 1));
+		assert Stream.of(1, 2, 3, 1, 4).parallel().dropWhile(lt3).toList().equals(Arrays.asList(3, 1, 4));
+	}
+
 	private void filter() {
 		assert Stream.of(emptyList).filter(gt2).count() == 0;
 		assert Stream.of(emptyList.iterator()).filter(gt2).count() == 0;
@@ -134,6 +610,23 @@ public class TestStream {
 		final Set<String> actual = new HashSet<String>(Stream.of(employees).flatMap(getRoles).toList());
 		final HashSet<String> expected = new HashSet<String>(Arrays.asList("role1", "role2", "role3"));
 		assert actual.equals(expected);
+
+		// the elements are mapped lazily
+		final List<Integer> mappedElements = new ArrayList<Integer>();
+		final Function<Integer, Stream<Integer>> repeat = new Function<Integer, Stream<Integer>>() {
+
+			@Override
+			public Stream<Integer> apply(Integer t) {
+				mappedElements.add(t);
+				return Stream.of(Collections.nCopies(t, t));
+			}
+		};
+		assert Stream.of(0, 2, 3, 4).flatMap(repeat).findFirst() == 2;
+		assert mappedElements.equals(Arrays.asList(0, 2));
+		mappedElements.clear();
+		assert Stream.of(1, 2, 3, 4).flatMap(repeat).limit(3).toList().equals(Arrays.asList(1, 2, 2));
+		assert mappedElements.equals(Arrays.asList(1, 2));
+		assert Stream.of(1, 2, 3).flatMap(repeat).count() == 6;
 	}
 
 	private static class Add extends Consumer<Integer> {
@@ -188,6 +681,202 @@ public class TestStream {
 			expected.put('b', Arrays.asList("bb"));
 			assert actual.equals(expected);
 		}
+		{
+			final Map<Character, Long> actual = Stream.of("ab", "ac", "bb").groupBy(firstChar,
+					Collectors.<String> counting());
+			final Map<Character, Long> expected = new HashMap<Character, Long>();
+			expected.put('a', 2L);
+			expected.put('b', 1L);
+			assert actual.equals(expected);
+		}
+		{
+			final ToIntFunction<String> length = new ToIntFunction<String>() {
+
+				@Override
+				public int applyAsInt(String value) {
+					return value.length();
+				}
+			};
+			final Map<Character, Integer> actual = Stream.of("ab", "acd", "b").groupBy(firstChar,
+					Collectors.summingInt(length));
+			assert actual.get('a') == 5;
+			assert actual.get('b') == 1;
+			assert Stream.of("ab", "acd", "b").groupBy(firstChar, Collectors.maxBy(new Comparator<String>() {
+
+				@Override
+				public int compare(String o1, String o2) {
+					return o1.length() - o2.length();
+				}
+			})).get('a').equals("acd");
+			assert Stream.of("ab", "ac", "ab").groupBy(firstChar, Collectors.mapping(toStr(), Collectors.<String> toSet()))
+					.get('a').equals(new HashSet<String>(Arrays.asList("ab", "ac")));
+			assert Stream.of("ab", "ac", "bb").groupBy(firstChar, Collectors.reducing("", new BinaryOperator<String>() {
+
+				@Override
+				public String apply(String t, String u) {
+					return t + u;
+				}
+			})).get('a').equals("abac");
+		}
+		{
+			// the map type is chosen by the caller
+			final TreeMap<Character, List<String>> actual = Stream.of("bb", "ab", "ac").groupBy(firstChar,
+					new Supplier<TreeMap<Character, List<String>>>() {
+
+						@Override
+						public TreeMap<Character, List<String>> get() {
+							return new TreeMap<Character, List<String>>();
+						}
+					}, Collectors.<String> toList());
+			assert actual.firstKey() == 'a';
+			assert actual.get('a').equals(Arrays.asList("ab", "ac"));
+		}
+		{
+			final List<Integer> ints = new ArrayList<Integer>();
+			for (int i = 0; i < 100000; i++) {
+				ints.add((i * 31) % 1000);
+			}
+			final Map<Integer, Long> counts = Stream.of(ints).parallel().groupBy(mod7, Collectors.<Integer> counting());
+			assert counts.equals(Stream.of(ints).groupBy(mod7, Collectors.<Integer> counting()));
+			long total = 0;
+			for (final Long count : counts.values()) {
+				total += count;
+			}
+			assert total == ints.size();
+			assert Stream.of(ints).parallel().groupBy(mod7, Collectors.minBy(intComparator)).get(3) == 3;
+		}
+	}
+
+	private void groupByConcurrent() {
+		final List<Integer> ints = new ArrayList<Integer>();
+		for (int i = 0; i < 10000; i++) {
+			ints.add(i);
+		}
+		final Function<Integer, Integer> mod7 = new Function<Integer, Integer>() {
+
+			@Override
+			public Integer apply(Integer t) {
+				return t % 7;
+			}
+		};
+		final Map<Integer, List<Integer>> expected = Stream.of(ints).groupBy(mod7);
+		assert Stream.of(ints).groupByConcurrent(mod7).equals(expected);
+		assert Stream.of(emptyList).groupByConcurrent(mod7).isEmpty();
+		final Map<Integer, List<Integer>> actual = Stream.of(ints).parallel().groupByConcurrent(mod7);
+		assert actual.keySet().equals(expected.keySet());
+		for (final Integer key : expected.keySet()) {
+			final List<Integer> group = new ArrayList<Integer>(actual.get(key));
+			Collections.sort(group);
+			assert group.equals(expected.get(key));
+		}
+
+		// several streams grouped into the same map at the same time
+		final ConcurrentMap<Integer, List<Integer>> shared = new ConcurrentHashMap<Integer, List<Integer>>();
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final List<Future<?>> tasks = new ArrayList<Future<?>>();
+			for (int i = 0; i < 4; i++) {
+				final List<Integer> partition = ints.subList(i * 2500, (i + 1) * 2500);
+				tasks.add(executor.submit(new Runnable() {
+
+					@Override
+					public void run() {
+						Stream.of(partition).parallel().groupByConcurrent(mod7, shared);
+					}
+				}));
+			}
+			for (final Future<?> task : tasks) {
+				task.get();
+			}
+		} catch (final InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (final ExecutionException e) {
+			throw new RuntimeException(e);
+		} finally {
+			executor.shutdown();
+		}
+		for (final Integer key : expected.keySet()) {
+			final List<Integer> group = new ArrayList<Integer>(shared.get(key));
+			Collections.sort(group);
+			assert group.equals(expected.get(key));
+		}
+	}
+
+	private void instrumented() {
+		final List<PipelineMetrics> evaluations = new ArrayList<PipelineMetrics>();
+		final MetricsListener listener = new MetricsListener() {
+
+			@Override
+			public void evaluated(PipelineMetrics metrics) {
+				synchronized (evaluations) {
+					evaluations.add(metrics);
+				}
+			}
+		};
+		final Integer[] ints = new Integer[10000];
+		for (int i = 0; i < ints.length; i++) {
+			ints[i] = i;
+		}
+
+		// not measured while there is no listener
+		assert Stream.of(ints).instrumented("test").filter(gt2).count() == 9997;
+		StreamMetrics.addListener(listener);
+		try {
+			assert Stream.of(ints).filter(gt2).count() == 9997;
+			assert evaluations.isEmpty();
+
+			for (final boolean parallel : new boolean[] { false, true }) {
+				evaluations.clear();
+				final Stream<Integer> stream = Stream.of(ints).instrumented("test");
+				assert (parallel ? stream.parallel() : stream).filter(gt2).map(toStr()).toList().size() == 9997;
+				assert evaluations.size() == 1;
+				final PipelineMetrics metrics = evaluations.get(0);
+				assert metrics.getName().equals("test");
+				assert metrics.isParallel() == parallel;
+				assert metrics.getTerminalOperation().equals("toList");
+				final List<String> names = new ArrayList<String>();
+				for (final StageMetrics stage : metrics.getStages()) {
+					names.add(stage.getName());
+					assert stage.getNanos() >= 0;
+				}
+				assert names.equals(Arrays.asList("array", "filter", "map", "toList"));
+				final StageMetrics filter = metrics.getStages().get(1);
+				assert metrics.getStages().get(0).getOutputCount() == 10000;
+				assert filter.getInputCount() == 10000;
+				assert filter.getOutputCount() == 9997;
+				assert filter.getSelectivity() == 0.9997;
+				assert metrics.getStages().get(3).getInputCount() == 9997;
+			}
+
+			// short-circuiting operations
+			evaluations.clear();
+			assert Stream.of(ints).instrumented("test").filter(gt2).limit(10).count() == 10;
+			final List<StageMetrics> stages = evaluations.get(0).getStages();
+			assert stages.get(0).getOutputCount() == 13;
+			assert stages.get(2).getName().equals("limit");
+			assert stages.get(2).getOutputCount() == 10;
+
+			// the streams derived after a stateful operation are instrumented under the same name
+			evaluations.clear();
+			assert Stream.of(ints).instrumented("test").filter(gt2).sorted().map(toStr()).count() == 9997;
+			assert evaluations.size() == 2;
+			assert evaluations.get(1).getStages().get(0).getName().equals("sorted");
+
+			StreamMetrics.registerMBeans();
+			Stream.of(ints).instrumented("jmx").filter(gt2).count();
+			Stream.of(ints).instrumented("jmx").filter(gt2).count();
+			final Object count = ManagementFactory.getPlatformMBeanServer().getAttribute(
+					new ObjectName("com.github.stream4j:type=Pipeline,name=\"jmx\""),
+					"EvaluationCount");
+			assert count.equals(2L);
+		} catch (final JMException e) {
+			throw new RuntimeException(e);
+		} finally {
+			StreamMetrics.removeListener(listener);
+		}
+		evaluations.clear();
+		assert Stream.of(ints).instrumented("test").filter(gt2).count() == 9997;
+		assert evaluations.isEmpty();
 	}
 
 	private void limit() {
@@ -198,6 +887,13 @@ public class TestStream {
 		assert Stream.of(1, 2, 3).limit(2).toList().equals(Arrays.asList(1, 2));
 		assert Stream.of(1, 2, 3).limit(3).toList().equals(Arrays.asList(1, 2, 3));
 		assert Stream.of(1, 2, 3).limit(4).toList().equals(Arrays.asList(1, 2, 3));
+
+		// the source is not read beyond the limit
+		final Iterator<Integer> source = Arrays.asList(1, 2, 3, 4).iterator();
+		assert Stream.of(source).filter(gt2).limit(1).toList().equals(Arrays.asList(3));
+		assert source.next() == 4;
+		assert Stream.of(Arrays.asList(1, 2, 3, 4).iterator()).limit(2).filter(gt2).count() == 0;
+		assert Stream.of(1, 2, 3, 4).limit(3).filter(gt2).limit(5).findFirst() == 3;
 	}
 
 	private static <T> Function<T, String> toStr() {
@@ -213,6 +909,101 @@ public class TestStream {
 	private void map() {
 		assert Stream.of(emptyList).map(toStr()).toList().equals(emptyList);
 		assert Stream.of(1, 2, 3).map(toStr()).toList().equals(Arrays.asList("1", "2", "3"));
+		assert Stream.of(1, 2, 3).filter(gt2).map(toStr()).findFirst().equals("3");
+
+		// the stages are applied element by element
+		final List<String> calls = new ArrayList<String>();
+		final Predicate<Integer> odd = new Predicate<Integer>() {
+
+			@Override
+			public boolean test(Integer t) {
+				calls.add("test" + t);
+				return t % 2 == 1;
+			}
+		};
+		final Function<Integer, Integer> square = new Function<Integer, Integer>() {
+
+			@Override
+			public Integer apply(Integer t) {
+				calls.add("apply" + t);
+				return t * t;
+			}
+		};
+		assert Stream.of(1, 2, 3).filter(odd).map(square).toList().equals(Arrays.asList(1, 9));
+		assert calls.equals(Arrays.asList("test1", "apply1", "test2", "test3", "apply3"));
+	}
+
+	private void mapAsync() {
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			final AtomicInteger calls = new AtomicInteger();
+			// the first elements are the slowest: the results are reordered
+			final Function<Integer, Integer> slowSquare = new Function<Integer, Integer>() {
+
+				@Override
+				public Integer apply(Integer t) {
+					calls.incrementAndGet();
+					try {
+						Thread.sleep(t < 4 ? 20 - 5 * t : 0);
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return t * t;
+				}
+			};
+			final List<Integer> ints = new ArrayList<Integer>();
+			for (int i = 0; i < 100; i++) {
+				ints.add(i);
+			}
+			final List<Integer> squares = Stream.of(ints).map(slowSquare).toList();
+
+			assert Stream.of(emptyList).mapAsync(slowSquare, 4, executor).toList().isEmpty();
+			assert Stream.of(ints).mapAsync(slowSquare, 4, executor).toList().equals(squares);
+			assert Stream.of(ints.iterator()).mapAsync(slowSquare, 1, executor).toList().equals(squares);
+			assert Stream.of(ints).mapAsync(slowSquare, 4, executor).filter(gt2).count() == 98;
+			assert Stream.of(ints).parallel().mapAsync(slowSquare, 4, executor).toList().equals(squares);
+			assert new HashSet<Integer>(Stream.of(ints).mapAsyncUnordered(slowSquare, 4, executor).toList())
+					.equals(new HashSet<Integer>(squares));
+			assert Stream.of(ints).mapAsyncUnordered(slowSquare, 4, executor).count() == 100;
+
+			// at most concurrency elements are read ahead
+			calls.set(0);
+			assert Stream.of(ints).mapAsync(slowSquare, 4, executor).findFirst() == 0;
+			assert calls.get() <= 4;
+			calls.set(0);
+			assert Stream.of(ints).mapAsyncUnordered(slowSquare, 4, executor).anyMatch(gt2);
+			assert calls.get() < 100;
+			calls.set(0);
+			assert Stream.of(ints).mapAsync(slowSquare, 4, executor).limit(10).toList().equals(squares.subList(0, 10));
+			assert calls.get() < 100;
+
+			// the exceptions are rethrown
+			final Function<Integer, Integer> failOn50 = new Function<Integer, Integer>() {
+
+				@Override
+				public Integer apply(Integer t) {
+					if (t == 50) throw new IllegalStateException("fail");
+					return t;
+				}
+			};
+			for (final boolean ordered : new boolean[] { true, false }) {
+				try {
+					if (ordered) Stream.of(ints).mapAsync(failOn50, 4, executor).toList();
+					else Stream.of(ints).mapAsyncUnordered(failOn50, 4, executor).toList();
+					assert false;
+				} catch (final IllegalStateException e) {
+					assert e.getMessage().equals("fail");
+				}
+			}
+			try {
+				Stream.of(ints).mapAsync(slowSquare, 0, executor);
+				assert false;
+			} catch (final IllegalArgumentException e) {
+				// expected
+			}
+		} finally {
+			executor.shutdownNow();
+		}
 	}
 
 	private void max() {
@@ -251,6 +1042,90 @@ public class TestStream {
 		assert !Stream.of(3, 4, 5).noneMatch(gt2);
 	}
 
+	private static final Function<Integer, Integer> x2 = new Function<Integer, Integer>() {
+
+		@Override
+		public Integer apply(Integer t) {
+			return t * 2;
+		}
+	};
+
+	private static final Function<Integer, Integer> mod7 = new Function<Integer, Integer>() {
+
+		@Override
+		public Integer apply(Integer t) {
+			return t % 7;
+		}
+	};
+
+	private void parallel() {
+		final List<Integer> ints = new ArrayList<Integer>();
+		for (int i = 0; i < 100000; i++) {
+			ints.add((i * 31) % 1000);
+		}
+		final List<Integer> expected = Stream.of(ints).filter(gt2).map(x2).toList();
+
+		assert !Stream.of(ints).isParallel();
+		assert Stream.of(ints).parallel().isParallel();
+		assert !Stream.of(ints).parallel().sequential().isParallel();
+
+		assert Stream.of(emptyList).parallel().toList().equals(emptyList);
+		assert Stream.of(emptyList).parallel().max() == null;
+		assert Stream.of(emptyList.iterator()).parallel().count() == 0;
+		assert Stream.of(ints).parallel().filter(gt2).map(x2).toList().equals(expected);
+		assert Stream.of(ints.iterator()).parallel().filter(gt2).map(x2).toList().equals(expected);
+		assert Stream.of(ints.toArray(new Integer[0])).parallel().filter(gt2).map(x2).toList().equals(expected);
+		assert Stream.of(new LinkedList<Integer>(ints)).parallel().filter(gt2).map(x2).toList().equals(expected);
+		assert Stream.of(ints).parallel().filter(gt2).map(x2).sequential().toList().equals(expected);
+		assert Stream.of(ints).parallel().filter(gt2).count() == expected.size();
+		assert Stream.of(ints).parallel().map(x2).toSet().equals(Stream.of(ints).map(x2).toSet());
+		assert Stream.of(ints).parallel().max() == 999;
+		assert Stream.of(ints).parallel().min(intComparator) == 0;
+		assert Stream.of(ints).parallel().anyMatch(Predicate.isEqual(999));
+		assert !Stream.of(ints).parallel().allMatch(gt2);
+		assert !Stream.of(ints).parallel().noneMatch(gt2);
+		assert Stream.of(ints).parallel().groupBy(mod7).equals(Stream.of(ints).groupBy(mod7));
+		assert Stream.of(ints).parallel().sorted().limit(3).toList().equals(Arrays.asList(0, 0, 0));
+		assert Stream.of(ints).parallel().sorted().isParallel();
+		assert Stream.of(ints).parallel().skip(10).toList().equals(ints.subList(10, ints.size()));
+		assert Stream.of(ints).parallel().filter(gt2).skip(3).toList().equals(Stream.of(ints).filter(gt2).skip(3).toList());
+		assert Stream.of(ints).parallel().flatMap(new Function<Integer, Stream<Integer>>() {
+
+			@Override
+			public Stream<Integer> apply(Integer t) {
+				return Stream.of(t, t);
+			}
+		}).count() == 2 * ints.size();
+
+		// the stateful stages applied before parallel() see all the elements
+		assert Stream.of(ints.iterator()).limit(5).parallel().toList().equals(ints.subList(0, 5));
+		assert Stream.of(ints.iterator()).filter(gt2).limit(5).parallel().toList()
+				.equals(Stream.of(ints).filter(gt2).limit(5).toList());
+		assert Stream.of(ints.iterator()).limit(5000).parallel().map(x2).toList()
+				.equals(Stream.of(ints).limit(5000).map(x2).toList());
+		assert Stream.of(ints.iterator()).limit(5000).parallel().count() == 5000;
+		assert Stream.of(ints.iterator()).limit(5000).parallel().isParallel();
+		assert Stream.of(ints.iterator()).skip(99990).parallel().toList().equals(ints.subList(99990, ints.size()));
+		assert Stream.of(ints.iterator()).skip(10).parallel().map(x2).count() == ints.size() - 10;
+
+		final ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			assert Stream.of(ints).parallel(executor).filter(gt2).map(x2).toList().equals(expected);
+
+			final List<Integer> matched = new ArrayList<Integer>();
+			final List<Integer> notMatched = new ArrayList<Integer>();
+			Stream.of(ints).parallel(executor).partitionBy(gt2, matched, notMatched);
+			assert matched.equals(Stream.of(ints).filter(gt2).toList());
+			assert notMatched.size() == ints.size() - matched.size();
+
+			final List<Integer> ordered = new ArrayList<Integer>();
+			Stream.of(ints).parallel(executor).map(x2).forEachOrdered(new Add(ordered));
+			assert ordered.equals(Stream.of(ints).map(x2).toList());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
 	private void partitionBy() {
 		{
 			final Collection<Integer> matched = new ArrayList<Integer>();
@@ -283,12 +1158,226 @@ public class TestStream {
 
 	}
 
+	private static final BinaryOperator<Integer> sum = new BinaryOperator<Integer>() {
+
+		@Override
+		public Integer apply(Integer t, Integer u) {
+			return t + u;
+		}
+	};
+
+	private void partitionByConcurrent() {
+		final List<Integer> ints = new ArrayList<Integer>();
+		for (int i = 0; i < 10000; i++) {
+			ints.add(i);
+		}
+		final Collection<Integer> matched = new ConcurrentLinkedQueue<Integer>();
+		final Collection<Integer> notMatched = Collections.synchronizedList(new ArrayList<Integer>());
+		Stream.of(ints).parallel().partitionByConcurrent(gt2, matched, notMatched);
+		assert matched.size() == 9997;
+		assert new TreeSet<Integer>(matched).first() == 3;
+		assert new TreeSet<Integer>(notMatched).equals(new TreeSet<Integer>(Arrays.asList(0, 1, 2)));
+		Stream.of(1, 5).partitionByConcurrent(gt2, matched, notMatched);
+		assert matched.size() == 9998;
+		assert notMatched.size() == 4;
+	}
+
+	private void prefetch() {
+		final List<Integer> ints = new ArrayList<Integer>();
+		for (int i = 0; i < 1000; i++) {
+			ints.add(i);
+		}
+		assert Stream.of(emptyList).prefetch(10).toList().isEmpty();
+		assert Stream.of(ints).prefetch(10).toList().equals(ints);
+		assert Stream.of(ints.iterator()).prefetch(1).filter(gt2).count() == 997;
+		assert Stream.of(ints).parallel().prefetch(10).toList().equals(ints);
+		assert Stream.of(1, null, 3).prefetch(2).toList().equals(Arrays.asList(1, null, 3));
+
+		// the producer blocks when the buffer is full, and stops when the stream is evaluated
+		final AtomicInteger read = new AtomicInteger();
+		final Iterator<Integer> failing = new Iterator<Integer>() {
+
+			@Override
+			public boolean hasNext() {
+				return true;
+			}
+
+			@Override
+			public Integer next() {
+				final int i = read.getAndIncrement();
+				if (i == 50) throw new IllegalStateException("fail");
+				return i;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+		assert Stream.of(failing).prefetch(10).findFirst() == 0;
+		assert read.get() <= 12;
+
+		// the exceptions are rethrown
+		read.set(0);
+		try {
+			Stream.of(failing).prefetch(10).toList();
+			assert false;
+		} catch (final IllegalStateException e) {
+			assert e.getMessage().equals("fail");
+		}
+	}
+
+	private void reduce() {
+		assert Stream.of(emptyList).reduce(sum) == null;
+		assert Stream.of(emptyList).reduce(0, sum) == 0;
+		assert Stream.of(1, 2, 3).reduce(sum) == 6;
+		assert Stream.of(1, 2, 3).reduce(10, sum) == 16;
+
+		final BiFunction<String, Integer, String> append = new BiFunction<String, Integer, String>() {
+
+			@Override
+			public String apply(String t, Integer u) {
+				return t + u;
+			}
+		};
+		final BinaryOperator<String> concat = new BinaryOperator<String>() {
+
+			@Override
+			public String apply(String t, String u) {
+				return t + u;
+			}
+		};
+		assert Stream.of(1, 2, 3).fold("", append).equals("123");
+		assert Stream.of(1, 2, 3).reduce("", append, concat).equals("123");
+
+		final ToLongFunction<Integer> toLong = new ToLongFunction<Integer>() {
+
+			@Override
+			public long applyAsLong(Integer value) {
+				return value;
+			}
+		};
+		final LongBinaryOperator plus = new LongBinaryOperator() {
+
+			@Override
+			public long applyAsLong(long left, long right) {
+				return left + right;
+			}
+		};
+		assert Stream.of(Integer.MAX_VALUE, Integer.MAX_VALUE).reduceToLong(0, toLong, plus) == 2L * Integer.MAX_VALUE;
+		assert Stream.of(1, 2, 3).reduceToDouble(1, new ToDoubleFunction<Integer>() {
+
+			@Override
+			public double applyAsDouble(Integer value) {
+				return value;
+			}
+		}, new DoubleBinaryOperator() {
+
+			@Override
+			public double applyAsDouble(double left, double right) {
+				return left * right;
+			}
+		}) == 6;
+
+		// parallel reductions combine the chunks in encounter order
+		final List<Integer> ints = new ArrayList<Integer>();
+		for (int i = 0; i < 10000; i++) {
+			ints.add(i % 10);
+		}
+		final String expected = Stream.of(ints).fold("", append);
+		assert Stream.of(ints).parallel().fold("", append).equals(expected);
+		assert Stream.of(ints).parallel().reduce("", append, concat).equals(expected);
+		assert Stream.of(ints).parallel().reduce(sum) == 45000;
+		assert Stream.of(ints.iterator()).parallel().reduceToLong(0, toLong, plus) == 45000;
+	}
+
 	private void skip() {
 		assert Stream.of(emptyList).skip(0).toList().equals(emptyList);
 		assert Stream.of(emptyList).skip(1).toList().equals(emptyList);
 		assert Stream.of(1, 2, 3).skip(0).toList().equals(Arrays.asList(1, 2, 3));
 		assert Stream.of(1, 2, 3).skip(1).toList().equals(Arrays.asList(2, 3));
 		assert Stream.of(1, 2, 3).skip(4).toList().equals(emptyList);
+		assert Stream.of(1, 2, 3).skip(Integer.MAX_VALUE + 1L).toList().equals(emptyList);
+
+		assert Stream.of(1, 2, 3).skip(1).count() == 2;
+		assert Stream.of(1, 2, 3).skip(4).count() == 0;
+		assert Stream.of(1, 2, 3).map(toStr()).skip(1).count() == 2;
+		assert Stream.of(1, 2, 3, 4).filter(gt2).skip(1).toList().equals(Arrays.asList(4));
+		assert Stream.of(1, 2, 3, 4).skip(1).limit(2).skip(1).toList().equals(Arrays.asList(3));
+		assert Stream.of(Arrays.asList(1, 2, 3).iterator()).skip(2).toList().equals(Arrays.asList(3));
+		assert Stream.of(new HashSet<Integer>(Arrays.asList(1, 2, 3))).skip(1).count() == 2;
+
+		// the elements are skipped lazily
+		final Iterator<Integer> source = Arrays.asList(1, 2, 3).iterator();
+		final Stream<Integer> skipped = Stream.of(source).skip(1);
+		assert source.next() == 1;
+		assert skipped.toList().equals(Arrays.asList(3));
+
+		// arrays are sliced without copy
+		final Integer[] array = { 1, 2, 3, 4 };
+		final Stream<Integer> sliced = Stream.of(array).skip(1).limit(2);
+		array[1] = 5;
+		assert sliced.count() == 2;
+		assert sliced.toList().equals(Arrays.asList(5, 3));
+		final List<Integer> list = Stream.of(array).skip(2).toList();
+		list.add(6);
+		assert list.equals(Arrays.asList(3, 4, 6));
+		assert Stream.of(array).skip(3).skip(1).toList().equals(emptyList);
+		final List<Integer> copy = Stream.of(list).skip(1).toList();
+		list.set(1, 7);
+		copy.add(8);
+		assert copy.equals(Arrays.asList(4, 6, 8));
+	}
+
+	private void sliding() {
+		final List<Integer> ints = Arrays.asList(3, 1, 4, 1, 5, 9, 2, 6, 5, 3);
+		assert Stream.of(ints).slidingMax(3, intComparator).toList().equals(Arrays.asList(4, 4, 5, 9, 9, 9, 6, 6));
+		assert Stream.of(ints.iterator()).slidingMin(3, intComparator).toList()
+				.equals(Arrays.asList(1, 1, 1, 1, 2, 2, 2, 3));
+		assert Stream.of(ints).slidingMax(1, intComparator).toList().equals(ints);
+		assert Stream.of(ints).slidingMax(10, intComparator).toList().equals(Arrays.asList(9));
+		assert Stream.of(ints).slidingMax(11, intComparator).toList().isEmpty();
+		assert Stream.of(ints).slidingMax(11, intComparator).count() == 0;
+		assert Stream.of(ints).slidingMax(3, intComparator).count() == 8;
+		assert Stream.of(ints).parallel().slidingMax(3, intComparator).toList()
+				.equals(Arrays.asList(4, 4, 5, 9, 9, 9, 6, 6));
+
+		// compared with a naive sliding maximum
+		final Random random = new Random(42);
+		final List<Integer> randomInts = new ArrayList<Integer>();
+		for (int i = 0; i < 5000; i++) {
+			randomInts.add(random.nextInt(1000));
+		}
+		for (final int size : new int[] { 2, 7, 100 }) {
+			final List<Integer> expected = new ArrayList<Integer>();
+			for (int i = 0; i + size <= randomInts.size(); i++) {
+				expected.add(Collections.max(randomInts.subList(i, i + size)));
+			}
+			assert Stream.of(randomInts.iterator()).slidingMax(size, intComparator).toList().equals(expected);
+			assert Stream.of(randomInts.iterator()).slidingMax(size, intComparator).parallel().toList()
+					.equals(expected);
+		}
+
+		final ToLongFunction<Integer> toLong = new ToLongFunction<Integer>() {
+
+			@Override
+			public long applyAsLong(Integer value) {
+				return value;
+			}
+		};
+		assert Arrays.equals(Stream.of(ints).slidingSum(3, toLong).toArray(), new long[] { 8, 6, 10, 15, 16, 17, 13,
+				14 });
+		assert Stream.of(ints.iterator()).slidingSum(10, toLong).sum() == 39;
+		assert Stream.of(ints).slidingSum(11, toLong).count() == 0;
+		assert Stream.of(ints).slidingSum(3, toLong).count() == 8;
+		assert Stream.of(ints).parallel().slidingSum(3, toLong).sum() == 8 + 6 + 10 + 15 + 16 + 17 + 13 + 14;
+
+		try {
+			Stream.of(ints).slidingMax(0, intComparator);
+			assert false;
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
 	}
 
 	private void sorted() {
@@ -303,6 +1392,265 @@ public class TestStream {
 
 		assert Stream.of(3, 1, 2).sorted().toList().equals(Arrays.asList(1, 2, 3));
 		assert Stream.of(3, 1, 2).sorted(intComparator).toList().equals(Arrays.asList(1, 2, 3));
+
+		// arrays are sorted through a copy
+		final Integer[] array = { 3, 1, 2 };
+		assert Stream.of(array).sorted().skip(1).toList().equals(Arrays.asList(2, 3));
+		assert Arrays.equals(array, new Integer[] { 3, 1, 2 });
+		assert Stream.of(array).skip(1).sorted().toList().equals(Arrays.asList(1, 2));
+		assert Stream.of(array).sorted().count() == 3;
+	}
+
+	private void sortedExternal() {
+		final File directory;
+		try {
+			directory = File.createTempFile("stream4j", "");
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+		assert directory.delete() && directory.mkdir();
+		try {
+			final SortOptions<Integer> options = SortOptions.<Integer> maxElementsInMemory(100).withTempDirectory(
+					directory);
+			final List<Integer> ints = new ArrayList<Integer>();
+			final Random random = new Random(0);
+			for (int i = 0; i < 1000; i++) {
+				ints.add(random.nextInt(500));
+			}
+			final List<Integer> expected = new ArrayList<Integer>(ints);
+			Collections.sort(expected);
+
+			assert Stream.of(emptyList).sorted(intComparator, options).toList().isEmpty();
+			assert Stream.of(3, 1, 2).sorted(null, options).toList().equals(Arrays.asList(1, 2, 3));
+			assert Stream.of(ints).sorted(intComparator, options).toList().equals(expected);
+			assert Stream.of(ints.iterator()).sorted(null, options).toList().equals(expected);
+			assert Stream.of(ints).parallel().sorted(intComparator, options).map(toStr()).toList()
+					.equals(Stream.of(expected).map(toStr()).toList());
+			assert directory.list().length == 0;
+
+			// the runs are written to files, which are deleted when the stream is consumed, even partially
+			final Function<Integer, Integer> checkFiles = new Function<Integer, Integer>() {
+
+				@Override
+				public Integer apply(Integer t) {
+					assert directory.list().length == 9;
+					return t;
+				}
+			};
+			assert Stream.of(ints).sorted(intComparator, options).map(checkFiles).count() == 1000;
+			assert directory.list().length == 0;
+			assert Stream.of(ints).sorted(intComparator, options).map(checkFiles).limit(3).toList()
+					.equals(expected.subList(0, 3));
+			assert directory.list().length == 0;
+			final Stream<Integer> closed = Stream.of(ints).sorted(intComparator, options);
+			assert closed.anyMatch(gt2);
+			closed.close();
+			assert directory.list().length == 0;
+			assert Stream.of(ints).sorted(intComparator, SortOptions.<Integer> maxElementsInMemory(1000)
+					.withTempDirectory(directory)).map(new Function<Integer, Integer>() {
+
+				@Override
+				public Integer apply(Integer t) {
+					assert directory.list().length == 0;
+					return t;
+				}
+			}).toList().equals(expected);
+
+			// stable sort, with a custom serializer and a memory budget in bytes
+			final Comparator<Integer> byTens = new Comparator<Integer>() {
+
+				@Override
+				public int compare(Integer o1, Integer o2) {
+					return o1 / 10 - o2 / 10;
+				}
+			};
+			final List<Integer> stable = new ArrayList<Integer>(ints);
+			Collections.sort(stable, byTens);
+			final SortOptions<Integer> bytes = SortOptions.maxBytesInMemory(400, new ToLongFunction<Integer>() {
+
+				@Override
+				public long applyAsLong(Integer value) {
+					return 4;
+				}
+			}).withSerializer(new Serializer<Integer>() {
+
+				@Override
+				public void write(Integer t, ObjectOutput out) throws IOException {
+					out.writeInt(t);
+				}
+
+				@Override
+				public Integer read(ObjectInput in) throws IOException {
+					return in.readInt();
+				}
+			}).withTempDirectory(directory);
+			assert Stream.of(ints).sorted(byTens, bytes).toList().equals(stable);
+			assert directory.list().length == 0;
+		} finally {
+			for (final File file : directory.listFiles()) {
+				file.delete();
+			}
+			directory.delete();
+		}
+	}
+
+	private void takeWhile() {
+		final Predicate<Integer> lt3 = new Predicate<Integer>() {
+
+			@Override
+			public boolean test(Integer t) {
+				return t < 3;
+			}
+		};
+		assert Stream.of(1, 2, 3, 1, 4).takeWhile(lt3).toList().equals(Arrays.asList(1, 2));
+		assert Stream.of(Arrays.asList(1, 2).iterator()).takeWhile(lt3).toList().equals(Arrays.asList(1, 2));
+		assert Stream.of(emptyList).takeWhile(lt3).count() == 0;
+		assert Stream.of(5, 1).takeWhile(lt3).toList().isEmpty();
+		assert Stream.of(1, 2, 3, 1, 4).parallel().takeWhile(lt3).toList().equals(Arrays.asList(1, 2));
+
+		// the stream stops at the first failing element, even if the next chunks are evaluated in parallel
+		final List<Integer> ints = new ArrayList<Integer>();
+		for (int i = 0; i < 10000; i++) {
+			ints.add(i % 5000);
+		}
+		final Predicate<Integer> lt3000 = new Predicate<Integer>() {
+
+			@Override
+			public boolean test(Integer t) {
+				return t < 3000;
+			}
+		};
+		assert Stream.of(ints).takeWhile(lt3000).parallel().count() == 3000;
+		assert Stream.of(ints.iterator()).takeWhile(lt3000).parallel().toList().equals(ints.subList(0, 3000));
+		assert Stream.of(ints).dropWhile(lt3000).parallel().count() == 7000;
+		assert Stream.of(ints.iterator()).dropWhile(lt3000).parallel().toList()
+				.equals(ints.subList(3000, ints.size()));
+
+		// the source is not read beyond the first failing element, even through hasNext()
+		final AtomicInteger read = new AtomicInteger();
+		final Iterator<Integer> counting = new Iterator<Integer>() {
+
+			@Override
+			public boolean hasNext() {
+				read.incrementAndGet();
+				return true;
+			}
+
+			@Override
+			public Integer next() {
+				return read.get();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+		final Function<Integer, Integer> minusOne = new Function<Integer, Integer>() {
+
+			@Override
+			public Integer apply(Integer t) {
+				return t - 1;
+			}
+		};
+		assert Stream.of(counting).map(minusOne).takeWhile(lt3).filter(gt2).count() == 0;
+		assert read.get() == 4;
+		read.set(0);
+		assert Stream.of(counting).takeWhile(lt3).map(minusOne).toList().equals(Arrays.asList(0, 1));
+		assert read.get() == 3;
+		read.set(0);
+		assert Stream.of(counting).parallel().takeWhile(lt3).toList().equals(Arrays.asList(1, 2));
+		assert read.get() == 3;
+		read.set(0);
+		assert Stream.of(counting).takeWhile(lt3).map(minusOne).dropWhile(lt3).toList().isEmpty();
+		assert read.get() == 3;
+	}
+
+	private void toArray() {
+		assert Stream.of(emptyList).toArray().length == 0;
+		assert Arrays.equals(Stream.of(1, 2, 3).toArray(), new Object[] { 1, 2, 3 });
+		assert Arrays.equals(Stream.of(1, 2, 3).map(toStr()).toArray(), new Object[] { "1", "2", "3" });
+		assert Arrays.equals(Stream.of(3, 1, 2).sorted().toArray(), new Object[] { 1, 2, 3 });
+
+		final List<Integer> ints = new ArrayList<Integer>();
+		for (int i = 0; i < 10000; i++) {
+			ints.add(i);
+		}
+		final IntFunction<Integer[]> newArray = new IntFunction<Integer[]>() {
+
+			@Override
+			public Integer[] apply(int value) {
+				return new Integer[value];
+			}
+		};
+		for (final Stream<Integer> stream : Arrays.asList(Stream.of(ints), Stream.of(ints.iterator()), Stream.of(ints)
+				.parallel(), Stream.of(ints.iterator()).parallel())) {
+			final Integer[] array = stream.filter(gt2).toArray(newArray);
+			assert array.length == 9997;
+			assert Arrays.asList(array).equals(ints.subList(3, 10000));
+		}
+		assert Stream.of(ints).limit(10).toArray(newArray).length == 10;
+		assert Stream.of(ints).skip(9990).map(toStr()).toArray(new String[0]).length == 10;
+
+		// the given array is used if large enough
+		final String[] strings = { "a", "b", "c", "d" };
+		assert Stream.of(1, 2).map(toStr()).toArray(strings) == strings;
+		assert Arrays.equals(strings, new String[] { "1", "2", null, "d" });
+		assert Arrays.equals(Stream.of(1, 2).map(toStr()).toArray(new String[1]), new String[] { "1", "2" });
+		try {
+			Stream.of(1, 2).toArray(new String[0]);
+			assert false;
+		} catch (final ArrayStoreException e) {
+			// expected
+		}
+
+		// the arrays are allocated once if the size is known, and are never larger than an upper bound of the size
+		final List<Integer> allocations = new ArrayList<Integer>();
+		final IntFunction<Integer[]> recordAllocations = new IntFunction<Integer[]>() {
+
+			@Override
+			public Integer[] apply(int value) {
+				allocations.add(value);
+				return new Integer[value];
+			}
+		};
+		assert Stream.of(ints).map(Function.<Integer> identity()).toArray(recordAllocations).length == 10000;
+		assert allocations.equals(Arrays.asList(10000));
+		allocations.clear();
+		assert Stream.of(ints).filter(gt2).limit(100).toArray(recordAllocations).length == 100;
+		assert allocations.equals(Arrays.asList(16, 32, 64, 100));
+		allocations.clear();
+		assert Stream.of(ints.iterator()).limit(100).filter(gt2).toArray(recordAllocations).length == 97;
+		assert allocations.equals(Arrays.asList(16, 32, 64, 100, 97));
+	}
+
+	private void toConcurrentMap() {
+		final List<Integer> ints = new ArrayList<Integer>();
+		for (int i = 0; i < 10000; i++) {
+			ints.add(i);
+		}
+		final Function<Integer, Integer> mod7 = new Function<Integer, Integer>() {
+
+			@Override
+			public Integer apply(Integer t) {
+				return t % 7;
+			}
+		};
+		final BinaryOperator<Integer> max = BinaryOperator.maxBy(intComparator);
+		final Map<Integer, Integer> expected = new HashMap<Integer, Integer>();
+		for (final Integer i : ints) {
+			expected.put(i % 7, i);
+		}
+		assert Stream.of(ints).toConcurrentMap(mod7, max).equals(expected);
+		assert Stream.of(ints).parallel().toConcurrentMap(mod7, max).equals(expected);
+		assert Stream.of(ints.iterator()).parallel().toConcurrentMap(mod7, max).equals(expected);
+		assert Stream.of(emptyList).toConcurrentMap(mod7, max).isEmpty();
+
+		final ConcurrentMap<Integer, Integer> map = new ConcurrentHashMap<Integer, Integer>();
+		map.put(0, 20000);
+		Stream.of(ints).parallel().toConcurrentMap(mod7, max, map);
+		expected.put(0, 20000);
+		assert map.equals(expected);
 	}
 
 	private void toMap() {
@@ -338,4 +1686,102 @@ public class TestStream {
 		assert Stream.of(1, 2, 3, 1).toSortedSet().equals(new TreeSet<Integer>(Arrays.asList(3, 2, 1)));
 	}
 
+
+	private void topK() {
+		assert Stream.of(emptyList).topK(2).toList().equals(emptyList);
+		assert Stream.of(emptyList.iterator()).bottomK(2).toList().equals(emptyList);
+		assert Stream.of(3, 1, 2).topK(0).toList().equals(emptyList);
+		assert Stream.of(3, 1, 2).topK(2).toList().equals(Arrays.asList(3, 2));
+		assert Stream.of(3, 1, 2).bottomK(2, intComparator).toList().equals(Arrays.asList(1, 2));
+		assert Stream.of(3, 1, 2).bottomK(5).toList().equals(Arrays.asList(1, 2, 3));
+		assert Stream.of(3, 1, 2).filter(gt2).topK(5).toList().equals(Arrays.asList(3));
+		assert Stream.of(3, 1, 2).topK(2).count() == 2;
+
+		// sorted followed by limit only keeps the first elements
+		assert Stream.of(Arrays.asList(5, 3, 1, 4, 2).iterator()).sorted().limit(3).toList()
+				.equals(Arrays.asList(1, 2, 3));
+		assert Stream.of(5, 3, 1, 4, 2).sorted(intComparator).limit(4).limit(2).toList().equals(Arrays.asList(1, 2));
+		assert Stream.of(5, 3, 1, 4, 2).sorted().limit(0).toList().equals(emptyList);
+		assert Stream.of(5, 3, 1, 4, 2).sorted().skip(1).limit(2).toList().equals(Arrays.asList(2, 3));
+
+		// equal elements are kept in encounter order
+		final Comparator<String> byLength = new Comparator<String>() {
+
+			@Override
+			public int compare(String o1, String o2) {
+				return o1.length() - o2.length();
+			}
+		};
+		final List<String> words = Arrays.asList("ccc", "a", "bb", "b", "dd", "c", "eee");
+		assert Stream.of(words.iterator()).bottomK(3, byLength).toList().equals(Arrays.asList("a", "b", "c"));
+		assert Stream.of(words.iterator()).topK(3, byLength).toList().equals(Arrays.asList("ccc", "eee", "bb"));
+		assert Stream.of(words.iterator()).sorted(byLength).limit(4).toList()
+				.equals(Stream.of(words).sorted(byLength).toList().subList(0, 4));
+
+		// the elements are sorted when the terminal operation is executed
+		final Iterator<Integer> source = Arrays.asList(3, 4, 1, 2).iterator();
+		final Stream<Integer> sorted = Stream.of(source).sorted().limit(2);
+		assert source.next() == 3;
+		assert sorted.toList().equals(Arrays.asList(1, 2));
+
+		final List<Integer> ints = new ArrayList<Integer>();
+		for (int i = 0; i < 100000; i++) {
+			ints.add((i * 31) % 1000);
+		}
+		final List<Integer> expected = Stream.of(ints).sorted().toList().subList(0, 100);
+		assert Stream.of(ints.iterator()).sorted().limit(100).toList().equals(expected);
+		assert Stream.of(ints).parallel().bottomK(100).toList().equals(expected);
+		assert Stream.of(ints.iterator()).parallel().sorted().limit(100).toList().equals(expected);
+		assert Stream.of(ints).parallel().topK(3).toList().equals(Arrays.asList(999, 999, 999));
+	}
+
+	private void window() {
+		final List<Integer> ints = Arrays.asList(0, 1, 2, 3, 4, 5, 6);
+		final List<List<Integer>> sliding = Stream.of(ints).window(3, 1).toList();
+		assert sliding.equals(Arrays.asList(Arrays.asList(0, 1, 2), Arrays.asList(1, 2, 3), Arrays.asList(2, 3, 4),
+				Arrays.asList(3, 4, 5), Arrays.asList(4, 5, 6)));
+		assert Stream.of(ints.iterator()).window(3, 2).toList().equals(Arrays.asList(Arrays.asList(0, 1, 2),
+				Arrays.asList(2, 3, 4), Arrays.asList(4, 5, 6)));
+		assert Stream.of(ints).window(3, 3).toList().equals(Arrays.asList(Arrays.asList(0, 1, 2),
+				Arrays.asList(3, 4, 5)));
+		assert Stream.of(ints).window(2, 3).toList().equals(Arrays.asList(Arrays.asList(0, 1), Arrays.asList(3, 4)));
+		assert Stream.of(ints).window(8, 1).toList().isEmpty();
+		assert Stream.of(ints).window(7, 1).count() == 1;
+		assert Stream.of(ints).window(2, 3).count() == 2;
+		assert Stream.of(ints).parallel().window(3, 2).toList().size() == 3;
+		assert Stream.of(ints.iterator()).window(3, 2).parallel().toList().equals(Arrays.asList(Arrays.asList(0, 1, 2),
+				Arrays.asList(2, 3, 4), Arrays.asList(4, 5, 6)));
+
+		// the windows kept by the consumer are not modified by the next ones
+		final List<Integer> many = new ArrayList<Integer>();
+		for (int i = 0; i < 10000; i++) {
+			many.add(i);
+		}
+		for (final int size : new int[] { 1, 5, 100 }) {
+			for (final int step : new int[] { 1, 3, 100, 150 }) {
+				final List<List<Integer>> windows = Stream.of(many.iterator()).window(size, step).toList();
+				assert windows.size() == (many.size() - size) / step + 1;
+				for (int i = 0; i < windows.size(); i++) {
+					assert windows.get(i).equals(many.subList(i * step, i * step + size));
+				}
+
+				// the windows span the chunks of a parallel stream
+				assert Stream.of(many.iterator()).window(size, step).parallel().toList().equals(windows);
+				assert Stream.of(many.iterator()).window(size, step).parallel().count() == windows.size();
+			}
+		}
+
+		try {
+			sliding.get(0).set(0, 1);
+			assert false;
+		} catch (final UnsupportedOperationException e) {
+			// expected
+		}
+		try {
+			Stream.of(ints).window(1, 0);
+			assert false;
+		} catch (final IllegalArgumentException e) {
+			// expected
+		}
+	}
 }
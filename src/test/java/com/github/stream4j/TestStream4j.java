@@ -1,15 +1,24 @@
 package com.github.stream4j;
 
+import java.io.IOException;
+import java.sql.SQLException;
+
 public class TestStream4j {
 	/**
 	 * Run the main with no arguments and with assertions enabled to test.<br>
 	 * The output should be: All tests OK
 	 */
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException, SQLException {
 		new TestConsumer().testAll();
 		new TestFunction().testAll();
 		new TestPredicate().testAll();
 		new TestStream().testAll();
+		new TestCollectors().testAll();
+		new TestFileSource().testAll();
+		new TestResultSetSource().testAll();
+		new TestIntStream().testAll();
+		new TestLongStream().testAll();
+		new TestDoubleStream().testAll();
 		System.out.println("All tests OK");
 	}
 }
@@ -0,0 +1,23 @@
+package com.github.stream4j.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, which reports the allocation rate and the bytes allocated per operation.
+ * Accepts the usual JMH command line options, for instance a regular expression selecting the benchmarks:
+ * 
+ * <pre>
+ * java -jar target/benchmarks.jar FilterBenchmark -p size=1000
+ * </pre>
+ */
+public class BenchmarkRunner {
+	public static void main(String[] args) throws Exception {
+		final Options options = new OptionsBuilder().parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+}
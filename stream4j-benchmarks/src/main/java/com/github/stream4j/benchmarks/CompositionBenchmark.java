@@ -0,0 +1,169 @@
+package com.github.stream4j.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.stream4j.Function;
+import com.github.stream4j.Predicate;
+
+/**
+ * Predicates and functions composed of {@code depth} clauses, evaluated on each element: the flattened composites
+ * returned by {@code and} / {@code andThen} (a single loop over an array), compared with the equivalent chains of
+ * nested wrappers (one nested call per clause) and with {@code java.util.function} composition.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompositionBenchmark {
+	@State(Scope.Benchmark)
+	public static class Chains {
+		@Param({ "2", "5", "10", "20" })
+		public int depth;
+
+		Predicate<Integer> flatAnd;
+		Predicate<Integer> nestedAnd;
+		java.util.function.Predicate<Integer> jdkAnd;
+		Function<Integer, Integer> flatAndThen;
+		Function<Integer, Integer> nestedAndThen;
+		java.util.function.Function<Integer, Integer> jdkAndThen;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			final List<Predicate<Integer>> clauses = new ArrayList<>();
+			final List<Function<Integer, Integer>> steps = new ArrayList<>();
+			for (int i = 0; i < depth; i++) {
+				clauses.add(greaterThan(-i - 1));
+				steps.add(Functions.PLUS_ONE);
+			}
+			flatAnd = clauses.get(0);
+			nestedAnd = clauses.get(0);
+			jdkAnd = clauses.get(0)::test;
+			flatAndThen = steps.get(0);
+			nestedAndThen = steps.get(0);
+			jdkAndThen = steps.get(0)::apply;
+			for (int i = 1; i < depth; i++) {
+				flatAnd = flatAnd.and(clauses.get(i));
+				nestedAnd = nestedAnd(nestedAnd, clauses.get(i));
+				jdkAnd = jdkAnd.and(clauses.get(i)::test);
+				flatAndThen = flatAndThen.andThen(steps.get(i));
+				nestedAndThen = nestedAndThen(nestedAndThen, steps.get(i));
+				jdkAndThen = jdkAndThen.andThen(steps.get(i)::apply);
+			}
+		}
+	}
+
+	/**
+	 * Returns a predicate true for the elements greater than min, which is true for all the elements of the data, so
+	 * that all the clauses are evaluated.
+	 */
+	static Predicate<Integer> greaterThan(int min) {
+		return new Predicate<Integer>() {
+
+			@Override
+			public boolean test(Integer t) {
+				return t > min;
+			}
+		};
+	}
+
+	/**
+	 * The nested composition previously returned by {@code and}.
+	 */
+	static Predicate<Integer> nestedAnd(Predicate<Integer> first, Predicate<Integer> second) {
+		return new Predicate<Integer>() {
+
+			@Override
+			public boolean test(Integer t) {
+				return first.test(t) && second.test(t);
+			}
+		};
+	}
+
+	/**
+	 * The nested composition previously returned by {@code andThen}.
+	 */
+	static Function<Integer, Integer> nestedAndThen(Function<Integer, Integer> first, Function<Integer, Integer> second) {
+		return new Function<Integer, Integer>() {
+
+			@Override
+			public Integer apply(Integer t) {
+				return second.apply(first.apply(t));
+			}
+		};
+	}
+
+	@Benchmark
+	public int flatAnd(Data data, Chains chains) {
+		int res = 0;
+		for (final Integer i : data.list) {
+			if (chains.flatAnd.test(i)) res++;
+		}
+		return res;
+	}
+
+	@Benchmark
+	public int nestedAnd(Data data, Chains chains) {
+		int res = 0;
+		for (final Integer i : data.list) {
+			if (chains.nestedAnd.test(i)) res++;
+		}
+		return res;
+	}
+
+	@Benchmark
+	public int jdkAnd(Data data, Chains chains) {
+		int res = 0;
+		for (final Integer i : data.list) {
+			if (chains.jdkAnd.test(i)) res++;
+		}
+		return res;
+	}
+
+	@Benchmark
+	public long flatAndThen(Data data, Chains chains) {
+		long res = 0;
+		for (final Integer i : data.list) {
+			res += chains.flatAndThen.apply(i);
+		}
+		return res;
+	}
+
+	@Benchmark
+	public long nestedAndThen(Data data, Chains chains) {
+		long res = 0;
+		for (final Integer i : data.list) {
+			res += chains.nestedAndThen.apply(i);
+		}
+		return res;
+	}
+
+	@Benchmark
+	public long jdkAndThen(Data data, Chains chains) {
+		long res = 0;
+		for (final Integer i : data.list) {
+			res += chains.jdkAndThen.apply(i);
+		}
+		return res;
+	}
+
+	@Benchmark
+	public long stream4jFilter(Data data, Chains chains) {
+		return data.stream().filter(chains.flatAnd).count();
+	}
+}
@@ -0,0 +1,119 @@
+package com.github.stream4j.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.stream4j.Stream;
+
+/**
+ * Several threads, each draining its own partition of the input, grouping into a single shared map with
+ * {@value Functions#KEYS} keys: {@code groupByConcurrent} merges one buffer per chunk into a ConcurrentHashMap,
+ * {@code locked} takes a lock per element on a shared HashMap, and {@code jdk} merges the maps returned by
+ * {@code groupingByConcurrent}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentGroupByBenchmark {
+	/**
+	 * The threads draining the partitions.
+	 */
+	@State(Scope.Benchmark)
+	public static class Workers {
+		@Param({ "1", "2", "4", "8", "16", "32", "64" })
+		public int threads;
+
+		public ExecutorService executor;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			executor = Executors.newFixedThreadPool(threads);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			executor.shutdown();
+		}
+
+		/**
+		 * Runs the task on each partition of the list, one thread per partition, and waits for the tasks.
+		 */
+		void run(List<Integer> list, Consumer<List<Integer>> task) throws InterruptedException, ExecutionException {
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				final List<Integer> partition = list.subList(list.size() * i / threads, list.size() * (i + 1)
+						/ threads);
+				futures.add(executor.submit(() -> task.accept(partition)));
+			}
+			for (final Future<?> future : futures) {
+				future.get();
+			}
+		}
+	}
+
+	@Benchmark
+	public Map<Integer, List<Integer>> groupByConcurrent(Data data, Workers workers) throws InterruptedException,
+			ExecutionException {
+		final ConcurrentMap<Integer, List<Integer>> res = new ConcurrentHashMap<>();
+		workers.run(data.list, partition -> {
+			final Stream<Integer> stream = data.isSized() ? Stream.of(partition) : Stream.of(partition.iterator());
+			stream.groupByConcurrent(Functions.KEY, res);
+		});
+		return res;
+	}
+
+	@Benchmark
+	public Map<Integer, List<Integer>> locked(Data data, Workers workers) throws InterruptedException,
+			ExecutionException {
+		final Map<Integer, List<Integer>> res = new HashMap<>();
+		workers.run(data.list, partition -> {
+			for (final Integer i : partition) {
+				synchronized (res) {
+					res.computeIfAbsent(i % Functions.KEYS, k -> new ArrayList<>()).add(i);
+				}
+			}
+		});
+		return res;
+	}
+
+	@Benchmark
+	public Map<Integer, List<Integer>> jdk(Data data, Workers workers) throws InterruptedException,
+			ExecutionException {
+		final ConcurrentMap<Integer, List<Integer>> res = new ConcurrentHashMap<>();
+		workers.run(data.list, partition -> partition.stream()
+				.collect(Collectors.groupingByConcurrent(i -> i % Functions.KEYS))
+				.forEach((key, group) -> res.merge(key, group, (left, right) -> {
+					final List<Integer> merged = new ArrayList<>(left);
+					merged.addAll(right);
+					return merged;
+				})));
+		return res;
+	}
+}
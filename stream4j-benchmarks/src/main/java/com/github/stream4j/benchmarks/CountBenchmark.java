@@ -0,0 +1,40 @@
+package com.github.stream4j.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code filter} followed by {@code count}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CountBenchmark {
+	@Benchmark
+	public long stream4j(Data data) {
+		return data.stream().filter(Functions.EVEN).count();
+	}
+
+	@Benchmark
+	public long loop(Data data) {
+		long res = 0;
+		for (final Integer i : data.list) {
+			if ((i & 1) == 0) res++;
+		}
+		return res;
+	}
+
+	@Benchmark
+	public long jdk(Data data) {
+		return data.jdkStream().filter(i -> (i & 1) == 0).count();
+	}
+}
@@ -0,0 +1,53 @@
+package com.github.stream4j.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.StreamSupport;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.github.stream4j.Stream;
+
+/**
+ * The input of the benchmarks: a list of random integers, read either as a sized source ({@code Stream.of(list)}) or
+ * as an unsized source ({@code Stream.of(list.iterator())}).
+ */
+@State(Scope.Benchmark)
+public class Data {
+	@Param({ "10", "1000", "100000", "10000000" })
+	public int size;
+
+	@Param({ "sized", "unsized" })
+	public String source;
+
+	public List<Integer> list;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		final Random random = new Random(42);
+		list = new ArrayList<Integer>(size);
+		for (int i = 0; i < size; i++) {
+			list.add(random.nextInt(size));
+		}
+	}
+
+	public boolean isSized() {
+		return "sized".equals(source);
+	}
+
+	public Stream<Integer> stream() {
+		return isSized() ? Stream.of(list) : Stream.of(list.iterator());
+	}
+
+	public java.util.stream.Stream<Integer> jdkStream() {
+		if (isSized()) return list.stream();
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(list.iterator(), Spliterator.ORDERED), false);
+	}
+}
@@ -0,0 +1,43 @@
+package com.github.stream4j.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code filter} followed by {@code toList}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark {
+	@Benchmark
+	public List<Integer> stream4j(Data data) {
+		return data.stream().filter(Functions.EVEN).toList();
+	}
+
+	@Benchmark
+	public List<Integer> loop(Data data) {
+		final List<Integer> res = new ArrayList<Integer>();
+		for (final Integer i : data.list) {
+			if ((i & 1) == 0) res.add(i);
+		}
+		return res;
+	}
+
+	@Benchmark
+	public List<Integer> jdk(Data data) {
+		return data.jdkStream().filter(i -> (i & 1) == 0).collect(Collectors.toList());
+	}
+}
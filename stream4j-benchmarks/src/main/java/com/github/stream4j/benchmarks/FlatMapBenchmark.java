@@ -0,0 +1,140 @@
+package com.github.stream4j.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.stream4j.Function;
+import com.github.stream4j.Stream;
+
+/**
+ * {@code flatMap}, compared with an eager version which collects the elements of the inner streams into lists before
+ * iterating over them:
+ * <ul>
+ * <li>each element mapped to a stream of two elements, followed by {@code toList};</li>
+ * <li>each element mapped to a stream of {@code innerSize} elements, followed by {@code findFirst} or by
+ * {@code limit} to {@value Functions#LIMIT} elements, which stop in the first inner stream.</li>
+ * </ul>
+ * The memory used by the inner streams and by the intermediate lists is reported as the bytes allocated per operation
+ * ({@code gc.alloc.rate.norm}) by the GC profiler that {@link BenchmarkRunner} adds.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlatMapBenchmark {
+	@State(Scope.Benchmark)
+	public static class Inner {
+		@Param({ "10", "1000", "100000" })
+		public int innerSize;
+
+		Function<Integer, Stream<Integer>> repeat;
+		java.util.function.Function<Integer, java.util.stream.Stream<Integer>> jdkRepeat;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			repeat = new Function<Integer, Stream<Integer>>() {
+
+				@Override
+				public Stream<Integer> apply(Integer t) {
+					return Stream.of(Collections.nCopies(innerSize, t));
+				}
+			};
+			jdkRepeat = t -> Collections.nCopies(innerSize, t).stream();
+		}
+	}
+
+	@Benchmark
+	public List<Integer> stream4j(Data data) {
+		return data.stream().flatMap(Functions.TWICE).toList();
+	}
+
+	@Benchmark
+	public List<Integer> eager(Data data) {
+		final List<Integer> flat = new ArrayList<Integer>();
+		for (final Integer i : data.list) {
+			flat.addAll(Functions.TWICE.apply(i).toList());
+		}
+		final List<Integer> res = new ArrayList<Integer>();
+		for (final Integer i : flat) {
+			res.add(i);
+		}
+		return res;
+	}
+
+	@Benchmark
+	public List<Integer> loop(Data data) {
+		final List<Integer> res = new ArrayList<Integer>();
+		for (final Integer i : data.list) {
+			res.add(i);
+			res.add(i);
+		}
+		return res;
+	}
+
+	@Benchmark
+	public List<Integer> jdk(Data data) {
+		return data.jdkStream().flatMap(i -> java.util.stream.Stream.of(i, i)).collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public Integer findFirstStream4j(Data data, Inner inner) {
+		return data.stream().flatMap(inner.repeat).findFirst();
+	}
+
+	@Benchmark
+	public Integer findFirstEager(Data data, Inner inner) {
+		for (final Integer i : data.list) {
+			final List<Integer> elements = inner.repeat.apply(i).toList();
+			if (!elements.isEmpty()) return elements.get(0);
+		}
+		return null;
+	}
+
+	/**
+	 * Before Java 10, {@code java.util.stream} reads each inner stream entirely, even when the terminal operation
+	 * short-circuits.
+	 */
+	@Benchmark
+	public Integer findFirstJdk(Data data, Inner inner) {
+		return data.jdkStream().flatMap(inner.jdkRepeat).findFirst().orElse(null);
+	}
+
+	@Benchmark
+	public List<Integer> limitStream4j(Data data, Inner inner) {
+		return data.stream().flatMap(inner.repeat).limit(Functions.LIMIT).toList();
+	}
+
+	@Benchmark
+	public List<Integer> limitEager(Data data, Inner inner) {
+		final List<Integer> res = new ArrayList<Integer>();
+		for (final Integer i : data.list) {
+			for (final Integer j : inner.repeat.apply(i).toList()) {
+				if (res.size() == Functions.LIMIT) return res;
+				res.add(j);
+			}
+		}
+		return res;
+	}
+
+	@Benchmark
+	public List<Integer> limitJdk(Data data, Inner inner) {
+		return data.jdkStream().flatMap(inner.jdkRepeat).limit(Functions.LIMIT).collect(Collectors.toList());
+	}
+}
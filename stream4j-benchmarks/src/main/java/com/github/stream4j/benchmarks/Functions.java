@@ -0,0 +1,76 @@
+package com.github.stream4j.benchmarks;
+
+import java.util.Comparator;
+
+import com.github.stream4j.Function;
+import com.github.stream4j.LongBinaryOperator;
+import com.github.stream4j.Predicate;
+import com.github.stream4j.Stream;
+import com.github.stream4j.ToLongFunction;
+
+/**
+ * The functions passed to the stream operations. The java.util.stream baselines use the equivalent lambdas.
+ */
+final class Functions {
+	static final int KEYS = 100;
+	static final int LIMIT = 10;
+
+	static final Predicate<Integer> EVEN = new Predicate<Integer>() {
+
+		@Override
+		public boolean test(Integer t) {
+			return (t & 1) == 0;
+		}
+	};
+
+	static final Function<Integer, Integer> PLUS_ONE = new Function<Integer, Integer>() {
+
+		@Override
+		public Integer apply(Integer t) {
+			return t + 1;
+		}
+	};
+
+	static final Function<Integer, Integer> KEY = new Function<Integer, Integer>() {
+
+		@Override
+		public Integer apply(Integer t) {
+			return t % KEYS;
+		}
+	};
+
+	static final Function<Integer, Stream<Integer>> TWICE = new Function<Integer, Stream<Integer>>() {
+
+		@Override
+		public Stream<Integer> apply(Integer t) {
+			return Stream.of(t, t);
+		}
+	};
+
+	static final ToLongFunction<Integer> TO_LONG = new ToLongFunction<Integer>() {
+
+		@Override
+		public long applyAsLong(Integer value) {
+			return value;
+		}
+	};
+
+	static final LongBinaryOperator SUM = new LongBinaryOperator() {
+
+		@Override
+		public long applyAsLong(long left, long right) {
+			return left + right;
+		}
+	};
+
+	static final Comparator<Integer> NATURAL = new Comparator<Integer>() {
+
+		@Override
+		public int compare(Integer o1, Integer o2) {
+			return o1.compareTo(o2);
+		}
+	};
+
+	private Functions() {
+	}
+}
@@ -0,0 +1,51 @@
+package com.github.stream4j.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code groupBy} into {@value Functions#KEYS} groups.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GroupByBenchmark {
+	@Benchmark
+	public Map<Integer, List<Integer>> stream4j(Data data) {
+		return data.stream().groupBy(Functions.KEY);
+	}
+
+	@Benchmark
+	public Map<Integer, List<Integer>> loop(Data data) {
+		final Map<Integer, List<Integer>> res = new HashMap<Integer, List<Integer>>();
+		for (final Integer i : data.list) {
+			final Integer key = i % Functions.KEYS;
+			List<Integer> l = res.get(key);
+			if (l == null) {
+				l = new ArrayList<Integer>();
+				res.put(key, l);
+			}
+			l.add(i);
+		}
+		return res;
+	}
+
+	@Benchmark
+	public Map<Integer, List<Integer>> jdk(Data data) {
+		return data.jdkStream().collect(Collectors.groupingBy(i -> i % Functions.KEYS));
+	}
+}
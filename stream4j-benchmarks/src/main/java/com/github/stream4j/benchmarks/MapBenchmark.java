@@ -0,0 +1,43 @@
+package com.github.stream4j.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code map} followed by {@code toList}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapBenchmark {
+	@Benchmark
+	public List<Integer> stream4j(Data data) {
+		return data.stream().map(Functions.PLUS_ONE).toList();
+	}
+
+	@Benchmark
+	public List<Integer> loop(Data data) {
+		final List<Integer> res = new ArrayList<Integer>(data.isSized() ? data.list.size() : 10);
+		for (final Integer i : data.list) {
+			res.add(i + 1);
+		}
+		return res;
+	}
+
+	@Benchmark
+	public List<Integer> jdk(Data data) {
+		return data.jdkStream().map(i -> i + 1).collect(Collectors.toList());
+	}
+}
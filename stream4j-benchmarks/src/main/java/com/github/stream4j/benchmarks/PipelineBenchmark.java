@@ -0,0 +1,161 @@
+package com.github.stream4j.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.stream4j.Function;
+import com.github.stream4j.Predicate;
+
+/**
+ * {@code filter} and {@code map}, optionally followed by {@code limit} to {@value Functions#LIMIT} elements, then
+ * {@code toList}: the push-based pipeline of stream4j (one sink per stage, driven by a single loop over the source),
+ * compared with the chain of wrapped iterators previously built by these operations (one {@code hasNext} /
+ * {@code next} pair per stage and per element).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+	@Benchmark
+	public List<Integer> filterMap(Data data) {
+		return data.stream().filter(Functions.EVEN).map(Functions.PLUS_ONE).toList();
+	}
+
+	@Benchmark
+	public List<Integer> filterMapIterators(Data data) {
+		return toList(new MapIterator<Integer, Integer>(new FilterIterator<Integer>(data.list.iterator(),
+				Functions.EVEN), Functions.PLUS_ONE));
+	}
+
+	@Benchmark
+	public List<Integer> filterMapLimit(Data data) {
+		return data.stream().filter(Functions.EVEN).map(Functions.PLUS_ONE).limit(Functions.LIMIT).toList();
+	}
+
+	@Benchmark
+	public List<Integer> filterMapLimitIterators(Data data) {
+		return toList(new LimitIterator<Integer>(new MapIterator<Integer, Integer>(new FilterIterator<Integer>(
+				data.list.iterator(), Functions.EVEN), Functions.PLUS_ONE), Functions.LIMIT));
+	}
+
+	static <T> List<T> toList(Iterator<? extends T> iterator) {
+		final List<T> res = new ArrayList<T>();
+		while (iterator.hasNext()) {
+			res.add(iterator.next());
+		}
+		return res;
+	}
+
+	/**
+	 * The iterator previously returned by {@code filter}.
+	 */
+	static class FilterIterator<T> implements Iterator<T> {
+		private final Iterator<? extends T> wrapped;
+		private final Predicate<? super T> predicate;
+		private T next;
+		private boolean hasNext = false;
+
+		FilterIterator(Iterator<? extends T> wrapped, Predicate<? super T> predicate) {
+			this.wrapped = wrapped;
+			this.predicate = predicate;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!hasNext && wrapped.hasNext()) {
+				final T t = wrapped.next();
+				if (predicate.test(t)) {
+					next = t;
+					hasNext = true;
+				}
+			}
+			return hasNext;
+		}
+
+		@Override
+		public T next() {
+			if (!hasNext()) throw new NoSuchElementException();
+			hasNext = false;
+			final T res = next;
+			next = null;
+			return res;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * The iterator previously returned by {@code map}.
+	 */
+	static class MapIterator<T, R> implements Iterator<R> {
+		private final Iterator<? extends T> wrapped;
+		private final Function<? super T, ? extends R> mapper;
+
+		MapIterator(Iterator<? extends T> wrapped, Function<? super T, ? extends R> mapper) {
+			this.wrapped = wrapped;
+			this.mapper = mapper;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return wrapped.hasNext();
+		}
+
+		@Override
+		public R next() {
+			return mapper.apply(wrapped.next());
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * The iterator previously returned by {@code limit}.
+	 */
+	static class LimitIterator<T> implements Iterator<T> {
+		private final Iterator<? extends T> wrapped;
+		private final long maxSize;
+		private long count = 0;
+
+		LimitIterator(Iterator<? extends T> wrapped, long maxSize) {
+			this.wrapped = wrapped;
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return count < maxSize && wrapped.hasNext();
+		}
+
+		@Override
+		public T next() {
+			if (count >= maxSize) throw new NoSuchElementException();
+			count++;
+			return wrapped.next();
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
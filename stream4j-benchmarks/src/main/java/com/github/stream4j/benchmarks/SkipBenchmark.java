@@ -0,0 +1,49 @@
+package com.github.stream4j.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code skip} of half the elements, followed by {@code toList}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SkipBenchmark {
+	@Benchmark
+	public List<Integer> stream4j(Data data) {
+		return data.stream().skip(data.size / 2).toList();
+	}
+
+	@Benchmark
+	public List<Integer> loop(Data data) {
+		if (data.isSized()) return new ArrayList<Integer>(data.list.subList(data.size / 2, data.size));
+		final List<Integer> res = new ArrayList<Integer>();
+		final Iterator<Integer> it = data.list.iterator();
+		for (int i = 0; i < data.size / 2 && it.hasNext(); i++) {
+			it.next();
+		}
+		while (it.hasNext()) {
+			res.add(it.next());
+		}
+		return res;
+	}
+
+	@Benchmark
+	public List<Integer> jdk(Data data) {
+		return data.jdkStream().skip(data.size / 2).collect(Collectors.toList());
+	}
+}
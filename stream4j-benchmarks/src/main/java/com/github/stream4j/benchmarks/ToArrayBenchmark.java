@@ -0,0 +1,63 @@
+package com.github.stream4j.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.stream4j.IntFunction;
+
+/**
+ * {@code map} and {@code filter} followed by {@code toArray} or {@code toList}. Run with the GC profiler to compare the
+ * bytes allocated: when the size is known, {@code toArray} allocates the result once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToArrayBenchmark {
+	private static final IntFunction<Integer[]> NEW_ARRAY = new IntFunction<Integer[]>() {
+
+		@Override
+		public Integer[] apply(int value) {
+			return new Integer[value];
+		}
+	};
+
+	@Benchmark
+	public Integer[] mapToArray(Data data) {
+		return data.stream().map(Functions.PLUS_ONE).toArray(NEW_ARRAY);
+	}
+
+	@Benchmark
+	public List<Integer> mapToList(Data data) {
+		return data.stream().map(Functions.PLUS_ONE).toList();
+	}
+
+	@Benchmark
+	public Integer[] filterToArray(Data data) {
+		return data.stream().filter(Functions.EVEN).toArray(NEW_ARRAY);
+	}
+
+	@Benchmark
+	public Integer[] loop(Data data) {
+		final Integer[] res = new Integer[data.list.size()];
+		int i = 0;
+		for (final Integer t : data.list) {
+			res[i++] = t + 1;
+		}
+		return res;
+	}
+
+	@Benchmark
+	public Integer[] jdk(Data data) {
+		return data.jdkStream().map(i -> i + 1).toArray(Integer[]::new);
+	}
+}
@@ -0,0 +1,44 @@
+package com.github.stream4j.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code toMap} with {@value Functions#KEYS} distinct keys (the last element of each key is kept).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToMapBenchmark {
+	@Benchmark
+	public Map<Integer, Integer> stream4j(Data data) {
+		return data.stream().toMap(Functions.KEY);
+	}
+
+	@Benchmark
+	public Map<Integer, Integer> loop(Data data) {
+		final Map<Integer, Integer> res = new HashMap<Integer, Integer>();
+		for (final Integer i : data.list) {
+			res.put(i % Functions.KEYS, i);
+		}
+		return res;
+	}
+
+	@Benchmark
+	public Map<Integer, Integer> jdk(Data data) {
+		return data.jdkStream().collect(Collectors.toMap(i -> i % Functions.KEYS, Function.identity(), (a, b) -> b));
+	}
+}
@@ -0,0 +1,53 @@
+package com.github.stream4j.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@code sorted}, then {@code limit} to {@value Functions#LIMIT} elements, followed by {@code toList}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopKBenchmark {
+	@Benchmark
+	public List<Integer> stream4j(Data data) {
+		return data.stream().sorted(Functions.NATURAL).limit(Functions.LIMIT).toList();
+	}
+
+	@Benchmark
+	public List<Integer> loop(Data data) {
+		final PriorityQueue<Integer> heap = new PriorityQueue<Integer>(Functions.LIMIT,
+				Collections.reverseOrder(Functions.NATURAL));
+		for (final Integer i : data.list) {
+			if (heap.size() < Functions.LIMIT) {
+				heap.add(i);
+			} else if (i < heap.peek()) {
+				heap.poll();
+				heap.add(i);
+			}
+		}
+		final List<Integer> res = new ArrayList<Integer>(heap);
+		Collections.sort(res, Functions.NATURAL);
+		return res;
+	}
+
+	@Benchmark
+	public List<Integer> jdk(Data data) {
+		return data.jdkStream().sorted(Functions.NATURAL).limit(Functions.LIMIT).collect(Collectors.toList());
+	}
+}